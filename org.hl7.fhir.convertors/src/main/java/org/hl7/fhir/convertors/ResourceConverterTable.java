@@ -0,0 +1,90 @@
+package org.hl7.fhir.convertors;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.hl7.fhir.exceptions.FHIRException;
+
+/**
+ * The converters for the resources of one version to another, by the class of the resource.
+ *
+ * The version convertors used to choose the converter for a resource by testing it against
+ * each resource type in turn, so the types at the end of the list paid for all the tests in
+ * front of them. With this, it's a map lookup. Subclasses of the resource classes (e.g.
+ * from HAPI) get the converter for the nearest class that has one, as they did with instanceof.
+ *
+ * A table is filled in once (with add), and is then only read, so it can be shared between threads
+ *
+ * @param <S> the resource class of the version that's converted from
+ * @param <T> the resource class of the version that's converted to
+ * @param <C> what's passed through to the converters that need it (e.g. an advisor), or Void
+ */
+public class ResourceConverterTable<S, T, C> {
+
+  public interface SimpleResourceConverter<S, T> {
+    T convert(S src) throws FHIRException;
+  }
+
+  public interface ResourceConverter<S, T, C> {
+    T convert(S src, C context) throws FHIRException;
+  }
+
+  private final ResourceConverter<S, T, C> none = (src, context) -> null;
+  private final Map<Class<?>, ResourceConverter<S, T, C>> converters = new HashMap<>();
+  private final Map<Class<?>, ResourceConverter<S, T, C>> subclasses = new ConcurrentHashMap<>();
+
+  /**
+   * add the converter for a resource type. If the type already has one, it's kept (as the
+   * first matching instanceof test was used)
+   */
+  public <X extends S> ResourceConverterTable<S, T, C> add(Class<X> type, SimpleResourceConverter<X, ? extends T> converter) {
+    converters.putIfAbsent(type, (src, context) -> converter.convert(type.cast(src)));
+    return this;
+  }
+
+  /**
+   * add the converter for a resource type, for converters that need the context passed to convert()
+   */
+  public <X extends S> ResourceConverterTable<S, T, C> addWithContext(Class<X> type, ResourceConverter<X, ? extends T, C> converter) {
+    converters.putIfAbsent(type, (src, context) -> converter.convert(type.cast(src), context));
+    return this;
+  }
+
+  public boolean converts(S src) {
+    return getConverter(src.getClass()) != null;
+  }
+
+  /**
+   * @throws FHIRException if the resource is not one this table converts (check with converts(src))
+   */
+  public T convert(S src, C context) throws FHIRException {
+    ResourceConverter<S, T, C> converter = getConverter(src.getClass());
+    if (converter == null) {
+      throw new FHIRException("Unknown resource " + src.getClass().getName());
+    }
+    return converter.convert(src, context);
+  }
+
+  private ResourceConverter<S, T, C> getConverter(Class<?> type) {
+    ResourceConverter<S, T, C> res = converters.get(type);
+    if (res == null) {
+      res = subclasses.computeIfAbsent(type, this::findForSubclass);
+    }
+    return res == none ? null : res;
+  }
+
+  private ResourceConverter<S, T, C> findForSubclass(Class<?> type) {
+    for (Class<?> c = type.getSuperclass(); c != null; c = c.getSuperclass()) {
+      ResourceConverter<S, T, C> res = converters.get(c);
+      if (res != null) {
+        return res;
+      }
+    }
+    return none;
+  }
+
+  public int size() {
+    return converters.size();
+  }
+}
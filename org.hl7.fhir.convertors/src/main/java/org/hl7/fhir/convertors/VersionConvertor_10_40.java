@@ -3176,237 +3176,140 @@ public class VersionConvertor_10_40 {
         return t.hasCoding() && ("http://unstats.un.org/unsd/methods/m49/m49.htm".equals(t.getCoding().get(0).getSystem()) || "urn:iso:std:iso:3166".equals(t.getCoding().get(0).getSystem()) || "https://www.usps.com/".equals(t.getCoding().get(0).getSystem()));
     }
 
+    /**
+     * the resource converters, by the class of the resource they convert (see convertResource).
+     * They are set up the first time a resource is converted
+     */
+    private static class ResourceConverters {
+        private static final ResourceConverterTable<org.hl7.fhir.dstu2.model.Resource, org.hl7.fhir.r4.model.Resource, VersionConvertorAdvisor40> TO_R4 = new ResourceConverterTable<org.hl7.fhir.dstu2.model.Resource, org.hl7.fhir.r4.model.Resource, VersionConvertorAdvisor40>()
+            .add(org.hl7.fhir.dstu2.model.Parameters.class, Parameters10_40::convertParameters)
+            .add(org.hl7.fhir.dstu2.model.Appointment.class, Appointment10_40::convertAppointment)
+            .add(org.hl7.fhir.dstu2.model.AllergyIntolerance.class, AllergyIntolerance10_40::convertAllergyIntolerance)
+            .add(org.hl7.fhir.dstu2.model.AppointmentResponse.class, AppointmentResponse10_40::convertAppointmentResponse)
+            .add(org.hl7.fhir.dstu2.model.AuditEvent.class, AuditEvent10_40::convertAuditEvent)
+            .add(org.hl7.fhir.dstu2.model.Basic.class, Basic10_40::convertBasic)
+            .add(org.hl7.fhir.dstu2.model.Binary.class, Binary10_40::convertBinary)
+            .add(org.hl7.fhir.dstu2.model.Bundle.class, Bundle10_40::convertBundle)
+            .add(org.hl7.fhir.dstu2.model.CarePlan.class, CarePlan10_40::convertCarePlan)
+            .add(org.hl7.fhir.dstu2.model.Communication.class, Communication10_40::convertCommunication)
+            .add(org.hl7.fhir.dstu2.model.CommunicationRequest.class, CommunicationRequest10_40::convertCommunicationRequest)
+            .add(org.hl7.fhir.dstu2.model.Composition.class, Composition10_40::convertComposition)
+            .add(org.hl7.fhir.dstu2.model.ConceptMap.class, ConceptMap10_40::convertConceptMap)
+            .add(org.hl7.fhir.dstu2.model.Condition.class, Condition10_40::convertCondition)
+            .add(org.hl7.fhir.dstu2.model.Conformance.class, Conformance10_40::convertConformance)
+            .add(org.hl7.fhir.dstu2.model.DataElement.class, DataElement10_40::convertDataElement)
+            .add(org.hl7.fhir.dstu2.model.DetectedIssue.class, DetectedIssue10_40::convertDetectedIssue)
+            .add(org.hl7.fhir.dstu2.model.DeviceMetric.class, DeviceMetric10_40::convertDeviceMetric)
+            .add(org.hl7.fhir.dstu2.model.DeviceUseStatement.class, DeviceUseStatement10_40::convertDeviceUseStatement)
+            .add(org.hl7.fhir.dstu2.model.DiagnosticReport.class, DiagnosticReport10_40::convertDiagnosticReport)
+            .add(org.hl7.fhir.dstu2.model.DocumentReference.class, DocumentReference10_40::convertDocumentReference)
+            .add(org.hl7.fhir.dstu2.model.Encounter.class, Encounter10_40::convertEncounter)
+            .add(org.hl7.fhir.dstu2.model.EnrollmentRequest.class, EnrollmentRequest10_40::convertEnrollmentRequest)
+            .add(org.hl7.fhir.dstu2.model.EnrollmentResponse.class, EnrollmentResponse10_40::convertEnrollmentResponse)
+            .add(org.hl7.fhir.dstu2.model.EpisodeOfCare.class, EpisodeOfCare10_40::convertEpisodeOfCare)
+            .add(org.hl7.fhir.dstu2.model.FamilyMemberHistory.class, FamilyMemberHistory10_40::convertFamilyMemberHistory)
+            .add(org.hl7.fhir.dstu2.model.Flag.class, Flag10_40::convertFlag)
+            .add(org.hl7.fhir.dstu2.model.Group.class, Group10_40::convertGroup)
+            .add(org.hl7.fhir.dstu2.model.HealthcareService.class, HealthcareService10_40::convertHealthcareService)
+            .add(org.hl7.fhir.dstu2.model.ImplementationGuide.class, ImplementationGuide10_40::convertImplementationGuide)
+            .add(org.hl7.fhir.dstu2.model.List_.class, List10_40::convertList)
+            .add(org.hl7.fhir.dstu2.model.Location.class, Location10_40::convertLocation)
+            .add(org.hl7.fhir.dstu2.model.MedicationDispense.class, MedicationDispense10_40::convertMedicationDispense)
+            .add(org.hl7.fhir.dstu2.model.MedicationStatement.class, MedicationStatement10_40::convertMedicationStatement)
+            .add(org.hl7.fhir.dstu2.model.MedicationOrder.class, MedicationRequest10_40::convertMedicationRequest)
+            .add(org.hl7.fhir.dstu2.model.MessageHeader.class, MessageHeader10_40::convertMessageHeader)
+            .add(org.hl7.fhir.dstu2.model.NamingSystem.class, NamingSystem10_40::convertNamingSystem)
+            .add(org.hl7.fhir.dstu2.model.Observation.class, Observation10_40::convertObservation)
+            .add(org.hl7.fhir.dstu2.model.OperationDefinition.class, OperationDefinition10_40::convertOperationDefinition)
+            .add(org.hl7.fhir.dstu2.model.OperationOutcome.class, OperationOutcome10_40::convertOperationOutcome)
+            .add(org.hl7.fhir.dstu2.model.Organization.class, Organization10_40::convertOrganization)
+            .add(org.hl7.fhir.dstu2.model.Patient.class, Patient10_40::convertPatient)
+            .add(org.hl7.fhir.dstu2.model.Person.class, Person10_40::convertPerson)
+            .add(org.hl7.fhir.dstu2.model.Practitioner.class, Practitioner10_40::convertPractitioner)
+            .add(org.hl7.fhir.dstu2.model.Questionnaire.class, Questionnaire10_40::convertQuestionnaire)
+            .add(org.hl7.fhir.dstu2.model.QuestionnaireResponse.class, QuestionnaireResponse10_40::convertQuestionnaireResponse)
+            .add(org.hl7.fhir.dstu2.model.RiskAssessment.class, RiskAssessment10_40::convertRiskAssessment)
+            .add(org.hl7.fhir.dstu2.model.Schedule.class, Schedule10_40::convertSchedule)
+            .add(org.hl7.fhir.dstu2.model.SearchParameter.class, SearchParameter10_40::convertSearchParameter)
+            .add(org.hl7.fhir.dstu2.model.Slot.class, Slot10_40::convertSlot)
+            .add(org.hl7.fhir.dstu2.model.StructureDefinition.class, StructureDefinition10_40::convertStructureDefinition)
+            .add(org.hl7.fhir.dstu2.model.Subscription.class, Subscription10_40::convertSubscription)
+            .add(org.hl7.fhir.dstu2.model.Substance.class, Substance10_40::convertSubstance)
+            .add(org.hl7.fhir.dstu2.model.SupplyDelivery.class, SupplyDelivery10_40::convertSupplyDelivery)
+            .add(org.hl7.fhir.dstu2.model.SupplyRequest.class, SupplyRequest10_40::convertSupplyRequest)
+            .add(org.hl7.fhir.dstu2.model.TestScript.class, TestScript10_40::convertTestScript)
+            .addWithContext(org.hl7.fhir.dstu2.model.ValueSet.class, ValueSet10_40::convertValueSet);
+
+        private static final ResourceConverterTable<org.hl7.fhir.r4.model.Resource, org.hl7.fhir.dstu2.model.Resource, VersionConvertorAdvisor40> TO_DSTU2 = new ResourceConverterTable<org.hl7.fhir.r4.model.Resource, org.hl7.fhir.dstu2.model.Resource, VersionConvertorAdvisor40>()
+            .add(org.hl7.fhir.r4.model.Parameters.class, Parameters10_40::convertParameters)
+            .add(org.hl7.fhir.r4.model.Appointment.class, Appointment10_40::convertAppointment)
+            .add(org.hl7.fhir.r4.model.AppointmentResponse.class, AppointmentResponse10_40::convertAppointmentResponse)
+            .add(org.hl7.fhir.r4.model.AuditEvent.class, AuditEvent10_40::convertAuditEvent)
+            .add(org.hl7.fhir.r4.model.Basic.class, Basic10_40::convertBasic)
+            .add(org.hl7.fhir.r4.model.Binary.class, Binary10_40::convertBinary)
+            .addWithContext(org.hl7.fhir.r4.model.Bundle.class, Bundle10_40::convertBundle)
+            .add(org.hl7.fhir.r4.model.CarePlan.class, CarePlan10_40::convertCarePlan)
+            .add(org.hl7.fhir.r4.model.Communication.class, Communication10_40::convertCommunication)
+            .add(org.hl7.fhir.r4.model.CommunicationRequest.class, CommunicationRequest10_40::convertCommunicationRequest)
+            .add(org.hl7.fhir.r4.model.Composition.class, Composition10_40::convertComposition)
+            .add(org.hl7.fhir.r4.model.ConceptMap.class, ConceptMap10_40::convertConceptMap)
+            .add(org.hl7.fhir.r4.model.Condition.class, Condition10_40::convertCondition)
+            .add(org.hl7.fhir.r4.model.CapabilityStatement.class, Conformance10_40::convertConformance)
+            .add(org.hl7.fhir.r4.model.DetectedIssue.class, DetectedIssue10_40::convertDetectedIssue)
+            .add(org.hl7.fhir.r4.model.DeviceMetric.class, DeviceMetric10_40::convertDeviceMetric)
+            .add(org.hl7.fhir.r4.model.DeviceUseStatement.class, DeviceUseStatement10_40::convertDeviceUseStatement)
+            .add(org.hl7.fhir.r4.model.DiagnosticReport.class, DiagnosticReport10_40::convertDiagnosticReport)
+            .add(org.hl7.fhir.r4.model.DocumentReference.class, DocumentReference10_40::convertDocumentReference)
+            .add(org.hl7.fhir.r4.model.Encounter.class, Encounter10_40::convertEncounter)
+            .add(org.hl7.fhir.r4.model.EnrollmentRequest.class, EnrollmentRequest10_40::convertEnrollmentRequest)
+            .add(org.hl7.fhir.r4.model.EnrollmentResponse.class, EnrollmentResponse10_40::convertEnrollmentResponse)
+            .add(org.hl7.fhir.r4.model.EpisodeOfCare.class, EpisodeOfCare10_40::convertEpisodeOfCare)
+            .add(org.hl7.fhir.r4.model.FamilyMemberHistory.class, FamilyMemberHistory10_40::convertFamilyMemberHistory)
+            .add(org.hl7.fhir.r4.model.Flag.class, Flag10_40::convertFlag)
+            .add(org.hl7.fhir.r4.model.Group.class, Group10_40::convertGroup)
+            .add(org.hl7.fhir.r4.model.HealthcareService.class, HealthcareService10_40::convertHealthcareService)
+            .add(org.hl7.fhir.r4.model.ImplementationGuide.class, ImplementationGuide10_40::convertImplementationGuide)
+            .add(org.hl7.fhir.r4.model.ListResource.class, List10_40::convertList)
+            .add(org.hl7.fhir.r4.model.Location.class, Location10_40::convertLocation)
+            .add(org.hl7.fhir.r4.model.MedicationDispense.class, MedicationDispense10_40::convertMedicationDispense)
+            .add(org.hl7.fhir.r4.model.MedicationStatement.class, MedicationStatement10_40::convertMedicationStatement)
+            .add(org.hl7.fhir.r4.model.MessageHeader.class, MessageHeader10_40::convertMessageHeader)
+            .add(org.hl7.fhir.r4.model.NamingSystem.class, NamingSystem10_40::convertNamingSystem)
+            .add(org.hl7.fhir.r4.model.Observation.class, Observation10_40::convertObservation)
+            .add(org.hl7.fhir.r4.model.OperationDefinition.class, OperationDefinition10_40::convertOperationDefinition)
+            .add(org.hl7.fhir.r4.model.OperationOutcome.class, OperationOutcome10_40::convertOperationOutcome)
+            .add(org.hl7.fhir.r4.model.Organization.class, Organization10_40::convertOrganization)
+            .add(org.hl7.fhir.r4.model.Patient.class, Patient10_40::convertPatient)
+            .add(org.hl7.fhir.r4.model.Person.class, Person10_40::convertPerson)
+            .add(org.hl7.fhir.r4.model.Practitioner.class, Practitioner10_40::convertPractitioner)
+            .add(org.hl7.fhir.r4.model.Questionnaire.class, Questionnaire10_40::convertQuestionnaire)
+            .add(org.hl7.fhir.r4.model.QuestionnaireResponse.class, QuestionnaireResponse10_40::convertQuestionnaireResponse)
+            .add(org.hl7.fhir.r4.model.RiskAssessment.class, RiskAssessment10_40::convertRiskAssessment)
+            .add(org.hl7.fhir.r4.model.Schedule.class, Schedule10_40::convertSchedule)
+            .add(org.hl7.fhir.r4.model.SearchParameter.class, SearchParameter10_40::convertSearchParameter)
+            .add(org.hl7.fhir.r4.model.Slot.class, Slot10_40::convertSlot)
+            .add(org.hl7.fhir.r4.model.StructureDefinition.class, StructureDefinition10_40::convertStructureDefinition)
+            .add(org.hl7.fhir.r4.model.Subscription.class, Subscription10_40::convertSubscription)
+            .add(org.hl7.fhir.r4.model.Substance.class, Substance10_40::convertSubstance)
+            .add(org.hl7.fhir.r4.model.SupplyDelivery.class, SupplyDelivery10_40::convertSupplyDelivery)
+            .add(org.hl7.fhir.r4.model.SupplyRequest.class, SupplyRequest10_40::convertSupplyRequest)
+            .add(org.hl7.fhir.r4.model.TestScript.class, TestScript10_40::convertTestScript)
+            .addWithContext(org.hl7.fhir.r4.model.ValueSet.class, ValueSet10_40::convertValueSet);
+    }
+
     public static org.hl7.fhir.r4.model.Resource convertResource(org.hl7.fhir.dstu2.model.Resource src, VersionConvertorAdvisor40 advisor) throws FHIRException {
         if (src == null || src.isEmpty())
             return null;
-        if (src instanceof org.hl7.fhir.dstu2.model.Parameters)
-            return Parameters10_40.convertParameters((org.hl7.fhir.dstu2.model.Parameters) src);
-        if (src instanceof org.hl7.fhir.dstu2.model.Appointment)
-            return Appointment10_40.convertAppointment((org.hl7.fhir.dstu2.model.Appointment) src);
-        if (src instanceof org.hl7.fhir.dstu2.model.AllergyIntolerance)
-            return AllergyIntolerance10_40.convertAllergyIntolerance((org.hl7.fhir.dstu2.model.AllergyIntolerance) src);
-        if (src instanceof org.hl7.fhir.dstu2.model.AppointmentResponse)
-            return AppointmentResponse10_40.convertAppointmentResponse((org.hl7.fhir.dstu2.model.AppointmentResponse) src);
-        if (src instanceof org.hl7.fhir.dstu2.model.AuditEvent)
-            return AuditEvent10_40.convertAuditEvent((org.hl7.fhir.dstu2.model.AuditEvent) src);
-        if (src instanceof org.hl7.fhir.dstu2.model.Basic)
-            return Basic10_40.convertBasic((org.hl7.fhir.dstu2.model.Basic) src);
-        if (src instanceof org.hl7.fhir.dstu2.model.Binary)
-            return Binary10_40.convertBinary((org.hl7.fhir.dstu2.model.Binary) src);
-        if (src instanceof org.hl7.fhir.dstu2.model.Bundle)
-            return Bundle10_40.convertBundle((org.hl7.fhir.dstu2.model.Bundle) src);
-        if (src instanceof org.hl7.fhir.dstu2.model.CarePlan)
-            return CarePlan10_40.convertCarePlan((org.hl7.fhir.dstu2.model.CarePlan) src);
-        if (src instanceof org.hl7.fhir.dstu2.model.Communication)
-            return Communication10_40.convertCommunication((org.hl7.fhir.dstu2.model.Communication) src);
-        if (src instanceof org.hl7.fhir.dstu2.model.CommunicationRequest)
-            return CommunicationRequest10_40.convertCommunicationRequest((org.hl7.fhir.dstu2.model.CommunicationRequest) src);
-        if (src instanceof org.hl7.fhir.dstu2.model.Composition)
-            return Composition10_40.convertComposition((org.hl7.fhir.dstu2.model.Composition) src);
-        if (src instanceof org.hl7.fhir.dstu2.model.ConceptMap)
-            return ConceptMap10_40.convertConceptMap((org.hl7.fhir.dstu2.model.ConceptMap) src);
-        if (src instanceof org.hl7.fhir.dstu2.model.Condition)
-            return Condition10_40.convertCondition((org.hl7.fhir.dstu2.model.Condition) src);
-        if (src instanceof org.hl7.fhir.dstu2.model.Conformance)
-            return Conformance10_40.convertConformance((org.hl7.fhir.dstu2.model.Conformance) src);
-        if (src instanceof org.hl7.fhir.dstu2.model.DataElement)
-            return DataElement10_40.convertDataElement((org.hl7.fhir.dstu2.model.DataElement) src);
-        if (src instanceof org.hl7.fhir.dstu2.model.DetectedIssue)
-            return DetectedIssue10_40.convertDetectedIssue((org.hl7.fhir.dstu2.model.DetectedIssue) src);
-        if (src instanceof org.hl7.fhir.dstu2.model.DeviceMetric)
-            return DeviceMetric10_40.convertDeviceMetric((org.hl7.fhir.dstu2.model.DeviceMetric) src);
-        if (src instanceof org.hl7.fhir.dstu2.model.DeviceUseStatement)
-            return DeviceUseStatement10_40.convertDeviceUseStatement((org.hl7.fhir.dstu2.model.DeviceUseStatement) src);
-        if (src instanceof org.hl7.fhir.dstu2.model.DiagnosticReport)
-            return DiagnosticReport10_40.convertDiagnosticReport((org.hl7.fhir.dstu2.model.DiagnosticReport) src);
-        if (src instanceof org.hl7.fhir.dstu2.model.DocumentReference)
-            return DocumentReference10_40.convertDocumentReference((org.hl7.fhir.dstu2.model.DocumentReference) src);
-        if (src instanceof org.hl7.fhir.dstu2.model.Encounter)
-            return Encounter10_40.convertEncounter((org.hl7.fhir.dstu2.model.Encounter) src);
-        if (src instanceof org.hl7.fhir.dstu2.model.EnrollmentRequest)
-            return EnrollmentRequest10_40.convertEnrollmentRequest((org.hl7.fhir.dstu2.model.EnrollmentRequest) src);
-        if (src instanceof org.hl7.fhir.dstu2.model.EnrollmentResponse)
-            return EnrollmentResponse10_40.convertEnrollmentResponse((org.hl7.fhir.dstu2.model.EnrollmentResponse) src);
-        if (src instanceof org.hl7.fhir.dstu2.model.EpisodeOfCare)
-            return EpisodeOfCare10_40.convertEpisodeOfCare((org.hl7.fhir.dstu2.model.EpisodeOfCare) src);
-        if (src instanceof org.hl7.fhir.dstu2.model.FamilyMemberHistory)
-            return FamilyMemberHistory10_40.convertFamilyMemberHistory((org.hl7.fhir.dstu2.model.FamilyMemberHistory) src);
-        if (src instanceof org.hl7.fhir.dstu2.model.Flag)
-            return Flag10_40.convertFlag((org.hl7.fhir.dstu2.model.Flag) src);
-        if (src instanceof org.hl7.fhir.dstu2.model.Group)
-            return Group10_40.convertGroup((org.hl7.fhir.dstu2.model.Group) src);
-        if (src instanceof org.hl7.fhir.dstu2.model.HealthcareService)
-            return HealthcareService10_40.convertHealthcareService((org.hl7.fhir.dstu2.model.HealthcareService) src);
-        if (src instanceof org.hl7.fhir.dstu2.model.ImplementationGuide)
-            return ImplementationGuide10_40.convertImplementationGuide((org.hl7.fhir.dstu2.model.ImplementationGuide) src);
-        if (src instanceof org.hl7.fhir.dstu2.model.List_)
-            return List10_40.convertList((org.hl7.fhir.dstu2.model.List_) src);
-        if (src instanceof org.hl7.fhir.dstu2.model.Location)
-            return Location10_40.convertLocation((org.hl7.fhir.dstu2.model.Location) src);
-        if (src instanceof org.hl7.fhir.dstu2.model.MedicationDispense)
-            return MedicationDispense10_40.convertMedicationDispense((org.hl7.fhir.dstu2.model.MedicationDispense) src);
-        if (src instanceof org.hl7.fhir.dstu2.model.MedicationStatement)
-            return MedicationStatement10_40.convertMedicationStatement((org.hl7.fhir.dstu2.model.MedicationStatement) src);
-        if (src instanceof org.hl7.fhir.dstu2.model.MedicationOrder)
-            return MedicationRequest10_40.convertMedicationRequest((org.hl7.fhir.dstu2.model.MedicationOrder) src);
-        if (src instanceof org.hl7.fhir.dstu2.model.MessageHeader)
-            return MessageHeader10_40.convertMessageHeader((org.hl7.fhir.dstu2.model.MessageHeader) src);
-        if (src instanceof org.hl7.fhir.dstu2.model.NamingSystem)
-            return NamingSystem10_40.convertNamingSystem((org.hl7.fhir.dstu2.model.NamingSystem) src);
-        if (src instanceof org.hl7.fhir.dstu2.model.Observation)
-            return Observation10_40.convertObservation((org.hl7.fhir.dstu2.model.Observation) src);
-        if (src instanceof org.hl7.fhir.dstu2.model.OperationDefinition)
-            return OperationDefinition10_40.convertOperationDefinition((org.hl7.fhir.dstu2.model.OperationDefinition) src);
-        if (src instanceof org.hl7.fhir.dstu2.model.OperationOutcome)
-            return OperationOutcome10_40.convertOperationOutcome((org.hl7.fhir.dstu2.model.OperationOutcome) src);
-        if (src instanceof org.hl7.fhir.dstu2.model.Organization)
-            return Organization10_40.convertOrganization((org.hl7.fhir.dstu2.model.Organization) src);
-        if (src instanceof org.hl7.fhir.dstu2.model.Patient)
-            return Patient10_40.convertPatient((org.hl7.fhir.dstu2.model.Patient) src);
-        if (src instanceof org.hl7.fhir.dstu2.model.Person)
-            return Person10_40.convertPerson((org.hl7.fhir.dstu2.model.Person) src);
-        if (src instanceof org.hl7.fhir.dstu2.model.Practitioner)
-            return Practitioner10_40.convertPractitioner((org.hl7.fhir.dstu2.model.Practitioner) src);
-        if (src instanceof org.hl7.fhir.dstu2.model.Questionnaire)
-            return Questionnaire10_40.convertQuestionnaire((org.hl7.fhir.dstu2.model.Questionnaire) src);
-        if (src instanceof org.hl7.fhir.dstu2.model.QuestionnaireResponse)
-            return QuestionnaireResponse10_40.convertQuestionnaireResponse((org.hl7.fhir.dstu2.model.QuestionnaireResponse) src);
-        if (src instanceof org.hl7.fhir.dstu2.model.RiskAssessment)
-            return RiskAssessment10_40.convertRiskAssessment((org.hl7.fhir.dstu2.model.RiskAssessment) src);
-        if (src instanceof org.hl7.fhir.dstu2.model.Schedule)
-            return Schedule10_40.convertSchedule((org.hl7.fhir.dstu2.model.Schedule) src);
-        if (src instanceof org.hl7.fhir.dstu2.model.SearchParameter)
-            return SearchParameter10_40.convertSearchParameter((org.hl7.fhir.dstu2.model.SearchParameter) src);
-        if (src instanceof org.hl7.fhir.dstu2.model.Slot)
-            return Slot10_40.convertSlot((org.hl7.fhir.dstu2.model.Slot) src);
-        if (src instanceof org.hl7.fhir.dstu2.model.StructureDefinition)
-            return StructureDefinition10_40.convertStructureDefinition((org.hl7.fhir.dstu2.model.StructureDefinition) src);
-        if (src instanceof org.hl7.fhir.dstu2.model.Subscription)
-            return Subscription10_40.convertSubscription((org.hl7.fhir.dstu2.model.Subscription) src);
-        if (src instanceof org.hl7.fhir.dstu2.model.Substance)
-            return Substance10_40.convertSubstance((org.hl7.fhir.dstu2.model.Substance) src);
-        if (src instanceof org.hl7.fhir.dstu2.model.SupplyDelivery)
-            return SupplyDelivery10_40.convertSupplyDelivery((org.hl7.fhir.dstu2.model.SupplyDelivery) src);
-        if (src instanceof org.hl7.fhir.dstu2.model.SupplyRequest)
-            return SupplyRequest10_40.convertSupplyRequest((org.hl7.fhir.dstu2.model.SupplyRequest) src);
-        if (src instanceof org.hl7.fhir.dstu2.model.TestScript)
-            return TestScript10_40.convertTestScript((org.hl7.fhir.dstu2.model.TestScript) src);
-        if (src instanceof org.hl7.fhir.dstu2.model.ValueSet)
-            return ValueSet10_40.convertValueSet((org.hl7.fhir.dstu2.model.ValueSet) src, advisor);
+        if (ResourceConverters.TO_R4.converts(src))
+            return ResourceConverters.TO_R4.convert(src, advisor);
         throw new FHIRException("Unknown resource " + src.fhirType());
     }
 
     public static org.hl7.fhir.dstu2.model.Resource convertResource(org.hl7.fhir.r4.model.Resource src, VersionConvertorAdvisor40 advisor) throws FHIRException {
         if (src == null || src.isEmpty())
             return null;
-        if (src instanceof org.hl7.fhir.r4.model.Parameters)
-            return Parameters10_40.convertParameters((org.hl7.fhir.r4.model.Parameters) src);
-        if (src instanceof org.hl7.fhir.r4.model.Appointment)
-            return Appointment10_40.convertAppointment((org.hl7.fhir.r4.model.Appointment) src);
-        if (src instanceof org.hl7.fhir.r4.model.AppointmentResponse)
-            return AppointmentResponse10_40.convertAppointmentResponse((org.hl7.fhir.r4.model.AppointmentResponse) src);
-        if (src instanceof org.hl7.fhir.r4.model.AuditEvent)
-            return AuditEvent10_40.convertAuditEvent((org.hl7.fhir.r4.model.AuditEvent) src);
-        if (src instanceof org.hl7.fhir.r4.model.Basic)
-            return Basic10_40.convertBasic((org.hl7.fhir.r4.model.Basic) src);
-        if (src instanceof org.hl7.fhir.r4.model.Binary)
-            return Binary10_40.convertBinary((org.hl7.fhir.r4.model.Binary) src);
-        if (src instanceof org.hl7.fhir.r4.model.Bundle)
-            return Bundle10_40.convertBundle((org.hl7.fhir.r4.model.Bundle) src, advisor);
-        if (src instanceof org.hl7.fhir.r4.model.CarePlan)
-            return CarePlan10_40.convertCarePlan((org.hl7.fhir.r4.model.CarePlan) src);
-        if (src instanceof org.hl7.fhir.r4.model.Communication)
-            return Communication10_40.convertCommunication((org.hl7.fhir.r4.model.Communication) src);
-        if (src instanceof org.hl7.fhir.r4.model.CommunicationRequest)
-            return CommunicationRequest10_40.convertCommunicationRequest((org.hl7.fhir.r4.model.CommunicationRequest) src);
-        if (src instanceof org.hl7.fhir.r4.model.Composition)
-            return Composition10_40.convertComposition((org.hl7.fhir.r4.model.Composition) src);
-        if (src instanceof org.hl7.fhir.r4.model.ConceptMap)
-            return ConceptMap10_40.convertConceptMap((org.hl7.fhir.r4.model.ConceptMap) src);
-        if (src instanceof org.hl7.fhir.r4.model.Condition)
-            return Condition10_40.convertCondition((org.hl7.fhir.r4.model.Condition) src);
-        if (src instanceof org.hl7.fhir.r4.model.CapabilityStatement)
-            return Conformance10_40.convertConformance((org.hl7.fhir.r4.model.CapabilityStatement) src);
-        if (src instanceof org.hl7.fhir.r4.model.DetectedIssue)
-            return DetectedIssue10_40.convertDetectedIssue((org.hl7.fhir.r4.model.DetectedIssue) src);
-        if (src instanceof org.hl7.fhir.r4.model.DeviceMetric)
-            return DeviceMetric10_40.convertDeviceMetric((org.hl7.fhir.r4.model.DeviceMetric) src);
-        if (src instanceof org.hl7.fhir.r4.model.DeviceUseStatement)
-            return DeviceUseStatement10_40.convertDeviceUseStatement((org.hl7.fhir.r4.model.DeviceUseStatement) src);
-        if (src instanceof org.hl7.fhir.r4.model.DiagnosticReport)
-            return DiagnosticReport10_40.convertDiagnosticReport((org.hl7.fhir.r4.model.DiagnosticReport) src);
-        if (src instanceof org.hl7.fhir.r4.model.DocumentReference)
-            return DocumentReference10_40.convertDocumentReference((org.hl7.fhir.r4.model.DocumentReference) src);
-        if (src instanceof org.hl7.fhir.r4.model.Encounter)
-            return Encounter10_40.convertEncounter((org.hl7.fhir.r4.model.Encounter) src);
-        if (src instanceof org.hl7.fhir.r4.model.EnrollmentRequest)
-            return EnrollmentRequest10_40.convertEnrollmentRequest((org.hl7.fhir.r4.model.EnrollmentRequest) src);
-        if (src instanceof org.hl7.fhir.r4.model.EnrollmentResponse)
-            return EnrollmentResponse10_40.convertEnrollmentResponse((org.hl7.fhir.r4.model.EnrollmentResponse) src);
-        if (src instanceof org.hl7.fhir.r4.model.EpisodeOfCare)
-            return EpisodeOfCare10_40.convertEpisodeOfCare((org.hl7.fhir.r4.model.EpisodeOfCare) src);
-        if (src instanceof org.hl7.fhir.r4.model.FamilyMemberHistory)
-            return FamilyMemberHistory10_40.convertFamilyMemberHistory((org.hl7.fhir.r4.model.FamilyMemberHistory) src);
-        if (src instanceof org.hl7.fhir.r4.model.Flag)
-            return Flag10_40.convertFlag((org.hl7.fhir.r4.model.Flag) src);
-        if (src instanceof org.hl7.fhir.r4.model.Group)
-            return Group10_40.convertGroup((org.hl7.fhir.r4.model.Group) src);
-        if (src instanceof org.hl7.fhir.r4.model.HealthcareService)
-            return HealthcareService10_40.convertHealthcareService((org.hl7.fhir.r4.model.HealthcareService) src);
-        if (src instanceof org.hl7.fhir.r4.model.ImplementationGuide)
-            return ImplementationGuide10_40.convertImplementationGuide((org.hl7.fhir.r4.model.ImplementationGuide) src);
-        if (src instanceof org.hl7.fhir.r4.model.ListResource)
-            return List10_40.convertList((org.hl7.fhir.r4.model.ListResource) src);
-        if (src instanceof org.hl7.fhir.r4.model.Location)
-            return Location10_40.convertLocation((org.hl7.fhir.r4.model.Location) src);
-        if (src instanceof org.hl7.fhir.r4.model.MedicationDispense)
-            return MedicationDispense10_40.convertMedicationDispense((org.hl7.fhir.r4.model.MedicationDispense) src);
-        if (src instanceof org.hl7.fhir.r4.model.MedicationStatement)
-            return MedicationStatement10_40.convertMedicationStatement((org.hl7.fhir.r4.model.MedicationStatement) src);
-        if (src instanceof org.hl7.fhir.r4.model.MessageHeader)
-            return MessageHeader10_40.convertMessageHeader((org.hl7.fhir.r4.model.MessageHeader) src);
-        if (src instanceof org.hl7.fhir.r4.model.NamingSystem)
-            return NamingSystem10_40.convertNamingSystem((org.hl7.fhir.r4.model.NamingSystem) src);
-        if (src instanceof org.hl7.fhir.r4.model.Observation)
-            return Observation10_40.convertObservation((org.hl7.fhir.r4.model.Observation) src);
-        if (src instanceof org.hl7.fhir.r4.model.OperationDefinition)
-            return OperationDefinition10_40.convertOperationDefinition((org.hl7.fhir.r4.model.OperationDefinition) src);
-        if (src instanceof org.hl7.fhir.r4.model.OperationOutcome)
-            return OperationOutcome10_40.convertOperationOutcome((org.hl7.fhir.r4.model.OperationOutcome) src);
-        if (src instanceof org.hl7.fhir.r4.model.Organization)
-            return Organization10_40.convertOrganization((org.hl7.fhir.r4.model.Organization) src);
-        if (src instanceof org.hl7.fhir.r4.model.Patient)
-            return Patient10_40.convertPatient((org.hl7.fhir.r4.model.Patient) src);
-        if (src instanceof org.hl7.fhir.r4.model.Person)
-            return Person10_40.convertPerson((org.hl7.fhir.r4.model.Person) src);
-        if (src instanceof org.hl7.fhir.r4.model.Practitioner)
-            return Practitioner10_40.convertPractitioner((org.hl7.fhir.r4.model.Practitioner) src);
-        if (src instanceof org.hl7.fhir.r4.model.Questionnaire)
-            return Questionnaire10_40.convertQuestionnaire((org.hl7.fhir.r4.model.Questionnaire) src);
-        if (src instanceof org.hl7.fhir.r4.model.QuestionnaireResponse)
-            return QuestionnaireResponse10_40.convertQuestionnaireResponse((org.hl7.fhir.r4.model.QuestionnaireResponse) src);
-        if (src instanceof org.hl7.fhir.r4.model.RiskAssessment)
-            return RiskAssessment10_40.convertRiskAssessment((org.hl7.fhir.r4.model.RiskAssessment) src);
-        if (src instanceof org.hl7.fhir.r4.model.Schedule)
-            return Schedule10_40.convertSchedule((org.hl7.fhir.r4.model.Schedule) src);
-        if (src instanceof org.hl7.fhir.r4.model.SearchParameter)
-            return SearchParameter10_40.convertSearchParameter((org.hl7.fhir.r4.model.SearchParameter) src);
-        if (src instanceof org.hl7.fhir.r4.model.Slot)
-            return Slot10_40.convertSlot((org.hl7.fhir.r4.model.Slot) src);
-        if (src instanceof org.hl7.fhir.r4.model.StructureDefinition)
-            return StructureDefinition10_40.convertStructureDefinition((org.hl7.fhir.r4.model.StructureDefinition) src);
-        if (src instanceof org.hl7.fhir.r4.model.Subscription)
-            return Subscription10_40.convertSubscription((org.hl7.fhir.r4.model.Subscription) src);
-        if (src instanceof org.hl7.fhir.r4.model.Substance)
-            return Substance10_40.convertSubstance((org.hl7.fhir.r4.model.Substance) src);
-        if (src instanceof org.hl7.fhir.r4.model.SupplyDelivery)
-            return SupplyDelivery10_40.convertSupplyDelivery((org.hl7.fhir.r4.model.SupplyDelivery) src);
-        if (src instanceof org.hl7.fhir.r4.model.SupplyRequest)
-            return SupplyRequest10_40.convertSupplyRequest((org.hl7.fhir.r4.model.SupplyRequest) src);
-        if (src instanceof org.hl7.fhir.r4.model.TestScript)
-            return TestScript10_40.convertTestScript((org.hl7.fhir.r4.model.TestScript) src);
-        if (src instanceof org.hl7.fhir.r4.model.ValueSet)
-            return ValueSet10_40.convertValueSet((org.hl7.fhir.r4.model.ValueSet) src, advisor);
+        if (ResourceConverters.TO_DSTU2.converts(src))
+            return ResourceConverters.TO_DSTU2.convert(src, advisor);
         throw new FHIRException("Unknown resource " + src.fhirType());
     }
 
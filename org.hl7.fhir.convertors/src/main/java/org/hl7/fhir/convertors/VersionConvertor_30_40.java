@@ -4849,177 +4849,188 @@ public class VersionConvertor_30_40 {
         return tgt;
     }
 
+    /**
+     * the resource converters, by the class of the resource they convert (see convertResource).
+     * They are set up the first time a resource is converted
+     */
+    private static class ResourceConverters {
+        private static final ResourceConverterTable<org.hl7.fhir.dstu3.model.Resource, org.hl7.fhir.r4.model.Resource, Void> TO_R4 = new ResourceConverterTable<org.hl7.fhir.dstu3.model.Resource, org.hl7.fhir.r4.model.Resource, Void>()
+            .add(org.hl7.fhir.dstu3.model.Parameters.class, Parameters30_40::convertParameters)
+            .add(org.hl7.fhir.dstu3.model.Account.class, Account30_40::convertAccount)
+            .add(org.hl7.fhir.dstu3.model.ActivityDefinition.class, ActivityDefinition30_40::convertActivityDefinition)
+            .add(org.hl7.fhir.dstu3.model.AllergyIntolerance.class, AllergyIntolerance30_40::convertAllergyIntolerance)
+            .add(org.hl7.fhir.dstu3.model.Appointment.class, Appointment30_40::convertAppointment)
+            .add(org.hl7.fhir.dstu3.model.AppointmentResponse.class, AppointmentResponse30_40::convertAppointmentResponse)
+            .add(org.hl7.fhir.dstu3.model.AuditEvent.class, AuditEvent30_40::convertAuditEvent)
+            .add(org.hl7.fhir.dstu3.model.Basic.class, Basic30_40::convertBasic)
+            .add(org.hl7.fhir.dstu3.model.Binary.class, Binary30_40::convertBinary)
+            .add(org.hl7.fhir.dstu3.model.BodySite.class, BodySite30_40::convertBodySite)
+            .add(org.hl7.fhir.dstu3.model.Bundle.class, Bundle30_40::convertBundle)
+            .add(org.hl7.fhir.dstu3.model.CapabilityStatement.class, CapabilityStatement30_40::convertCapabilityStatement)
+            .add(org.hl7.fhir.dstu3.model.CarePlan.class, CarePlan30_40::convertCarePlan)
+            .add(org.hl7.fhir.dstu3.model.CareTeam.class, CareTeam30_40::convertCareTeam)
+            .add(org.hl7.fhir.dstu3.model.ClinicalImpression.class, ClinicalImpression30_40::convertClinicalImpression)
+            .add(org.hl7.fhir.dstu3.model.CodeSystem.class, CodeSystem30_40::convertCodeSystem)
+            .add(org.hl7.fhir.dstu3.model.Communication.class, Communication30_40::convertCommunication)
+            .add(org.hl7.fhir.dstu3.model.CompartmentDefinition.class, CompartmentDefinition30_40::convertCompartmentDefinition)
+            .add(org.hl7.fhir.dstu3.model.Composition.class, Composition30_40::convertComposition)
+            .add(org.hl7.fhir.dstu3.model.ConceptMap.class, ConceptMap30_40::convertConceptMap)
+            .add(org.hl7.fhir.dstu3.model.Condition.class, Condition30_40::convertCondition)
+            .add(org.hl7.fhir.dstu3.model.Consent.class, Consent30_40::convertConsent)
+            .add(org.hl7.fhir.dstu3.model.Coverage.class, Coverage30_40::convertCoverage)
+            .add(org.hl7.fhir.dstu3.model.DataElement.class, DataElement30_40::convertDataElement)
+            .add(org.hl7.fhir.dstu3.model.DetectedIssue.class, DetectedIssue30_40::convertDetectedIssue)
+            .add(org.hl7.fhir.dstu3.model.DeviceUseStatement.class, DeviceUseStatement30_40::convertDeviceUseStatement)
+            .add(org.hl7.fhir.dstu3.model.DiagnosticReport.class, DiagnosticReport30_40::convertDiagnosticReport)
+            .add(org.hl7.fhir.dstu3.model.DocumentReference.class, DocumentReference30_40::convertDocumentReference)
+            .add(org.hl7.fhir.dstu3.model.Encounter.class, Encounter30_40::convertEncounter)
+            .add(org.hl7.fhir.dstu3.model.Endpoint.class, Endpoint30_40::convertEndpoint)
+            .add(org.hl7.fhir.dstu3.model.EpisodeOfCare.class, EpisodeOfCare30_40::convertEpisodeOfCare)
+            .add(org.hl7.fhir.dstu3.model.ExpansionProfile.class, ExpansionProfile30_40::convertExpansionProfile)
+            .add(org.hl7.fhir.dstu3.model.FamilyMemberHistory.class, FamilyMemberHistory30_40::convertFamilyMemberHistory)
+            .add(org.hl7.fhir.dstu3.model.Flag.class, Flag30_40::convertFlag)
+            .add(org.hl7.fhir.dstu3.model.Goal.class, Goal30_40::convertGoal)
+            .add(org.hl7.fhir.dstu3.model.GraphDefinition.class, GraphDefinition30_40::convertGraphDefinition)
+            .add(org.hl7.fhir.dstu3.model.Group.class, Group30_40::convertGroup)
+            .add(org.hl7.fhir.dstu3.model.HealthcareService.class, HealthcareService30_40::convertHealthcareService)
+            .add(org.hl7.fhir.dstu3.model.ImagingStudy.class, ImagingStudy30_40::convertImagingStudy)
+            .add(org.hl7.fhir.dstu3.model.Immunization.class, Immunization30_40::convertImmunization)
+            .add(org.hl7.fhir.dstu3.model.ImplementationGuide.class, ImplementationGuide30_40::convertImplementationGuide)
+            .add(org.hl7.fhir.dstu3.model.Library.class, Library30_40::convertLibrary)
+            .add(org.hl7.fhir.dstu3.model.Linkage.class, Linkage30_40::convertLinkage)
+            .add(org.hl7.fhir.dstu3.model.ListResource.class, List30_40::convertList)
+            .add(org.hl7.fhir.dstu3.model.Location.class, Location30_40::convertLocation)
+            .add(org.hl7.fhir.dstu3.model.Media.class, Media30_40::convertMedia)
+            .add(org.hl7.fhir.dstu3.model.Medication.class, Medication30_40::convertMedication)
+            .add(org.hl7.fhir.dstu3.model.MedicationAdministration.class, MedicationAdministration30_40::convertMedicationAdministration)
+            .add(org.hl7.fhir.dstu3.model.MedicationDispense.class, MedicationDispense30_40::convertMedicationDispense)
+            .add(org.hl7.fhir.dstu3.model.MedicationRequest.class, MedicationRequest30_40::convertMedicationRequest)
+            .add(org.hl7.fhir.dstu3.model.MedicationStatement.class, MedicationStatement30_40::convertMedicationStatement)
+            .add(org.hl7.fhir.dstu3.model.MessageDefinition.class, MessageDefinition30_40::convertMessageDefinition)
+            .add(org.hl7.fhir.dstu3.model.MessageHeader.class, MessageHeader30_40::convertMessageHeader)
+            .add(org.hl7.fhir.dstu3.model.NamingSystem.class, NamingSystem30_40::convertNamingSystem)
+            .add(org.hl7.fhir.dstu3.model.Observation.class, Observation30_40::convertObservation)
+            .add(org.hl7.fhir.dstu3.model.OperationDefinition.class, OperationDefinition30_40::convertOperationDefinition)
+            .add(org.hl7.fhir.dstu3.model.OperationOutcome.class, OperationOutcome30_40::convertOperationOutcome)
+            .add(org.hl7.fhir.dstu3.model.Organization.class, Organization30_40::convertOrganization)
+            .add(org.hl7.fhir.dstu3.model.Patient.class, Patient30_40::convertPatient)
+            .add(org.hl7.fhir.dstu3.model.PaymentNotice.class, PaymentNotice30_40::convertPaymentNotice)
+            .add(org.hl7.fhir.dstu3.model.Person.class, Person30_40::convertPerson)
+            .add(org.hl7.fhir.dstu3.model.PlanDefinition.class, PlanDefinition30_40::convertPlanDefinition)
+            .add(org.hl7.fhir.dstu3.model.Practitioner.class, Practitioner30_40::convertPractitioner)
+            .add(org.hl7.fhir.dstu3.model.PractitionerRole.class, PractitionerRole30_40::convertPractitionerRole)
+            .add(org.hl7.fhir.dstu3.model.Procedure.class, Procedure30_40::convertProcedure)
+            .add(org.hl7.fhir.dstu3.model.ProcedureRequest.class, ProcedureRequest30_40::convertProcedureRequest)
+            .add(org.hl7.fhir.dstu3.model.Provenance.class, Provenance30_40::convertProvenance)
+            .add(org.hl7.fhir.dstu3.model.Questionnaire.class, Questionnaire30_40::convertQuestionnaire)
+            .add(org.hl7.fhir.dstu3.model.QuestionnaireResponse.class, QuestionnaireResponse30_40::convertQuestionnaireResponse)
+            .add(org.hl7.fhir.dstu3.model.RelatedPerson.class, RelatedPerson30_40::convertRelatedPerson)
+            .add(org.hl7.fhir.dstu3.model.RiskAssessment.class, RiskAssessment30_40::convertRiskAssessment)
+            .add(org.hl7.fhir.dstu3.model.Schedule.class, Schedule30_40::convertSchedule)
+            .add(org.hl7.fhir.dstu3.model.SearchParameter.class, SearchParameter30_40::convertSearchParameter)
+            .add(org.hl7.fhir.dstu3.model.Sequence.class, Sequence30_40::convertSequence)
+            .add(org.hl7.fhir.dstu3.model.Slot.class, Slot30_40::convertSlot)
+            .add(org.hl7.fhir.dstu3.model.Specimen.class, Specimen30_40::convertSpecimen)
+            .add(org.hl7.fhir.dstu3.model.StructureDefinition.class, StructureDefinition30_40::convertStructureDefinition)
+            .add(org.hl7.fhir.dstu3.model.StructureMap.class, StructureMap30_40::convertStructureMap)
+            .add(org.hl7.fhir.dstu3.model.Subscription.class, Subscription30_40::convertSubscription)
+            .add(org.hl7.fhir.dstu3.model.Substance.class, Substance30_40::convertSubstance)
+            .add(org.hl7.fhir.dstu3.model.SupplyDelivery.class, SupplyDelivery30_40::convertSupplyDelivery)
+            .add(org.hl7.fhir.dstu3.model.TestReport.class, TestReport30_40::convertTestReport)
+            .add(org.hl7.fhir.dstu3.model.TestScript.class, TestScript30_40::convertTestScript)
+            .add(org.hl7.fhir.dstu3.model.ValueSet.class, ValueSet30_40::convertValueSet);
+
+        private static final ResourceConverterTable<org.hl7.fhir.r4.model.Resource, org.hl7.fhir.dstu3.model.Resource, Void> TO_DSTU3 = new ResourceConverterTable<org.hl7.fhir.r4.model.Resource, org.hl7.fhir.dstu3.model.Resource, Void>()
+            .add(org.hl7.fhir.r4.model.Parameters.class, src -> src.hasParameter("profile-url") ? ExpansionProfile30_40.convertExpansionProfile(src) : Parameters30_40.convertParameters(src))
+            .add(org.hl7.fhir.r4.model.Account.class, Account30_40::convertAccount)
+            .add(org.hl7.fhir.r4.model.ActivityDefinition.class, ActivityDefinition30_40::convertActivityDefinition)
+            .add(org.hl7.fhir.r4.model.AllergyIntolerance.class, AllergyIntolerance30_40::convertAllergyIntolerance)
+            .add(org.hl7.fhir.r4.model.Appointment.class, Appointment30_40::convertAppointment)
+            .add(org.hl7.fhir.r4.model.AppointmentResponse.class, AppointmentResponse30_40::convertAppointmentResponse)
+            .add(org.hl7.fhir.r4.model.AuditEvent.class, AuditEvent30_40::convertAuditEvent)
+            .add(org.hl7.fhir.r4.model.Basic.class, Basic30_40::convertBasic)
+            .add(org.hl7.fhir.r4.model.Binary.class, Binary30_40::convertBinary)
+            .add(org.hl7.fhir.r4.model.BodyStructure.class, BodySite30_40::convertBodySite)
+            .add(org.hl7.fhir.r4.model.Bundle.class, Bundle30_40::convertBundle)
+            .add(org.hl7.fhir.r4.model.CapabilityStatement.class, CapabilityStatement30_40::convertCapabilityStatement)
+            .add(org.hl7.fhir.r4.model.CarePlan.class, CarePlan30_40::convertCarePlan)
+            .add(org.hl7.fhir.r4.model.CareTeam.class, CareTeam30_40::convertCareTeam)
+            .add(org.hl7.fhir.r4.model.ClinicalImpression.class, ClinicalImpression30_40::convertClinicalImpression)
+            .add(org.hl7.fhir.r4.model.CodeSystem.class, CodeSystem30_40::convertCodeSystem)
+            .add(org.hl7.fhir.r4.model.Communication.class, Communication30_40::convertCommunication)
+            .add(org.hl7.fhir.r4.model.CompartmentDefinition.class, CompartmentDefinition30_40::convertCompartmentDefinition)
+            .add(org.hl7.fhir.r4.model.Composition.class, Composition30_40::convertComposition)
+            .add(org.hl7.fhir.r4.model.ConceptMap.class, ConceptMap30_40::convertConceptMap)
+            .add(org.hl7.fhir.r4.model.Condition.class, Condition30_40::convertCondition)
+            .add(org.hl7.fhir.r4.model.Consent.class, Consent30_40::convertConsent)
+            .add(org.hl7.fhir.r4.model.Coverage.class, Coverage30_40::convertCoverage)
+            .add(org.hl7.fhir.r4.model.DetectedIssue.class, DetectedIssue30_40::convertDetectedIssue)
+            .add(org.hl7.fhir.r4.model.Device.class, Device30_40::convertDevice)
+            .add(org.hl7.fhir.r4.model.DeviceUseStatement.class, DeviceUseStatement30_40::convertDeviceUseStatement)
+            .add(org.hl7.fhir.r4.model.DiagnosticReport.class, DiagnosticReport30_40::convertDiagnosticReport)
+            .add(org.hl7.fhir.r4.model.DocumentReference.class, DocumentReference30_40::convertDocumentReference)
+            .add(org.hl7.fhir.r4.model.Encounter.class, Encounter30_40::convertEncounter)
+            .add(org.hl7.fhir.r4.model.Endpoint.class, Endpoint30_40::convertEndpoint)
+            .add(org.hl7.fhir.r4.model.EpisodeOfCare.class, EpisodeOfCare30_40::convertEpisodeOfCare)
+            .add(org.hl7.fhir.r4.model.FamilyMemberHistory.class, FamilyMemberHistory30_40::convertFamilyMemberHistory)
+            .add(org.hl7.fhir.r4.model.Flag.class, Flag30_40::convertFlag)
+            .add(org.hl7.fhir.r4.model.Goal.class, Goal30_40::convertGoal)
+            .add(org.hl7.fhir.r4.model.GraphDefinition.class, GraphDefinition30_40::convertGraphDefinition)
+            .add(org.hl7.fhir.r4.model.Group.class, Group30_40::convertGroup)
+            .add(org.hl7.fhir.r4.model.HealthcareService.class, HealthcareService30_40::convertHealthcareService)
+            .add(org.hl7.fhir.r4.model.ImagingStudy.class, ImagingStudy30_40::convertImagingStudy)
+            .add(org.hl7.fhir.r4.model.Immunization.class, Immunization30_40::convertImmunization)
+            .add(org.hl7.fhir.r4.model.ImplementationGuide.class, ImplementationGuide30_40::convertImplementationGuide)
+            .add(org.hl7.fhir.r4.model.Library.class, Library30_40::convertLibrary)
+            .add(org.hl7.fhir.r4.model.Linkage.class, Linkage30_40::convertLinkage)
+            .add(org.hl7.fhir.r4.model.ListResource.class, List30_40::convertList)
+            .add(org.hl7.fhir.r4.model.Location.class, Location30_40::convertLocation)
+            .add(org.hl7.fhir.r4.model.Media.class, Media30_40::convertMedia)
+            .add(org.hl7.fhir.r4.model.Medication.class, Medication30_40::convertMedication)
+            .add(org.hl7.fhir.r4.model.MedicationAdministration.class, MedicationAdministration30_40::convertMedicationAdministration)
+            .add(org.hl7.fhir.r4.model.MedicationDispense.class, MedicationDispense30_40::convertMedicationDispense)
+            .add(org.hl7.fhir.r4.model.MedicationRequest.class, MedicationRequest30_40::convertMedicationRequest)
+            .add(org.hl7.fhir.r4.model.MedicationStatement.class, MedicationStatement30_40::convertMedicationStatement)
+            .add(org.hl7.fhir.r4.model.MessageDefinition.class, MessageDefinition30_40::convertMessageDefinition)
+            .add(org.hl7.fhir.r4.model.MessageHeader.class, MessageHeader30_40::convertMessageHeader)
+            .add(org.hl7.fhir.r4.model.NamingSystem.class, NamingSystem30_40::convertNamingSystem)
+            .add(org.hl7.fhir.r4.model.Observation.class, Observation30_40::convertObservation)
+            .add(org.hl7.fhir.r4.model.OperationDefinition.class, OperationDefinition30_40::convertOperationDefinition)
+            .add(org.hl7.fhir.r4.model.OperationOutcome.class, OperationOutcome30_40::convertOperationOutcome)
+            .add(org.hl7.fhir.r4.model.Organization.class, Organization30_40::convertOrganization)
+            .add(org.hl7.fhir.r4.model.Patient.class, Patient30_40::convertPatient)
+            .add(org.hl7.fhir.r4.model.PaymentNotice.class, PaymentNotice30_40::convertPaymentNotice)
+            .add(org.hl7.fhir.r4.model.Person.class, Person30_40::convertPerson)
+            .add(org.hl7.fhir.r4.model.PlanDefinition.class, PlanDefinition30_40::convertPlanDefinition)
+            .add(org.hl7.fhir.r4.model.Practitioner.class, Practitioner30_40::convertPractitioner)
+            .add(org.hl7.fhir.r4.model.PractitionerRole.class, PractitionerRole30_40::convertPractitionerRole)
+            .add(org.hl7.fhir.r4.model.Procedure.class, Procedure30_40::convertProcedure)
+            .add(org.hl7.fhir.r4.model.ServiceRequest.class, ProcedureRequest30_40::convertProcedureRequest)
+            .add(org.hl7.fhir.r4.model.Provenance.class, Provenance30_40::convertProvenance)
+            .add(org.hl7.fhir.r4.model.Questionnaire.class, Questionnaire30_40::convertQuestionnaire)
+            .add(org.hl7.fhir.r4.model.QuestionnaireResponse.class, QuestionnaireResponse30_40::convertQuestionnaireResponse)
+            .add(org.hl7.fhir.r4.model.RelatedPerson.class, RelatedPerson30_40::convertRelatedPerson)
+            .add(org.hl7.fhir.r4.model.RiskAssessment.class, RiskAssessment30_40::convertRiskAssessment)
+            .add(org.hl7.fhir.r4.model.Schedule.class, Schedule30_40::convertSchedule)
+            .add(org.hl7.fhir.r4.model.SearchParameter.class, SearchParameter30_40::convertSearchParameter)
+            .add(org.hl7.fhir.r4.model.MolecularSequence.class, Sequence30_40::convertSequence)
+            .add(org.hl7.fhir.r4.model.Slot.class, Slot30_40::convertSlot)
+            .add(org.hl7.fhir.r4.model.Specimen.class, Specimen30_40::convertSpecimen)
+            .add(org.hl7.fhir.r4.model.StructureDefinition.class, StructureDefinition30_40::convertStructureDefinition)
+            .add(org.hl7.fhir.r4.model.StructureMap.class, StructureMap30_40::convertStructureMap)
+            .add(org.hl7.fhir.r4.model.Subscription.class, Subscription30_40::convertSubscription)
+            .add(org.hl7.fhir.r4.model.Substance.class, Substance30_40::convertSubstance)
+            .add(org.hl7.fhir.r4.model.SupplyDelivery.class, SupplyDelivery30_40::convertSupplyDelivery)
+            .add(org.hl7.fhir.r4.model.TestReport.class, TestReport30_40::convertTestReport)
+            .add(org.hl7.fhir.r4.model.TestScript.class, TestScript30_40::convertTestScript)
+            .add(org.hl7.fhir.r4.model.ValueSet.class, ValueSet30_40::convertValueSet);
+    }
+
     public static org.hl7.fhir.r4.model.Resource convertResource(org.hl7.fhir.dstu3.model.Resource src, boolean nullOk) throws FHIRException {
         if (src == null)
             return null;
-        if (src instanceof org.hl7.fhir.dstu3.model.Parameters)
-            return Parameters30_40.convertParameters((org.hl7.fhir.dstu3.model.Parameters) src);
-        if (src instanceof org.hl7.fhir.dstu3.model.Account)
-          return Account30_40.convertAccount((org.hl7.fhir.dstu3.model.Account) src);
-        if (src instanceof org.hl7.fhir.dstu3.model.ActivityDefinition)
-            return ActivityDefinition30_40.convertActivityDefinition((org.hl7.fhir.dstu3.model.ActivityDefinition) src);
-        if (src instanceof org.hl7.fhir.dstu3.model.AllergyIntolerance)
-            return AllergyIntolerance30_40.convertAllergyIntolerance((org.hl7.fhir.dstu3.model.AllergyIntolerance) src);
-        if (src instanceof org.hl7.fhir.dstu3.model.Appointment)
-            return Appointment30_40.convertAppointment((org.hl7.fhir.dstu3.model.Appointment) src);
-        if (src instanceof org.hl7.fhir.dstu3.model.AppointmentResponse)
-            return AppointmentResponse30_40.convertAppointmentResponse((org.hl7.fhir.dstu3.model.AppointmentResponse) src);
-        if (src instanceof org.hl7.fhir.dstu3.model.AuditEvent)
-            return AuditEvent30_40.convertAuditEvent((org.hl7.fhir.dstu3.model.AuditEvent) src);
-        if (src instanceof org.hl7.fhir.dstu3.model.Basic)
-            return Basic30_40.convertBasic((org.hl7.fhir.dstu3.model.Basic) src);
-        if (src instanceof org.hl7.fhir.dstu3.model.Binary)
-            return Binary30_40.convertBinary((org.hl7.fhir.dstu3.model.Binary) src);
-        if (src instanceof org.hl7.fhir.dstu3.model.BodySite)
-            return BodySite30_40.convertBodySite((org.hl7.fhir.dstu3.model.BodySite) src);
-        if (src instanceof org.hl7.fhir.dstu3.model.Bundle)
-            return Bundle30_40.convertBundle((org.hl7.fhir.dstu3.model.Bundle) src);
-        if (src instanceof org.hl7.fhir.dstu3.model.CapabilityStatement)
-            return CapabilityStatement30_40.convertCapabilityStatement((org.hl7.fhir.dstu3.model.CapabilityStatement) src);
-        if (src instanceof org.hl7.fhir.dstu3.model.CarePlan)
-            return CarePlan30_40.convertCarePlan((org.hl7.fhir.dstu3.model.CarePlan) src);
-        if (src instanceof org.hl7.fhir.dstu3.model.CareTeam)
-            return CareTeam30_40.convertCareTeam((org.hl7.fhir.dstu3.model.CareTeam) src);
-        if (src instanceof org.hl7.fhir.dstu3.model.ClinicalImpression)
-            return ClinicalImpression30_40.convertClinicalImpression((org.hl7.fhir.dstu3.model.ClinicalImpression) src);
-        if (src instanceof org.hl7.fhir.dstu3.model.CodeSystem)
-            return CodeSystem30_40.convertCodeSystem((org.hl7.fhir.dstu3.model.CodeSystem) src);
-        if (src instanceof org.hl7.fhir.dstu3.model.Communication)
-            return Communication30_40.convertCommunication((org.hl7.fhir.dstu3.model.Communication) src);
-        if (src instanceof org.hl7.fhir.dstu3.model.CompartmentDefinition)
-            return CompartmentDefinition30_40.convertCompartmentDefinition((org.hl7.fhir.dstu3.model.CompartmentDefinition) src);
-        if (src instanceof org.hl7.fhir.dstu3.model.Composition)
-            return Composition30_40.convertComposition((org.hl7.fhir.dstu3.model.Composition) src);
-        if (src instanceof org.hl7.fhir.dstu3.model.ConceptMap)
-            return ConceptMap30_40.convertConceptMap((org.hl7.fhir.dstu3.model.ConceptMap) src);
-        if (src instanceof org.hl7.fhir.dstu3.model.Condition)
-            return Condition30_40.convertCondition((org.hl7.fhir.dstu3.model.Condition) src);
-        if (src instanceof org.hl7.fhir.dstu3.model.Consent)
-            return Consent30_40.convertConsent((org.hl7.fhir.dstu3.model.Consent) src);
-        if (src instanceof org.hl7.fhir.dstu3.model.Coverage)
-          return Coverage30_40.convertCoverage((org.hl7.fhir.dstu3.model.Coverage) src);
-        if (src instanceof org.hl7.fhir.dstu3.model.DataElement)
-            return DataElement30_40.convertDataElement((org.hl7.fhir.dstu3.model.DataElement) src);
-        if (src instanceof org.hl7.fhir.dstu3.model.DetectedIssue)
-            return DetectedIssue30_40.convertDetectedIssue((org.hl7.fhir.dstu3.model.DetectedIssue) src);
-        if (src instanceof org.hl7.fhir.dstu3.model.DeviceUseStatement)
-            return DeviceUseStatement30_40.convertDeviceUseStatement((org.hl7.fhir.dstu3.model.DeviceUseStatement) src);
-        if (src instanceof org.hl7.fhir.dstu3.model.DiagnosticReport)
-            return DiagnosticReport30_40.convertDiagnosticReport((org.hl7.fhir.dstu3.model.DiagnosticReport) src);
-        if (src instanceof org.hl7.fhir.dstu3.model.DocumentReference)
-            return DocumentReference30_40.convertDocumentReference((org.hl7.fhir.dstu3.model.DocumentReference) src);
-        if (src instanceof org.hl7.fhir.dstu3.model.Encounter)
-            return Encounter30_40.convertEncounter((org.hl7.fhir.dstu3.model.Encounter) src);
-        if (src instanceof org.hl7.fhir.dstu3.model.Endpoint)
-            return Endpoint30_40.convertEndpoint((org.hl7.fhir.dstu3.model.Endpoint) src);
-        if (src instanceof org.hl7.fhir.dstu3.model.EpisodeOfCare)
-            return EpisodeOfCare30_40.convertEpisodeOfCare((org.hl7.fhir.dstu3.model.EpisodeOfCare) src);
-        if (src instanceof org.hl7.fhir.dstu3.model.ExpansionProfile)
-            return ExpansionProfile30_40.convertExpansionProfile((org.hl7.fhir.dstu3.model.ExpansionProfile) src);
-        if (src instanceof org.hl7.fhir.dstu3.model.FamilyMemberHistory)
-            return FamilyMemberHistory30_40.convertFamilyMemberHistory((org.hl7.fhir.dstu3.model.FamilyMemberHistory) src);
-        if (src instanceof org.hl7.fhir.dstu3.model.Flag)
-            return Flag30_40.convertFlag((org.hl7.fhir.dstu3.model.Flag) src);
-        if (src instanceof org.hl7.fhir.dstu3.model.Goal)
-            return Goal30_40.convertGoal((org.hl7.fhir.dstu3.model.Goal) src);
-        if (src instanceof org.hl7.fhir.dstu3.model.GraphDefinition)
-            return GraphDefinition30_40.convertGraphDefinition((org.hl7.fhir.dstu3.model.GraphDefinition) src);
-        if (src instanceof org.hl7.fhir.dstu3.model.Group)
-            return Group30_40.convertGroup((org.hl7.fhir.dstu3.model.Group) src);
-        if (src instanceof org.hl7.fhir.dstu3.model.HealthcareService)
-            return HealthcareService30_40.convertHealthcareService((org.hl7.fhir.dstu3.model.HealthcareService) src);
-        if (src instanceof org.hl7.fhir.dstu3.model.ImagingStudy)
-            return ImagingStudy30_40.convertImagingStudy((org.hl7.fhir.dstu3.model.ImagingStudy) src);
-        if (src instanceof org.hl7.fhir.dstu3.model.Immunization)
-            return Immunization30_40.convertImmunization((org.hl7.fhir.dstu3.model.Immunization) src);
-        if (src instanceof org.hl7.fhir.dstu3.model.ImplementationGuide)
-            return ImplementationGuide30_40.convertImplementationGuide((org.hl7.fhir.dstu3.model.ImplementationGuide) src);
-        if (src instanceof org.hl7.fhir.dstu3.model.Library)
-            return Library30_40.convertLibrary((org.hl7.fhir.dstu3.model.Library) src);
-        if (src instanceof org.hl7.fhir.dstu3.model.Linkage)
-            return Linkage30_40.convertLinkage((org.hl7.fhir.dstu3.model.Linkage) src);
-        if (src instanceof org.hl7.fhir.dstu3.model.ListResource)
-            return List30_40.convertList((org.hl7.fhir.dstu3.model.ListResource) src);
-        if (src instanceof org.hl7.fhir.dstu3.model.Location)
-            return Location30_40.convertLocation((org.hl7.fhir.dstu3.model.Location) src);
-        if (src instanceof org.hl7.fhir.dstu3.model.Media)
-            return Media30_40.convertMedia((org.hl7.fhir.dstu3.model.Media) src);
-        if (src instanceof org.hl7.fhir.dstu3.model.Medication)
-            return Medication30_40.convertMedication((org.hl7.fhir.dstu3.model.Medication) src);
-        if (src instanceof org.hl7.fhir.dstu3.model.MedicationAdministration)
-            return MedicationAdministration30_40.convertMedicationAdministration((org.hl7.fhir.dstu3.model.MedicationAdministration) src);
-        if (src instanceof org.hl7.fhir.dstu3.model.MedicationDispense)
-            return MedicationDispense30_40.convertMedicationDispense((org.hl7.fhir.dstu3.model.MedicationDispense) src);
-        if (src instanceof org.hl7.fhir.dstu3.model.MedicationRequest)
-            return MedicationRequest30_40.convertMedicationRequest((org.hl7.fhir.dstu3.model.MedicationRequest) src);
-        if (src instanceof org.hl7.fhir.dstu3.model.MedicationStatement)
-            return MedicationStatement30_40.convertMedicationStatement((org.hl7.fhir.dstu3.model.MedicationStatement) src);
-        if (src instanceof org.hl7.fhir.dstu3.model.MessageDefinition)
-            return MessageDefinition30_40.convertMessageDefinition((org.hl7.fhir.dstu3.model.MessageDefinition) src);
-        if (src instanceof org.hl7.fhir.dstu3.model.MessageHeader)
-            return MessageHeader30_40.convertMessageHeader((org.hl7.fhir.dstu3.model.MessageHeader) src);
-        if (src instanceof org.hl7.fhir.dstu3.model.NamingSystem)
-            return NamingSystem30_40.convertNamingSystem((org.hl7.fhir.dstu3.model.NamingSystem) src);
-        if (src instanceof org.hl7.fhir.dstu3.model.Observation)
-            return Observation30_40.convertObservation((org.hl7.fhir.dstu3.model.Observation) src);
-        if (src instanceof org.hl7.fhir.dstu3.model.OperationDefinition)
-            return OperationDefinition30_40.convertOperationDefinition((org.hl7.fhir.dstu3.model.OperationDefinition) src);
-        if (src instanceof org.hl7.fhir.dstu3.model.OperationOutcome)
-            return OperationOutcome30_40.convertOperationOutcome((org.hl7.fhir.dstu3.model.OperationOutcome) src);
-        if (src instanceof org.hl7.fhir.dstu3.model.Organization)
-            return Organization30_40.convertOrganization((org.hl7.fhir.dstu3.model.Organization) src);
-        if (src instanceof org.hl7.fhir.dstu3.model.Patient)
-            return Patient30_40.convertPatient((org.hl7.fhir.dstu3.model.Patient) src);
-        if (src instanceof org.hl7.fhir.dstu3.model.PaymentNotice)
-            return PaymentNotice30_40.convertPaymentNotice((org.hl7.fhir.dstu3.model.PaymentNotice) src);
-        if (src instanceof org.hl7.fhir.dstu3.model.Person)
-            return Person30_40.convertPerson((org.hl7.fhir.dstu3.model.Person) src);
-        if (src instanceof org.hl7.fhir.dstu3.model.PlanDefinition)
-            return PlanDefinition30_40.convertPlanDefinition((org.hl7.fhir.dstu3.model.PlanDefinition) src);
-        if (src instanceof org.hl7.fhir.dstu3.model.Practitioner)
-            return Practitioner30_40.convertPractitioner((org.hl7.fhir.dstu3.model.Practitioner) src);
-        if (src instanceof org.hl7.fhir.dstu3.model.PractitionerRole)
-            return PractitionerRole30_40.convertPractitionerRole((org.hl7.fhir.dstu3.model.PractitionerRole) src);
-        if (src instanceof org.hl7.fhir.dstu3.model.Procedure)
-            return Procedure30_40.convertProcedure((org.hl7.fhir.dstu3.model.Procedure) src);
-        if (src instanceof org.hl7.fhir.dstu3.model.ProcedureRequest)
-            return ProcedureRequest30_40.convertProcedureRequest((org.hl7.fhir.dstu3.model.ProcedureRequest) src);
-        if (src instanceof org.hl7.fhir.dstu3.model.Provenance)
-            return Provenance30_40.convertProvenance((org.hl7.fhir.dstu3.model.Provenance) src);
-        if (src instanceof org.hl7.fhir.dstu3.model.Questionnaire)
-            return Questionnaire30_40.convertQuestionnaire((org.hl7.fhir.dstu3.model.Questionnaire) src);
-        if (src instanceof org.hl7.fhir.dstu3.model.QuestionnaireResponse)
-            return QuestionnaireResponse30_40.convertQuestionnaireResponse((org.hl7.fhir.dstu3.model.QuestionnaireResponse) src);
-        if (src instanceof org.hl7.fhir.dstu3.model.RelatedPerson)
-            return RelatedPerson30_40.convertRelatedPerson((org.hl7.fhir.dstu3.model.RelatedPerson) src);
-        if (src instanceof org.hl7.fhir.dstu3.model.RiskAssessment)
-            return RiskAssessment30_40.convertRiskAssessment((org.hl7.fhir.dstu3.model.RiskAssessment) src);
-        if (src instanceof org.hl7.fhir.dstu3.model.Schedule)
-            return Schedule30_40.convertSchedule((org.hl7.fhir.dstu3.model.Schedule) src);
-        if (src instanceof org.hl7.fhir.dstu3.model.SearchParameter)
-            return SearchParameter30_40.convertSearchParameter((org.hl7.fhir.dstu3.model.SearchParameter) src);
-        if (src instanceof org.hl7.fhir.dstu3.model.Sequence)
-            return Sequence30_40.convertSequence((org.hl7.fhir.dstu3.model.Sequence) src);
-        if (src instanceof org.hl7.fhir.dstu3.model.Slot)
-            return Slot30_40.convertSlot((org.hl7.fhir.dstu3.model.Slot) src);
-        if (src instanceof org.hl7.fhir.dstu3.model.Specimen)
-            return Specimen30_40.convertSpecimen((org.hl7.fhir.dstu3.model.Specimen) src);
-        if (src instanceof org.hl7.fhir.dstu3.model.StructureDefinition)
-            return StructureDefinition30_40.convertStructureDefinition((org.hl7.fhir.dstu3.model.StructureDefinition) src);
-        if (src instanceof org.hl7.fhir.dstu3.model.StructureMap)
-            return StructureMap30_40.convertStructureMap((org.hl7.fhir.dstu3.model.StructureMap) src);
-        if (src instanceof org.hl7.fhir.dstu3.model.Subscription)
-            return Subscription30_40.convertSubscription((org.hl7.fhir.dstu3.model.Subscription) src);
-        if (src instanceof org.hl7.fhir.dstu3.model.Substance)
-            return Substance30_40.convertSubstance((org.hl7.fhir.dstu3.model.Substance) src);
-        if (src instanceof org.hl7.fhir.dstu3.model.SupplyDelivery)
-            return SupplyDelivery30_40.convertSupplyDelivery((org.hl7.fhir.dstu3.model.SupplyDelivery) src);
-        if (src instanceof org.hl7.fhir.dstu3.model.TestReport)
-            return TestReport30_40.convertTestReport((org.hl7.fhir.dstu3.model.TestReport) src);
-        if (src instanceof org.hl7.fhir.dstu3.model.TestScript)
-            return TestScript30_40.convertTestScript((org.hl7.fhir.dstu3.model.TestScript) src);
-        if (src instanceof org.hl7.fhir.dstu3.model.ValueSet)
-            return ValueSet30_40.convertValueSet((org.hl7.fhir.dstu3.model.ValueSet) src);
+        if (ResourceConverters.TO_R4.converts(src))
+            return ResourceConverters.TO_R4.convert(src, null);
         if (!nullOk)
             throw new FHIRException("Unknown resource " + src.fhirType());
         else
@@ -5029,176 +5040,8 @@ public class VersionConvertor_30_40 {
     public static org.hl7.fhir.dstu3.model.Resource convertResource(org.hl7.fhir.r4.model.Resource src, boolean nullOk) throws FHIRException {
         if (src == null)
             return null;
-        if (src instanceof org.hl7.fhir.r4.model.Parameters) {
-            if (((org.hl7.fhir.r4.model.Parameters) src).hasParameter("profile-url"))
-                return ExpansionProfile30_40.convertExpansionProfile((org.hl7.fhir.r4.model.Parameters) src);
-            else
-                return Parameters30_40.convertParameters((org.hl7.fhir.r4.model.Parameters) src);
-        }
-        if (src instanceof org.hl7.fhir.r4.model.Account)
-          return Account30_40.convertAccount((org.hl7.fhir.r4.model.Account) src);
-        if (src instanceof org.hl7.fhir.r4.model.ActivityDefinition)
-            return ActivityDefinition30_40.convertActivityDefinition((org.hl7.fhir.r4.model.ActivityDefinition) src);
-        if (src instanceof org.hl7.fhir.r4.model.AllergyIntolerance)
-            return AllergyIntolerance30_40.convertAllergyIntolerance((org.hl7.fhir.r4.model.AllergyIntolerance) src);
-        if (src instanceof org.hl7.fhir.r4.model.Appointment)
-            return Appointment30_40.convertAppointment((org.hl7.fhir.r4.model.Appointment) src);
-        if (src instanceof org.hl7.fhir.r4.model.AppointmentResponse)
-            return AppointmentResponse30_40.convertAppointmentResponse((org.hl7.fhir.r4.model.AppointmentResponse) src);
-        if (src instanceof org.hl7.fhir.r4.model.AuditEvent)
-            return AuditEvent30_40.convertAuditEvent((org.hl7.fhir.r4.model.AuditEvent) src);
-        if (src instanceof org.hl7.fhir.r4.model.Basic)
-            return Basic30_40.convertBasic((org.hl7.fhir.r4.model.Basic) src);
-        if (src instanceof org.hl7.fhir.r4.model.Binary)
-            return Binary30_40.convertBinary((org.hl7.fhir.r4.model.Binary) src);
-        if (src instanceof org.hl7.fhir.r4.model.BodyStructure)
-            return BodySite30_40.convertBodySite((org.hl7.fhir.r4.model.BodyStructure) src);
-        if (src instanceof org.hl7.fhir.r4.model.Bundle)
-            return Bundle30_40.convertBundle((org.hl7.fhir.r4.model.Bundle) src);
-        if (src instanceof org.hl7.fhir.r4.model.CapabilityStatement)
-            return CapabilityStatement30_40.convertCapabilityStatement((org.hl7.fhir.r4.model.CapabilityStatement) src);
-        if (src instanceof org.hl7.fhir.r4.model.CarePlan)
-            return CarePlan30_40.convertCarePlan((org.hl7.fhir.r4.model.CarePlan) src);
-        if (src instanceof org.hl7.fhir.r4.model.CareTeam)
-            return CareTeam30_40.convertCareTeam((org.hl7.fhir.r4.model.CareTeam) src);
-        if (src instanceof org.hl7.fhir.r4.model.ClinicalImpression)
-            return ClinicalImpression30_40.convertClinicalImpression((org.hl7.fhir.r4.model.ClinicalImpression) src);
-        if (src instanceof org.hl7.fhir.r4.model.CodeSystem)
-            return CodeSystem30_40.convertCodeSystem((org.hl7.fhir.r4.model.CodeSystem) src);
-        if (src instanceof org.hl7.fhir.r4.model.Communication)
-            return Communication30_40.convertCommunication((org.hl7.fhir.r4.model.Communication) src);
-        if (src instanceof org.hl7.fhir.r4.model.CompartmentDefinition)
-            return CompartmentDefinition30_40.convertCompartmentDefinition((org.hl7.fhir.r4.model.CompartmentDefinition) src);
-        if (src instanceof org.hl7.fhir.r4.model.Composition)
-            return Composition30_40.convertComposition((org.hl7.fhir.r4.model.Composition) src);
-        if (src instanceof org.hl7.fhir.r4.model.ConceptMap)
-            return ConceptMap30_40.convertConceptMap((org.hl7.fhir.r4.model.ConceptMap) src);
-        if (src instanceof org.hl7.fhir.r4.model.Condition)
-            return Condition30_40.convertCondition((org.hl7.fhir.r4.model.Condition) src);
-        if (src instanceof org.hl7.fhir.r4.model.Consent)
-            return Consent30_40.convertConsent((org.hl7.fhir.r4.model.Consent) src);
-        if (src instanceof org.hl7.fhir.r4.model.Coverage)
-          return Coverage30_40.convertCoverage((org.hl7.fhir.r4.model.Coverage) src);
-        if (src instanceof org.hl7.fhir.r4.model.DetectedIssue)
-            return DetectedIssue30_40.convertDetectedIssue((org.hl7.fhir.r4.model.DetectedIssue) src);
-        if (src instanceof org.hl7.fhir.r4.model.Device)
-            return Device30_40.convertDevice((org.hl7.fhir.r4.model.Device) src);
-        if (src instanceof org.hl7.fhir.r4.model.DeviceUseStatement)
-            return DeviceUseStatement30_40.convertDeviceUseStatement((org.hl7.fhir.r4.model.DeviceUseStatement) src);
-        if (src instanceof org.hl7.fhir.r4.model.DiagnosticReport)
-            return DiagnosticReport30_40.convertDiagnosticReport((org.hl7.fhir.r4.model.DiagnosticReport) src);
-        if (src instanceof org.hl7.fhir.r4.model.DocumentReference)
-            return DocumentReference30_40.convertDocumentReference((org.hl7.fhir.r4.model.DocumentReference) src);
-        if (src instanceof org.hl7.fhir.r4.model.Encounter)
-            return Encounter30_40.convertEncounter((org.hl7.fhir.r4.model.Encounter) src);
-        if (src instanceof org.hl7.fhir.r4.model.Endpoint)
-            return Endpoint30_40.convertEndpoint((org.hl7.fhir.r4.model.Endpoint) src);
-        if (src instanceof org.hl7.fhir.r4.model.EpisodeOfCare)
-            return EpisodeOfCare30_40.convertEpisodeOfCare((org.hl7.fhir.r4.model.EpisodeOfCare) src);
-        if (src instanceof org.hl7.fhir.r4.model.FamilyMemberHistory)
-            return FamilyMemberHistory30_40.convertFamilyMemberHistory((org.hl7.fhir.r4.model.FamilyMemberHistory) src);
-        if (src instanceof org.hl7.fhir.r4.model.Flag)
-            return Flag30_40.convertFlag((org.hl7.fhir.r4.model.Flag) src);
-        if (src instanceof org.hl7.fhir.r4.model.Goal)
-            return Goal30_40.convertGoal((org.hl7.fhir.r4.model.Goal) src);
-        if (src instanceof org.hl7.fhir.r4.model.GraphDefinition)
-            return GraphDefinition30_40.convertGraphDefinition((org.hl7.fhir.r4.model.GraphDefinition) src);
-        if (src instanceof org.hl7.fhir.r4.model.Group)
-            return Group30_40.convertGroup((org.hl7.fhir.r4.model.Group) src);
-        if (src instanceof org.hl7.fhir.r4.model.HealthcareService)
-            return HealthcareService30_40.convertHealthcareService((org.hl7.fhir.r4.model.HealthcareService) src);
-        if (src instanceof org.hl7.fhir.r4.model.ImagingStudy)
-            return ImagingStudy30_40.convertImagingStudy((org.hl7.fhir.r4.model.ImagingStudy) src);
-        if (src instanceof org.hl7.fhir.r4.model.Immunization)
-            return Immunization30_40.convertImmunization((org.hl7.fhir.r4.model.Immunization) src);
-        if (src instanceof org.hl7.fhir.r4.model.ImplementationGuide)
-            return ImplementationGuide30_40.convertImplementationGuide((org.hl7.fhir.r4.model.ImplementationGuide) src);
-        if (src instanceof org.hl7.fhir.r4.model.Library)
-            return Library30_40.convertLibrary((org.hl7.fhir.r4.model.Library) src);
-        if (src instanceof org.hl7.fhir.r4.model.Linkage)
-            return Linkage30_40.convertLinkage((org.hl7.fhir.r4.model.Linkage) src);
-        if (src instanceof org.hl7.fhir.r4.model.ListResource)
-            return List30_40.convertList((org.hl7.fhir.r4.model.ListResource) src);
-        if (src instanceof org.hl7.fhir.r4.model.Location)
-            return Location30_40.convertLocation((org.hl7.fhir.r4.model.Location) src);
-        if (src instanceof org.hl7.fhir.r4.model.Media)
-            return Media30_40.convertMedia((org.hl7.fhir.r4.model.Media) src);
-        if (src instanceof org.hl7.fhir.r4.model.Medication)
-            return Medication30_40.convertMedication((org.hl7.fhir.r4.model.Medication) src);
-        if (src instanceof org.hl7.fhir.r4.model.MedicationAdministration)
-            return MedicationAdministration30_40.convertMedicationAdministration((org.hl7.fhir.r4.model.MedicationAdministration) src);
-        if (src instanceof org.hl7.fhir.r4.model.MedicationDispense)
-            return MedicationDispense30_40.convertMedicationDispense((org.hl7.fhir.r4.model.MedicationDispense) src);
-        if (src instanceof org.hl7.fhir.r4.model.MedicationRequest)
-            return MedicationRequest30_40.convertMedicationRequest((org.hl7.fhir.r4.model.MedicationRequest) src);
-        if (src instanceof org.hl7.fhir.r4.model.MedicationStatement)
-            return MedicationStatement30_40.convertMedicationStatement((org.hl7.fhir.r4.model.MedicationStatement) src);
-        if (src instanceof org.hl7.fhir.r4.model.MessageDefinition)
-            return MessageDefinition30_40.convertMessageDefinition((org.hl7.fhir.r4.model.MessageDefinition) src);
-        if (src instanceof org.hl7.fhir.r4.model.MessageHeader)
-            return MessageHeader30_40.convertMessageHeader((org.hl7.fhir.r4.model.MessageHeader) src);
-        if (src instanceof org.hl7.fhir.r4.model.NamingSystem)
-            return NamingSystem30_40.convertNamingSystem((org.hl7.fhir.r4.model.NamingSystem) src);
-        if (src instanceof org.hl7.fhir.r4.model.Observation)
-            return Observation30_40.convertObservation((org.hl7.fhir.r4.model.Observation) src);
-        if (src instanceof org.hl7.fhir.r4.model.OperationDefinition)
-            return OperationDefinition30_40.convertOperationDefinition((org.hl7.fhir.r4.model.OperationDefinition) src);
-        if (src instanceof org.hl7.fhir.r4.model.OperationOutcome)
-            return OperationOutcome30_40.convertOperationOutcome((org.hl7.fhir.r4.model.OperationOutcome) src);
-        if (src instanceof org.hl7.fhir.r4.model.Organization)
-            return Organization30_40.convertOrganization((org.hl7.fhir.r4.model.Organization) src);
-        if (src instanceof org.hl7.fhir.r4.model.Patient)
-            return Patient30_40.convertPatient((org.hl7.fhir.r4.model.Patient) src);
-        if (src instanceof org.hl7.fhir.r4.model.PaymentNotice)
-            return PaymentNotice30_40.convertPaymentNotice((org.hl7.fhir.r4.model.PaymentNotice) src);
-        if (src instanceof org.hl7.fhir.r4.model.Person)
-            return Person30_40.convertPerson((org.hl7.fhir.r4.model.Person) src);
-        if (src instanceof org.hl7.fhir.r4.model.PlanDefinition)
-            return PlanDefinition30_40.convertPlanDefinition((org.hl7.fhir.r4.model.PlanDefinition) src);
-        if (src instanceof org.hl7.fhir.r4.model.Practitioner)
-            return Practitioner30_40.convertPractitioner((org.hl7.fhir.r4.model.Practitioner) src);
-        if (src instanceof org.hl7.fhir.r4.model.PractitionerRole)
-            return PractitionerRole30_40.convertPractitionerRole((org.hl7.fhir.r4.model.PractitionerRole) src);
-        if (src instanceof org.hl7.fhir.r4.model.Procedure)
-            return Procedure30_40.convertProcedure((org.hl7.fhir.r4.model.Procedure) src);
-        if (src instanceof org.hl7.fhir.r4.model.ServiceRequest)
-            return ProcedureRequest30_40.convertProcedureRequest((org.hl7.fhir.r4.model.ServiceRequest) src);
-        if (src instanceof org.hl7.fhir.r4.model.Provenance)
-            return Provenance30_40.convertProvenance((org.hl7.fhir.r4.model.Provenance) src);
-        if (src instanceof org.hl7.fhir.r4.model.Questionnaire)
-            return Questionnaire30_40.convertQuestionnaire((org.hl7.fhir.r4.model.Questionnaire) src);
-        if (src instanceof org.hl7.fhir.r4.model.QuestionnaireResponse)
-            return QuestionnaireResponse30_40.convertQuestionnaireResponse((org.hl7.fhir.r4.model.QuestionnaireResponse) src);
-        if (src instanceof org.hl7.fhir.r4.model.RelatedPerson)
-            return RelatedPerson30_40.convertRelatedPerson((org.hl7.fhir.r4.model.RelatedPerson) src);
-        if (src instanceof org.hl7.fhir.r4.model.RiskAssessment)
-            return RiskAssessment30_40.convertRiskAssessment((org.hl7.fhir.r4.model.RiskAssessment) src);
-        if (src instanceof org.hl7.fhir.r4.model.Schedule)
-            return Schedule30_40.convertSchedule((org.hl7.fhir.r4.model.Schedule) src);
-        if (src instanceof org.hl7.fhir.r4.model.SearchParameter)
-            return SearchParameter30_40.convertSearchParameter((org.hl7.fhir.r4.model.SearchParameter) src);
-        if (src instanceof org.hl7.fhir.r4.model.MolecularSequence)
-            return Sequence30_40.convertSequence((org.hl7.fhir.r4.model.MolecularSequence) src);
-        if (src instanceof org.hl7.fhir.r4.model.Slot)
-            return Slot30_40.convertSlot((org.hl7.fhir.r4.model.Slot) src);
-        if (src instanceof org.hl7.fhir.r4.model.Specimen)
-            return Specimen30_40.convertSpecimen((org.hl7.fhir.r4.model.Specimen) src);
-        if (src instanceof org.hl7.fhir.r4.model.StructureDefinition)
-            return StructureDefinition30_40.convertStructureDefinition((org.hl7.fhir.r4.model.StructureDefinition) src);
-        if (src instanceof org.hl7.fhir.r4.model.StructureMap)
-            return StructureMap30_40.convertStructureMap((org.hl7.fhir.r4.model.StructureMap) src);
-        if (src instanceof org.hl7.fhir.r4.model.Subscription)
-            return Subscription30_40.convertSubscription((org.hl7.fhir.r4.model.Subscription) src);
-        if (src instanceof org.hl7.fhir.r4.model.Substance)
-            return Substance30_40.convertSubstance((org.hl7.fhir.r4.model.Substance) src);
-        if (src instanceof org.hl7.fhir.r4.model.SupplyDelivery)
-            return SupplyDelivery30_40.convertSupplyDelivery((org.hl7.fhir.r4.model.SupplyDelivery) src);
-        if (src instanceof org.hl7.fhir.r4.model.TestReport)
-            return TestReport30_40.convertTestReport((org.hl7.fhir.r4.model.TestReport) src);
-        if (src instanceof org.hl7.fhir.r4.model.TestScript)
-            return TestScript30_40.convertTestScript((org.hl7.fhir.r4.model.TestScript) src);
-        if (src instanceof org.hl7.fhir.r4.model.ValueSet)
-            return ValueSet30_40.convertValueSet((org.hl7.fhir.r4.model.ValueSet) src);
+        if (ResourceConverters.TO_DSTU3.converts(src))
+            return ResourceConverters.TO_DSTU3.convert(src, null);
         if (!nullOk)
             throw new FHIRException("Unknown resource " + src.fhirType());
         else
@@ -0,0 +1,101 @@
+package org.hl7.fhir.convertors;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hl7.fhir.r4.model.Bundle;
+import org.hl7.fhir.r4.model.Bundle.BundleType;
+import org.hl7.fhir.r4.model.CodeSystem;
+import org.hl7.fhir.r4.model.CodeableConcept;
+import org.hl7.fhir.r4.model.Condition;
+import org.hl7.fhir.r4.model.Encounter;
+import org.hl7.fhir.r4.model.Enumerations.AdministrativeGender;
+import org.hl7.fhir.r4.model.Enumerations.PublicationStatus;
+import org.hl7.fhir.r4.model.Observation;
+import org.hl7.fhir.r4.model.Observation.ObservationStatus;
+import org.hl7.fhir.r4.model.Patient;
+import org.hl7.fhir.r4.model.Practitioner;
+import org.hl7.fhir.r4.model.Quantity;
+import org.hl7.fhir.r4.model.Reference;
+import org.hl7.fhir.r4.model.Resource;
+import org.hl7.fhir.r4.model.ValueSet;
+import org.hl7.fhir.r4.model.VisionPrescription;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Measures converting a mix of resources from R4 to R5 and back. The corpus has types from
+ * the start and the end of the resource list, since the converter used to be chosen by testing
+ * each type in turn.
+ *
+ * This is a benchmark, not a test: it takes a while, so run it by hand
+ */
+@Disabled
+public class ResourceConversionBenchmark {
+
+  private static final int ROUNDS = 20000;
+
+  private List<Resource> makeCorpus() {
+    List<Resource> corpus = new ArrayList<>();
+    Patient patient = new Patient();
+    patient.setId("p1");
+    patient.setGender(AdministrativeGender.FEMALE);
+    patient.addName().setFamily("Smith").addGiven("Jane");
+    corpus.add(patient);
+    Practitioner practitioner = new Practitioner();
+    practitioner.setId("pr1");
+    practitioner.addName().setFamily("Jones");
+    corpus.add(practitioner);
+    Observation obs = new Observation();
+    obs.setStatus(ObservationStatus.FINAL);
+    obs.setCode(new CodeableConcept().addCoding(new org.hl7.fhir.r4.model.Coding("http://loinc.org", "8867-4", "Heart rate")));
+    obs.setSubject(new Reference("Patient/p1"));
+    obs.setValue(new Quantity().setValue(72).setUnit("/min"));
+    corpus.add(obs);
+    Condition condition = new Condition();
+    condition.setSubject(new Reference("Patient/p1"));
+    corpus.add(condition);
+    Encounter encounter = new Encounter();
+    encounter.setSubject(new Reference("Patient/p1"));
+    corpus.add(encounter);
+    ValueSet vs = new ValueSet();
+    vs.setUrl("http://example.org/vs").setStatus(PublicationStatus.ACTIVE);
+    vs.getCompose().addInclude().setSystem("http://loinc.org");
+    corpus.add(vs);
+    CodeSystem cs = new CodeSystem();
+    cs.setUrl("http://example.org/cs").setStatus(PublicationStatus.ACTIVE);
+    cs.addConcept().setCode("a").setDisplay("A");
+    corpus.add(cs);
+    corpus.add(new VisionPrescription());
+    Bundle bundle = new Bundle();
+    bundle.setType(BundleType.COLLECTION);
+    for (Resource r : new ArrayList<>(corpus)) {
+      bundle.addEntry().setResource(r);
+    }
+    corpus.add(bundle);
+    return corpus;
+  }
+
+  @Test
+  public void testConversionThroughput() throws Exception {
+    List<Resource> corpus = makeCorpus();
+    // warm up
+    run(corpus, ROUNDS / 10);
+
+    long start = System.nanoTime();
+    run(corpus, ROUNDS);
+    double seconds = (System.nanoTime() - start) / 1000000000.0;
+    System.out.println(String.format("%d resources converted R4 -> R5 -> R4 in %.2f sec (%.0f resources/sec)", ROUNDS * corpus.size(), seconds, ROUNDS * corpus.size() / seconds));
+  }
+
+  private void run(List<Resource> corpus, int rounds) throws Exception {
+    for (int i = 0; i < rounds; i++) {
+      for (Resource r : corpus) {
+        org.hl7.fhir.r5.model.Resource r5 = VersionConvertor_40_50.convertResource(r);
+        Resource r4 = VersionConvertor_40_50.convertResource(r5);
+        Assertions.assertEquals(r.fhirType(), r4.fhirType());
+      }
+    }
+  }
+}
@@ -0,0 +1,64 @@
+package org.hl7.fhir.convertors;
+
+import org.hl7.fhir.exceptions.FHIRException;
+import org.hl7.fhir.r4.model.Enumerations.AdministrativeGender;
+import org.hl7.fhir.r4.model.Observation;
+import org.hl7.fhir.r4.model.Parameters;
+import org.hl7.fhir.r4.model.Patient;
+import org.hl7.fhir.r4.model.Resource;
+import org.hl7.fhir.r4.model.StringType;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class ResourceConverterTableTest {
+
+  private static class ExtendedPatient extends Patient {
+    private static final long serialVersionUID = 1L;
+  }
+
+  @Test
+  @DisplayName("Test converters are found by class, including for subclasses, and the first one added is kept.")
+  public void testLookup() throws FHIRException {
+    ResourceConverterTable<Resource, String, String> table = new ResourceConverterTable<Resource, String, String>()
+      .add(Patient.class, src -> "patient " + src.getGender().toCode())
+      .addWithContext(Observation.class, (src, context) -> "observation " + context)
+      .add(Patient.class, src -> "second");
+    Assertions.assertEquals(2, table.size());
+
+    Patient patient = new Patient().setGender(AdministrativeGender.FEMALE);
+    Assertions.assertTrue(table.converts(patient));
+    Assertions.assertEquals("patient female", table.convert(patient, null));
+    Assertions.assertEquals("observation ctxt", table.convert(new Observation(), "ctxt"));
+
+    ExtendedPatient extended = new ExtendedPatient();
+    extended.setGender(AdministrativeGender.MALE);
+    Assertions.assertTrue(table.converts(extended));
+    Assertions.assertEquals("patient male", table.convert(extended, null));
+
+    Assertions.assertFalse(table.converts(new Parameters()));
+    Assertions.assertThrows(FHIRException.class, () -> table.convert(new Parameters(), null));
+  }
+
+  @Test
+  @DisplayName("Test 40_50 resource conversion in both directions.")
+  public void testConvertResource40_50() throws FHIRException {
+    Patient patient = new ExtendedPatient();
+    patient.setId("p1");
+    patient.addName().setFamily("Smith");
+    org.hl7.fhir.r5.model.Patient p5 = (org.hl7.fhir.r5.model.Patient) VersionConvertor_40_50.convertResource(patient);
+    Assertions.assertEquals("Smith", p5.getNameFirstRep().getFamily());
+    Patient p4 = (Patient) VersionConvertor_40_50.convertResource(p5);
+    Assertions.assertEquals("p1", p4.getIdElement().getIdPart());
+
+    Parameters params = new Parameters();
+    params.addParameter().setName("p").setValue(new StringType("v"));
+    Assertions.assertTrue(VersionConvertor_40_50.convertResource(params) instanceof org.hl7.fhir.r5.model.Parameters);
+
+    // r4 -> dstu3: Parameters with a profile-url are an expansion profile
+    params.addParameter().setName("profile-url").setValue(new StringType("http://example.org/profile"));
+    Assertions.assertTrue(VersionConvertor_30_40.convertResource(params, false) instanceof org.hl7.fhir.dstu3.model.ExpansionProfile);
+    Assertions.assertNull(VersionConvertor_30_40.convertResource(new org.hl7.fhir.r4.model.Invoice(), true));
+    Assertions.assertThrows(FHIRException.class, () -> VersionConvertor_30_40.convertResource(new org.hl7.fhir.r4.model.Invoice(), false));
+  }
+}
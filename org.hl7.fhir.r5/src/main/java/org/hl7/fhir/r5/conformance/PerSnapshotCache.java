@@ -0,0 +1,166 @@
+package org.hl7.fhir.r5.conformance;
+
+/*
+  Copyright (c) 2011+, HL7, Inc.
+  All rights reserved.
+  
+  Redistribution and use in source and binary forms, with or without modification, 
+  are permitted provided that the following conditions are met:
+    
+   * Redistributions of source code must retain the above copyright notice, this 
+     list of conditions and the following disclaimer.
+   * Redistributions in binary form must reproduce the above copyright notice, 
+     this list of conditions and the following disclaimer in the documentation 
+     and/or other materials provided with the distribution.
+   * Neither the name of HL7 nor the names of its contributors may be used to 
+     endorse or promote products derived from this software without specific 
+     prior written permission.
+  
+  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND 
+  ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED 
+  WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. 
+  IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, 
+  INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT 
+  NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR 
+  PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, 
+  WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+  ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+  POSSIBILITY OF SUCH DAMAGE.
+  
+ */
+
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import org.hl7.fhir.r5.model.StructureDefinition.StructureDefinitionSnapshotComponent;
+
+/**
+ * Things worked out from a profile's snapshot, kept for as long as the snapshot is in use.
+ * 
+ * The values are kept against the snapshot object itself, so a profile that gets a new snapshot 
+ * gets new values. Lookups don't lock, so the values should not change once they are built. 
+ * 
+ * The map only holds the snapshots and the values weakly: each value is also put in its snapshot's 
+ * user data (taking the snapshot's lock, but only when the value is built or replaced), which keeps 
+ * it for as long as the snapshot is used. So values can refer back to the profile (e.g. the properties 
+ * for its elements) without keeping it alive. 
+ * 
+ * Edits to a snapshot in place aren't seen: whoever makes them must call remove
+ * 
+ * @param <V> value type
+ */
+public class PerSnapshotCache<V> {
+
+  /**
+   * a snapshot, compared by identity. Keys for lookups aren't queued; keys in the map are, and 
+   * once their snapshot is gone they only equal themselves, so they can be removed
+   */
+  private static class Key extends WeakReference<StructureDefinitionSnapshotComponent> {
+    private final int hash;
+
+    private Key(StructureDefinitionSnapshotComponent snapshot, ReferenceQueue<StructureDefinitionSnapshotComponent> queue) {
+      super(snapshot, queue);
+      hash = System.identityHashCode(snapshot);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (obj == this) {
+        return true;
+      }
+      if (!(obj instanceof Key)) {
+        return false;
+      }
+      StructureDefinitionSnapshotComponent snapshot = get();
+      return snapshot != null && snapshot == ((Key) obj).get();
+    }
+  }
+
+  private final String name;
+  private final ConcurrentHashMap<Key, WeakReference<V>> values = new ConcurrentHashMap<>();
+  private final ReferenceQueue<StructureDefinitionSnapshotComponent> queue = new ReferenceQueue<>();
+
+  /**
+   * @param name the user data name the values are kept under in the snapshots
+   */
+  public PerSnapshotCache(String name) {
+    this.name = name;
+  }
+
+  /**
+   * @return the value for the snapshot, or null if there isn't one
+   */
+  public V get(StructureDefinitionSnapshotComponent snapshot) {
+    WeakReference<V> ref = values.get(new Key(snapshot, null));
+    return ref == null ? null : ref.get();
+  }
+
+  /**
+   * @return the value for the snapshot, building it if there isn't one. The value is built without 
+   * holding a lock (building it may need other profiles, and their values), so if several threads 
+   * ask at once, they may each build one, but they all get the one that was kept first
+   */
+  public V computeIfAbsent(StructureDefinitionSnapshotComponent snapshot, Function<StructureDefinitionSnapshotComponent, V> builder) {
+    V res = get(snapshot);
+    if (res == null) {
+      V built = builder.apply(snapshot);
+      synchronized (snapshot) {
+        res = get(snapshot);
+        if (res == null) {
+          res = built;
+          keep(snapshot, res);
+        }
+      }
+    }
+    return res;
+  }
+
+  /**
+   * set the value for the snapshot, replacing any there is
+   */
+  public void put(StructureDefinitionSnapshotComponent snapshot, V value) {
+    synchronized (snapshot) {
+      keep(snapshot, value);
+    }
+  }
+
+  /**
+   * forget the value for the snapshot, when the snapshot has been edited in place
+   */
+  public void remove(StructureDefinitionSnapshotComponent snapshot) {
+    synchronized (snapshot) {
+      values.remove(new Key(snapshot, null));
+      snapshot.clearUserData(name);
+    }
+  }
+
+  public int size() {
+    expunge();
+    return values.size();
+  }
+
+  private void keep(StructureDefinitionSnapshotComponent snapshot, V value) {
+    expunge();
+    snapshot.setUserData(name, value);
+    values.put(new Key(snapshot, queue), new WeakReference<>(value));
+  }
+
+  /**
+   * drop the entries for snapshots that are gone
+   */
+  private void expunge() {
+    Reference<? extends StructureDefinitionSnapshotComponent> ref;
+    while ((ref = queue.poll()) != null) {
+      values.remove(ref);
+    }
+  }
+}
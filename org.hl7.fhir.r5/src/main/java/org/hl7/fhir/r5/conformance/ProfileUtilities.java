@@ -38,10 +38,12 @@ import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.lang3.StringUtils;
 import org.hl7.fhir.exceptions.DefinitionException;
@@ -284,11 +286,11 @@ public class ProfileUtilities extends TranslatingUtilities {
   public static final int STATUS_FATAL = 4;
 
 
-  private static final String DERIVATION_EQUALS = "derivation.equals";
+  public static final String DERIVATION_EQUALS = "derivation.equals";
   public static final String DERIVATION_POINTER = "derived.pointer";
   public static final String IS_DERIVED = "derived.fact";
   public static final String UD_ERROR_STATUS = "error-status";
-  private static final String GENERATED_IN_SNAPSHOT = "profileutilities.snapshot.processed";
+  public static final String GENERATED_IN_SNAPSHOT = "profileutilities.snapshot.processed";
   private static final boolean COPY_BINDING_EXTENSIONS = false;
   private static final boolean DONT_DO_THIS = false;
   private final boolean ADD_REFERENCE_TO_TABLE = true;
@@ -362,14 +364,105 @@ public class ProfileUtilities extends TranslatingUtilities {
 
 
 
+  /**
+   * The direct children of each element in a snapshot, so that getChildMap doesn't have to scan 
+   * the snapshot every time. Kept against the snapshot, and dropped when a snapshot is generated 
+   * (or by dropChildMapIndex, when a snapshot is edited in place). It's never changed once it's 
+   * built, so it can be read without a lock
+   */
+  private static class ChildMapIndex {
+    private final List<ElementDefinition> elements;
+    private final int size;
+    private final ElementDefinition first;
+    private final ElementDefinition last;
+    private final Map<ElementDefinition, List<ElementDefinition>> children = new IdentityHashMap<>();
+    private final Map<String, ElementDefinition> byId = new HashMap<>();
+
+    private ChildMapIndex(List<ElementDefinition> elements) {
+      this.elements = elements;
+      this.size = elements.size();
+      this.first = size == 0 ? null : elements.get(0);
+      this.last = size == 0 ? null : elements.get(size - 1);
+      for (int i = 0; i < size; i++) {
+        ElementDefinition ed = elements.get(i);
+        if (ed.getId() != null && !byId.containsKey(ed.getId())) {
+          byId.put(ed.getId(), ed);
+        }
+        if (!children.containsKey(ed)) {
+          children.put(ed, Collections.unmodifiableList(scanChildMap(elements, i+1, ed.getPath())));
+        }
+      }
+    }
+
+    /**
+     * a cheap check that the snapshot hasn't been replaced or had elements added or removed since the 
+     * index was built. Edits that this doesn't see must call dropChildMapIndex
+     */
+    private boolean isCurrent(List<ElementDefinition> elements) {
+      return this.elements == elements && size == elements.size() && (size == 0 || (elements.get(0) == first && elements.get(size - 1) == last));
+    }
+  }
+
+  private static final PerSnapshotCache<ChildMapIndex> CHILD_MAP_INDEXES = new PerSnapshotCache<>("profileutils.childmap.index");
+  private static final Set<StructureDefinition> GENERATING = ConcurrentHashMap.newKeySet(); // the profiles whose snapshots are being generated
+
+  private ChildMapIndex getChildMapIndex(StructureDefinition profile) {
+    if (GENERATING.contains(profile)) {
+      return null; // the snapshot is still changing
+    }
+    StructureDefinitionSnapshotComponent snapshot = profile.getSnapshot();
+    ChildMapIndex index = CHILD_MAP_INDEXES.computeIfAbsent(snapshot, s -> new ChildMapIndex(s.getElement()));
+    if (!index.isCurrent(snapshot.getElement())) {
+      index = new ChildMapIndex(snapshot.getElement());
+      CHILD_MAP_INDEXES.put(snapshot, index);
+    }
+    return index;
+  }
+
+  /**
+   * Forget the children worked out for the elements in the profile's snapshot. Call this after changing 
+   * the snapshot in place (e.g. replacing an element, or changing a path)
+   */
+  public static void dropChildMapIndex(StructureDefinition profile) {
+    if (profile.hasSnapshot()) {
+      CHILD_MAP_INDEXES.remove(profile.getSnapshot());
+    }
+  }
+
+  private static List<ElementDefinition> scanChildMap(List<ElementDefinition> elements, int start, String path) {
+    List<ElementDefinition> res = new ArrayList<ElementDefinition>();
+    for (int index = start; index < elements.size(); index++) {
+      ElementDefinition e = elements.get(index);
+      if (e.getPath().startsWith(path + ".")) {
+        // We only want direct children, not all descendants
+        if (!e.getPath().substring(path.length()+1).contains("."))
+          res.add(e);
+      } else
+        break;
+    }
+    return res;
+  }
+
+  /**
+   * @return the direct children of the element (following any contentReference)
+   */
   public List<ElementDefinition> getChildMap(StructureDefinition profile, ElementDefinition element) throws DefinitionException {
+    return new ArrayList<>(childMap(profile, element));
+  }
+
+  /**
+   * @return the direct children of the element. The list may be shared, and must not be modified
+   */
+  private List<ElementDefinition> childMap(StructureDefinition profile, ElementDefinition element) throws DefinitionException {
     if (element.getContentReference() != null) {
       List<ElementDefinition> list = null;
+      ChildMapIndex index = null;
       String id = null;
       if (element.getContentReference().startsWith("#")) {
         // internal reference
         id = element.getContentReference().substring(1);
         list = profile.getSnapshot().getElement();
+        index = getChildMapIndex(profile);
       } else if (element.getContentReference().contains("#")) {
         // external reference
         String ref = element.getContentReference();
@@ -378,31 +471,33 @@ public class ProfileUtilities extends TranslatingUtilities {
           throw new DefinitionException("unable to process contentReference '"+element.getContentReference()+"' on element '"+element.getId()+"'");
         }
         list = sd.getSnapshot().getElement();
+        index = getChildMapIndex(sd);
         id = ref.substring(ref.indexOf("#")+1);        
       } else {
         throw new DefinitionException("unable to process contentReference '"+element.getContentReference()+"' on element '"+element.getId()+"'");
       }
-        
-      for (ElementDefinition e : list) {
-        if (id.equals(e.getId()))
-          return getChildMap(profile, e);
+
+      if (index != null) {
+        ElementDefinition e = index.byId.get(id);
+        if (e != null)
+          return childMap(profile, e);
+      } else {
+        for (ElementDefinition e : list) {
+          if (id.equals(e.getId()))
+            return childMap(profile, e);
+        }
       }
       throw new DefinitionException(context.formatMessage(I18nConstants.UNABLE_TO_RESOLVE_NAME_REFERENCE__AT_PATH_, element.getContentReference(), element.getPath()));
 
     } else {
-      List<ElementDefinition> res = new ArrayList<ElementDefinition>();
-      List<ElementDefinition> elements = profile.getSnapshot().getElement();
-      String path = element.getPath();
-      for (int index = elements.indexOf(element) + 1; index < elements.size(); index++) {
-        ElementDefinition e = elements.get(index);
-        if (e.getPath().startsWith(path + ".")) {
-          // We only want direct children, not all descendants
-          if (!e.getPath().substring(path.length()+1).contains("."))
-            res.add(e);
-        } else
-          break;
+      ChildMapIndex index = getChildMapIndex(profile);
+      if (index != null) {
+        List<ElementDefinition> res = index.children.get(element);
+        if (res != null)
+          return res;
       }
-      return res;
+      List<ElementDefinition> elements = profile.getSnapshot().getElement();
+      return scanChildMap(elements, elements.indexOf(element) + 1, element.getPath());
     }
   }
 
@@ -551,7 +646,8 @@ public class ProfileUtilities extends TranslatingUtilities {
     if (snapshotStack.contains(derived.getUrl())) {
       throw new DefinitionException(context.formatMessage(I18nConstants.CIRCULAR_SNAPSHOT_REFERENCES_DETECTED_CANNOT_GENERATE_SNAPSHOT_STACK__, snapshotStack.toString()));
     }
-    derived.setUserData("profileutils.snapshot.generating", true);
+    GENERATING.add(derived);
+    dropChildMapIndex(derived);
     snapshotStack.add(derived.getUrl());
 
     if (!Utilities.noString(webUrl) && !webUrl.endsWith("/"))
@@ -715,10 +811,11 @@ public class ProfileUtilities extends TranslatingUtilities {
     } catch (Exception e) {
       // if we had an exception generating the snapshot, make sure we don't leave any half generated snapshot behind
       derived.setSnapshot(null);
-      derived.clearUserData("profileutils.snapshot.generating");
+      GENERATING.remove(derived);
       throw e;
     }
-    derived.clearUserData("profileutils.snapshot.generating");
+    GENERATING.remove(derived);
+    dropChildMapIndex(derived);
   }
 
   private void checkGroupConstraints(StructureDefinition derived) {
@@ -1812,12 +1909,12 @@ public class ProfileUtilities extends TranslatingUtilities {
   }
 
   private boolean isGenerating(StructureDefinition sd) {
-    return sd.hasUserData("profileutils.snapshot.generating");
+    return GENERATING.contains(sd);
   }
 
 
   private void checkNotGenerating(StructureDefinition sd, String role) {
-    if (sd.hasUserData("profileutils.snapshot.generating")) {
+    if (isGenerating(sd)) {
       throw new FHIRException(context.formatMessage(I18nConstants.ATTEMPT_TO_USE_A_SNAPSHOT_ON_PROFILE__AS__BEFORE_IT_IS_GENERATED, sd.getUrl(), role));
     }
   }
@@ -5617,7 +5714,7 @@ public class ProfileUtilities extends TranslatingUtilities {
   private org.hl7.fhir.r5.elementmodel.Element generateExample(StructureDefinition profile, ExampleValueAccessor accessor) throws FHIRException {
     ElementDefinition ed = profile.getSnapshot().getElementFirstRep();
     org.hl7.fhir.r5.elementmodel.Element r = new org.hl7.fhir.r5.elementmodel.Element(ed.getPath(), new Property(context, ed, profile));
-    List<ElementDefinition> children = getChildMap(profile, ed);
+    List<ElementDefinition> children = childMap(profile, ed);
     for (ElementDefinition child : children) {
       if (child.getPath().endsWith(".id")) {
         org.hl7.fhir.r5.elementmodel.Element id = new org.hl7.fhir.r5.elementmodel.Element("id", new Property(context, child, profile));
@@ -5639,7 +5736,7 @@ public class ProfileUtilities extends TranslatingUtilities {
     } else {
       org.hl7.fhir.r5.elementmodel.Element res = new org.hl7.fhir.r5.elementmodel.Element(tail(ed.getPath()), new Property(context, ed, profile));
       boolean hasValue = false;
-      List<ElementDefinition> children = getChildMap(profile, ed);
+      List<ElementDefinition> children = childMap(profile, ed);
       for (ElementDefinition child : children) {
         if (!child.hasContentReference()) {
         org.hl7.fhir.r5.elementmodel.Element e = createExampleElement(profile, child, accessor);
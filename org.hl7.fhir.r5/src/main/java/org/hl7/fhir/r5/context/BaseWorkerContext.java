@@ -44,6 +44,7 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.lang3.StringUtils;
 import org.fhir.ucum.UcumService;
@@ -158,17 +159,22 @@ public abstract class BaseWorkerContext extends I18nBase implements IWorkerConte
     }
   }
 
-  private Object lock = new Object(); // used as a lock for the data that follows
+  private static final String NO_OID_URI = "";
+
+  // Registration and terminology work is serialised on this lock. Lookups are not: the resource 
+  // managers and maps that follow are all safe for concurrent reading while a registration is 
+  // going on, so that once the context is loaded, any number of threads can read it without contention
+  protected final Object lock = new Object(); 
   protected String version;
   private String cacheId;
   private boolean isTxCaching;
   private Set<String> cached = new HashSet<>();
   
-  private Map<String, Map<String, Resource>> allResourcesById = new HashMap<String, Map<String, Resource>>();
+  private Map<String, Map<String, Resource>> allResourcesById = new ConcurrentHashMap<String, Map<String, Resource>>();
   // all maps are to the full URI
   private CanonicalResourceManager<CodeSystem> codeSystems = new CanonicalResourceManager<CodeSystem>(false);
-  private Set<String> supportedCodeSystems = new HashSet<String>();
-  private Set<String> unsupportedCodeSystems = new HashSet<String>(); // know that the terminology server doesn't support them
+  private Set<String> supportedCodeSystems = ConcurrentHashMap.newKeySet();
+  private Set<String> unsupportedCodeSystems = ConcurrentHashMap.newKeySet(); // know that the terminology server doesn't support them
   private CanonicalResourceManager<ValueSet> valueSets = new CanonicalResourceManager<ValueSet>(false);
   private CanonicalResourceManager<ConceptMap> maps = new CanonicalResourceManager<ConceptMap>(false);
   protected CanonicalResourceManager<StructureMap> transforms = new CanonicalResourceManager<StructureMap>(false);
@@ -185,9 +191,10 @@ public abstract class BaseWorkerContext extends I18nBase implements IWorkerConte
   
   private UcumService ucumService;
   protected Map<String, byte[]> binaries = new HashMap<String, byte[]>();
-  protected Map<String, String> oidCache = new HashMap<>();
+  protected Map<String, String> oidCache = new ConcurrentHashMap<>(); // NO_OID_URI when the oid is known not to resolve
 
-  protected Map<String, Map<String, ValidationResult>> validationCache = new HashMap<String, Map<String,ValidationResult>>();
+  private BoundedCache<String, Map<String, ValidationResult>> boundedValidationCache = new BoundedCache<String, Map<String,ValidationResult>>(TerminologyCache.getMaxTransientEntries(), TerminologyCache.getTransientTtl());
+  protected Map<String, Map<String, ValidationResult>> validationCache = boundedValidationCache.asMap(); // so it doesn't grow without limit
   protected String tsServer;
   protected String name;
   private boolean allowLoadingDuplicates;
@@ -196,7 +203,7 @@ public abstract class BaseWorkerContext extends I18nBase implements IWorkerConte
   protected ToolingClientLogger txLog;
   private TerminologyCapabilities txcaps;
   private boolean canRunWithoutTerminology;
-  protected boolean noTerminologyServer;
+  protected volatile boolean noTerminologyServer; // read without the lock (e.g. in supportsSystem)
   private int expandCodesLimit = 1000;
   protected ILoggingService logger;
   protected Parameters expParameters;
@@ -339,10 +346,12 @@ public abstract class BaseWorkerContext extends I18nBase implements IWorkerConte
     synchronized (lock) {
       Map<String, Resource> map = allResourcesById.get(r.fhirType());
       if (map == null) {
-        map = new HashMap<String, Resource>();
+        map = new ConcurrentHashMap<String, Resource>();
         allResourcesById.put(r.fhirType(), map);
       }
-      map.put(r.getId(), r);
+      if (r.getId() != null) {
+        map.put(r.getId(), r);
+      }
 
       if (r instanceof CodeSystem || r instanceof NamingSystem) {
         oidCache.clear();
@@ -497,50 +506,48 @@ public abstract class BaseWorkerContext extends I18nBase implements IWorkerConte
 
   @Override
   public CodeSystem fetchCodeSystem(String system) {
-    synchronized (lock) {
-      return codeSystems.get(system);
-    }
+    return codeSystems.get(system);
   } 
 
   @Override
   public boolean supportsSystem(String system) throws TerminologyServiceException {
+    CodeSystem cs = codeSystems.get(system);
+    if (cs != null && cs.getContent() != CodeSystemContentMode.NOTPRESENT) {
+      return true;
+    } else if (supportedCodeSystems.contains(system)) {
+      return true;
+    } else if (system.startsWith("http://example.org") || system.startsWith("http://acme.com") || system.startsWith("http://hl7.org/fhir/valueset-") || system.startsWith("urn:oid:")) {
+      return false;
+    } else if (noTerminologyServer) {
+      return false;
+    }
+    // only asking the terminology server needs the lock
     synchronized (lock) {
-      if (codeSystems.has(system) && codeSystems.get(system).getContent() != CodeSystemContentMode.NOTPRESENT) {
-        return true;
-      } else if (supportedCodeSystems.contains(system)) {
-        return true;
-      } else if (system.startsWith("http://example.org") || system.startsWith("http://acme.com") || system.startsWith("http://hl7.org/fhir/valueset-") || system.startsWith("urn:oid:")) {
-        return false;
-      } else {
-        if (noTerminologyServer) {
-          return false;
-        }
-        if (txcaps == null) {
-          try {
-            log("Terminology server: Check for supported code systems for "+system);
-            setTxCaps(txClient.getTerminologyCapabilities());
-          } catch (Exception e) {
-            if (canRunWithoutTerminology) {
-              noTerminologyServer = true;
-              log("==============!! Running without terminology server !! ==============");
-              if (txClient!=null) {
-                log("txServer = "+txClient.getAddress());
-                log("Error = "+e.getMessage()+"");
-              }
-              log("=====================================================================");
-              return false;
-            } else {
-              e.printStackTrace();
-              throw new TerminologyServiceException(e);
+      if (txcaps == null && !noTerminologyServer) {
+        try {
+          log("Terminology server: Check for supported code systems for "+system);
+          setTxCaps(txClient.getTerminologyCapabilities());
+        } catch (Exception e) {
+          if (canRunWithoutTerminology) {
+            noTerminologyServer = true;
+            log("==============!! Running without terminology server !! ==============");
+            if (txClient!=null) {
+              log("txServer = "+txClient.getAddress());
+              log("Error = "+e.getMessage()+"");
             }
-          }
-          if (supportedCodeSystems.contains(system)) {
-            return true;
+            log("=====================================================================");
+            return false;
+          } else {
+            e.printStackTrace();
+            throw new TerminologyServiceException(e);
           }
         }
+        if (supportedCodeSystems.contains(system)) {
+          return true;
+        }
       }
-      return false;
     }
+    return false;
   }
 
   private void log(String message) {
@@ -1048,7 +1055,9 @@ public abstract class BaseWorkerContext extends I18nBase implements IWorkerConte
     if (!new File(cachePath).exists()) {
       Utilities.createDirectory(cachePath);
     }
+    boolean caching = txCache == null || txCache.isCaching();
     txCache = new TerminologyCache(lock, cachePath);
+    txCache.setCaching(caching);
   }
 
   public void clearTSCache(String url) throws Exception {
@@ -1058,15 +1067,13 @@ public abstract class BaseWorkerContext extends I18nBase implements IWorkerConte
   
   @Override
   public List<ConceptMap> findMapsForSource(String url) throws FHIRException {
-    synchronized (lock) {
-      List<ConceptMap> res = new ArrayList<ConceptMap>();
-      for (ConceptMap map : maps.getList()) {
-        if (((Reference) map.getSource()).getReference().equals(url)) { 
-          res.add(map);
-        } 
+    List<ConceptMap> res = new ArrayList<ConceptMap>();
+    for (ConceptMap map : maps.getList()) {
+      if (((Reference) map.getSource()).getReference().equals(url)) { 
+        res.add(map);
       } 
-      return res;
-    }
+    } 
+    return res;
   }
 
   public boolean isCanRunWithoutTerminology() {
@@ -1135,125 +1142,123 @@ public abstract class BaseWorkerContext extends I18nBase implements IWorkerConte
     if (class_ == StructureDefinition.class) {
       uri = ProfileUtilities.sdNs(uri, getOverrideVersionNs());
     }
-    synchronized (lock) {
 
-      String version = null;
-      if (uri.contains("|")) {
-        version = uri.substring(uri.lastIndexOf("|")+1);
-        uri = uri.substring(0, uri.lastIndexOf("|"));
-      }
-      if (uri.contains("#")) {
-        uri = uri.substring(0, uri.indexOf("#"));
+    String version = null;
+    if (uri.contains("|")) {
+      version = uri.substring(uri.lastIndexOf("|")+1);
+      uri = uri.substring(0, uri.lastIndexOf("|"));
+    }
+    if (uri.contains("#")) {
+      uri = uri.substring(0, uri.indexOf("#"));
+    } 
+    if (class_ == Resource.class || class_ == null) {
+      if (structures.has(uri)) {
+        return (T) structures.get(uri, version);
       } 
-      if (class_ == Resource.class || class_ == null) {
-        if (structures.has(uri)) {
-          return (T) structures.get(uri, version);
-        } 
-        if (guides.has(uri)) {
-          return (T) guides.get(uri, version);
-        } 
-        if (capstmts.has(uri)) {
-          return (T) capstmts.get(uri, version);
-        } 
-        if (measures.has(uri)) {
-          return (T) measures.get(uri, version);
-        } 
-        if (libraries.has(uri)) {
-          return (T) libraries.get(uri, version);
-        } 
-        if (valueSets.has(uri)) {
-          return (T) valueSets.get(uri, version);
-        } 
-        if (codeSystems.has(uri)) {
-          return (T) codeSystems.get(uri, version);
-        } 
-        if (operations.has(uri)) {
-          return (T) operations.get(uri, version);
-        } 
-        if (searchParameters.has(uri)) {
-          return (T) searchParameters.get(uri, version);
-        } 
-        if (plans.has(uri)) {
-          return (T) plans.get(uri, version);
-        } 
-        if (maps.has(uri)) {
-          return (T) maps.get(uri, version);
-        } 
-        if (transforms.has(uri)) {
-          return (T) transforms.get(uri, version);
-        } 
-        if (questionnaires.has(uri)) {
-          return (T) questionnaires.get(uri, version);
-        } 
-        for (Map<String, Resource> rt : allResourcesById.values()) {
-          for (Resource r : rt.values()) {
-            if (r instanceof CanonicalResource) {
-              CanonicalResource mr = (CanonicalResource) r;
-              if (uri.equals(mr.getUrl())) {
-                return (T) mr;
-              } 
-            }
-          }            
-        }
-        return null;      
-      } else if (class_ == ImplementationGuide.class) {
+      if (guides.has(uri)) {
         return (T) guides.get(uri, version);
-      } else if (class_ == CapabilityStatement.class) {
+      } 
+      if (capstmts.has(uri)) {
         return (T) capstmts.get(uri, version);
-      } else if (class_ == Measure.class) {
+      } 
+      if (measures.has(uri)) {
         return (T) measures.get(uri, version);
-      } else if (class_ == Library.class) {
+      } 
+      if (libraries.has(uri)) {
         return (T) libraries.get(uri, version);
-      } else if (class_ == StructureDefinition.class) {
-        return (T) structures.get(uri, version);
-      } else if (class_ == StructureMap.class) {
-        return (T) transforms.get(uri, version);
-      } else if (class_ == ValueSet.class) {
+      } 
+      if (valueSets.has(uri)) {
         return (T) valueSets.get(uri, version);
-      } else if (class_ == CodeSystem.class) {
+      } 
+      if (codeSystems.has(uri)) {
         return (T) codeSystems.get(uri, version);
-      } else if (class_ == ConceptMap.class) {
-        return (T) maps.get(uri, version);
-      } else if (class_ == PlanDefinition.class) {
+      } 
+      if (operations.has(uri)) {
+        return (T) operations.get(uri, version);
+      } 
+      if (searchParameters.has(uri)) {
+        return (T) searchParameters.get(uri, version);
+      } 
+      if (plans.has(uri)) {
         return (T) plans.get(uri, version);
-      } else if (class_ == OperationDefinition.class) {
-        OperationDefinition od = operations.get(uri, version);
-        return (T) od;
-      } else if (class_ == Questionnaire.class) {
-        return (T) questionnaires.get(uri, version);
-      } else if (class_ == SearchParameter.class) {
-        SearchParameter res = searchParameters.get(uri, version);
-        return (T) res;
-      }
-      if (class_ == CodeSystem.class && codeSystems.has(uri)) { 
-        return (T) codeSystems.get(uri, version);
-      }
-      if (class_ == ValueSet.class && valueSets.has(uri)) {
-        return (T) valueSets.get(uri, version);
       } 
-      
-      if (class_ == Questionnaire.class) {
+      if (maps.has(uri)) {
+        return (T) maps.get(uri, version);
+      } 
+      if (transforms.has(uri)) {
+        return (T) transforms.get(uri, version);
+      } 
+      if (questionnaires.has(uri)) {
         return (T) questionnaires.get(uri, version);
       } 
-      if (class_ == null) {
-        if (uri.matches(Constants.URI_REGEX) && !uri.contains("ValueSet")) {
-          return null;
-        }
-
-        // it might be a special URL.
-        if (Utilities.isAbsoluteUrl(uri) || uri.startsWith("ValueSet/")) {
-          Resource res = null; // findTxValueSet(uri);
-          if (res != null) {
-            return (T) res;
+      for (Map<String, Resource> rt : allResourcesById.values()) {
+        for (Resource r : rt.values()) {
+          if (r instanceof CanonicalResource) {
+            CanonicalResource mr = (CanonicalResource) r;
+            if (uri.equals(mr.getUrl())) {
+              return (T) mr;
+            } 
           }
-        }
-        return null;
+        }            
       }
-      if (supportedCodeSystems.contains(uri)) {
+      return null;      
+    } else if (class_ == ImplementationGuide.class) {
+      return (T) guides.get(uri, version);
+    } else if (class_ == CapabilityStatement.class) {
+      return (T) capstmts.get(uri, version);
+    } else if (class_ == Measure.class) {
+      return (T) measures.get(uri, version);
+    } else if (class_ == Library.class) {
+      return (T) libraries.get(uri, version);
+    } else if (class_ == StructureDefinition.class) {
+      return (T) structures.get(uri, version);
+    } else if (class_ == StructureMap.class) {
+      return (T) transforms.get(uri, version);
+    } else if (class_ == ValueSet.class) {
+      return (T) valueSets.get(uri, version);
+    } else if (class_ == CodeSystem.class) {
+      return (T) codeSystems.get(uri, version);
+    } else if (class_ == ConceptMap.class) {
+      return (T) maps.get(uri, version);
+    } else if (class_ == PlanDefinition.class) {
+      return (T) plans.get(uri, version);
+    } else if (class_ == OperationDefinition.class) {
+      OperationDefinition od = operations.get(uri, version);
+      return (T) od;
+    } else if (class_ == Questionnaire.class) {
+      return (T) questionnaires.get(uri, version);
+    } else if (class_ == SearchParameter.class) {
+      SearchParameter res = searchParameters.get(uri, version);
+      return (T) res;
+    }
+    if (class_ == CodeSystem.class && codeSystems.has(uri)) { 
+      return (T) codeSystems.get(uri, version);
+    }
+    if (class_ == ValueSet.class && valueSets.has(uri)) {
+      return (T) valueSets.get(uri, version);
+    } 
+    
+    if (class_ == Questionnaire.class) {
+      return (T) questionnaires.get(uri, version);
+    } 
+    if (class_ == null) {
+      if (uri.matches(Constants.URI_REGEX) && !uri.contains("ValueSet")) {
         return null;
-      } 
-      throw new FHIRException(formatMessage(I18nConstants.NOT_DONE_YET_CANT_FETCH_, uri));
+      }
+
+      // it might be a special URL.
+      if (Utilities.isAbsoluteUrl(uri) || uri.startsWith("ValueSet/")) {
+        Resource res = null; // findTxValueSet(uri);
+        if (res != null) {
+          return (T) res;
+        }
+      }
+      return null;
     }
+    if (supportedCodeSystems.contains(uri)) {
+      return null;
+    } 
+    throw new FHIRException(formatMessage(I18nConstants.NOT_DONE_YET_CANT_FETCH_, uri));
   }
 
   @SuppressWarnings("unchecked")
@@ -1265,124 +1270,122 @@ public abstract class BaseWorkerContext extends I18nBase implements IWorkerConte
     if ("StructureDefinition".equals(cls)) {
       uri = ProfileUtilities.sdNs(uri, getOverrideVersionNs());
     }
-    synchronized (lock) {
 
-      String version = null;
-      if (uri.contains("|")) {
-        version = uri.substring(uri.lastIndexOf("|")+1);
-        uri = uri.substring(0, uri.lastIndexOf("|"));
-      }
-      if (uri.contains("#")) {
-        uri = uri.substring(0, uri.indexOf("#"));
+    String version = null;
+    if (uri.contains("|")) {
+      version = uri.substring(uri.lastIndexOf("|")+1);
+      uri = uri.substring(0, uri.lastIndexOf("|"));
+    }
+    if (uri.contains("#")) {
+      uri = uri.substring(0, uri.indexOf("#"));
+    } 
+    if (cls == null || "Resource".equals(cls)) {
+      if (structures.has(uri)) {
+        return (T) structures.get(uri, version);
       } 
-      if (cls == null || "Resource".equals(cls)) {
-        if (structures.has(uri)) {
-          return (T) structures.get(uri, version);
-        } 
-        if (guides.has(uri)) {
-          return (T) guides.get(uri, version);
-        } 
-        if (capstmts.has(uri)) {
-          return (T) capstmts.get(uri, version);
-        } 
-        if (measures.has(uri)) {
-          return (T) measures.get(uri, version);
-        } 
-        if (libraries.has(uri)) {
-          return (T) libraries.get(uri, version);
-        } 
-        if (valueSets.has(uri)) {
-          return (T) valueSets.get(uri, version);
-        } 
-        if (codeSystems.has(uri)) {
-          return (T) codeSystems.get(uri, version);
-        } 
-        if (operations.has(uri)) {
-          return (T) operations.get(uri, version);
-        } 
-        if (searchParameters.has(uri)) {
-          return (T) searchParameters.get(uri, version);
-        } 
-        if (plans.has(uri)) {
-          return (T) plans.get(uri, version);
-        } 
-        if (maps.has(uri)) {
-          return (T) maps.get(uri, version);
-        } 
-        if (transforms.has(uri)) {
-          return (T) transforms.get(uri, version);
-        } 
-        if (questionnaires.has(uri)) {
-          return (T) questionnaires.get(uri, version);
-        } 
-        for (Map<String, Resource> rt : allResourcesById.values()) {
-          for (Resource r : rt.values()) {
-            if (r instanceof CanonicalResource) {
-              CanonicalResource mr = (CanonicalResource) r;
-              if (uri.equals(mr.getUrl())) {
-                return (T) mr;
-              } 
-            }
-          }            
-        }
-      } else if ("ImplementationGuide".equals(cls)) {
+      if (guides.has(uri)) {
         return (T) guides.get(uri, version);
-      } else if ("CapabilityStatement".equals(cls)) {
+      } 
+      if (capstmts.has(uri)) {
         return (T) capstmts.get(uri, version);
-      } else if ("Measure".equals(cls)) {
+      } 
+      if (measures.has(uri)) {
         return (T) measures.get(uri, version);
-      } else if ("Library".equals(cls)) {
+      } 
+      if (libraries.has(uri)) {
         return (T) libraries.get(uri, version);
-      } else if ("StructureDefinition".equals(cls)) {
-        return (T) structures.get(uri, version);
-      } else if ("StructureMap".equals(cls)) {
-        return (T) transforms.get(uri, version);
-      } else if ("ValueSet".equals(cls)) {
+      } 
+      if (valueSets.has(uri)) {
         return (T) valueSets.get(uri, version);
-      } else if ("CodeSystem".equals(cls)) {
+      } 
+      if (codeSystems.has(uri)) {
         return (T) codeSystems.get(uri, version);
-      } else if ("ConceptMap".equals(cls)) {
-        return (T) maps.get(uri, version);
-      } else if ("PlanDefinition".equals(cls)) {
+      } 
+      if (operations.has(uri)) {
+        return (T) operations.get(uri, version);
+      } 
+      if (searchParameters.has(uri)) {
+        return (T) searchParameters.get(uri, version);
+      } 
+      if (plans.has(uri)) {
         return (T) plans.get(uri, version);
-      } else if ("OperationDefinition".equals(cls)) {
-        OperationDefinition od = operations.get(uri, version);
-        return (T) od;
-      } else if ("Questionnaire.class".equals(cls)) {
-        return (T) questionnaires.get(uri, version);
-      } else if ("SearchParameter.class".equals(cls)) {
-        SearchParameter res = searchParameters.get(uri, version);
-        return (T) res;
-      }
-      if ("CodeSystem".equals(cls) && codeSystems.has(uri)) {
-        return (T) codeSystems.get(uri, version);
       } 
-      if ("ValueSet".equals(cls) && valueSets.has(uri)) {
-        return (T) valueSets.get(uri, version);
+      if (maps.has(uri)) {
+        return (T) maps.get(uri, version);
       } 
-      
-      if ("Questionnaire".equals(cls)) {
+      if (transforms.has(uri)) {
+        return (T) transforms.get(uri, version);
+      } 
+      if (questionnaires.has(uri)) {
         return (T) questionnaires.get(uri, version);
       } 
-      if (cls == null) {
-        if (uri.matches(Constants.URI_REGEX) && !uri.contains("ValueSet")) {
-          return null;
-        } 
-
-        // it might be a special URL.
-        if (Utilities.isAbsoluteUrl(uri) || uri.startsWith("ValueSet/")) {
-          Resource res = null; // findTxValueSet(uri);
-          if (res != null) {
-            return (T) res;
-          } 
-        }
-        return null;      
-      }    
-      if (supportedCodeSystems.contains(uri)) {
+      for (Map<String, Resource> rt : allResourcesById.values()) {
+        for (Resource r : rt.values()) {
+          if (r instanceof CanonicalResource) {
+            CanonicalResource mr = (CanonicalResource) r;
+            if (uri.equals(mr.getUrl())) {
+              return (T) mr;
+            } 
+          }
+        }            
+      }
+    } else if ("ImplementationGuide".equals(cls)) {
+      return (T) guides.get(uri, version);
+    } else if ("CapabilityStatement".equals(cls)) {
+      return (T) capstmts.get(uri, version);
+    } else if ("Measure".equals(cls)) {
+      return (T) measures.get(uri, version);
+    } else if ("Library".equals(cls)) {
+      return (T) libraries.get(uri, version);
+    } else if ("StructureDefinition".equals(cls)) {
+      return (T) structures.get(uri, version);
+    } else if ("StructureMap".equals(cls)) {
+      return (T) transforms.get(uri, version);
+    } else if ("ValueSet".equals(cls)) {
+      return (T) valueSets.get(uri, version);
+    } else if ("CodeSystem".equals(cls)) {
+      return (T) codeSystems.get(uri, version);
+    } else if ("ConceptMap".equals(cls)) {
+      return (T) maps.get(uri, version);
+    } else if ("PlanDefinition".equals(cls)) {
+      return (T) plans.get(uri, version);
+    } else if ("OperationDefinition".equals(cls)) {
+      OperationDefinition od = operations.get(uri, version);
+      return (T) od;
+    } else if ("Questionnaire.class".equals(cls)) {
+      return (T) questionnaires.get(uri, version);
+    } else if ("SearchParameter.class".equals(cls)) {
+      SearchParameter res = searchParameters.get(uri, version);
+      return (T) res;
+    }
+    if ("CodeSystem".equals(cls) && codeSystems.has(uri)) {
+      return (T) codeSystems.get(uri, version);
+    } 
+    if ("ValueSet".equals(cls) && valueSets.has(uri)) {
+      return (T) valueSets.get(uri, version);
+    } 
+    
+    if ("Questionnaire".equals(cls)) {
+      return (T) questionnaires.get(uri, version);
+    } 
+    if (cls == null) {
+      if (uri.matches(Constants.URI_REGEX) && !uri.contains("ValueSet")) {
         return null;
       } 
-      throw new FHIRException(formatMessage(I18nConstants.NOT_DONE_YET_CANT_FETCH_, uri));
-    }
+
+      // it might be a special URL.
+      if (Utilities.isAbsoluteUrl(uri) || uri.startsWith("ValueSet/")) {
+        Resource res = null; // findTxValueSet(uri);
+        if (res != null) {
+          return (T) res;
+        } 
+      }
+      return null;      
+    }    
+    if (supportedCodeSystems.contains(uri)) {
+      return null;
+    } 
+    throw new FHIRException(formatMessage(I18nConstants.NOT_DONE_YET_CANT_FETCH_, uri));
   }
 
   private Set<String> notCanonical = new HashSet<String>();
@@ -1391,25 +1394,24 @@ public abstract class BaseWorkerContext extends I18nBase implements IWorkerConte
 
   @Override
   public Resource fetchResourceById(String type, String uri) {
-    synchronized (lock) {
-      String[] parts = uri.split("\\/");
-      if (!Utilities.noString(type) && parts.length == 1) {
-        if (allResourcesById.containsKey(type)) {
-          return allResourcesById.get(type).get(parts[0]);
-        } else {
-          return null;
-        }
+    String[] parts = uri.split("\\/");
+    if (!Utilities.noString(type) && parts.length == 1) {
+      Map<String, Resource> map = allResourcesById.get(type);
+      if (map != null) {
+        return map.get(parts[0]);
+      } else {
+        return null;
       }
-      if (parts.length >= 2) {
-        if (!Utilities.noString(type)) {
-          if (!type.equals(parts[parts.length-2])) { 
-            throw new Error(formatMessage(I18nConstants.RESOURCE_TYPE_MISMATCH_FOR___, type, uri));
-          }
+    }
+    if (parts.length >= 2) {
+      if (!Utilities.noString(type)) {
+        if (!type.equals(parts[parts.length-2])) { 
+          throw new Error(formatMessage(I18nConstants.RESOURCE_TYPE_MISMATCH_FOR___, type, uri));
         }
-        return allResourcesById.get(parts[parts.length-2]).get(parts[parts.length-1]);
-      } else {
-        throw new Error(formatMessage(I18nConstants.UNABLE_TO_PROCESS_REQUEST_FOR_RESOURCE_FOR___, type, uri));
       }
+      return allResourcesById.get(parts[parts.length-2]).get(parts[parts.length-1]);
+    } else {
+      throw new Error(formatMessage(I18nConstants.UNABLE_TO_PROCESS_REQUEST_FOR_RESOURCE_FOR___, type, uri));
     }
   }
 
@@ -1497,17 +1499,15 @@ public abstract class BaseWorkerContext extends I18nBase implements IWorkerConte
   }
   
   public void reportStatus(JsonObject json) {
-    synchronized (lock) {
-      json.addProperty("codeystem-count", codeSystems.size());
-      json.addProperty("valueset-count", valueSets.size());
-      json.addProperty("conceptmap-count", maps.size());
-      json.addProperty("transforms-count", transforms.size());
-      json.addProperty("structures-count", structures.size());
-      json.addProperty("guides-count", guides.size());
-      json.addProperty("statements-count", capstmts.size());
-      json.addProperty("measures-count", measures.size());
-      json.addProperty("libraries-count", libraries.size());
-    }
+    json.addProperty("codeystem-count", codeSystems.size());
+    json.addProperty("valueset-count", valueSets.size());
+    json.addProperty("conceptmap-count", maps.size());
+    json.addProperty("transforms-count", transforms.size());
+    json.addProperty("structures-count", structures.size());
+    json.addProperty("guides-count", guides.size());
+    json.addProperty("statements-count", capstmts.size());
+    json.addProperty("measures-count", measures.size());
+    json.addProperty("libraries-count", libraries.size());
   }
 
 
@@ -1520,10 +1520,10 @@ public abstract class BaseWorkerContext extends I18nBase implements IWorkerConte
 
       Map<String, Resource> map = allResourcesById.get(fhirType);
       if (map == null) {
-        map = new HashMap<String, Resource>();
+        map = new ConcurrentHashMap<String, Resource>();
         allResourcesById.put(fhirType, map);
       }
-      if (map.containsKey(id)) {
+      if (id != null) {
         map.remove(id);
       }
 
@@ -1572,132 +1572,116 @@ public abstract class BaseWorkerContext extends I18nBase implements IWorkerConte
 
   @Override
   public List<CanonicalResource> allConformanceResources() {
-    synchronized (lock) {
-      List<CanonicalResource> result = new ArrayList<CanonicalResource>();
-      structures.listAllM(result);
-      guides.listAllM(result);
-      capstmts.listAllM(result);
-      measures.listAllM(result);
-      libraries.listAllM(result);
-      codeSystems.listAllM(result);
-      valueSets.listAllM(result);
-      maps.listAllM(result);
-      transforms.listAllM(result);
-      plans.listAllM(result);
-      questionnaires.listAllM(result);
-      return result;
-    }
+    List<CanonicalResource> result = new ArrayList<CanonicalResource>();
+    structures.listAllM(result);
+    guides.listAllM(result);
+    capstmts.listAllM(result);
+    measures.listAllM(result);
+    libraries.listAllM(result);
+    codeSystems.listAllM(result);
+    valueSets.listAllM(result);
+    maps.listAllM(result);
+    transforms.listAllM(result);
+    plans.listAllM(result);
+    questionnaires.listAllM(result);
+    return result;
   }
   
   public String listSupportedSystems() {
-    synchronized (lock) {
-      String sl = null;
-      for (String s : supportedCodeSystems) {
-        sl = sl == null ? s : sl + "\r\n" + s;
-      }
-      return sl;
+    String sl = null;
+    for (String s : supportedCodeSystems) {
+      sl = sl == null ? s : sl + "\r\n" + s;
     }
+    return sl;
   }
 
 
   public int totalCount() {
-    synchronized (lock) {
-      return valueSets.size() +  maps.size() + structures.size() + transforms.size();
-    }
+    return valueSets.size() +  maps.size() + structures.size() + transforms.size();
   }
   
   public List<ConceptMap> listMaps() {
     List<ConceptMap> m = new ArrayList<ConceptMap>();
-    synchronized (lock) {
-      maps.listAll(m);
-    }
+    maps.listAll(m);
     return m;
   }
   
   public List<StructureMap> listTransforms() {
     List<StructureMap> m = new ArrayList<StructureMap>();
-    synchronized (lock) {
-      transforms.listAll(m);    
-    }
+    transforms.listAll(m);    
     return m;
   }
   
   public StructureMap getTransform(String code) {
-    synchronized (lock) {
-      return transforms.get(code);
-    }
+    return transforms.get(code);
   }
 
   public List<StructureDefinition> listStructures() {
     List<StructureDefinition> m = new ArrayList<StructureDefinition>();
-    synchronized (lock) {
-      structures.listAll(m);    
-    }
+    structures.listAll(m);    
     return m;
   }
 
   public StructureDefinition getStructure(String code) {
-    synchronized (lock) {
-      return structures.get(code);
-    }
+    return structures.get(code);
   }
 
   @Override
   public String oid2Uri(String oid) {
-    synchronized (lock) {
-      if (oid != null && oid.startsWith("urn:oid:")) {
-        oid = oid.substring(8);
-      }
-      if (oidCache.containsKey(oid)) {
-        return oidCache.get(oid);
-      }
+    if (oid == null) {
+      return null;
+    }
+    if (oid.startsWith("urn:oid:")) {
+      oid = oid.substring(8);
+    }
+    String cached = oidCache.get(oid);
+    if (cached != null) {
+      return NO_OID_URI.equals(cached) ? null : cached;
+    }
 
-      String uri = OIDUtils.getUriForOid(oid);
-      if (uri != null) {
-        oidCache.put(oid, uri);
-        return uri;
-      }
-      CodeSystem cs = fetchCodeSystem("http://terminology.hl7.org/CodeSystem/v2-tables");
-      if (cs != null) {
-        for (ConceptDefinitionComponent cc : cs.getConcept()) {
-          for (ConceptPropertyComponent cp : cc.getProperty()) {
-            if (Utilities.existsInList(cp.getCode(), "v2-table-oid", "v2-cs-oid") && oid.equals(cp.getValue().primitiveValue())) {
-              for (ConceptPropertyComponent cp2 : cc.getProperty()) {
-                if ("v2-cs-uri".equals(cp2.getCode())) {
-                  oidCache.put(oid, cp2.getValue().primitiveValue());
-                  return cp2.getValue().primitiveValue();                  
-                }
-              }              
-            }
+    String uri = OIDUtils.getUriForOid(oid);
+    if (uri != null) {
+      return cacheOid(oid, uri);
+    }
+    CodeSystem cs = fetchCodeSystem("http://terminology.hl7.org/CodeSystem/v2-tables");
+    if (cs != null) {
+      for (ConceptDefinitionComponent cc : cs.getConcept()) {
+        for (ConceptPropertyComponent cp : cc.getProperty()) {
+          if (Utilities.existsInList(cp.getCode(), "v2-table-oid", "v2-cs-oid") && oid.equals(cp.getValue().primitiveValue())) {
+            for (ConceptPropertyComponent cp2 : cc.getProperty()) {
+              if ("v2-cs-uri".equals(cp2.getCode())) {
+                return cacheOid(oid, cp2.getValue().primitiveValue());
+              }
+            }              
           }
         }
       }
-      for (CodeSystem css : codeSystems.getList()) {
-        if (("urn:oid:"+oid).equals(css.getUrl())) {
-          oidCache.put(oid, css.getUrl());
-          return css.getUrl();
-        }
-        for (Identifier id : css.getIdentifier()) {
-          if ("urn:ietf:rfc:3986".equals(id.getSystem()) && ("urn:oid:"+oid).equals(id.getValue())) {
-            oidCache.put(oid, css.getUrl());
-            return css.getUrl();
-          }
+    }
+    for (CodeSystem css : codeSystems.getList()) {
+      if (("urn:oid:"+oid).equals(css.getUrl())) {
+        return cacheOid(oid, css.getUrl());
+      }
+      for (Identifier id : css.getIdentifier()) {
+        if ("urn:ietf:rfc:3986".equals(id.getSystem()) && ("urn:oid:"+oid).equals(id.getValue())) {
+          return cacheOid(oid, css.getUrl());
         }
       }
-      for (NamingSystem ns : systems.getList()) {
-        if (hasOid(ns, oid)) {
-          uri = getUri(ns);
-          if (uri != null) {
-            oidCache.put(oid, null);
-            return null;
-          }
+    }
+    for (NamingSystem ns : systems.getList()) {
+      if (hasOid(ns, oid)) {
+        uri = getUri(ns);
+        if (uri != null) {
+          return cacheOid(oid, null);
         }
       }
     }
-    oidCache.put(oid, null);
-    return null;
+    return cacheOid(oid, null);
+  }
+
+  private String cacheOid(String oid, String uri) {
+    oidCache.put(oid, uri == null ? NO_OID_URI : uri);
+    return uri;
   }
-  
 
   private String getUri(NamingSystem ns) {
     for (NamingSystemUniqueIdComponent id : ns.getUniqueId()) {
@@ -1724,9 +1708,7 @@ public abstract class BaseWorkerContext extends I18nBase implements IWorkerConte
   }
 
   public SearchParameter getSearchParameter(String code) {
-    synchronized (lock) {
-      return searchParameters.get(code);
-    }
+    return searchParameters.get(code);
   }
 
   @Override
@@ -1772,9 +1754,7 @@ public abstract class BaseWorkerContext extends I18nBase implements IWorkerConte
   @Override
   public List<StructureDefinition> getStructures() {
     List<StructureDefinition> res = new ArrayList<>();
-    synchronized (lock) { // tricky, because you need to lock this as well, but it's really not in use yet
-      structures.listAll(res);
-    }
+    structures.listAll(res);
     return res;
   }
   
@@ -1892,6 +1872,19 @@ public abstract class BaseWorkerContext extends I18nBase implements IWorkerConte
     return txCache.getFolder();
   }
 
+  /**
+   * @return the terminology cache, for access to its statistics (size, evictions, hit rate) 
+   */
+  public TerminologyCache getTerminologyCache() {
+    return txCache;
+  }
+
+  public String getValidationCacheSummary() {
+    synchronized (lock) {
+      return boundedValidationCache.summary();
+    }
+  }
+
   public TerminologyClient getTxClient() {
     return txClient;
   }
@@ -0,0 +1,278 @@
+package org.hl7.fhir.r5.context;
+
+/*
+  Copyright (c) 2011+, HL7, Inc.
+  All rights reserved.
+  
+  Redistribution and use in source and binary forms, with or without modification, 
+  are permitted provided that the following conditions are met:
+    
+   * Redistributions of source code must retain the above copyright notice, this 
+     list of conditions and the following disclaimer.
+   * Redistributions in binary form must reproduce the above copyright notice, 
+     this list of conditions and the following disclaimer in the documentation 
+     and/or other materials provided with the distribution.
+   * Neither the name of HL7 nor the names of its contributors may be used to 
+     endorse or promote products derived from this software without specific 
+     prior written permission.
+  
+  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND 
+  ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED 
+  WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. 
+  IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, 
+  INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT 
+  NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR 
+  PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, 
+  WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+  ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+  POSSIBILITY OF SUCH DAMAGE.
+  
+ */
+
+
+
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * An in-memory cache that doesn't grow without limit.
+ * 
+ * Entries are either pinned (kept until they are removed or replaced - these are results 
+ * that are also stored on disk, and there's a limited number of them), or transient. When 
+ * there are more than maxSize transient entries, the least recently used are dropped, and 
+ * transient entries older than ttl are dropped when they are next looked at. 
+ * 
+ * Not thread safe: callers synchronise access (the worker context lock)
+ * 
+ * @param <K> key type 
+ * @param <V> value type
+ */
+public class BoundedCache<K, V> {
+
+  public static final int DEFAULT_MAX_SIZE = 50000;
+  public static final long NO_TTL = 0;
+
+  private class Item {
+    private V value;
+    private long created;
+  }
+
+  private int maxSize;
+  private long ttl; // milliseconds
+  private Map<K, V> pinned = new HashMap<>();
+  private LinkedHashMap<K, Item> transients = new LinkedHashMap<>(16, 0.75f, true); // access order, so the first entry is the least recently used
+  private long hits;
+  private long misses;
+  private long evictions;
+
+  public BoundedCache() {
+    this(DEFAULT_MAX_SIZE, NO_TTL);
+  }
+
+  /**
+   * @param maxSize - the maximum number of transient entries
+   * @param ttl - how long transient entries are kept for (milliseconds), or NO_TTL 
+   */
+  public BoundedCache(int maxSize, long ttl) {
+    super();
+    this.maxSize = maxSize;
+    this.ttl = ttl;
+  }
+
+  public V get(K key) {
+    V res = pinned.get(key);
+    if (res == null) {
+      Item item = transients.get(key);
+      if (item != null) {
+        if (expired(item, System.currentTimeMillis())) {
+          transients.remove(key);
+          evictions++;
+        } else {
+          res = item.value;
+        }
+      }
+    }
+    if (res == null)
+      misses++;
+    else
+      hits++;
+    return res;
+  }
+
+  public boolean containsKey(K key) {
+    return pinned.containsKey(key) || transients.containsKey(key);
+  }
+
+  public void put(K key, V value, boolean pin) {
+    if (pin) {
+      transients.remove(key);
+      pinned.put(key, value);
+    } else {
+      pinned.remove(key);
+      Item item = new Item();
+      item.value = value;
+      item.created = System.currentTimeMillis();
+      transients.put(key, item);
+      trim();
+    }
+  }
+
+  public V remove(K key) {
+    V res = pinned.remove(key);
+    Item item = transients.remove(key);
+    return res != null ? res : item != null ? item.value : null;
+  }
+
+  public void removeIf(Predicate<K> filter) {
+    pinned.keySet().removeIf(filter);
+    transients.keySet().removeIf(filter);
+  }
+
+  public void clear() {
+    pinned.clear();
+    transients.clear();
+  }
+
+  /**
+   * Drop all the expired transient entries now, rather than waiting for them to be looked at
+   */
+  public void purge() {
+    long now = System.currentTimeMillis();
+    for (Iterator<Item> i = transients.values().iterator(); i.hasNext(); ) {
+      if (expired(i.next(), now)) {
+        i.remove();
+        evictions++;
+      }
+    }
+  }
+
+  private boolean expired(Item item, long now) {
+    return ttl != NO_TTL && now - item.created > ttl;
+  }
+
+  private void trim() {
+    Iterator<Item> i = transients.values().iterator();
+    while (transients.size() > maxSize && i.hasNext()) {
+      i.next();
+      i.remove();
+      evictions++;
+    }
+  }
+
+  public int getMaxSize() {
+    return maxSize;
+  }
+
+  public void setMaxSize(int maxSize) {
+    this.maxSize = maxSize;
+    trim();
+  }
+
+  public long getTtl() {
+    return ttl;
+  }
+
+  public void setTtl(long ttl) {
+    this.ttl = ttl;
+  }
+
+  /**
+   * @return the number of entries (pinned and transient)
+   */
+  public int size() {
+    return pinned.size() + transients.size();
+  }
+
+  public int pinnedSize() {
+    return pinned.size();
+  }
+
+  public long getHits() {
+    return hits;
+  }
+
+  public long getMisses() {
+    return misses;
+  }
+
+  /**
+   * @return the number of transient entries that have been dropped because the cache was full, or they were too old
+   */
+  public long getEvictions() {
+    return evictions;
+  }
+
+  /**
+   * @return hits / lookups, or 0 if there haven't been any lookups
+   */
+  public double getHitRate() {
+    long total = hits + misses;
+    return total == 0 ? 0 : (double) hits / total;
+  }
+
+  /**
+   * @return a view of the cache as a map, for code that expects one. Entries put through the view are transient, 
+   * and iterating over it gives a copy of the current entries. Like the cache, the view is not thread safe
+   */
+  public Map<K, V> asMap() {
+    return new AbstractMap<K, V>() {
+      @SuppressWarnings("unchecked")
+      @Override
+      public V get(Object key) {
+        return BoundedCache.this.get((K) key);
+      }
+
+      @SuppressWarnings("unchecked")
+      @Override
+      public boolean containsKey(Object key) {
+        return BoundedCache.this.containsKey((K) key);
+      }
+
+      @Override
+      public V put(K key, V value) {
+        V res = pinned.containsKey(key) ? pinned.get(key) : transients.containsKey(key) ? transients.get(key).value : null;
+        BoundedCache.this.put(key, value, false);
+        return res;
+      }
+
+      @SuppressWarnings("unchecked")
+      @Override
+      public V remove(Object key) {
+        return BoundedCache.this.remove((K) key);
+      }
+
+      @Override
+      public int size() {
+        return BoundedCache.this.size();
+      }
+
+      @Override
+      public void clear() {
+        BoundedCache.this.clear();
+      }
+
+      @Override
+      public Set<Entry<K, V>> entrySet() {
+        Set<Entry<K, V>> res = new HashSet<>();
+        for (Entry<K, V> e : pinned.entrySet()) {
+          res.add(new SimpleImmutableEntry<>(e.getKey(), e.getValue()));
+        }
+        for (Entry<K, Item> e : transients.entrySet()) {
+          res.add(new SimpleImmutableEntry<>(e.getKey(), e.getValue().value));
+        }
+        return Collections.unmodifiableSet(res);
+      }
+    };
+  }
+
+  public String summary() {
+    return "size = "+size()+" ("+pinned.size()+" pinned), evictions = "+evictions+", hit rate = "+String.format("%.1f", getHitRate()*100)+"%";
+  }
+}
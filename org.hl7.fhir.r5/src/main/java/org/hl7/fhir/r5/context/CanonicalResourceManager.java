@@ -3,11 +3,12 @@ package org.hl7.fhir.r5.context;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.hl7.fhir.exceptions.FHIRException;
 import org.hl7.fhir.r5.context.CanonicalResourceManager.CanonicalResourceProxy;
@@ -104,8 +105,8 @@ public class CanonicalResourceManager<T extends CanonicalResource> {
   }
 
   private class CachedCanonicalResource<T1 extends CanonicalResource> {
-    private T1 resource;
-    private CanonicalResourceProxy proxy;
+    private volatile T1 resource;
+    private volatile CanonicalResourceProxy proxy; // released once the resource is loaded, so the package content can go
     private PackageVersion packageInfo;
     
     public CachedCanonicalResource(T1 resource, PackageVersion packageInfo) {
@@ -121,36 +122,50 @@ public class CanonicalResourceManager<T extends CanonicalResource> {
     }
     
     public T1 getResource() {
-      if (resource == null) {
-        @SuppressWarnings("unchecked")
-        T1 res = (T1) proxy.getResource();
+      T1 res = resource;
+      if (res == null) {
         synchronized (this) {
-          resource = res;
+          res = resource;
+          if (res == null) {
+            @SuppressWarnings("unchecked")
+            T1 loaded = (T1) proxy.getResource();
+            resource = loaded;
+            proxy = null; // only after the resource is published: whoever finds no proxy finds the resource
+            res = loaded;
+          }
         }
-        proxy = null;
       }
-      return resource;
+      return res;
     }
     
     public PackageVersion getPackageInfo() {
       return packageInfo;
     }
     public String getUrl() {
-      return resource != null ? resource.getUrl() : proxy.getUrl();
+      CanonicalResourceProxy p = proxy;
+      return p != null ? p.getUrl() : resource.getUrl();
     }
     public String getId() {
-      return resource != null ? resource.getId() : proxy.getId();
+      CanonicalResourceProxy p = proxy;
+      return p != null ? p.getId() : resource.getId();
     }
     public String getVersion() {
-      return resource != null ? resource.getVersion() : proxy.getVersion();
+      CanonicalResourceProxy p = proxy;
+      return p != null ? p.getVersion() : resource.getVersion();
     }
     public boolean hasVersion() {
-      return resource != null ? resource.hasVersion() : proxy.getVersion() != null;
+      CanonicalResourceProxy p = proxy;
+      return p != null ? p.getVersion() != null : resource.hasVersion();
     }
     
     @Override
     public String toString() {
-      return resource != null ? resource.fhirType()+"/"+resource.getId()+": "+resource.getUrl()+"|"+resource.getVersion() : proxy.toString();
+      CanonicalResourceProxy p = proxy;
+      if (p != null) {
+        return p.toString();
+      }
+      T1 res = resource;
+      return res.fhirType()+"/"+res.getId()+": "+res.getUrl()+"|"+res.getVersion();
     }  
 
   }
@@ -178,9 +193,11 @@ public class CanonicalResourceManager<T extends CanonicalResource> {
     }
   }
 
+  // changes are expected to be serialised by the owner (the worker context does this), but reads 
+  // can happen at any time from any thread, so the list is copy-on-write and the map concurrent
   private boolean enforceUniqueId; 
-  private List<CachedCanonicalResource<T>> list = new ArrayList<>();
-  private Map<String, CachedCanonicalResource<T>> map = new HashMap<>();
+  private List<CachedCanonicalResource<T>> list = new CopyOnWriteArrayList<>();
+  private Map<String, CachedCanonicalResource<T>> map = new ConcurrentHashMap<>();
   
   
   public CanonicalResourceManager(boolean enforceUniqueId) {
@@ -287,22 +304,25 @@ public class CanonicalResourceManager<T extends CanonicalResource> {
  
 
   public T get(String url) {
-    return map.containsKey(url) ? map.get(url).getResource() : null;
+    CachedCanonicalResource<T> cr = url == null ? null : map.get(url);
+    return cr != null ? cr.getResource() : null;
   }
   
   public boolean has(String url) {
-    return map.containsKey(url);
+    return url != null && map.containsKey(url);
   }
   
   public T get(String system, String version) {
     if (version == null) {
       return get(system);
     } else {
-      if (map.containsKey(system+"|"+version))
-        return map.get(system+"|"+version).getResource();
+      CachedCanonicalResource<T> cr = map.get(system+"|"+version);
+      if (cr != null)
+        return cr.getResource();
       String mm = VersionUtilities.getMajMin(version);
-      if (mm != null && map.containsKey(system+"|"+mm))
-        return map.get(system+"|"+mm).getResource();
+      cr = mm == null ? null : map.get(system+"|"+mm);
+      if (cr != null)
+        return cr.getResource();
       else
         return null;
     }
@@ -334,15 +354,19 @@ public class CanonicalResourceManager<T extends CanonicalResource> {
       if (res != null) {
         list.remove(res);
         map.remove(id);
-        map.remove(res.getUrl());
-        if (res.hasVersion()) {
+        if (res.getUrl() != null) {
+          map.remove(res.getUrl());
+        }
+        if (res.getUrl() != null && res.hasVersion()) {
           map.remove(res.getUrl()+"|"+res.getVersion());
           String mm = VersionUtilities.getMajMin(res.getVersion());
           if (mm != null) {
             map.remove(res.getUrl()+"|"+mm);
           }
         }
-        updateList(res.getUrl(), res.getVersion()); 
+        if (res.getUrl() != null) {
+          updateList(res.getUrl(), res.getVersion());
+        }
       }
     } while (res != null);
   }
@@ -44,6 +44,7 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 
@@ -149,6 +150,10 @@ public class SimpleWorkerContext extends BaseWorkerContext implements IWorkerCon
   private boolean progress;
   private List<String> loadedPackages = new ArrayList<String>();
   private boolean canNoTS;
+  private SnapshotCache snapshotCache;
+  // the profiles that are known to have a complete snapshot. A profile is only added once its snapshot has been 
+  // generated, and is removed when it's dropped from the context
+  private Set<StructureDefinition> snapshotChecked = ConcurrentHashMap.newKeySet();
 
   public SimpleWorkerContext() throws FileNotFoundException, IOException, FHIRException {
     super();
@@ -176,6 +181,7 @@ public class SimpleWorkerContext extends BaseWorkerContext implements IWorkerCon
     revision = other.revision;
     date = other.date;
     validatorFactory = other.validatorFactory;
+    snapshotCache = other.snapshotCache;
   }
 
 
@@ -732,16 +738,32 @@ public class SimpleWorkerContext extends BaseWorkerContext implements IWorkerCon
     T r = super.fetchResource(class_, uri);
     if (r instanceof StructureDefinition) {
       StructureDefinition p = (StructureDefinition)r;
-      try {
-        generateSnapshot(p);
-      } catch (Exception e) {
-        // not sure what to do in this case?
-        System.out.println("Unable to generate snapshot for "+uri+": "+e.getMessage());
+      // lookups happen concurrently, so snapshots are generated under the context lock, and no one sees one half built
+      if (!snapshotChecked.contains(p)) {
+        synchronized (lock) {
+          try {
+            generateSnapshot(p);
+            snapshotChecked.add(p);
+          } catch (Exception e) {
+            // not sure what to do in this case?
+            System.out.println("Unable to generate snapshot for "+uri+": "+e.getMessage());
+          }
+        }
       }
     }
     return r;
   }
   
+  @Override
+  public void dropResource(String fhirType, String id) {
+    synchronized (lock) {
+      if ("StructureDefinition".equals(fhirType)) {
+        snapshotChecked.removeIf(sd -> id != null && id.equals(sd.getId()));
+      }
+      super.dropResource(fhirType, id);
+    }
+  }
+
   @Override
   public StructureDefinition fetchRawProfile(String uri) {
     StructureDefinition r = super.fetchResource(StructureDefinition.class, uri);
@@ -765,6 +787,17 @@ public class SimpleWorkerContext extends BaseWorkerContext implements IWorkerCon
       if (sd == null) {
         throw new DefinitionException(formatMessage(I18nConstants.PROFILE___BASE__COULD_NOT_BE_RESOLVED, p.getName(), p.getUrl(), p.getBaseDefinition()));
       }
+      String key = null;
+      if (snapshotCache != null) {
+        try {
+          key = snapshotCache.makeKey(p, sd, url -> super.fetchResource(StructureDefinition.class, url)); // without generating snapshots
+        } catch (IOException e) {
+          // can't use the cache for this one
+        }
+        if (key != null && snapshotCache.load(key, p)) {
+          return;
+        }
+      }
       List<ValidationMessage> msgs = new ArrayList<ValidationMessage>();
       List<String> errors = new ArrayList<String>();
       ProfileUtilities pu = new ProfileUtilities(this, msgs, this);
@@ -783,10 +816,34 @@ public class SimpleWorkerContext extends BaseWorkerContext implements IWorkerCon
       }
       if (!p.hasSnapshot())
         throw new FHIRException(formatMessage(I18nConstants.PROFILE___ERROR_GENERATING_SNAPSHOT, p.getName(), p.getUrl()));
+      if (key != null && !hasErrors(msgs)) {
+        snapshotCache.save(key, p);
+      }
       pu = null;
     }
   }
 
+  private boolean hasErrors(List<ValidationMessage> msgs) {
+    for (ValidationMessage msg : msgs) {
+      if (msg.getLevel() == ValidationMessage.IssueSeverity.ERROR || msg.getLevel() == ValidationMessage.IssueSeverity.FATAL) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  public SnapshotCache getSnapshotCache() {
+    return snapshotCache;
+  }
+
+  /**
+   * keep the snapshots that are generated for profiles, so they don't have to be generated 
+   * again next time (see SnapshotCache). Set this before the profiles are used
+   */
+  public void setSnapshotCache(SnapshotCache snapshotCache) {
+    this.snapshotCache = snapshotCache;
+  }
+
   public boolean isIgnoreProfileErrors() {
     return ignoreProfileErrors;
   }
@@ -0,0 +1,429 @@
+package org.hl7.fhir.r5.context;
+
+/*
+  Copyright (c) 2011+, HL7, Inc.
+  All rights reserved.
+  
+  Redistribution and use in source and binary forms, with or without modification, 
+  are permitted provided that the following conditions are met:
+    
+   * Redistributions of source code must retain the above copyright notice, this 
+     list of conditions and the following disclaimer.
+   * Redistributions in binary form must reproduce the above copyright notice, 
+     this list of conditions and the following disclaimer in the documentation 
+     and/or other materials provided with the distribution.
+   * Neither the name of HL7 nor the names of its contributors may be used to 
+     endorse or promote products derived from this software without specific 
+     prior written permission.
+  
+  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND 
+  ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED 
+  WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. 
+  IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, 
+  INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT 
+  NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR 
+  PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, 
+  WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+  ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+  POSSIBILITY OF SUCH DAMAGE.
+  
+ */
+
+
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Function;
+
+import org.hl7.fhir.r5.conformance.ProfileUtilities;
+import org.hl7.fhir.r5.formats.JsonParser;
+import org.hl7.fhir.r5.model.Base;
+import org.hl7.fhir.r5.model.CanonicalType;
+import org.hl7.fhir.r5.model.ElementDefinition;
+import org.hl7.fhir.r5.model.ElementDefinition.TypeRefComponent;
+import org.hl7.fhir.r5.model.Extension;
+import org.hl7.fhir.r5.model.Property;
+import org.hl7.fhir.r5.model.StringType;
+import org.hl7.fhir.r5.model.StructureDefinition;
+import org.hl7.fhir.r5.model.StructureDefinition.TypeDerivationRule;
+import org.hl7.fhir.utilities.Utilities;
+
+/**
+ * Keeps the snapshots that the context generates for profiles that only have a differential
+ * in a folder, so that the next time the same profile is loaded (e.g. in the next run of the
+ * validator), the snapshot is read instead of being generated again.
+ *
+ * Each snapshot is kept in a file named for its key. The key is a digest of the profile (url,
+ * version, differential - everything but the id that's in it before the snapshot is generated), the key
+ * of its base, and the keys of the profiles the differential refers to. If the base has a snapshot of 
+ * its own (e.g. a core resource), the key of the base is a digest of the base, snapshot and all. So 
+ * when any profile in the base chain changes, the profiles that derive from it have different keys, 
+ * and their old snapshots aren't used. 
+ *
+ * The profiles the differential refers to are the type profiles (e.g. extension definitions) and the
+ * definitions of the types. Each is in the key with its base chain: each profile in the chain by its 
+ * url, version and differential (in any order, since generating its own snapshot sorts it), down to 
+ * the type it constrains, which is in the key in full. A profile that can't be found is in the key as 
+ * missing, so the snapshot is generated again once it is there. The part of the key for each profile's 
+ * differential is worked out once, and kept on the profile, so it isn't worked out again for each profile 
+ * that refers to it (or to a profile based on it).
+ *
+ * Old files are left in the folder; it can be cleared at any time. Change CACHE_VERSION when the way 
+ * snapshots are generated changes.
+ *
+ * Only snapshots that were generated without errors are kept.
+ *
+ * Snapshot generation leaves notes on the elements (see ProfileUtilities - which elements are derived, 
+ * or the same as the base, and which snapshot element a differential element became) that the 
+ * renderers use. These are kept in the file with the snapshot, and put back on the elements when 
+ * it's loaded. If a note can't be kept (e.g. it points outside the profile), the snapshot isn't kept
+ */
+public class SnapshotCache {
+
+  private static final int CACHE_VERSION = 4;
+  private static final String KEY = "snapshot.cache.key";
+  private static final String DIFFERENTIAL_KEY = "snapshot.cache.differential.key";
+  private static final String EXT_NOTE = "http://hl7.org/fhir/tools/StructureDefinition/snapshot-cache-note";
+  private static final String[] FLAGS = { ProfileUtilities.DERIVATION_EQUALS, ProfileUtilities.IS_DERIVED };
+  private static final String[] POINTERS = { ProfileUtilities.DERIVATION_POINTER, ProfileUtilities.GENERATED_IN_SNAPSHOT, "diff-source" };
+
+  private String folder;
+  private int hits;
+  private int misses;
+
+  public SnapshotCache(String folder) throws IOException {
+    super();
+    this.folder = folder;
+    Utilities.createDirectory(folder);
+  }
+
+  public String getFolder() {
+    return folder;
+  }
+
+  /**
+   * Work out the key for a profile that has no snapshot yet, from the profile, its base, and the 
+   * profiles its differential refers to. The key is kept on the profile for the profiles that derive 
+   * from it
+   * 
+   * @param resolver - finds the profiles the differential refers to by url. It must not generate snapshots 
+   */
+  public String makeKey(StructureDefinition profile, StructureDefinition base, Function<String, StructureDefinition> resolver) throws IOException {
+    String refs = referencesKey(profile, resolver);
+    MessageDigest md = digest();
+    md.update(("v"+CACHE_VERSION+"|"+profile.getUrl()+"|"+profile.getVersion()+"|"+baseKey(base)+"|"+refs+"|").getBytes(StandardCharsets.UTF_8));
+    // definitions are shared between threads; user data is guarded by the definition's lock
+    synchronized (profile) {
+      String key = digest(md, profile);
+      profile.setUserData(KEY, key);
+      return key;
+    }
+  }
+
+  private String baseKey(StructureDefinition base) throws IOException {
+    synchronized (base) {
+      String key = base.getUserString(KEY);
+      if (key == null) {
+        MessageDigest md = digest();
+        md.update(("base|"+base.getUrl()+"|"+base.getVersion()+"|").getBytes(StandardCharsets.UTF_8));
+        key = digest(md, base);
+        base.setUserData(KEY, key);
+      }
+      return key;
+    }
+  }
+
+  private String referencesKey(StructureDefinition profile, Function<String, StructureDefinition> resolver) throws IOException {
+    Set<String> urls = new TreeSet<>();
+    for (ElementDefinition ed : profile.getDifferential().getElement()) {
+      for (TypeRefComponent t : ed.getType()) {
+        if (t.hasCode()) {
+          urls.add(Utilities.isAbsoluteUrl(t.getWorkingCode()) ? t.getWorkingCode() : "http://hl7.org/fhir/StructureDefinition/"+t.getWorkingCode());
+        }
+        for (CanonicalType p : t.getProfile()) {
+          urls.add(p.getValue());
+        }
+      }
+    }
+    urls.remove(profile.getUrl());
+    StringBuilder b = new StringBuilder();
+    for (String url : urls) {
+      StructureDefinition sd = resolver.apply(url);
+      b.append(url+"="+(sd == null ? "missing" : referenceKey(sd, resolver))+";");
+    }
+    return b.toString();
+  }
+
+  /**
+   * the key for a profile the differential refers to: its differential, and the differentials 
+   * of its base chain, down to the type
+   */
+  private String referenceKey(StructureDefinition sd, Function<String, StructureDefinition> resolver) throws IOException {
+    StringBuilder b = new StringBuilder();
+    Set<StructureDefinition> chain = Collections.newSetFromMap(new IdentityHashMap<>());
+    while (chain.add(sd)) {
+      if (sd.getDerivation() != TypeDerivationRule.CONSTRAINT || !sd.hasBaseDefinition()) {
+        b.append(baseKey(sd)); // a type: there's nothing underneath it
+        break;
+      }
+      b.append(differentialKey(sd)+"<");
+      StructureDefinition base = resolver.apply(sd.getBaseDefinition());
+      if (base == null) {
+        b.append("missing");
+        break;
+      }
+      sd = base;
+    }
+    return b.toString();
+  }
+
+  private String differentialKey(StructureDefinition sd) throws IOException {
+    synchronized (sd) {
+      String key = sd.getUserString(DIFFERENTIAL_KEY);
+      if (key != null) {
+        return key;
+      }
+    }
+    JsonParser json = new JsonParser();
+    List<String> elements = new ArrayList<>();
+    for (ElementDefinition ed : sd.getDifferential().getElement()) {
+      elements.add(json.composeString(ed, "element"));
+    }
+    Collections.sort(elements);
+    MessageDigest md = digest();
+    md.update(("ref|"+sd.getUrl()+"|"+sd.getVersion()+"|").getBytes(StandardCharsets.UTF_8));
+    for (String e : elements) {
+      md.update((e+"|").getBytes(StandardCharsets.UTF_8));
+    }
+    String key = hex(md);
+    synchronized (sd) {
+      sd.setUserData(DIFFERENTIAL_KEY, key);
+    }
+    return key;
+  }
+
+  /**
+   * If there's a snapshot for the key, put it (and the sorted differential that goes with it, 
+   * with the notes from when the snapshot was generated) in the profile. 
+   * 
+   * @return true if the profile has its snapshot from the cache
+   */
+  public boolean load(String key, StructureDefinition profile) {
+    File f = file(key);
+    if (f.exists()) {
+      try (InputStream stream = new FileInputStream(f)) {
+        StructureDefinition sd = (StructureDefinition) new JsonParser().parse(stream);
+        if (sd.hasSnapshot() && restoreNotes(sd)) {
+          profile.setDifferential(sd.getDifferential());
+          profile.setSnapshot(sd.getSnapshot());
+          synchronized (this) {
+            hits++;
+          }
+          return true;
+        }
+      } catch (Exception e) {
+        // the file is corrupt or half written; the snapshot is generated again, and the file replaced
+      }
+    }
+    synchronized (this) {
+      misses++;
+    }
+    return false;
+  }
+
+  /**
+   * Keep the snapshot that was generated for the key. The file is written under another name 
+   * and then renamed, so no one reads a half written file. If it can't be written, the snapshot 
+   * will be generated again next time
+   */
+  public void save(String key, StructureDefinition profile) {
+    List<String> notes = saveNotes(profile);
+    if (notes == null) {
+      return;
+    }
+    File f = file(key);
+    File tmp = new File(f.getAbsolutePath()+"."+Thread.currentThread().getId()+".tmp");
+    try {
+      StructureDefinition copy = profile.copy();
+      for (String note : notes) {
+        copy.addExtension(EXT_NOTE, new StringType(note));
+      }
+      try (OutputStream stream = new FileOutputStream(tmp)) {
+        new JsonParser().compose(stream, copy);
+      }
+      if (!tmp.renameTo(f)) {
+        f.delete();
+        tmp.renameTo(f);
+      }
+    } catch (Exception e) {
+      tmp.delete();
+    }
+  }
+
+  public synchronized int getHits() {
+    return hits;
+  }
+
+  public synchronized int getMisses() {
+    return misses;
+  }
+
+  /**
+   * Each note is: [element]|[path in the element]|[name]|[value], where the element is 
+   * snapshot:n or differential:n, and the value is true, or the element it points to 
+   * 
+   * @return the notes, or null if one of them can't be kept
+   */
+  private List<String> saveNotes(StructureDefinition profile) {
+    Map<Base, String> elements = new IdentityHashMap<>();
+    for (int i = 0; i < profile.getSnapshot().getElement().size(); i++) {
+      elements.put(profile.getSnapshot().getElement().get(i), "snapshot:"+i);
+    }
+    for (int i = 0; i < profile.getDifferential().getElement().size(); i++) {
+      elements.put(profile.getDifferential().getElement().get(i), "differential:"+i);
+    }
+    List<String> notes = new ArrayList<>();
+    for (ElementDefinition ed : profile.getSnapshot().getElement()) {
+      if (!saveNotes(elements.get(ed), "", ed, elements, notes)) {
+        return null;
+      }
+    }
+    for (ElementDefinition ed : profile.getDifferential().getElement()) {
+      if (!saveNotes(elements.get(ed), "", ed, elements, notes)) {
+        return null;
+      }
+    }
+    return notes;
+  }
+
+  private boolean saveNotes(String element, String path, Base b, Map<Base, String> elements, List<String> notes) {
+    for (String name : FLAGS) {
+      if (b.hasUserData(name)) {
+        if (!Boolean.TRUE.equals(b.getUserData(name))) {
+          return false;
+        }
+        notes.add(element+"|"+path+"|"+name+"|true");
+      }
+    }
+    for (String name : POINTERS) {
+      if (b.hasUserData(name)) {
+        String target = elements.get(b.getUserData(name));
+        if (target == null) {
+          return false;
+        }
+        notes.add(element+"|"+path+"|"+name+"|"+target);
+      }
+    }
+    for (Property p : b.children()) {
+      for (int i = 0; i < p.getValues().size(); i++) {
+        if (!saveNotes(element, path+"/"+p.getName()+"/"+i, p.getValues().get(i), elements, notes)) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Take the notes out of the loaded profile, and put them back on the elements
+   * 
+   * @return false if the notes don't match the profile
+   */
+  private boolean restoreNotes(StructureDefinition sd) {
+    List<String> notes = new ArrayList<>();
+    for (Extension ext : sd.getExtensionsByUrl(EXT_NOTE)) {
+      notes.add(ext.getValue().primitiveValue());
+    }
+    sd.getExtension().removeIf(ext -> EXT_NOTE.equals(ext.getUrl()));
+    for (String note : notes) {
+      String[] parts = note.split("\\|");
+      if (parts.length != 4) {
+        return false;
+      }
+      Base b = element(sd, parts[0]);
+      String[] steps = parts[1].split("/");
+      for (int i = 1; b != null && i + 1 < steps.length; i = i + 2) {
+        b = child(b, steps[i], Integer.parseInt(steps[i + 1]));
+      }
+      if (b == null) {
+        return false;
+      }
+      if ("true".equals(parts[3])) {
+        b.setUserData(parts[2], true);
+      } else {
+        Base target = element(sd, parts[3]);
+        if (target == null) {
+          return false;
+        }
+        b.setUserData(parts[2], target);
+      }
+    }
+    return true;
+  }
+
+  private Base element(StructureDefinition sd, String ref) {
+    List<ElementDefinition> list = ref.startsWith("snapshot:") ? sd.getSnapshot().getElement() : sd.getDifferential().getElement();
+    int i = Integer.parseInt(ref.substring(ref.indexOf(":") + 1));
+    return i < list.size() ? list.get(i) : null;
+  }
+
+  private Base child(Base b, String name, int index) {
+    for (Property p : b.children()) {
+      if (p.getName().equals(name)) {
+        return index < p.getValues().size() ? p.getValues().get(index) : null;
+      }
+    }
+    return null;
+  }
+
+  private File file(String key) {
+    return new File(folder, key+".json");
+  }
+
+  private MessageDigest digest() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new Error(e); // every JVM has SHA-256
+    }
+  }
+
+  private String digest(MessageDigest md, StructureDefinition sd) throws IOException {
+    // the id isn't part of the key: resources loaded without one are given a new one each time
+    StructureDefinition copy = sd.copy();
+    copy.setIdElement(null);
+    OutputStream discard = new OutputStream() {
+      @Override
+      public void write(int b) {
+      }
+      @Override
+      public void write(byte[] b, int off, int len) {
+      }
+    };
+    new JsonParser().compose(new DigestOutputStream(discard, md), copy);
+    return hex(md);
+  }
+
+  private String hex(MessageDigest md) {
+    StringBuilder b = new StringBuilder();
+    for (byte v : md.digest()) {
+      b.append(String.format("%02x", v));
+    }
+    return b.toString();
+  }
+}
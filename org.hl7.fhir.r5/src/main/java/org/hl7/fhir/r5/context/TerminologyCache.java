@@ -36,6 +36,8 @@ import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -73,6 +75,11 @@ import com.google.gson.JsonPrimitive;
  *  
  * the cache is a series of pairs: a map, and a list. the map is the loaded cache, the list is the persiistent cache, carefully maintained in order for version control consistency
  * 
+ * The persistent cache is either text files ([name].cache, the default, suitable for version control) or 
+ * binary files (see TerminologyCacheFile) that are appended to rather than rewritten, and read lazily. 
+ * The binary format is used if it's switched on (setBinaryFormat) or the folder already has binary files 
+ * in it. Text files are migrated to the binary format the first time they're loaded in binary mode
+ * 
  * @author graha
  *
  */
@@ -82,6 +89,7 @@ public class TerminologyCache {
   private static final String NAME_FOR_NO_SYSTEM = "all-systems";
   private static final String ENTRY_MARKER = "-------------------------------------------------------------------------------------";
   private static final String BREAK = "####";
+  private static final int KEY_VERSION = 2; // change this if the way keys are made changes, so that binary cache indexes are rebuilt
 
   public class CacheToken {
     private String name;
@@ -100,19 +108,29 @@ public class TerminologyCache {
     private boolean persistent;
     private ValidationResult v;
     private ValueSetExpansionOutcome e;
+    private long offset = -1; // where the entry is in the binary file. If request is null, it hasn't been read yet
   }
   
   private class NamedCache {
     private String name; 
-    private List<CacheEntry> list = new ArrayList<CacheEntry>(); // persistent entries
-    private Map<String, CacheEntry> map = new HashMap<String, CacheEntry>();
+    private List<CacheEntry> list = new ArrayList<CacheEntry>(); // persistent entries (text format)
+    private TerminologyCacheFile file; // binary format
   }
   
 
   private Object lock;
   private String folder;
   private Map<String, NamedCache> caches = new HashMap<String, NamedCache>();
+  private BoundedCache<String, CacheEntry> entries = new BoundedCache<String, CacheEntry>(maxTransientEntries, transientTtl); // for all the named caches; keys are [name]|[key]. Persistent entries are pinned
+  private boolean binary;
+  private long hits;
+  private long misses;
+  private long collisions;
+  private boolean caching = true;
   private static boolean noCaching;
+  private static boolean binaryFormat;
+  private static int maxTransientEntries = BoundedCache.DEFAULT_MAX_SIZE;
+  private static long transientTtl = BoundedCache.NO_TTL;
   
   // use lock from the context
   public TerminologyCache(Object lock, String folder) throws FileNotFoundException, IOException, FHIRException {
@@ -137,7 +155,7 @@ public class TerminologyCache {
     } catch (IOException e) {
       throw new Error(e);
     }
-    ct.key = String.valueOf(hashNWS(ct.request));
+    ct.key = makeKey(ct.request);
     return ct;
   }
 
@@ -155,7 +173,7 @@ public class TerminologyCache {
     } catch (IOException e) {
       throw new Error(e);
     }
-    ct.key = String.valueOf(hashNWS(ct.request));
+    ct.key = makeKey(ct.request);
     return ct;
   }
   
@@ -190,7 +208,7 @@ public class TerminologyCache {
     } catch (IOException e) {
       throw new Error(e);
     }
-    ct.key = String.valueOf(hashNWS(ct.request));
+    ct.key = makeKey(ct.request);
     return ct;
   }
 
@@ -227,15 +245,51 @@ public class TerminologyCache {
     if (nc == null) {
       nc = new NamedCache();
       nc.name = cacheToken.name;
+      if (binary) {
+        nc.file = makeFile(nc.name);
+      }
       caches.put(nc.name, nc);
     }
     return nc;
   }
   
+  private CacheEntry getEntry(NamedCache nc, CacheToken cacheToken) {
+    CacheEntry e = entries.get(entryKey(nc, cacheToken.key));
+    if (e != null && e.request == null) {
+      try {
+        TerminologyCacheFile.Entry entry = nc.file.read(e.offset);
+        if (entry == null) {
+          // the file was damaged or dropped (e.g. by another process) 
+          entries.remove(entryKey(nc, cacheToken.key));
+          e = null;
+        } else {
+          e.request = entry.getRequest();
+          parsePayload(e, entry.getKind() == 'e', entry.getPayload());
+        }
+      } catch (Exception ex) {
+        throw new FHIRException("Error reading "+nc.name+" cache entry: "+ex.getMessage(), ex);
+      }
+    }
+    if (e == null) {
+      misses++;
+    } else if (!sameRequest(e.request, cacheToken.request)) {
+      collisions++;
+      misses++;
+      e = null;
+    } else {
+      hits++;
+    }
+    return e;
+  }
+  
+  private String entryKey(NamedCache nc, String key) {
+    return nc.name+"|"+key;
+  }
+
   public ValueSetExpansionOutcome getExpansion(CacheToken cacheToken) {
     synchronized (lock) {
       NamedCache nc = getNamedCache(cacheToken);
-      CacheEntry e = nc.map.get(cacheToken.key);
+      CacheEntry e = getEntry(nc, cacheToken);
       if (e == null)
         return null;
       else
@@ -255,12 +309,15 @@ public class TerminologyCache {
   }
 
   public void store(CacheToken cacheToken, boolean persistent, NamedCache nc, CacheEntry e) {
-    if (noCaching) {
+    if (noCaching || !caching) {
       return;
     }
-    boolean n = nc.map.containsKey(cacheToken.key);
-    nc.map.put(cacheToken.key, e);
-    if (persistent) {
+    String key = entryKey(nc, cacheToken.key);
+    boolean n = entries.containsKey(key);
+    entries.put(key, e, persistent);
+    if (persistent && nc.file != null) {
+      append(nc, cacheToken.key, e);
+    } else if (persistent) {
       if (n) {
         for (int i = nc.list.size()- 1; i>= 0; i--) {
           if (nc.list.get(i).request.equals(e.request)) {
@@ -276,7 +333,7 @@ public class TerminologyCache {
   public ValidationResult getValidation(CacheToken cacheToken) {
     synchronized (lock) {
       NamedCache nc = getNamedCache(cacheToken);
-      CacheEntry e = nc.map.get(cacheToken.key);
+      CacheEntry e = getEntry(nc, cacheToken);
       if (e == null)
         return null;
       else
@@ -309,22 +366,10 @@ public class TerminologyCache {
     try {
       OutputStreamWriter sw = new OutputStreamWriter(new FileOutputStream(Utilities.path(folder, nc.name+".cache")), "UTF-8");
       sw.write(ENTRY_MARKER+"\r\n");
-      JsonParser json = new JsonParser();
-      json.setOutputStyle(OutputStyle.PRETTY);
       for (CacheEntry ce : nc.list) {
         sw.write(ce.request.trim());
         sw.write(BREAK+"\r\n");
-        if (ce.e != null) {
-          sw.write("e: {\r\n");
-          if (ce.e.getValueset() != null)
-            sw.write("  \"valueSet\" : "+json.composeString(ce.e.getValueset()).trim()+",\r\n");
-          sw.write("  \"error\" : \""+Utilities.escapeJson(ce.e.getError()).trim()+"\"\r\n}\r\n");
-        } else {
-          sw.write("v: {\r\n");
-          sw.write("  \"display\" : \""+Utilities.escapeJson(ce.v.getDisplay()).trim()+"\",\r\n");
-          sw.write("  \"severity\" : "+(ce.v.getSeverity() == null ? "null" : "\""+ce.v.getSeverity().toCode().trim()+"\"")+",\r\n");
-          sw.write("  \"error\" : \""+Utilities.escapeJson(ce.v.getMessage()).trim()+"\"\r\n}\r\n");
-        }
+        sw.write((ce.e != null ? "e: " : "v: ")+composePayload(ce));
         sw.write(ENTRY_MARKER+"\r\n");
       }      
       sw.close();
@@ -333,14 +378,98 @@ public class TerminologyCache {
     }
   }
 
+  private void append(NamedCache nc, String key, CacheEntry ce) {
+    try {
+      ce.offset = nc.file.append(key, new TerminologyCacheFile.Entry(ce.e != null ? 'e' : 'v', ce.request, composePayload(ce)));
+    } catch (Exception e) {
+      System.out.println("error saving "+nc.name+": "+e.getMessage());
+    }
+  }
+
+  private String composePayload(CacheEntry ce) throws IOException {
+    StringBuilder b = new StringBuilder();
+    if (ce.e != null) {
+      JsonParser json = new JsonParser();
+      json.setOutputStyle(OutputStyle.PRETTY);
+      b.append("{\r\n");
+      if (ce.e.getValueset() != null)
+        b.append("  \"valueSet\" : "+json.composeString(ce.e.getValueset()).trim()+",\r\n");
+      b.append("  \"error\" : \""+Utilities.escapeJson(ce.e.getError()).trim()+"\"\r\n}\r\n");
+    } else {
+      b.append("{\r\n");
+      b.append("  \"display\" : \""+Utilities.escapeJson(ce.v.getDisplay()).trim()+"\",\r\n");
+      b.append("  \"severity\" : "+(ce.v.getSeverity() == null ? "null" : "\""+ce.v.getSeverity().toCode().trim()+"\"")+",\r\n");
+      b.append("  \"error\" : \""+Utilities.escapeJson(ce.v.getMessage()).trim()+"\"\r\n}\r\n");
+    }
+    return b.toString();
+  }
+
+  private void parsePayload(CacheEntry ce, boolean e, String p) throws IOException {
+    JsonObject o = (JsonObject) new com.google.gson.JsonParser().parse(p);
+    String error = loadJS(o.get("error"));
+    if (e) {
+      if (o.has("valueSet"))
+        ce.e = new ValueSetExpansionOutcome((ValueSet) new JsonParser().parse(o.getAsJsonObject("valueSet")), error, TerminologyServiceErrorClass.UNKNOWN);
+      else
+        ce.e = new ValueSetExpansionOutcome(error, TerminologyServiceErrorClass.UNKNOWN);
+    } else {
+      IssueSeverity severity = o.get("severity") instanceof JsonNull ? null :  IssueSeverity.fromCode(o.get("severity").getAsString());
+      String display = loadJS(o.get("display"));
+      ce.v = new ValidationResult(severity, error, new ConceptDefinitionComponent().setDisplay(display));
+    }
+  }
+
+  private TerminologyCacheFile makeFile(String name) {
+    return new TerminologyCacheFile(folder, name, KEY_VERSION, new TerminologyCacheFile.IKeyMaker() {
+      @Override
+      public String makeKey(String request) {
+        return TerminologyCache.makeKey(request);
+      }
+    });
+  }
+
   private void load() throws FHIRException {
-    for (String fn : new File(folder).list()) {
-      if (fn.endsWith(".cache") && !fn.equals("validation.cache")) {
+    binary = binaryFormat;
+    String[] files = new File(folder).list();
+    for (String fn : files) {
+      if (fn.endsWith(TerminologyCacheFile.DATA_EXT)) {
+        binary = true;
+      }
+    }
+    // the binary files first, so that text files can be checked against them
+    for (String fn : files) {
+      if (binary && fn.endsWith(TerminologyCacheFile.DATA_EXT)) {
+        String title = fn.substring(0, fn.lastIndexOf("."));
         try {
-          String title = fn.substring(0, fn.lastIndexOf("."));
           NamedCache nc = new NamedCache();
           nc.name = title;
+          nc.file = makeFile(title);
+          for (Map.Entry<String, Long> t : nc.file.readIndex().entrySet()) {
+            CacheEntry ce = new CacheEntry();
+            ce.persistent = true;
+            ce.offset = t.getValue();
+            entries.put(entryKey(nc, t.getKey()), ce, true);
+          }
           caches.put(title, nc);
+        } catch (Exception e) {
+          throw new FHIRException("Error loading "+fn+": "+e.getMessage(), e);
+        }
+      }
+    }
+    for (String fn : files) {
+      if (fn.endsWith(".cache") && !fn.equals("validation.cache")) {
+        try {
+          String title = fn.substring(0, fn.lastIndexOf("."));
+          File text = new File(folder, fn);
+          NamedCache nc = caches.get(title);
+          if (nc != null && nc.file != null && nc.file.isMigrated(text)) {
+            continue; // already migrated, and the text file hasn't changed since
+          }
+          if (nc == null) {
+            nc = new NamedCache();
+            nc.name = title;
+            caches.put(title, nc);
+          }
           String src = TextFile.fileToString(Utilities.path(folder, fn));
           if (src.startsWith("?"))
             src = src.substring(1);
@@ -357,23 +486,27 @@ public class TerminologyCache {
               ce.persistent = true;
               ce.request = q;
               boolean e = p.charAt(0) == 'e';
-              p = p.substring(3);
-              JsonObject o = (JsonObject) new com.google.gson.JsonParser().parse(p);
-              String error = loadJS(o.get("error"));
-              if (e) {
-                if (o.has("valueSet"))
-                  ce.e = new ValueSetExpansionOutcome((ValueSet) new JsonParser().parse(o.getAsJsonObject("valueSet")), error, TerminologyServiceErrorClass.UNKNOWN);
-                else
-                  ce.e = new ValueSetExpansionOutcome(error, TerminologyServiceErrorClass.UNKNOWN);
-              } else {
-                IssueSeverity severity = o.get("severity") instanceof JsonNull ? null :  IssueSeverity.fromCode(o.get("severity").getAsString());
-                String display = loadJS(o.get("display"));
-                ce.v = new ValidationResult(severity, error, new ConceptDefinitionComponent().setDisplay(display));
+              parsePayload(ce, e, p.substring(3));
+              String key = entryKey(nc, makeKey(ce.request));
+              if (nc.file == null || !entries.containsKey(key)) {
+                // when the text file has changed since it was migrated, only what the binary file doesn't have is added
+                entries.put(key, ce, true);
+                nc.list.add(ce);
               }
-              nc.map.put(String.valueOf(hashNWS(ce.request)), ce);
-              nc.list.add(ce);
             }
           }        
+          if (binary) {
+            // migration to the binary format. The text file is left alone, but if it changes (e.g. it's 
+            // still used by an older version), the new entries are migrated next time
+            if (nc.file == null) {
+              nc.file = makeFile(title);
+            }
+            for (CacheEntry ce : nc.list) {
+              append(nc, makeKey(ce.request), ce);
+            }
+            nc.list.clear();
+            nc.file.setMigrated(text);
+          }
         } catch (Exception e) {
           throw new FHIRException("Error loading "+fn+": "+e.getMessage(), e);
         }
@@ -392,8 +525,101 @@ public class TerminologyCache {
     return s;
   }
 
-  private String hashNWS(String s) {
-    return String.valueOf(s.replace("\r", "").replace("\n", "").replace(" ", "").hashCode());
+  private static boolean isIgnorable(char ch) {
+    return ch == '\r' || ch == '\n' || ch == ' ';
+  }
+
+  /**
+   * Reads the characters of a request that matter: the whitespace between the JSON tokens is 
+   * skipped, but the whitespace in strings is kept (so "a b" and "ab" are different requests)
+   */
+  private static class RequestReader {
+    private final String request;
+    private int index;
+    private boolean inString;
+    private boolean escaped;
+
+    private RequestReader(String request) {
+      this.request = request;
+    }
+
+    /**
+     * @return the next character that matters, or -1 at the end of the request
+     */
+    private int next() {
+      while (index < request.length()) {
+        char ch = request.charAt(index++);
+        if (inString) {
+          if (escaped) {
+            escaped = false;
+          } else if (ch == '\\') {
+            escaped = true;
+          } else if (ch == '"') {
+            inString = false;
+          }
+          return ch;
+        } else if (ch == '"') {
+          inString = true;
+          return ch;
+        } else if (!isIgnorable(ch)) {
+          return ch;
+        }
+      }
+      return -1;
+    }
+  }
+
+  /**
+   * The key for a request is a 128 bit digest of the request, ignoring whitespace outside 
+   * strings. It's worked out as the request is read, rather than from a copy with the whitespace removed. 
+   * 
+   * Different requests can still (very rarely) have the same key, so a hit is checked against 
+   * the full request (see sameRequest)
+   */
+  private static String makeKey(String request) {
+    MessageDigest md;
+    try {
+      md = MessageDigest.getInstance("MD5");
+    } catch (NoSuchAlgorithmException e) {
+      throw new Error(e); // every JVM has MD5
+    }
+    byte[] buffer = new byte[2048];
+    int l = 0;
+    RequestReader reader = new RequestReader(request);
+    int ch;
+    while ((ch = reader.next()) != -1) {
+      buffer[l++] = (byte) (ch >> 8);
+      buffer[l++] = (byte) ch;
+      if (l == buffer.length) {
+        md.update(buffer, 0, l);
+        l = 0;
+      }
+    }
+    md.update(buffer, 0, l);
+    byte[] digest = md.digest();
+    char[] hex = new char[digest.length * 2];
+    for (int i = 0; i < digest.length; i++) {
+      hex[i*2] = HEX[(digest[i] >> 4) & 0xF];
+      hex[i*2+1] = HEX[digest[i] & 0xF];
+    }
+    return new String(hex);
+  }
+
+  private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+  /**
+   * @return true if the two requests are the same, ignoring whitespace outside strings
+   */
+  private static boolean sameRequest(String r1, String r2) {
+    RequestReader reader1 = new RequestReader(r1);
+    RequestReader reader2 = new RequestReader(r2);
+    while (true) {
+      int ch = reader1.next();
+      if (ch != reader2.next())
+        return false;
+      if (ch == -1)
+        return true;
+    }
   }
 
   // management
@@ -457,15 +683,128 @@ public class TerminologyCache {
     return noCaching;
   }
 
+  /**
+   * turns storing results off for every cache in the JVM. Use setCaching to turn it off for just this cache
+   */
   public static void setNoCaching(boolean noCaching) {
     TerminologyCache.noCaching = noCaching;
   }
 
+  /**
+   * @return whether this cache stores results (true unless setCaching(false) has been called)
+   */
+  public boolean isCaching() {
+    return caching;
+  }
+
+  /**
+   * Turn storing results on or off for this cache only (e.g. for one engine in a long running service)
+   */
+  public void setCaching(boolean caching) {
+    this.caching = caching;
+  }
+
+  /**
+   * @return the number of lookups that found a cached result
+   */
+  public long getHits() {
+    synchronized (lock) {
+      return hits;
+    }
+  }
+
+  /**
+   * @return the number of lookups that didn't find a cached result (including collisions)
+   */
+  public long getMisses() {
+    synchronized (lock) {
+      return misses;
+    }
+  }
+
+  /**
+   * @return the number of lookups where a different request had the same key
+   */
+  public long getCollisions() {
+    synchronized (lock) {
+      return collisions;
+    }
+  }
+
+  /**
+   * @return hits / lookups, or 0 if there haven't been any lookups
+   */
+  public double getHitRate() {
+    synchronized (lock) {
+      return hits + misses == 0 ? 0 : (double) hits / (hits + misses);
+    }
+  }
+
+  /**
+   * @return the number of entries held in memory (persistent and transient)
+   */
+  public int getSize() {
+    synchronized (lock) {
+      return entries.size();
+    }
+  }
+
+  /**
+   * @return the number of transient entries dropped because there were too many, or they were too old
+   */
+  public long getEvictions() {
+    synchronized (lock) {
+      return entries.getEvictions();
+    }
+  }
+
+  public String getStatsSummary() {
+    synchronized (lock) {
+      return "size = "+entries.size()+" ("+entries.pinnedSize()+" persistent), evictions = "+entries.getEvictions()+", hits = "+hits+", misses = "+misses+", collisions = "+collisions;
+    }
+  }
+
+  public static int getMaxTransientEntries() {
+    return maxTransientEntries;
+  }
+
+  /**
+   * The maximum number of transient (not saved) entries a terminology cache holds in memory. The least recently used are 
+   * dropped when there are more. Persistent entries don't count, and aren't dropped. Applies to caches created after this is set
+   */
+  public static void setMaxTransientEntries(int maxTransientEntries) {
+    TerminologyCache.maxTransientEntries = maxTransientEntries;
+  }
+
+  public static long getTransientTtl() {
+    return transientTtl;
+  }
+
+  /**
+   * How long (in milliseconds) transient entries are used for before they are dropped (BoundedCache.NO_TTL = forever). 
+   * Applies to caches created after this is set
+   */
+  public static void setTransientTtl(long transientTtl) {
+    TerminologyCache.transientTtl = transientTtl;
+  }
+
+  public static boolean isBinaryFormat() {
+    return binaryFormat;
+  }
+
+  /**
+   * Use the binary format for caches that are loaded after this is set (caches already in binary format always are)
+   */
+  public static void setBinaryFormat(boolean binaryFormat) {
+    TerminologyCache.binaryFormat = binaryFormat;
+  }
+
   public void removeCS(String url) {
     synchronized (lock) {
       String name = getNameForSystem(url);
       if (caches.containsKey(name)) {
         caches.remove(name);
+        entries.removeIf(k -> k.startsWith(name+"|"));
       }
     }   
   }
@@ -0,0 +1,382 @@
+package org.hl7.fhir.r5.context;
+
+/*
+  Copyright (c) 2011+, HL7, Inc.
+  All rights reserved.
+  
+  Redistribution and use in source and binary forms, with or without modification, 
+  are permitted provided that the following conditions are met:
+    
+   * Redistributions of source code must retain the above copyright notice, this 
+     list of conditions and the following disclaimer.
+   * Redistributions in binary form must reproduce the above copyright notice, 
+     this list of conditions and the following disclaimer in the documentation 
+     and/or other materials provided with the distribution.
+   * Neither the name of HL7 nor the names of its contributors may be used to 
+     endorse or promote products derived from this software without specific 
+     prior written permission.
+  
+  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND 
+  ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED 
+  WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. 
+  IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, 
+  INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT 
+  NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR 
+  PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, 
+  WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+  ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+  POSSIBILITY OF SUCH DAMAGE.
+  
+ */
+
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The binary store for one named terminology cache. 
+ * 
+ * There are two files: 
+ *  - [name].tcb: the entries, appended one after another (kind, request, and the result as json)
+ *  - [name].tci: the index - key, offset and length for each entry in the .tcb file
+ *  
+ * Both files are only ever appended to, so saving an entry is a single write, not a rewrite of 
+ * the cache. When an entry is replaced, the new entry is appended, and the index entry for it 
+ * (which comes later in the index) wins. On load, only the index is read; entries are read when 
+ * they're used. 
+ * 
+ * The index can always be rebuilt from the entries. It is rebuilt if it is missing or damaged, 
+ * or was built with a different key version (the cache keys are worked out from the request), 
+ * and it's caught up if the entries file has entries it doesn't know about (e.g. the process stopped 
+ * between the two writes, or another process added them). If the entries file itself is damaged, 
+ * the cache is dropped.
+ * 
+ * The files can be shared by more than one process (e.g. several validators using the same 
+ * terminology cache folder), so all access holds a lock on the .tcb file (shared for reading, 
+ * exclusive for anything else), and every length that is read is checked against the file size. 
+ * 
+ * There's also a small [name].tcm file, that records which version of the old text format file 
+ * was migrated into this one
+ */
+class TerminologyCacheFile {
+
+  public static final String DATA_EXT = ".tcb";
+  public static final String INDEX_EXT = ".tci";
+  public static final String MIGRATION_EXT = ".tcm";
+  
+  private static final int DATA_MAGIC = 0x54434231; // TCB1
+  private static final int INDEX_MAGIC = 0x54434931; // TCI1
+  private static final int DATA_HEADER_SIZE = 4;
+
+  // file locks belong to the JVM, not the thread (and asking for an overlapping one fails), so 
+  // everything in this JVM that uses the same files takes turns on one of these first
+  private static final Map<String, Object> FILE_LOCKS = new ConcurrentHashMap<>();
+  
+  public interface IKeyMaker {
+    String makeKey(String request);
+  }
+  
+  public static class Entry {
+    private char kind;
+    private String request;
+    private String payload;
+
+    public Entry(char kind, String request, String payload) {
+      super();
+      this.kind = kind;
+      this.request = request;
+      this.payload = payload;
+    }
+    public char getKind() {
+      return kind;
+    }
+    public String getRequest() {
+      return request;
+    }
+    public String getPayload() {
+      return payload;
+    }
+  }
+
+  private File data;
+  private File index;
+  private File migration;
+  private int keyVersion;
+  private IKeyMaker keyMaker;
+  private final Object fileLock;
+  
+  public TerminologyCacheFile(String folder, String name, int keyVersion, IKeyMaker keyMaker) {
+    super();
+    this.data = new File(folder, name+DATA_EXT);
+    this.index = new File(folder, name+INDEX_EXT);
+    this.migration = new File(folder, name+MIGRATION_EXT);
+    this.keyVersion = keyVersion;
+    this.keyMaker = keyMaker;
+    this.fileLock = FILE_LOCKS.computeIfAbsent(data.getAbsolutePath(), k -> new Object());
+  }
+
+  public static boolean exists(String folder, String name) {
+    return new File(folder, name+DATA_EXT).exists();
+  }
+
+  /**
+   * Read the index (building or catching it up if necessary)
+   * 
+   * @return the offset of the current entry for each key
+   */
+  public Map<String, Long> readIndex() throws IOException {
+    synchronized (fileLock) {
+      try (RandomAccessFile raf = new RandomAccessFile(data, "rw"); FileLock fl = raf.getChannel().lock()) {
+        return readIndex(raf);
+      }
+    }
+  }
+
+  private Map<String, Long> readIndex(RandomAccessFile raf) throws IOException {
+    Map<String, Long> res = new HashMap<>();
+    if (!isCacheFile(raf)) {
+      // new, or not something we can use 
+      create(raf);
+      return res;
+    }
+    long dataLength = raf.length();
+    long end = DATA_HEADER_SIZE;
+    boolean ok = false;
+    if (index.exists()) {
+      long indexLength = index.length();
+      try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(index)))) {
+        if (in.readInt() == INDEX_MAGIC && in.readInt() == keyVersion) {
+          ok = true;
+          try {
+            while (ok) {
+              String key = readString(in, indexLength);
+              long offset = in.readLong();
+              int length = in.readInt();
+              if (offset < DATA_HEADER_SIZE || length < 4 || offset + length > dataLength) {
+                ok = false; // the index doesn't match the entries
+              } else {
+                res.put(key, offset);
+                end = Math.max(end, offset + length);
+              }
+            }
+          } catch (EOFException e) {
+            // end of index (possibly in the middle of an entry, if the index write was interrupted)
+          }
+        }
+      } catch (IOException e) {
+        ok = false;
+      }
+    }
+    if (!ok) {
+      // rebuild
+      res.clear();
+      end = DATA_HEADER_SIZE;
+      writeIndexHeader();
+    }
+    if (dataLength > end) {
+      catchUp(raf, res, end);
+    }
+    return res;
+  }
+
+  /**
+   * read the entries that aren't in the index yet, and add them to it 
+   */
+  private void catchUp(RandomAccessFile raf, Map<String, Long> res, long start) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream idx = new DataOutputStream(bytes);
+    long offset = start;
+    while (offset < raf.length()) {
+      raf.seek(offset);
+      if (raf.length() - offset < 4) {
+        break;
+      }
+      int length = raf.readInt();
+      if (length < 0 || offset + 4 + length > raf.length()) {
+        break;
+      }
+      byte[] content = new byte[length];
+      raf.readFully(content);
+      Entry entry;
+      try {
+        entry = readEntry(content);
+      } catch (IOException e) {
+        break; // damaged - everything from here on is dropped 
+      }
+      String key = keyMaker.makeKey(entry.request);
+      res.put(key, offset);
+      writeString(idx, key);
+      idx.writeLong(offset);
+      idx.writeInt(4 + length);
+      offset = offset + 4 + length;
+    }
+    if (offset < raf.length()) {
+      // an incomplete entry at the end - the process stopped while it was being written 
+      raf.setLength(offset);
+    }
+    idx.close();
+    try (FileOutputStream out = new FileOutputStream(index, true)) {
+      out.write(bytes.toByteArray());
+    }
+  }
+
+  private boolean isCacheFile(RandomAccessFile raf) throws IOException {
+    if (raf.length() < DATA_HEADER_SIZE) {
+      return false;
+    }
+    raf.seek(0);
+    return raf.readInt() == DATA_MAGIC;
+  }
+
+  /**
+   * start again with no entries 
+   */
+  private void create(RandomAccessFile raf) throws IOException {
+    raf.setLength(0);
+    raf.seek(0);
+    raf.writeInt(DATA_MAGIC);
+    writeIndexHeader();
+    migration.delete();
+  }
+
+  private void writeIndexHeader() throws IOException {
+    try (DataOutputStream out = new DataOutputStream(new FileOutputStream(index))) {
+      out.writeInt(INDEX_MAGIC);
+      out.writeInt(keyVersion);
+    }
+  }
+
+  /**
+   * Add an entry to the end of the file
+   * 
+   * @return the offset of the entry in the file
+   */
+  public long append(String key, Entry entry) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream content = new DataOutputStream(bytes);
+    content.writeInt(0); // length, filled in below
+    content.writeChar(entry.kind);
+    writeString(content, entry.request);
+    writeString(content, entry.payload);
+    content.close();
+    byte[] b = bytes.toByteArray();
+    int length = b.length - 4;
+    b[0] = (byte) (length >>> 24);
+    b[1] = (byte) (length >>> 16);
+    b[2] = (byte) (length >>> 8);
+    b[3] = (byte) length;
+    
+    synchronized (fileLock) {
+      try (RandomAccessFile raf = new RandomAccessFile(data, "rw"); FileLock fl = raf.getChannel().lock()) {
+        if (!isCacheFile(raf)) {
+          create(raf);
+        }
+        long offset = raf.length();
+        raf.seek(offset);
+        raf.write(b);
+        try (DataOutputStream idx = new DataOutputStream(new FileOutputStream(index, true))) {
+          writeString(idx, key);
+          idx.writeLong(offset);
+          idx.writeInt(b.length);
+        }
+        return offset;
+      }
+    }
+  }
+
+  /**
+   * @return the entry at the offset, or null if there isn't one there (the file has been damaged or 
+   * dropped since the offset was read) 
+   */
+  public Entry read(long offset) throws IOException {
+    synchronized (fileLock) {
+      if (!data.exists()) {
+        return null;
+      }
+      try (RandomAccessFile raf = new RandomAccessFile(data, "r"); FileLock fl = raf.getChannel().lock(0, Long.MAX_VALUE, true)) {
+        if (offset < DATA_HEADER_SIZE || offset + 4 > raf.length()) {
+          return null;
+        }
+        raf.seek(offset);
+        int length = raf.readInt();
+        if (length < 0 || offset + 4 + length > raf.length()) {
+          return null;
+        }
+        byte[] content = new byte[length];
+        raf.readFully(content);
+        try {
+          return readEntry(content);
+        } catch (IOException e) {
+          return null;
+        }
+      }
+    }
+  }
+
+  /**
+   * @return true if the text format file has been migrated into this one, and hasn't changed since
+   */
+  public boolean isMigrated(File text) throws IOException {
+    synchronized (fileLock) {
+      return migration.exists() && fingerprint(text).equals(new String(Files.readAllBytes(migration.toPath()), StandardCharsets.UTF_8));
+    }
+  }
+
+  /**
+   * note that the text format file, as it is now, has been migrated into this one 
+   */
+  public void setMigrated(File text) throws IOException {
+    synchronized (fileLock) {
+      try (FileOutputStream out = new FileOutputStream(migration)) {
+        out.write(fingerprint(text).getBytes(StandardCharsets.UTF_8));
+      }
+    }
+  }
+
+  private static String fingerprint(File f) {
+    return f.length()+"|"+f.lastModified();
+  }
+
+  private Entry readEntry(byte[] content) throws IOException {
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(content));
+    char kind = in.readChar();
+    String request = readString(in, content.length);
+    String payload = readString(in, content.length);
+    return new Entry(kind, request, payload);
+  }
+
+  // strings are written as length + utf-8, since DataOutput.writeUTF is limited to 64k, and expansions can be bigger than that
+  private static void writeString(DataOutputStream out, String s) throws IOException {
+    byte[] b = s.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(b.length);
+    out.write(b);
+  }
+
+  /**
+   * @param max - the size of what's being read; a longer string means the content is damaged
+   */
+  private static String readString(DataInputStream in, long max) throws IOException {
+    int length = in.readInt();
+    if (length < 0 || length > max) {
+      throw new IOException("Invalid string length "+length);
+    }
+    byte[] b = new byte[length];
+    in.readFully(b);
+    return new String(b, StandardCharsets.UTF_8);
+  }
+}
@@ -92,7 +92,8 @@ public class Element extends Base {
 	private String type;
 	private String value;
 	private int index = -1;
-	private List<Element> children;
+	private ChildList children;
+	private transient ChildIndex childIndex; // built on demand; see childIndex()
 	private Property property;
   private Property elementProperty; // this is used when special is set to true - it tracks the underlying element property which is used in a few places
 	private int line;
@@ -162,7 +163,7 @@ public class Element extends Base {
 
 	public List<Element> getChildren() {
 		if (children == null)
-			children = new ArrayList<Element>();
+			children = new ChildList();
 		return children;
 	}
 
@@ -195,7 +196,10 @@ public class Element extends Base {
 
 	public List<Element> getChildrenByName(String name) {
 		List<Element> res = new ArrayList<Element>();
-		if (hasChildren()) {
+		ChildIndex ci = childIndex();
+		if (ci != null) {
+		  ci.addNamed(name, res);
+		} else if (hasChildren()) {
 			for (Element child : children)
 				if (name.equals(child.getName()))
 					res.add(child);
@@ -240,6 +244,11 @@ public class Element extends Base {
 	public String getChildValue(String name) {
 		if (children == null)
 			return null;
+		ChildIndex ci = childIndex();
+		if (ci != null) {
+		  List<Element> named = ci.byName.get(name);
+		  return named == null ? null : named.get(0).getValue();
+		}
 		for (Element child : children) {
 			if (name.equals(child.getName()))
 				return child.getValue();
@@ -249,7 +258,7 @@ public class Element extends Base {
 
   public void setChildValue(String name, String value) {
     if (children == null)
-      children = new ArrayList<Element>();
+      children = new ChildList();
     for (Element child : children) {
       if (name.equals(child.getName())) {
         if (!child.isPrimitive())
@@ -266,7 +275,10 @@ public class Element extends Base {
 
 	public List<Element> getChildren(String name) {
 		List<Element> res = new ArrayList<Element>(); 
-		if (children != null)
+		ChildIndex ci = childIndex();
+		if (ci != null)
+		  ci.addNamed(name, res);
+		else if (children != null)
 		for (Element child : children) {
 			if (name.equals(child.getName()))
 				res.add(child);
@@ -297,7 +309,13 @@ public class Element extends Base {
   	}
   		
   	List<Base> result = new ArrayList<Base>();
-  	if (children != null) {
+  	ChildIndex ci = childIndex();
+  	if (ci != null && !(ci.byName.containsKey(name) && ci.byChoiceProperty.containsKey(name))) {
+  	  ci.addNamed(name, result);
+  	  List<Element> choices = ci.byChoiceProperty.get(name);
+  	  if (choices != null)
+  	    result.addAll(choices);
+  	} else if (children != null) {
   	for (Element child : children) {
   		if (child.getName().equals(name))
   			result.add(child);
@@ -348,7 +366,7 @@ public class Element extends Base {
     }
     
     if (children == null)
-      children = new ArrayList<Element>();
+      children = new ChildList();
     Element childForValue = null;
     
     // look through existing children
@@ -388,7 +406,8 @@ public class Element extends Base {
     
     if (childForValue == null)
       throw new Error("Cannot set property "+name+" on "+this.name);
-    else if (value.isPrimitive()) {
+    childIndex = null; // the child's name and type may change below
+    if (value.isPrimitive()) {
       if (childForValue.property.getName().endsWith("[x]"))
         childForValue.name = name+Utilities.capitalize(value.fhirType());
       childForValue.setValue(value.primitiveValue());
@@ -405,7 +424,7 @@ public class Element extends Base {
       }
       if (ve.children != null) {
         if (childForValue.children == null)
-          childForValue.children = new ArrayList<Element>();
+          childForValue.children = new ChildList();
         else 
           childForValue.children.clear();
         childForValue.children.addAll(ve.children);
@@ -429,7 +448,7 @@ public class Element extends Base {
     }
 
     if (children == null)
-      children = new ArrayList<Element>();
+      children = new ChildList();
     
     // look through existing children
     for (Element child : children) {
@@ -542,6 +561,15 @@ public class Element extends Base {
   public Element getNamedChild(String name) {
 	  if (children == null)
   		return null;
+	  ChildIndex ci = childIndex();
+	  if (ci != null) {
+	    List<Element> named = ci.byName.get(name);
+	    List<Element> choices = ci.byChoice.get(name);
+	    int count = (named == null ? 0 : named.size()) + (choices == null ? 0 : choices.size());
+	    if (count > 1)
+	      throw new Error("Attempt to read a single element when there is more than one present ("+name+")");
+	    return count == 0 ? null : named != null ? named.get(0) : choices.get(0);
+	  }
 	  Element result = null;
 	  for (Element child : children) {
 	  	if (child.getName().equals(name) || (child.getName().length() >  child.fhirType().length() && child.getName().substring(0, child.getName().length() - child.fhirType().length()).equals(name) && child.getProperty().getDefinition().isChoice())) {
@@ -555,7 +583,10 @@ public class Element extends Base {
 	}
 
   public void getNamedChildren(String name, List<Element> list) {
-  	if (children != null)
+  	ChildIndex ci = childIndex();
+  	if (ci != null)
+  	  ci.addNamed(name, list);
+  	else if (children != null)
   		for (Element child : children) 
   			if (child.getName().equals(name))
   				list.add(child);
@@ -618,6 +649,9 @@ public class Element extends Base {
   }
 
   public boolean hasChildren(String name) {
+    ChildIndex ci = childIndex();
+    if (ci != null)
+      return ci.byName.containsKey(name);
     if (children != null)
       for (Element child : children) 
         if (child.getName().equals(name))
@@ -733,6 +767,91 @@ public class Element extends Base {
     }
   }
 
+  /**
+   * The child list of an element. Tracks every change (including set, which ArrayList 
+   * doesn't count as a modification) so that the child index knows when to rebuild
+   */
+  private static class ChildList extends ArrayList<Element> {
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    public Element set(int index, Element element) {
+      modCount++;
+      return super.set(index, element);
+    }
+
+    private int version() {
+      return modCount;
+    }
+  }
+
+  /**
+   * Children by name, for the getNamedChild* family of lookups, which are called a great 
+   * many times by the validator and FHIRPath. Lists are in document order.
+   * 
+   * The index is rebuilt whenever the child list changes. It assumes that the name and type of a 
+   * child don't change once it has been added, except through setProperty (which drops the index)
+   */
+  private static class ChildIndex {
+    private final int version;
+    private final Map<String, List<Element>> byName = new HashMap<>();
+    private final Map<String, List<Element>> byChoice = new HashMap<>(); // choice elements by name less the type: valueString -> value
+    private final Map<String, List<Element>> byChoiceProperty = new HashMap<>(); // choice elements by property name less [x]: value[x] -> value
+
+    private ChildIndex(ChildList children) {
+      version = children.version();
+      for (Element child : children) {
+        String n = child.getName();
+        add(byName, n, child);
+        if (child.getProperty() != null) {
+          if (child.getProperty().getDefinition().isChoice()) {
+            String t = child.fhirType();
+            if (n.length() > t.length()) {
+              add(byChoice, n.substring(0, n.length() - t.length()), child);
+            }
+          }
+          String pn = child.getProperty().getName();
+          if (pn.endsWith("[x]") && n.startsWith(pn.substring(0, pn.length() - 3)) && child.getProperty().isChoice()) {
+            add(byChoiceProperty, pn.substring(0, pn.length() - 3), child);
+          }
+        }
+      }
+    }
+
+    private void add(Map<String, List<Element>> map, String name, Element child) {
+      List<Element> list = map.get(name);
+      if (list == null) {
+        list = new ArrayList<>(1);
+        map.put(name, list);
+      }
+      list.add(child);
+    }
+
+    private void addNamed(String name, List<? super Element> list) {
+      List<Element> named = byName.get(name);
+      if (named != null) {
+        list.addAll(named);
+      }
+    }
+  }
+
+  private static final int MIN_INDEXED_CHILDREN = 8; // for fewer children than this, a scan is cheaper than an index
+
+  /**
+   * @return the (current) child index, or null if there are too few children to be worth indexing
+   */
+  private ChildIndex childIndex() {
+    if (children == null || children.size() < MIN_INDEXED_CHILDREN) {
+      return null;
+    }
+    ChildIndex ci = childIndex;
+    if (ci == null || ci.version != children.version()) {
+      ci = new ChildIndex(children);
+      childIndex = ci;
+    }
+    return ci;
+  }
+
   public class ElementSortComparator implements Comparator<Element> {
     private List<ElementDefinition> children;
     public ElementSortComparator(Element e, Property property) {
@@ -31,11 +31,15 @@ package org.hl7.fhir.r5.elementmodel;
 
 
 
+import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.io.Reader;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.util.HashSet;
 import java.util.IdentityHashMap;
 import java.util.List;
@@ -74,6 +78,7 @@ public class JsonParser extends ParserBase {
 	private JsonCreator json;
 	private Map<JsonElement, LocationData> map;
 	private boolean allowComments;
+	private boolean streaming;
 
 	public JsonParser(IWorkerContext context) {
 		super(context);
@@ -86,7 +91,7 @@ public class JsonParser extends ParserBase {
     if (sd == null)
       return null;
 
-    Element result = new Element(type, new Property(context, sd.getSnapshot().getElement().get(0), sd));
+    Element result = new Element(type, Property.forDefinition(context, sd.getSnapshot().getElement().get(0), sd));
     checkObject(obj, path);
     result.setType(type);
     parseChildren(path, obj, result, true);
@@ -97,6 +102,9 @@ public class JsonParser extends ParserBase {
 
 	@Override
 	public Element parse(InputStream stream) throws IOException, FHIRException {
+	  if (streaming) {
+	    return parseStream(stream);
+	  }
 		// if we're parsing at this point, then we're going to use the custom parser
 		map = new IdentityHashMap<JsonElement, LocationData>();
 		String source = TextFile.streamToString(stream);
@@ -117,6 +125,20 @@ public class JsonParser extends ParserBase {
 		}
 	}
 
+	private Element parseStream(InputStream stream) throws IOException, FHIRException {
+	  Reader reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8));
+	  if (policy == ValidationPolicy.EVERYTHING) {
+	    try {
+	      return new JsonStreamParser(this).parse(reader, allowComments);
+	    } catch (IOException e) {
+	      logError(-1, -1,context.formatMessage(I18nConstants.DOCUMENT), IssueType.INVALID, context.formatMessage(I18nConstants.ERROR_PARSING_JSON_, e.getMessage()), IssueSeverity.FATAL);
+	      return null;
+	    }
+	  } else {
+	    return new JsonStreamParser(this).parse(reader, allowComments);
+	  }
+	}
+
 	public Element parse(JsonObject object, Map<JsonElement, LocationData> map) throws FHIRException {
 		this.map = map;
 		return parse(object);
@@ -135,7 +157,7 @@ public class JsonParser extends ParserBase {
 			if (sd == null)
 				return null;
 
-			Element result = new Element(name, new Property(context, sd.getSnapshot().getElement().get(0), sd));
+			Element result = new Element(name, Property.forDefinition(context, sd.getSnapshot().getElement().get(0), sd));
 			checkObject(object, path);
 			result.markLocation(line(object), col(object));
 			result.setType(name);
@@ -349,6 +371,12 @@ public class JsonParser extends ParserBase {
 		}
 
 
+	// for JsonStreamParser, when a resource can't be streamed
+	void parseResource(String npath, JsonObject res, Element parent, Property elementProperty, Map<JsonElement, LocationData> map) throws FHIRException {
+	  this.map = map;
+	  parseResource(npath, res, parent, elementProperty);
+	}
+
 	private void parseResource(String npath, JsonObject res, Element parent, Property elementProperty) throws FHIRException {
 		JsonElement rt = res.get("resourceType");
 		if (rt == null) {
@@ -358,7 +386,7 @@ public class JsonParser extends ParserBase {
 			StructureDefinition sd = context.fetchResource(StructureDefinition.class, ProfileUtilities.sdNs(name, context.getOverrideVersionNs()));
 			if (sd == null)
 				throw new FHIRFormatError(context.formatMessage(I18nConstants.CONTAINED_RESOURCE_DOES_NOT_APPEAR_TO_BE_A_FHIR_RESOURCE_UNKNOWN_NAME_, name));
-			parent.updateProperty(new Property(context, sd.getSnapshot().getElement().get(0), sd), SpecialElement.fromProperty(parent.getProperty()), elementProperty);
+			parent.updateProperty(Property.forDefinition(context, sd.getSnapshot().getElement().get(0), sd), SpecialElement.fromProperty(parent.getProperty()), elementProperty);
 			parent.setType(name);
 			parseChildren(npath, res, parent, true);
 		}
@@ -558,5 +586,18 @@ public class JsonParser extends ParserBase {
     return this;
   }
 
+  public boolean isStreaming() {
+    return streaming;
+  }
+
+  /**
+   * Build the elements in a single pass as the stream is read, without reading it into a string and a 
+   * json object tree first (uses much less memory, and is quicker). Only applies to parse(InputStream)
+   */
+  public JsonParser setStreaming(boolean streaming) {
+    this.streaming = streaming;
+    return this;
+  }
+
 	
 }
\ No newline at end of file
@@ -0,0 +1,640 @@
+package org.hl7.fhir.r5.elementmodel;
+
+/*
+  Copyright (c) 2011+, HL7, Inc.
+  All rights reserved.
+  
+  Redistribution and use in source and binary forms, with or without modification, 
+  are permitted provided that the following conditions are met:
+    
+   * Redistributions of source code must retain the above copyright notice, this 
+     list of conditions and the following disclaimer.
+   * Redistributions in binary form must reproduce the above copyright notice, 
+     this list of conditions and the following disclaimer in the documentation 
+     and/or other materials provided with the distribution.
+   * Neither the name of HL7 nor the names of its contributors may be used to 
+     endorse or promote products derived from this software without specific 
+     prior written permission.
+  
+  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND 
+  ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED 
+  WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. 
+  IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, 
+  INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT 
+  NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR 
+  PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, 
+  WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+  ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+  POSSIBILITY OF SUCH DAMAGE.
+  
+ */
+
+
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.hl7.fhir.exceptions.FHIRException;
+import org.hl7.fhir.exceptions.FHIRFormatError;
+import org.hl7.fhir.r5.conformance.ProfileUtilities;
+import org.hl7.fhir.r5.elementmodel.Element.SpecialElement;
+import org.hl7.fhir.r5.elementmodel.ParserBase.ValidationPolicy;
+import org.hl7.fhir.r5.model.ElementDefinition.TypeRefComponent;
+import org.hl7.fhir.r5.model.StructureDefinition;
+import org.hl7.fhir.utilities.Utilities;
+import org.hl7.fhir.utilities.i18n.I18nConstants;
+import org.hl7.fhir.utilities.json.JsonTrackingParser;
+import org.hl7.fhir.utilities.json.JsonTrackingParser.Lexer;
+import org.hl7.fhir.utilities.json.JsonTrackingParser.LocationData;
+import org.hl7.fhir.utilities.json.JsonTrackingParser.TokenType;
+import org.hl7.fhir.utilities.validation.ValidationMessage;
+import org.hl7.fhir.utilities.validation.ValidationMessage.IssueSeverity;
+import org.hl7.fhir.utilities.validation.ValidationMessage.IssueType;
+import org.hl7.fhir.utilities.xhtml.XhtmlParser;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+
+/**
+ * Builds the element model for a JSON resource in a single pass, reading tokens from a 
+ * Reader with the JsonTrackingParser lexer (see JsonParser.setStreaming). The source isn't read into a string, there's no 
+ * JSON object tree, and no location map: each element gets its line and column from the 
+ * token it starts at.
+ * 
+ * It reports the same problems as the tree based JsonParser. Properties are matched to 
+ * the definitions as they're read, and the children of each element are put in definition 
+ * order once the object is finished, so the element tree is the same too. 
+ * 
+ * If resourceType isn't the first property of a resource, the rest of that resource is read 
+ * into a tree and handed to the tree based parser. 
+ */
+class JsonStreamParser {
+
+  /**
+   * What a json property name in an object means
+   */
+  private static class Target {
+    private Property property;
+    private int index; // of the property in the definition order
+    private boolean primitive;
+  }
+
+  private static class Lookup {
+    private Map<String, Target> targets = new HashMap<>();
+  }
+
+  private static class UnknownProperty {
+    private String name;
+    private int line;
+    private int col;
+
+    private UnknownProperty(String name, int line, int col) {
+      super();
+      this.name = name;
+      this.line = line;
+      this.col = col;
+    }
+  }
+
+  private static class PropertyMessages {
+    private int index;
+    private List<ValidationMessage> messages;
+
+    /**
+     * takes the messages out of the list they were added to
+     */
+    private PropertyMessages(int index, List<ValidationMessage> added) {
+      super();
+      this.index = index;
+      this.messages = new ArrayList<>(added);
+      added.clear();
+    }
+  }
+
+  private JsonParser owner;
+  private Lexer lexer;
+  private JsonTrackingParser tracker = new JsonTrackingParser(); // for locations and numbers in trees
+  private Map<List<Property>, Lookup> lookups = new IdentityHashMap<>();
+
+  JsonStreamParser(JsonParser owner) {
+    super();
+    this.owner = owner;
+  }
+
+  Element parse(Reader reader, boolean allowComments) throws IOException, FHIRException {
+    tracker.setAllowComments(allowComments);
+    lexer = tracker.new Lexer(reader);
+    if (lexer.getType() != TokenType.Open) {
+      throw lexer.error("Unexpected content at start of JSON: "+lexer.getType().toString());
+    }
+    int line = line();
+    int col = col();
+    lexer.next();
+    Element result;
+    if (lexer.getType() == TokenType.String && "resourceType".equals(lexer.getValue())) {
+      lexer.next();
+      lexer.consume(TokenType.Colon);
+      if (lexer.getType() != TokenType.String) {
+        throw lexer.error("resourceType must be a string");
+      }
+      String name = lexer.getValue();
+      StructureDefinition sd = owner.getDefinition(line, col, name);
+      if (sd == null) {
+        return null;
+      }
+      lexer.next();
+      result = new Element(name, Property.forDefinition(owner.context, sd.getSnapshot().getElement().get(0), sd));
+      result.markLocation(line, col);
+      result.setType(name);
+      parseProperties(name, result, true);
+      result.numberChildren();
+    } else {
+      Map<JsonElement, LocationData> map = new IdentityHashMap<>();
+      JsonObject object = readRestOfObject(line, col, map);
+      result = owner.parse(object, map);
+    }
+    if (lexer.getType() != TokenType.Eof) {
+      throw lexer.error("Unexpected content after the end of the resource");
+    }
+    return result;
+  }
+
+  /**
+   * read the properties of an object into element, up to and including the '}'
+   * 
+   * @param started - whether a property has already been read (the resourceType) 
+   */
+  private void parseProperties(String path, Element element, boolean started) throws IOException, FHIRException {
+    Lookup lookup = getLookup(element);
+    Map<Element, Integer> order = new IdentityHashMap<>();
+    Set<String> names = new HashSet<>();
+    Map<String, List<Element>> primitives = new HashMap<>();
+    Map<Property, String> choices = new IdentityHashMap<>();
+    List<UnknownProperty> unknown = null;
+    List<PropertyMessages> messages = null;
+    if (started) {
+      names.add("resourceType");
+    } else if (lexer.getType() == TokenType.Close && owner.policy == ValidationPolicy.EVERYTHING) {
+      owner.logError(line(), col(), path, IssueType.INVALID, owner.context.formatMessage(I18nConstants.OBJECT_MUST_HAVE_SOME_CONTENT), IssueSeverity.ERROR);
+    }
+    boolean first = !started;
+    while (lexer.getType() != TokenType.Close) {
+      if (!first) {
+        lexer.consume(TokenType.Comma);
+      }
+      first = false;
+      if (lexer.getType() != TokenType.String) {
+        throw lexer.error("JSON syntax error - found "+lexer.getType().toString()+" expecting a property name");
+      }
+      String name = lexer.getValue();
+      lexer.next();
+      lexer.consume(TokenType.Colon);
+      if (!names.add(name)) {
+        throw lexer.error("Duplicated property name: "+name);
+      }
+      boolean fork = name.startsWith("_");
+      Target target = lookup.targets.get(fork ? name.substring(1) : name);
+      if (target != null && (target.property.isChoice() || target.property.getDefinition().getPath().endsWith("data[x]"))) {
+        String eName = fork ? name.substring(1) : name;
+        String chosen = choices.get(target.property);
+        if (chosen == null) {
+          choices.put(target.property, eName);
+        } else if (!chosen.equals(eName)) {
+          target = null; // only one type can be used
+        }
+      }
+      if ("fhir_comments".equals(name)) {
+        readComments(element);
+      } else if (target == null || (fork && !target.primitive)) {
+        if (owner.policy != ValidationPolicy.NONE) {
+          if (unknown == null) {
+            unknown = new ArrayList<>();
+          }
+          unknown.add(new UnknownProperty(name, line(), col()));
+        }
+        skipValue();
+      } else {
+        int count = errorCount();
+        parseProperty(path, element, target, name, fork, primitives, order);
+        if (errorCount() > count) {
+          if (messages == null) {
+            messages = new ArrayList<>();
+          }
+          messages.add(new PropertyMessages(target.index, owner.errors.subList(count, owner.errors.size())));
+        }
+      }
+    }
+    lexer.next();
+    sortChildren(element, order);
+    if (messages != null) {
+      // the tree based parser reports problems in definition order
+      messages.sort((m1, m2) -> Integer.compare(m1.index, m2.index));
+      for (PropertyMessages m : messages) {
+        owner.errors.addAll(m.messages);
+      }
+    }
+    if (unknown != null) {
+      // reported after the others, as the tree based parser does
+      for (UnknownProperty u : unknown) {
+        owner.logError(u.line, u.col, path, IssueType.STRUCTURE, owner.context.formatMessage(I18nConstants.UNRECOGNISED_PROPERTY_, u.name), IssueSeverity.ERROR);
+      }
+    }
+  }
+
+  private int errorCount() {
+    return owner.policy == ValidationPolicy.EVERYTHING ? owner.errors.size() : 0;
+  }
+
+  private void parseProperty(String path, Element element, Target target, String name, boolean fork, Map<String, List<Element>> primitives, Map<Element, Integer> order) throws IOException, FHIRException {
+    if (target.primitive) {
+      String eName = fork ? name.substring(1) : name;
+      List<Element> made = primitives.get(eName);
+      if (made == null) {
+        made = new ArrayList<>();
+        primitives.put(eName, made);
+      }
+      parsePrimitive(path, element, target, eName, fork, made, order);
+    } else {
+      parseComplex(path, element, target, name, order);
+    }
+  }
+
+  private Lookup getLookup(Element element) {
+    List<Property> properties = element.getProperty().getChildProperties(element.getName(), null);
+    Lookup lookup = lookups.get(properties);
+    if (lookup == null) {
+      lookup = new Lookup();
+      int i = 0;
+      for (Property property : properties) {
+        if (property.isChoice() || property.getDefinition().getPath().endsWith("data[x]")) {
+          for (TypeRefComponent type : property.getDefinition().getType()) {
+            String eName = property.getName().substring(0, property.getName().length()-3) + Utilities.capitalize(type.getWorkingCode());
+            addTarget(lookup, eName, property, i, owner.isPrimitive(type.getWorkingCode()));
+          }
+        } else {
+          addTarget(lookup, property.getName(), property, i, property.isPrimitive(property.getType(null)));
+        }
+        i++;
+      }
+      lookups.put(properties, lookup);
+    }
+    return lookup;
+  }
+
+  private void addTarget(Lookup lookup, String name, Property property, int index, boolean primitive) {
+    if (!lookup.targets.containsKey(name)) {
+      Target t = new Target();
+      t.property = property;
+      t.index = index;
+      t.primitive = primitive;
+      lookup.targets.put(name, t);
+    }
+  }
+
+  private void addChild(Element element, Element child, Target target, Map<Element, Integer> order) {
+    element.getChildren().add(child);
+    order.put(child, target.index);
+  }
+
+  /**
+   * The tree based parser adds children in the order of the definitions; the json may have them in any order
+   */
+  private void sortChildren(Element element, Map<Element, Integer> order) {
+    if (!element.hasChildren()) {
+      return;
+    }
+    List<Element> children = element.getChildren();
+    boolean sorted = true;
+    for (int i = 1; i < children.size() && sorted; i++) {
+      sorted = index(order, children.get(i-1)) <= index(order, children.get(i));
+    }
+    if (!sorted) {
+      children.sort((e1, e2) -> Integer.compare(index(order, e1), index(order, e2)));
+    }
+  }
+
+  private int index(Map<Element, Integer> order, Element e) {
+    Integer i = order.get(e);
+    return i == null ? -1 : i;
+  }
+
+  private void parseComplex(String path, Element element, Target target, String name, Map<Element, Integer> order) throws IOException, FHIRException {
+    Property property = target.property;
+    String npath = path+"."+property.getName();
+    if (lexer.getType() == TokenType.OpenArray && property.isList()) {
+      int line = line();
+      int col = col();
+      lexer.next();
+      if (lexer.getType() == TokenType.CloseArray) {
+        owner.logError(line, col, npath, IssueType.INVALID, owner.context.formatMessage(I18nConstants.ARRAY_CANNOT_BE_EMPTY), IssueSeverity.ERROR);
+      }
+      int c = 0;
+      while (lexer.getType() != TokenType.CloseArray) {
+        if (c > 0) {
+          lexer.consume(TokenType.Comma);
+        }
+        parseComplexInstance(npath+"["+c+"]", element, target, name, order);
+        c++;
+      }
+      lexer.next();
+    } else {
+      if (property.isList()) {
+        owner.logError(line(), col(), npath, IssueType.INVALID, owner.context.formatMessage(I18nConstants.THIS_PROPERTY_MUST_BE_AN_ARRAY_NOT_, describeType()), IssueSeverity.ERROR);
+      }
+      parseComplexInstance(npath, element, target, name, order);
+    }
+  }
+
+  private void parseComplexInstance(String npath, Element element, Target target, String name, Map<Element, Integer> order) throws IOException, FHIRException {
+    Property property = target.property;
+    if (lexer.getType() == TokenType.Open) {
+      Element n = new Element(name, property).markLocation(line(), col());
+      addChild(element, n, target, order);
+      lexer.next();
+      if (property.isResource()) {
+        parseResource(npath, n, property);
+      } else {
+        parseProperties(npath, n, false);
+      }
+    } else {
+      owner.logError(line(), col(), npath, IssueType.INVALID, owner.context.formatMessage(I18nConstants.THIS_PROPERTY_MUST_BE__NOT_, (property.isList() ? "an Array" : "an Object"), describe()), IssueSeverity.ERROR);
+      skipValue();
+    }
+  }
+
+  /**
+   * the '{' has been read
+   */
+  private void parseResource(String npath, Element parent, Property elementProperty) throws IOException, FHIRException {
+    int line = line();
+    int col = col();
+    if (lexer.getType() == TokenType.String && "resourceType".equals(lexer.getValue())) {
+      lexer.next();
+      lexer.consume(TokenType.Colon);
+      if (lexer.getType() != TokenType.String) {
+        throw lexer.error("resourceType must be a string");
+      }
+      String name = lexer.getValue();
+      StructureDefinition sd = owner.context.fetchResource(StructureDefinition.class, ProfileUtilities.sdNs(name, owner.context.getOverrideVersionNs()));
+      if (sd == null) {
+        throw new FHIRFormatError(owner.context.formatMessage(I18nConstants.CONTAINED_RESOURCE_DOES_NOT_APPEAR_TO_BE_A_FHIR_RESOURCE_UNKNOWN_NAME_, name));
+      }
+      lexer.next();
+      parent.updateProperty(Property.forDefinition(owner.context, sd.getSnapshot().getElement().get(0), sd), SpecialElement.fromProperty(parent.getProperty()), elementProperty);
+      parent.setType(name);
+      parseProperties(npath, parent, true);
+    } else {
+      Map<JsonElement, LocationData> map = new IdentityHashMap<>();
+      JsonObject object = readRestOfObject(line, col, map);
+      if (object.size() == 0 && owner.policy == ValidationPolicy.EVERYTHING) {
+        owner.logError(line, col, npath, IssueType.INVALID, owner.context.formatMessage(I18nConstants.OBJECT_MUST_HAVE_SOME_CONTENT), IssueSeverity.ERROR);
+      }
+      owner.parseResource(npath, object, parent, elementProperty, map);
+    }
+  }
+
+  private void parsePrimitive(String path, Element element, Target target, String name, boolean fork, List<Element> made, Map<Element, Integer> order) throws IOException, FHIRException {
+    Property property = target.property;
+    String npath = path+"."+property.getName();
+    if (property.isList()) {
+      if (lexer.getType() != TokenType.OpenArray) {
+        owner.logError(line(), col(), npath, IssueType.INVALID, owner.context.formatMessage(fork ? I18nConstants.THIS_BASE_PROPERTY_MUST_BE_AN_ARRAY_NOT_A_ : I18nConstants.THIS_PROPERTY_MUST_BE_AN_ARRAY_NOT_A_, describe()), IssueSeverity.ERROR);
+        skipValue();
+        return;
+      }
+      lexer.next();
+      int i = 0;
+      while (lexer.getType() != TokenType.CloseArray) {
+        if (i > 0) {
+          lexer.consume(TokenType.Comma);
+        }
+        if (lexer.getType() == TokenType.Null) {
+          // nothing here, but the other array might have something
+          getPrimitive(element, target, name, made, i, order);
+          lexer.next();
+        } else {
+          parsePrimitiveInstance(npath, element, target, name, fork, made, i, order);
+        }
+        i++;
+      }
+      lexer.next();
+    } else {
+      parsePrimitiveInstance(npath, element, target, name, fork, made, 0, order);
+    }
+  }
+
+  private Element getPrimitive(Element element, Target target, String name, List<Element> made, int index, Map<Element, Integer> order) {
+    while (made.size() <= index) {
+      Element n = new Element(name, target.property).markLocation(line(), col());
+      addChild(element, n, target, order);
+      made.add(n);
+    }
+    return made.get(index);
+  }
+
+  private void parsePrimitiveInstance(String npath, Element element, Target target, String name, boolean fork, List<Element> made, int index, Map<Element, Integer> order) throws IOException, FHIRException {
+    int line = line();
+    int col = col();
+    if (fork) {
+      if (lexer.getType() != TokenType.Open) {
+        owner.logError(line, col, npath, IssueType.INVALID, owner.context.formatMessage(I18nConstants.THIS_PROPERTY_MUST_BE_AN_OBJECT_NOT_, describe()), IssueSeverity.ERROR);
+        skipValue();
+        return;
+      }
+      Element n = getPrimitive(element, target, name, made, index, order);
+      lexer.next();
+      parseProperties(npath, n, false);
+    } else {
+      if (!isValue()) {
+        owner.logError(line, col, npath, IssueType.INVALID, owner.context.formatMessage(I18nConstants.THIS_PROPERTY_MUST_BE_AN_SIMPLE_VALUE_NOT_, describe()), IssueSeverity.ERROR);
+        skipValue();
+        return;
+      }
+      Element n = getPrimitive(element, target, name, made, index, order);
+      n.markLocation(line, col);
+      n.setValue(lexer.getValue());
+      if (!n.getProperty().isChoice() && n.getType().equals("xhtml")) {
+        try {
+          n.setXhtml(new XhtmlParser().setValidatorMode(owner.policy == ValidationPolicy.EVERYTHING).parse(n.getValue(), null).getDocumentElement());
+        } catch (Exception e) {
+          owner.logError(line, col, npath, IssueType.INVALID, owner.context.formatMessage(I18nConstants.ERROR_PARSING_XHTML_, e.getMessage()), IssueSeverity.ERROR);
+        }
+      }
+      if (owner.policy == ValidationPolicy.EVERYTHING) {
+        // now we cross-check the primitive format against the stated type
+        if (Utilities.existsInList(n.getType(), "boolean")) {
+          if (lexer.getType() != TokenType.Boolean)
+            owner.logError(line, col, npath, IssueType.INVALID, owner.context.formatMessage(I18nConstants.ERROR_PARSING_JSON_THE_PRIMITIVE_VALUE_MUST_BE_A_BOOLEAN), IssueSeverity.ERROR);
+        } else if (Utilities.existsInList(n.getType(), "integer", "unsignedInt", "positiveInt", "decimal")) {
+          if (lexer.getType() != TokenType.Number)
+            owner.logError(line, col, npath, IssueType.INVALID, owner.context.formatMessage(I18nConstants.ERROR_PARSING_JSON_THE_PRIMITIVE_VALUE_MUST_BE_A_NUMBER), IssueSeverity.ERROR);
+        } else if (lexer.getType() != TokenType.String)
+          owner.logError(line, col, npath, IssueType.INVALID, owner.context.formatMessage(I18nConstants.ERROR_PARSING_JSON_THE_PRIMITIVE_VALUE_MUST_BE_A_STRING), IssueSeverity.ERROR);
+      }
+      lexer.next();
+    }
+  }
+
+  private void readComments(Element element) throws IOException {
+    if (lexer.getType() != TokenType.OpenArray) {
+      skipValue();
+      return;
+    }
+    lexer.next();
+    boolean first = true;
+    while (lexer.getType() != TokenType.CloseArray) {
+      if (!first) {
+        lexer.consume(TokenType.Comma);
+      }
+      first = false;
+      if (isValue()) {
+        element.getComments().add(lexer.getValue());
+        lexer.next();
+      } else {
+        skipValue();
+      }
+    }
+    lexer.next();
+  }
+
+  /**
+   * the line the current token starts on
+   */
+  private int line() {
+    return lexer.getLastLocationAWS().getLine();
+  }
+
+  /**
+   * the column the current token starts at. The lexer location is after the first character of the token
+   */
+  private int col() {
+    return lexer.getLastLocationAWS().getCol() - 1;
+  }
+
+  private boolean isValue() {
+    return lexer.getType() == TokenType.String || lexer.getType() == TokenType.Number || lexer.getType() == TokenType.Boolean;
+  }
+
+  private String describe() {
+    switch (lexer.getType()) {
+    case OpenArray: return "an array";
+    case Open: return "an object";
+    case Null: return "null";
+    default: return "a primitive property";
+    }
+  }
+
+  private String describeType() {
+    switch (lexer.getType()) {
+    case OpenArray: return "an Array";
+    case Open: return "an Object";
+    case Null: return "a Null";
+    default: return "a primitive property";
+    }
+  }
+
+  private void skipValue() throws IOException {
+    readValue(null);
+  }
+
+  // -- reading into a tree, when the resource can't be streamed --------------------------
+
+  /**
+   * The '{' and possibly a property name have been read. Read the rest of the object into a tree 
+   */
+  private JsonObject readRestOfObject(int line, int col, Map<JsonElement, LocationData> map) throws IOException {
+    JsonObject object = new JsonObject();
+    map.put(object, tracker.new LocationData(line, col));
+    readProperties(object, map);
+    return object;
+  }
+
+  private void readProperties(JsonObject object, Map<JsonElement, LocationData> map) throws IOException {
+    boolean first = true;
+    while (lexer.getType() != TokenType.Close) {
+      if (!first) {
+        lexer.consume(TokenType.Comma);
+      }
+      first = false;
+      if (lexer.getType() != TokenType.String) {
+        throw lexer.error("JSON syntax error - found "+lexer.getType().toString()+" expecting a property name");
+      }
+      String name = lexer.getValue();
+      lexer.next();
+      lexer.consume(TokenType.Colon);
+      if (object != null && object.has(name)) {
+        throw lexer.error("Duplicated property name: "+name);
+      }
+      JsonElement value = readValue(map);
+      if (object != null) {
+        object.add(name, value);
+      }
+    }
+    lexer.next();
+  }
+
+  /**
+   * read a value. If map is null, the value is just skipped 
+   */
+  private JsonElement readValue(Map<JsonElement, LocationData> map) throws IOException {
+    JsonElement res;
+    LocationData loc = map == null ? null : tracker.new LocationData(line(), col());
+    switch (lexer.getType()) {
+    case Open:
+      JsonObject object = map == null ? null : new JsonObject();
+      lexer.next();
+      readProperties(object, map);
+      res = object;
+      break;
+    case OpenArray:
+      JsonArray array = map == null ? null : new JsonArray();
+      lexer.next();
+      boolean first = true;
+      while (lexer.getType() != TokenType.CloseArray) {
+        if (!first) {
+          lexer.consume(TokenType.Comma);
+        }
+        first = false;
+        JsonElement item = readValue(map);
+        if (array != null) {
+          array.add(item);
+        }
+      }
+      lexer.next();
+      res = array;
+      break;
+    case String:
+      res = map == null ? null : new JsonPrimitive(lexer.getValue());
+      lexer.next();
+      break;
+    case Number:
+      res = map == null ? null : new JsonPrimitive(tracker.new PresentedBigDecimal(lexer.getValue()));
+      lexer.next();
+      break;
+    case Boolean:
+      res = map == null ? null : new JsonPrimitive(Boolean.valueOf(lexer.getValue()));
+      lexer.next();
+      break;
+    case Null:
+      res = map == null ? null : JsonNull.INSTANCE;
+      lexer.next();
+      break;
+    default:
+      throw lexer.error("JSON syntax error - found "+lexer.getType().toString()+" expecting a value");
+    }
+    if (map != null && res != JsonNull.INSTANCE) {
+      map.put(res, loc);
+    }
+    return res;
+  }
+}
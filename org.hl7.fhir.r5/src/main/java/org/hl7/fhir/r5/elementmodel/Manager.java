@@ -101,7 +101,7 @@ public class Manager {
   }
   
   public static Element build(IWorkerContext context, StructureDefinition sd) {
-    Property p = new Property(context, sd.getSnapshot().getElementFirstRep(), sd);
+    Property p = Property.forDefinition(context, sd.getSnapshot().getElementFirstRep(), sd);
     Element e = new Element(null, p);
     return e;
   }
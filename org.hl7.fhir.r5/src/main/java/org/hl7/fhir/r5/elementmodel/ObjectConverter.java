@@ -95,7 +95,7 @@ public class ObjectConverter  {
         Base[] values = base.getProperty(n.hashCode(), n, false);
         if (values != null)
           for (Base value : values) {
-            res.getChildren().add(convertElement(new Property(context, child, sd), value));
+            res.getChildren().add(convertElement(Property.forDefinition(context, child, sd), value));
           }
       }
     }
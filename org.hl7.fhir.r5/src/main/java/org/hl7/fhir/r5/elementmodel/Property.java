@@ -32,10 +32,14 @@ package org.hl7.fhir.r5.elementmodel;
 
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.hl7.fhir.exceptions.DefinitionException;
 import org.hl7.fhir.exceptions.FHIRException;
+import org.hl7.fhir.r5.conformance.PerSnapshotCache;
 import org.hl7.fhir.r5.conformance.ProfileUtilities;
 import org.hl7.fhir.r5.context.IWorkerContext;
 import org.hl7.fhir.r5.formats.FormatUtilities;
@@ -55,15 +59,69 @@ public class Property {
 	private ElementDefinition definition;
 	private StructureDefinition structure;
 	private Boolean canBePrimitive;
-  private ProfileUtilities profileUtilities; 
+  private volatile ProfileUtilities profileUtilities; // only needed when working out the child properties
+
+  private static class ChildProperties {
+    private final List<ElementDefinition> children;
+    private final List<Property> properties;
+
+    private ChildProperties(List<ElementDefinition> children, List<Property> properties) {
+      this.children = children;
+      this.properties = properties;
+    }
+  }
+
+  // child properties, by the element definition that the children come from (this definition, or the root of the type for the element)
+  private final Map<ElementDefinition, ChildProperties> childProperties = new ConcurrentHashMap<>();
 
 	public Property(IWorkerContext context, ElementDefinition definition, StructureDefinition structure) {
 		this.context = context;
 		this.definition = definition;
 		this.structure = structure;
-    profileUtilities = new ProfileUtilities(context, null, null); 
 	}
 
+  // the properties for the elements in each snapshot (element definitions don't override equals, so they are compared by identity)
+  private static final PerSnapshotCache<Map<ElementDefinition, Property>> PROPERTY_CACHE = new PerSnapshotCache<>("elementmodel.property.cache");
+
+  /**
+   * Get the property for a definition. Properties don't change once created, and they 
+   * keep their child properties once they've been worked out, so the one instance is shared 
+   * by all the elements that have the definition (in the context). 
+   * 
+   * The parsers use this rather than the constructor, so that a property tree is only 
+   * built once for each type rather than for every element parsed. The properties are kept 
+   * with the structure's snapshot, so they go when the snapshot is replaced
+   */
+  public static Property forDefinition(IWorkerContext context, ElementDefinition definition, StructureDefinition structure) {
+    Map<ElementDefinition, Property> cache = PROPERTY_CACHE.computeIfAbsent(structure.getSnapshot(), s -> new ConcurrentHashMap<>());
+    Property p = cache.computeIfAbsent(definition, d -> new Property(context, d, structure));
+    if (p.context != context) {
+      // the structure is shared with another context (e.g. a copy) - don't share the property 
+      p = new Property(context, definition, structure);
+    }
+    return p;
+  }
+
+  private ProfileUtilities profileUtilities() {
+    if (profileUtilities == null) {
+      profileUtilities = new ProfileUtilities(context, null, null);
+    }
+    return profileUtilities;
+  }
+
+  private List<Property> makeChildProperties(ElementDefinition parent, StructureDefinition sd, List<ElementDefinition> children) {
+    ChildProperties cp = childProperties.get(parent);
+    if (cp == null || cp.children != children) { // the child map is rebuilt if the snapshot changes
+      List<Property> properties = new ArrayList<Property>();
+      for (ElementDefinition child : children) {
+        properties.add(forDefinition(context, child, sd));
+      }
+      cp = new ChildProperties(children, Collections.unmodifiableList(properties));
+      childProperties.put(parent, cp);
+    }
+    return cp.properties;
+  }
+
 	public String getName() {
 		return definition.getPath().substring(definition.getPath().lastIndexOf(".")+1);
 	}
@@ -270,7 +328,8 @@ public class Property {
   protected List<Property> getChildProperties(String elementName, String statedType) throws FHIRException {
     ElementDefinition ed = definition;
     StructureDefinition sd = structure;
-    List<ElementDefinition> children = profileUtilities.getChildMap(sd, ed);
+    List<ElementDefinition> children = profileUtilities().getChildMap(sd, ed);
+    ElementDefinition parent = ed;
     String url = null;
     if (children.isEmpty() || isElementWithOnlyExtension(ed, children)) {
       // ok, find the right definitions
@@ -335,20 +394,18 @@ public class Property {
         sd = context.fetchResource(StructureDefinition.class, url);        
         if (sd == null)
           throw new DefinitionException("Unable to find type '"+t+"' for name '"+elementName+"' on property "+definition.getPath());
-        children = profileUtilities.getChildMap(sd, sd.getSnapshot().getElement().get(0));
+        parent = sd.getSnapshot().getElement().get(0);
+        children = profileUtilities().getChildMap(sd, parent);
       }
     }
-    List<Property> properties = new ArrayList<Property>();
-    for (ElementDefinition child : children) {
-      properties.add(new Property(context, child, sd));
-    }
-    return properties;
+    return makeChildProperties(parent, sd, children);
   }
 
   protected List<Property> getChildProperties(TypeDetails type) throws DefinitionException {
     ElementDefinition ed = definition;
     StructureDefinition sd = structure;
-    List<ElementDefinition> children = profileUtilities.getChildMap(sd, ed);
+    List<ElementDefinition> children = profileUtilities().getChildMap(sd, ed);
+    ElementDefinition parent = ed;
     if (children.isEmpty()) {
       // ok, find the right definitions
       String t = null;
@@ -374,14 +431,11 @@ public class Property {
         sd = context.fetchResource(StructureDefinition.class, t);
         if (sd == null)
           throw new DefinitionException("Unable to find class '"+t+"' for name '"+ed.getPath()+"' on property "+definition.getPath());
-        children = profileUtilities.getChildMap(sd, sd.getSnapshot().getElement().get(0));
+        parent = sd.getSnapshot().getElement().get(0);
+        children = profileUtilities().getChildMap(sd, parent);
       }
     }
-    List<Property> properties = new ArrayList<Property>();
-    for (ElementDefinition child : children) {
-      properties.add(new Property(context, child, sd));
-    }
-    return properties;
+    return makeChildProperties(parent, sd, children);
   }
 
   private String tail(String path) {
@@ -137,7 +137,7 @@ public class TurtleParser extends ParserBase {
     if (sd == null)
       return null;
 
-    Element result = new Element(name, new Property(context, sd.getSnapshot().getElement().get(0), sd));
+    Element result = new Element(name, Property.forDefinition(context, sd.getSnapshot().getElement().get(0), sd));
     result.markLocation(cmp.getLine(), cmp.getCol());
     result.setType(name);
     parseChildren(src, path, cmp, result, false);
@@ -265,7 +265,7 @@ public class TurtleParser extends ParserBase {
     
     Element n = new Element(tail(name), property).markLocation(object.getLine(), object.getCol());
     element.getChildren().add(n);
-    n.updateProperty(new Property(this.context, sd.getSnapshot().getElement().get(0), sd), SpecialElement.fromProperty(n.getProperty()), property);
+    n.updateProperty(Property.forDefinition(this.context, sd.getSnapshot().getElement().get(0), sd), SpecialElement.fromProperty(n.getProperty()), property);
     n.setType(rt);
     parseChildren(src, npath, obj, n, false);
   }
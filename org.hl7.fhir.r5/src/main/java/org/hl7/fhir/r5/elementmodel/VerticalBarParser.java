@@ -452,7 +452,7 @@ public class VerticalBarParser extends ParserBase {
   @Override
   public Element parse(InputStream stream) throws IOException, FHIRFormatError, DefinitionException, FHIRException {
     StructureDefinition sd = context.fetchResource(StructureDefinition.class, "http://hl7.org/fhir/v2/StructureDefinition/Message");
-    Element message = new Element("Message", new Property(context, sd.getSnapshot().getElementFirstRep(), sd));
+    Element message = new Element("Message", Property.forDefinition(context, sd.getSnapshot().getElementFirstRep(), sd));
     VerticalBarParserReader reader = new VerticalBarParserReader(new BufferedInputStream(stream), charset);
     
     preDecode(reader);
@@ -38,14 +38,7 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.SAXParser;
-import javax.xml.parsers.SAXParserFactory;
-import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.dom.DOMResult;
-import javax.xml.transform.sax.SAXSource;
+import javax.xml.stream.XMLStreamException;
 
 import org.hl7.fhir.exceptions.DefinitionException;
 import org.hl7.fhir.exceptions.FHIRException;
@@ -60,7 +53,6 @@ import org.hl7.fhir.r5.model.ElementDefinition.PropertyRepresentation;
 import org.hl7.fhir.r5.model.Enumeration;
 import org.hl7.fhir.r5.model.StructureDefinition;
 import org.hl7.fhir.r5.utils.ToolingExtensions;
-import org.hl7.fhir.r5.utils.formats.XmlLocationAnnotator;
 import org.hl7.fhir.r5.utils.formats.XmlLocationData;
 import org.hl7.fhir.utilities.ElementDecoration;
 import org.hl7.fhir.utilities.Utilities;
@@ -76,8 +68,6 @@ import org.hl7.fhir.utilities.xml.XMLUtil;
 import org.hl7.fhir.utilities.xml.XMLWriter;
 import org.w3c.dom.Document;
 import org.w3c.dom.Node;
-import org.xml.sax.InputSource;
-import org.xml.sax.XMLReader;
 
 public class XmlParser extends ParserBase {
   private boolean allowXsiLocation;
@@ -96,61 +86,35 @@ public class XmlParser extends ParserBase {
     this.allowXsiLocation = allowXsiLocation;
   }
 
+  /**
+   * Parses the stream in a single pass (see XmlStreamParser), without building a DOM for it
+   */
   public Element parse(InputStream stream) throws FHIRFormatError, DefinitionException, FHIRException, IOException {
-		Document doc = null;
-  	try {
-  		DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-  		// xxe protection
-  		factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
-  		factory.setFeature("http://xml.org/sax/features/external-general-entities", false);
-  		factory.setFeature("http://xml.org/sax/features/external-parameter-entities", false);
-  		factory.setFeature("http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
-  		factory.setXIncludeAware(false);
-  		factory.setExpandEntityReferences(false);
-  			
-  		factory.setNamespaceAware(true);
-  		if (policy == ValidationPolicy.EVERYTHING) {
-  		  // The SAX interface appears to not work when reporting the correct version/encoding.
-  		  // if we can, we'll inspect the header/encoding ourselves 
-  		  if (stream.markSupported()) {
-  		    stream.mark(1024);
-  		    version = checkHeader(stream);
-  		    stream.reset();
-  		  }
-  			// use a slower parser that keeps location data
-  			TransformerFactory transformerFactory = TransformerFactory.newInstance();
-  			Transformer nullTransformer = transformerFactory.newTransformer();
-  			DocumentBuilder docBuilder = factory.newDocumentBuilder();
-  			doc = docBuilder.newDocument();
-  			DOMResult domResult = new DOMResult(doc);
-  			SAXParserFactory spf = SAXParserFactory.newInstance();
-  			spf.setNamespaceAware(true);
-  			spf.setValidating(false);
-    		// xxe protection
-  		  spf.setFeature("http://xml.org/sax/features/external-general-entities", false);
-        spf.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
-  			SAXParser saxParser = spf.newSAXParser();
-  			XMLReader xmlReader = saxParser.getXMLReader();
-    		// xxe protection
-  		  xmlReader.setFeature("http://xml.org/sax/features/external-general-entities", false);
-  		  xmlReader.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
-  	   			
-  			XmlLocationAnnotator locationAnnotator = new XmlLocationAnnotator(xmlReader, doc);
-  			InputSource inputSource = new InputSource(stream);
-  			SAXSource saxSource = new SAXSource(locationAnnotator, inputSource);
-  			nullTransformer.transform(saxSource, domResult);
-  		} else {
-  			DocumentBuilder builder = factory.newDocumentBuilder();
-  			doc = builder.parse(stream);
-  		}
-  	} catch (Exception e) {
-      logError(0, 0, "(syntax)", IssueType.INVALID, e.getMessage(), IssueSeverity.FATAL);
-      doc = null;
-  	}
-  	if (doc == null)
-  		return null;
-  	else
-      return parse(doc);
+    if (policy == ValidationPolicy.EVERYTHING) {
+      // The parsers don't report the correct version/encoding.
+      // if we can, we'll inspect the header/encoding ourselves 
+      if (stream.markSupported()) {
+        stream.mark(1024);
+        version = checkHeader(stream);
+        stream.reset();
+      }
+    }
+    int count = policy == ValidationPolicy.EVERYTHING ? errors.size() : 0;
+    try {
+      return new XmlStreamParser(this).parse(stream);
+    } catch (XMLStreamException e) {
+      // if the content isn't well formed, that's the only problem reported
+      if (policy == ValidationPolicy.EVERYTHING) {
+        errors.subList(count, errors.size()).clear();
+      }
+      // the location is reported separately, so it's taken out of the message
+      String msg = e.getMessage();
+      if (msg != null && msg.startsWith("ParseError at") && msg.contains("Message: ")) {
+        msg = msg.substring(msg.indexOf("Message: ")+9);
+      }
+      logError(e.getLocation() == null ? 0 : e.getLocation().getLineNumber(), e.getLocation() == null ? 0 : e.getLocation().getColumnNumber(), "(syntax)", IssueType.INVALID, msg, IssueSeverity.FATAL);
+      return null;
+    }
   }
 
 
@@ -192,7 +156,7 @@ public class XmlParser extends ParserBase {
     if (sd == null)
       return null;
 
-    Element result = new Element(element.getLocalName(), new Property(context, sd.getSnapshot().getElement().get(0), sd));
+    Element result = new Element(element.getLocalName(), Property.forDefinition(context, sd.getSnapshot().getElement().get(0), sd));
     checkElement(element, path, result.getProperty());
     result.markLocation(line(element), col(element));
     result.setType(element.getLocalName());
@@ -201,7 +165,7 @@ public class XmlParser extends ParserBase {
     return result;
   }
 
-  private String pathPrefix(String ns) {
+  String pathPrefix(String ns) {
     if (Utilities.noString(ns))
       return "";
     if (ns.equals(FormatUtilities.FHIR_NS))
@@ -251,7 +215,7 @@ public class XmlParser extends ParserBase {
 
   public Element parse(org.w3c.dom.Element base, String type) throws Exception {
     StructureDefinition sd = getDefinition(0, 0, FormatUtilities.FHIR_NS, type);
-    Element result = new Element(base.getLocalName(), new Property(context, sd.getSnapshot().getElement().get(0), sd));
+    Element result = new Element(base.getLocalName(), Property.forDefinition(context, sd.getSnapshot().getElement().get(0), sd));
     String path = "/"+pathPrefix(base.getNamespaceURI())+base.getLocalName();
     checkElement(base, path, result.getProperty());
     result.setType(base.getLocalName());
@@ -388,7 +352,7 @@ public class XmlParser extends ParserBase {
     }
   }
 
-  private boolean validAttrValue(String value) {
+  boolean validAttrValue(String value) {
     if (version == null) {
       return true;
     }
@@ -405,7 +369,7 @@ public class XmlParser extends ParserBase {
   }
 
 
-  private Property getElementProp(List<Property> properties, String nodeName, String namespace) {
+  Property getElementProp(List<Property> properties, String nodeName, String namespace) {
 		List<Property> propsSortedByLongestFirst = new ArrayList<Property>(properties);
 		// sort properties according to their name longest first, so .requestOrganizationReference comes first before .request[x]
 		// and therefore the longer property names get evaluated first
@@ -433,7 +397,7 @@ public class XmlParser extends ParserBase {
   	return null;
 	}
 
-  private Property getAttrProp(List<Property> properties, String nodeName, String namespace) {
+  Property getAttrProp(List<Property> properties, String nodeName, String namespace) {
     for (Property p : properties) {
       if (p.getXmlName().equals(nodeName) && p.getDefinition().hasRepresentation(PropertyRepresentation.XMLATTR) && p.getXmlNamespace().equals(namespace)) {
         return p;
@@ -449,14 +413,14 @@ public class XmlParser extends ParserBase {
   	return null;
   }
 
-	private Property getTextProp(List<Property> properties) {
+	Property getTextProp(List<Property> properties) {
   	for (Property p : properties)
   		if (p.getDefinition().hasRepresentation(PropertyRepresentation.XMLTEXT)) 
 				return p;
   	return null;
 	}
 
-	private String convertForDateFormatFromExternal(String fmt, String av) throws FHIRException {
+	String convertForDateFormatFromExternal(String fmt, String av) throws FHIRException {
   	if ("v3".equals(fmt)) {
   		DateTimeType d = DateTimeType.parseV3(av);
   		return d.asStringValue();
@@ -478,7 +442,7 @@ public class XmlParser extends ParserBase {
     StructureDefinition sd = context.fetchResource(StructureDefinition.class, ProfileUtilities.sdNs(name, context.getOverrideVersionNs()));
     if (sd == null)
       throw new FHIRFormatError(context.formatMessage(I18nConstants.CONTAINED_RESOURCE_DOES_NOT_APPEAR_TO_BE_A_FHIR_RESOURCE_UNKNOWN_NAME_, res.getLocalName()));
-    parent.updateProperty(new Property(context, sd.getSnapshot().getElement().get(0), sd), SpecialElement.fromProperty(parent.getProperty()), elementProperty);
+    parent.updateProperty(Property.forDefinition(context, sd.getSnapshot().getElement().get(0), sd), SpecialElement.fromProperty(parent.getProperty()), elementProperty);
     parent.setType(name);
     parseChildren(res.getLocalName(), res, parent);
 	}
@@ -574,7 +538,7 @@ public class XmlParser extends ParserBase {
     }
   }
   
-  private boolean hasTypeAttr(Element e) {
+  boolean hasTypeAttr(Element e) {
     if (isTypeAttr(e.getProperty()))
       return true;
     for (Element c : e.getChildren()) {
@@ -0,0 +1,575 @@
+package org.hl7.fhir.r5.elementmodel;
+
+/*
+  Copyright (c) 2011+, HL7, Inc.
+  All rights reserved.
+  
+  Redistribution and use in source and binary forms, with or without modification, 
+  are permitted provided that the following conditions are met:
+    
+   * Redistributions of source code must retain the above copyright notice, this 
+     list of conditions and the following disclaimer.
+   * Redistributions in binary form must reproduce the above copyright notice, 
+     this list of conditions and the following disclaimer in the documentation 
+     and/or other materials provided with the distribution.
+   * Neither the name of HL7 nor the names of its contributors may be used to 
+     endorse or promote products derived from this software without specific 
+     prior written permission.
+  
+  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND 
+  ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED 
+  WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. 
+  IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, 
+  INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT 
+  NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR 
+  PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, 
+  WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+  ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+  POSSIBILITY OF SUCH DAMAGE.
+  
+ */
+
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.hl7.fhir.exceptions.FHIRException;
+import org.hl7.fhir.exceptions.FHIRFormatError;
+import org.hl7.fhir.r5.conformance.ProfileUtilities;
+import org.hl7.fhir.r5.elementmodel.Element.SpecialElement;
+import org.hl7.fhir.r5.elementmodel.ParserBase.ValidationPolicy;
+import org.hl7.fhir.r5.formats.FormatUtilities;
+import org.hl7.fhir.r5.model.ElementDefinition.PropertyRepresentation;
+import org.hl7.fhir.r5.model.StructureDefinition;
+import org.hl7.fhir.r5.utils.ToolingExtensions;
+import org.hl7.fhir.utilities.Utilities;
+import org.hl7.fhir.utilities.i18n.I18nConstants;
+import org.hl7.fhir.utilities.validation.ValidationMessage.IssueSeverity;
+import org.hl7.fhir.utilities.validation.ValidationMessage.IssueType;
+import org.hl7.fhir.utilities.xhtml.CDANarrativeFormat;
+import org.hl7.fhir.utilities.xhtml.XhtmlComposer;
+import org.hl7.fhir.utilities.xhtml.XhtmlNode;
+import org.hl7.fhir.utilities.xhtml.XhtmlParser;
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+import org.w3c.dom.Text;
+
+/**
+ * Builds the element model for an XML resource in a single pass over a StAX reader 
+ * (see XmlParser.parse(InputStream)). There's no DOM for the document - only the 
+ * narratives are turned into DOM fragments, for the xhtml parsers. Each element gets 
+ * its line and column from the reader when its start tag is read.
+ * 
+ * It reports the same problems as XmlParser.parse(Document), and builds the same element 
+ * tree: attributes are processed in the order the DOM reports them (by name), and the text 
+ * and the trailing comments of an element are attached once the end tag is read. Problems 
+ * that can only be found at the end of an element (empty elements, unexpected text) are 
+ * put back in the place the DOM based parser reports them.
+ */
+class XmlStreamParser {
+
+  private static final String DATE_FORMAT_EXTENSION = "http://www.healthintersections.com.au/fhir/StructureDefinition/elementdefinition-dateformat";
+  private static final String REPORT_CDATA = "http://java.sun.com/xml/stream/properties/report-cdata-event";
+
+  private static XMLInputFactory factory;
+
+  private static class Attribute implements Comparable<Attribute> {
+    private String name; // as the DOM reports it, with the prefix 
+    private String localName;
+    private String namespace;
+    private String value;
+
+    private Attribute(String name, String localName, String namespace, String value) {
+      super();
+      this.name = name;
+      this.localName = localName;
+      this.namespace = namespace;
+      this.value = value;
+    }
+
+    private boolean isNamespace() {
+      return name.equals("xmlns") || name.startsWith("xmlns:");
+    }
+
+    @Override
+    public int compareTo(Attribute other) {
+      return name.compareTo(other.name);
+    }
+  }
+
+  private XmlParser owner;
+  private XMLStreamReader xml;
+  private Document fragments; // owns the narrative fragments
+
+  XmlStreamParser(XmlParser owner) {
+    super();
+    this.owner = owner;
+  }
+
+  /**
+   * the factory is set up once - creating readers from it is safe on any thread
+   */
+  private static synchronized XMLInputFactory getFactory() {
+    if (factory == null) {
+      XMLInputFactory f = XMLInputFactory.newInstance();
+      f.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+      f.setProperty(XMLInputFactory.IS_COALESCING, false);
+      // xxe protection
+      f.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+      f.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+      if (f.isPropertySupported(REPORT_CDATA)) {
+        f.setProperty(REPORT_CDATA, true);
+      }
+      factory = f;
+    }
+    return factory;
+  }
+
+  Element parse(InputStream stream) throws XMLStreamException, IOException, FHIRException {
+    xml = getFactory().createXMLStreamReader(stream);
+    try {
+      int start = errorCount();
+      List<String> comments = new ArrayList<>();
+      int instructions = 0;
+      boolean started = false;
+      String ns = null;
+      Element result = null;
+      while (xml.hasNext()) {
+        switch (xml.next()) {
+        case XMLStreamConstants.DTD:
+          throw new XMLStreamException("DOCTYPE is not allowed", xml.getLocation());
+        case XMLStreamConstants.PROCESSING_INSTRUCTION:
+          instructions++;
+          break;
+        case XMLStreamConstants.COMMENT:
+          if (!started) {
+            comments.add(xml.getText());
+          }
+          break;
+        case XMLStreamConstants.START_ELEMENT:
+          started = true;
+          ns = namespace();
+          result = parseRoot(comments);
+          break;
+        default:
+          break;
+        }
+      }
+      if (owner.policy == ValidationPolicy.EVERYTHING && FormatUtilities.FHIR_NS.equals(ns)) {
+        for (int i = 0; i < instructions; i++) {
+          logErrorAt(start, 0, 0, "(document)", IssueType.INVALID, owner.context.formatMessage(I18nConstants.NO_PROCESSING_INSTRUCTIONS_ALLOWED_IN_RESOURCES), IssueSeverity.ERROR);
+        }
+      }
+      return result;
+    } finally {
+      xml.close();
+    }
+  }
+
+  private Element parseRoot(List<String> comments) throws XMLStreamException, IOException, FHIRException {
+    String ns = namespace();
+    String name = xml.getLocalName();
+    int line = line();
+    int col = col();
+    String path = "/"+owner.pathPrefix(ns)+name;
+
+    StructureDefinition sd = owner.getDefinition(line, col, (ns == null ? "default" : ns), name);
+    if (sd == null) {
+      skipContent(true);
+      return null;
+    }
+
+    Element result = new Element(name, Property.forDefinition(owner.context, sd.getSnapshot().getElement().get(0), sd));
+    int mark = checkNamespace(ns, path, result.getProperty(), line, col);
+    result.markLocation(line, col);
+    result.setType(name);
+    boolean content = parseChildren(path, result, comments);
+    checkEmpty(mark, ns, content, path, line, col);
+    result.numberChildren();
+    return result;
+  }
+
+  /**
+   * read the content of the current element into element, up to and including the end tag
+   * 
+   * @param comments - the comments in front of the element
+   * @return whether there was any content (attributes, text, or elements)
+   */
+  private boolean parseChildren(String path, Element element, List<String> comments) throws XMLStreamException, IOException, FHIRException {
+    // this parsing routine retains the original order in a the XML file, to support validation
+    element.getComments().addAll(comments);
+    String ns = namespace();
+    String nodeName = qualifiedName(xml.getPrefix(), xml.getLocalName());
+    int line = line();
+    int col = col();
+    List<Attribute> attributes = readAttributes();
+    boolean content = false;
+    String xsiType = null;
+    String representation = "";
+    for (Attribute attr : attributes) {
+      content = content || !attr.isNamespace();
+      if ("type".equals(attr.localName) && FormatUtilities.NS_XSI.equals(attr.namespace)) {
+        xsiType = attr.value;
+      } else if ("representation".equals(attr.localName) && attr.namespace == null) {
+        representation = attr.value;
+      }
+    }
+    List<Property> properties = element.getProperty().getChildProperties(element.getName(), xsiType);
+    int mark = errorCount(); // problems with the text go here
+
+    for (Attribute attr : attributes) {
+      if (!owner.validAttrValue(attr.value)) {
+        owner.logError(line, col, path, IssueType.STRUCTURE, owner.context.formatMessage(I18nConstants.XML_ATTR_VALUE_INVALID, attr.name), IssueSeverity.ERROR);
+      }
+      if (!attr.isNamespace()) {
+        Property property = owner.getAttrProp(properties, attr.localName, attr.namespace);
+        if (property != null) {
+          String av = attr.value;
+          if (ToolingExtensions.hasExtension(property.getDefinition(), DATE_FORMAT_EXTENSION))
+            av = owner.convertForDateFormatFromExternal(ToolingExtensions.readStringExtension(property.getDefinition(), DATE_FORMAT_EXTENSION), av);
+          if (property.getName().equals("value") && element.isPrimitive())
+            element.setValue(av);
+          else
+            element.getChildren().add(new Element(property.getName(), property, property.getType(), av).markLocation(line, col));
+        } else {
+          boolean ok = false;
+          if (FormatUtilities.FHIR_NS.equals(ns)) {
+            if (attr.localName.equals("schemaLocation") && FormatUtilities.NS_XSI.equals(attr.namespace)) {
+              ok = ok || owner.isAllowXsiLocation();
+            }
+          } else
+            ok = ok || (attr.localName.equals("schemaLocation")); // xsi:schemalocation allowed for non FHIR content
+          ok = ok || (owner.hasTypeAttr(element) && attr.localName.equals("type") && FormatUtilities.NS_XSI.equals(attr.namespace)); // xsi:type allowed if element says so
+          if (!ok)
+            owner.logError(line, col, path, IssueType.STRUCTURE, owner.context.formatMessage(I18nConstants.UNDEFINED_ATTRIBUTE__ON__FOR_TYPE__PROPERTIES__, attr.name, nodeName, element.fhirType(), properties), IssueSeverity.ERROR);
+        }
+      }
+    }
+
+    StringBuilder text = new StringBuilder();
+    boolean inText = false; // whether there's text since the last element
+    List<int[]> textLocations = new ArrayList<>();
+    List<String> pending = new ArrayList<>(); // comments since the last element
+    boolean children = false;
+    int lastLine = 0;
+    int lastCol = 0;
+    int event = xml.next();
+    while (event != XMLStreamConstants.END_ELEMENT) {
+      switch (event) {
+      case XMLStreamConstants.CHARACTERS:
+      case XMLStreamConstants.SPACE:
+        text.append(xml.getText());
+        inText = inText || !Utilities.noString(xml.getText().trim());
+        break;
+      case XMLStreamConstants.CDATA:
+        content = content || !Utilities.noString(xml.getText().trim());
+        owner.logError(line(), col(), path, IssueType.STRUCTURE, owner.context.formatMessage(I18nConstants.CDATA_IS_NOT_ALLOWED), IssueSeverity.ERROR);
+        break;
+      case XMLStreamConstants.COMMENT:
+        pending.add(xml.getText());
+        break;
+      case XMLStreamConstants.PROCESSING_INSTRUCTION:
+        owner.logError(line(), col(), path, IssueType.STRUCTURE, owner.context.formatMessage(I18nConstants.NODE_TYPE__IS_NOT_ALLOWED, Integer.toString(Node.PROCESSING_INSTRUCTION_NODE)), IssueSeverity.ERROR);
+        break;
+      case XMLStreamConstants.ENTITY_REFERENCE:
+        owner.logError(line(), col(), path, IssueType.STRUCTURE, owner.context.formatMessage(I18nConstants.NODE_TYPE__IS_NOT_ALLOWED, Integer.toString(Node.ENTITY_REFERENCE_NODE)), IssueSeverity.ERROR);
+        break;
+      case XMLStreamConstants.START_ELEMENT:
+        // text in front of an element is reported at the element
+        if (inText) {
+          textLocations.add(new int[] {line(), col()});
+          inText = false;
+        }
+        lastLine = line();
+        lastCol = col();
+        children = true;
+        parseChild(path, element, properties, pending);
+        pending = new ArrayList<>();
+        break;
+      default:
+        break;
+      }
+      event = xml.next();
+    }
+    if (inText) {
+      textLocations.add(children ? new int[] {lastLine, lastCol} : new int[] {line, col});
+    }
+
+    String t = text.toString().trim();
+    if (!Utilities.noString(t)) {
+      content = true;
+      Property property = owner.getTextProp(properties);
+      if (property != null) {
+        // the text comes first, as it does in the DOM based parser
+        if ("ED.data[x]".equals(property.getDefinition().getId()) || (property.getDefinition()!=null && property.getDefinition().getBase()!=null && "ED.data[x]".equals(property.getDefinition().getBase().getPath()))) {
+          if ("B64".equals(representation)) {
+            element.getChildren().add(0, new Element("dataBase64Binary", property, "base64Binary", t).markLocation(line, col));
+          } else {
+            element.getChildren().add(0, new Element("dataString", property, "string", t).markLocation(line, col));
+          }
+        } else {
+          element.getChildren().add(0, new Element(property.getName(), property, property.getType(), t).markLocation(line, col));
+        }
+      } else {
+        for (int i = 0; i < textLocations.size(); i++) {
+          logErrorAt(mark+i, textLocations.get(i)[0], textLocations.get(i)[1], path, IssueType.STRUCTURE, owner.context.formatMessage(I18nConstants.TEXT_SHOULD_NOT_BE_PRESENT, t), IssueSeverity.ERROR);
+        }
+      }
+    }
+    if (children) {
+      content = true;
+      element.getComments().addAll(pending);
+    }
+    return content;
+  }
+
+  private void parseChild(String path, Element element, List<Property> properties, List<String> comments) throws XMLStreamException, IOException, FHIRException {
+    String ns = namespace();
+    String name = xml.getLocalName();
+    int line = line();
+    int col = col();
+    Property property = owner.getElementProp(properties, name, ns);
+    if (property == null) {
+      owner.logError(line, col, path, IssueType.STRUCTURE, owner.context.formatMessage(I18nConstants.UNDEFINED_ELEMENT_, name), IssueSeverity.ERROR);
+      skipContent(true);
+    } else if (!property.isChoice() && "xhtml".equals(property.getType())) {
+      org.w3c.dom.Element node = readFragment();
+      XhtmlNode xhtml;
+      if (property.getDefinition().hasRepresentation(PropertyRepresentation.CDATEXT))
+        xhtml = new CDANarrativeFormat().convert(node);
+      else 
+        xhtml = new XhtmlParser().setValidatorMode(true).parseHtmlNode(node);
+      element.getChildren().add(new Element(property.getName(), property, "xhtml", new XhtmlComposer(XhtmlComposer.XML, false).compose(xhtml)).setXhtml(xhtml).markLocation(line, col));
+    } else {
+      String npath = path+"/"+owner.pathPrefix(ns)+name;
+      Element n = new Element(name, property).markLocation(line, col);
+      int mark = checkNamespace(ns, npath, n.getProperty(), line, col);
+      boolean ok = true;
+      if (property.isChoice()) {
+        if (property.getDefinition().hasRepresentation(PropertyRepresentation.TYPEATTR)) {
+          String xsiType = xml.getAttributeValue(FormatUtilities.NS_XSI, "type");
+          if (Utilities.noString(xsiType)) {
+            if (ToolingExtensions.hasExtension(property.getDefinition(), "http://hl7.org/fhir/StructureDefinition/elementdefinition-defaulttype")) {
+              xsiType = ToolingExtensions.readStringExtension(property.getDefinition(), "http://hl7.org/fhir/StructureDefinition/elementdefinition-defaulttype");
+              n.setType(xsiType);
+            } else {
+              owner.logError(line, col, path, IssueType.STRUCTURE, owner.context.formatMessage(I18nConstants.NO_TYPE_FOUND_ON_, name), IssueSeverity.ERROR);
+              ok = false;
+            }
+          } else {
+            if (xsiType.contains(":"))
+              xsiType = xsiType.substring(xsiType.indexOf(":")+1);
+            n.setType(xsiType);
+            n.setExplicitType(xsiType);
+          }
+        } else
+          n.setType(n.getType());
+      }
+      element.getChildren().add(n);
+      boolean content;
+      if (!ok) {
+        content = skipContent(xml.getAttributeCount() > 0);
+      } else if (property.isResource()) {
+        content = parseResource(n, property);
+      } else {
+        content = parseChildren(npath, n, comments);
+      }
+      checkEmpty(mark, ns, content, npath, line, col);
+    }
+  }
+
+  /**
+   * the resource is the first element in the container. Anything else in the container is ignored
+   */
+  private boolean parseResource(Element parent, Property elementProperty) throws XMLStreamException, IOException, FHIRException {
+    boolean content = xml.getAttributeCount() > 0;
+    List<String> comments = new ArrayList<>();
+    int event = xml.next();
+    while (event != XMLStreamConstants.START_ELEMENT) {
+      if (event == XMLStreamConstants.END_ELEMENT) {
+        return content;
+      } else if (event == XMLStreamConstants.COMMENT) {
+        comments.add(xml.getText());
+      } else if (isText(event)) {
+        content = content || !Utilities.noString(xml.getText().trim());
+      }
+      event = xml.next();
+    }
+    String name = xml.getLocalName();
+    StructureDefinition sd = owner.context.fetchResource(StructureDefinition.class, ProfileUtilities.sdNs(name, owner.context.getOverrideVersionNs()));
+    if (sd == null)
+      throw new FHIRFormatError(owner.context.formatMessage(I18nConstants.CONTAINED_RESOURCE_DOES_NOT_APPEAR_TO_BE_A_FHIR_RESOURCE_UNKNOWN_NAME_, name));
+    parent.updateProperty(Property.forDefinition(owner.context, sd.getSnapshot().getElement().get(0), sd), SpecialElement.fromProperty(parent.getProperty()), elementProperty);
+    parent.setType(name);
+    parseChildren(name, parent, comments);
+    skipContent(true);
+    return true;
+  }
+
+  /**
+   * the checks in XmlParser.checkElement. Whether the element is empty isn't known until 
+   * the end tag is read, so this returns where that problem goes (see checkEmpty) 
+   */
+  private int checkNamespace(String ns, String path, Property prop, int line, int col) throws FHIRFormatError {
+    int mark = errorCount();
+    if (owner.policy == ValidationPolicy.EVERYTHING) {
+      String pns = prop.getXmlNamespace();
+      String elementNs = ns == null ? "default" : ns;
+      if (!elementNs.equals(pns))
+        owner.logError(line, col, path, IssueType.INVALID, owner.context.formatMessage(I18nConstants.WRONG_NAMESPACE__EXPECTED_, pns), IssueSeverity.ERROR);
+    }
+    return mark;
+  }
+
+  private void checkEmpty(int mark, String ns, boolean content, String path, int line, int col) throws FHIRFormatError {
+    if (owner.policy == ValidationPolicy.EVERYTHING && !content && FormatUtilities.FHIR_NS.equals(ns)) // this rule only applies to FHIR Content
+      logErrorAt(mark, line, col, path, IssueType.INVALID, owner.context.formatMessage(I18nConstants.ELEMENT_MUST_HAVE_SOME_CONTENT), IssueSeverity.ERROR);
+  }
+
+  /**
+   * read up to and including the end tag of the current element
+   * 
+   * @return whether there was any content (text or elements) 
+   */
+  private boolean skipContent(boolean content) throws XMLStreamException {
+    int depth = 1;
+    while (depth > 0) {
+      int event = xml.next();
+      if (event == XMLStreamConstants.START_ELEMENT) {
+        depth++;
+        content = true;
+      } else if (event == XMLStreamConstants.END_ELEMENT) {
+        depth--;
+      } else if (isText(event)) {
+        content = content || !Utilities.noString(xml.getText().trim());
+      }
+    }
+    return content;
+  }
+
+  /**
+   * read the current element (a narrative) into a DOM fragment
+   */
+  private org.w3c.dom.Element readFragment() throws XMLStreamException, FHIRException {
+    if (fragments == null) {
+      try {
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setNamespaceAware(true);
+        fragments = factory.newDocumentBuilder().newDocument();
+      } catch (ParserConfigurationException e) {
+        throw new FHIRException(e.getMessage(), e);
+      }
+    }
+    org.w3c.dom.Element root = makeDomElement();
+    org.w3c.dom.Element focus = root;
+    while (focus != null) {
+      switch (xml.next()) {
+      case XMLStreamConstants.START_ELEMENT:
+        org.w3c.dom.Element child = makeDomElement();
+        focus.appendChild(child);
+        focus = child;
+        break;
+      case XMLStreamConstants.END_ELEMENT:
+        focus = focus == root ? null : (org.w3c.dom.Element) focus.getParentNode();
+        break;
+      case XMLStreamConstants.CHARACTERS:
+      case XMLStreamConstants.SPACE:
+        // the reader may split text up; the DOM doesn't
+        Node last = focus.getLastChild();
+        if (last != null && last.getNodeType() == Node.TEXT_NODE)
+          ((Text) last).appendData(xml.getText());
+        else
+          focus.appendChild(fragments.createTextNode(xml.getText()));
+        break;
+      case XMLStreamConstants.CDATA:
+        focus.appendChild(fragments.createCDATASection(xml.getText()));
+        break;
+      case XMLStreamConstants.COMMENT:
+        focus.appendChild(fragments.createComment(xml.getText()));
+        break;
+      case XMLStreamConstants.PROCESSING_INSTRUCTION:
+        focus.appendChild(fragments.createProcessingInstruction(xml.getPITarget(), xml.getPIData()));
+        break;
+      default:
+        break;
+      }
+    }
+    return root;
+  }
+
+  private org.w3c.dom.Element makeDomElement() {
+    org.w3c.dom.Element e = fragments.createElementNS(namespace(), qualifiedName(xml.getPrefix(), xml.getLocalName()));
+    for (Attribute attr : readAttributes()) {
+      e.setAttributeNS(attr.namespace, attr.name, attr.value);
+    }
+    return e;
+  }
+
+  /**
+   * the attributes of the current element, including the namespace declarations, in the 
+   * order that the DOM reports them
+   */
+  private List<Attribute> readAttributes() {
+    List<Attribute> res = new ArrayList<>();
+    for (int i = 0; i < xml.getNamespaceCount(); i++) {
+      String prefix = xml.getNamespacePrefix(i);
+      String uri = xml.getNamespaceURI(i);
+      if (Utilities.noString(prefix))
+        res.add(new Attribute(XMLConstants.XMLNS_ATTRIBUTE, XMLConstants.XMLNS_ATTRIBUTE, XMLConstants.XMLNS_ATTRIBUTE_NS_URI, uri == null ? "" : uri));
+      else
+        res.add(new Attribute(XMLConstants.XMLNS_ATTRIBUTE+":"+prefix, prefix, XMLConstants.XMLNS_ATTRIBUTE_NS_URI, uri == null ? "" : uri));
+    }
+    for (int i = 0; i < xml.getAttributeCount(); i++) {
+      String ns = xml.getAttributeNamespace(i);
+      res.add(new Attribute(qualifiedName(xml.getAttributePrefix(i), xml.getAttributeLocalName(i)), xml.getAttributeLocalName(i), Utilities.noString(ns) ? null : ns, xml.getAttributeValue(i)));
+    }
+    Collections.sort(res);
+    return res;
+  }
+
+  private String namespace() {
+    String ns = xml.getNamespaceURI();
+    return Utilities.noString(ns) ? null : ns;
+  }
+
+  private String qualifiedName(String prefix, String localName) {
+    return Utilities.noString(prefix) ? localName : prefix+":"+localName;
+  }
+
+  private boolean isText(int event) {
+    return event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.SPACE || event == XMLStreamConstants.CDATA;
+  }
+
+  private int line() {
+    return xml.getLocation().getLineNumber();
+  }
+
+  private int col() {
+    return xml.getLocation().getColumnNumber();
+  }
+
+  private int errorCount() {
+    return owner.policy == ValidationPolicy.EVERYTHING ? owner.errors.size() : 0;
+  }
+
+  /**
+   * log an error, but put it at index rather than at the end 
+   */
+  private void logErrorAt(int index, int line, int col, String path, IssueType type, String message, IssueSeverity level) throws FHIRFormatError {
+    owner.logError(line, col, path, type, message, level);
+    if (owner.policy == ValidationPolicy.EVERYTHING) {
+      owner.errors.add(index, owner.errors.remove(owner.errors.size()-1));
+    }
+  }
+}
@@ -121,6 +121,9 @@ public abstract class JsonParserBase extends ParserBase implements IParser {
    */
   @Override
   public Resource parse(InputStream input) throws IOException, FHIRFormatError {
+    if (streaming) {
+      return new JsonStreamParser(this).parse(input);
+    }
     JsonObject json = loadJson(input);
     return parseResource(json);
   }
@@ -205,6 +208,24 @@ public abstract class JsonParserBase extends ParserBase implements IParser {
 
   protected JsonCreator json;
   private boolean htmlPretty;
+  private boolean streaming;
+
+  /**
+   * @return whether resources are parsed straight from the stream, rather than reading the JSON into a tree first
+   */
+  public boolean isStreaming() {
+    return streaming;
+  }
+
+  /**
+   * Parse resources in one pass straight from the stream, without reading the whole JSON into a tree first. 
+   * This uses much less memory for large resources (e.g. Bundles) and is quicker. Only applies to parse(InputStream) (and 
+   * the methods that use it) 
+   */
+  public IParser setStreaming(boolean streaming) {
+    this.streaming = streaming;
+    return this;
+  }
   
   private JsonObject loadJson(InputStream input) throws JsonSyntaxException, IOException {
     return JsonTrackingParser.parse(TextFile.streamToString(input), null, allowUnknownContent, allowComments);
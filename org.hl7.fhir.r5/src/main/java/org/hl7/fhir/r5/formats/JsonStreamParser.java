@@ -0,0 +1,326 @@
+package org.hl7.fhir.r5.formats;
+
+/*
+  Copyright (c) 2011+, HL7, Inc.
+  All rights reserved.
+  
+  Redistribution and use in source and binary forms, with or without modification, 
+  are permitted provided that the following conditions are met:
+    
+   * Redistributions of source code must retain the above copyright notice, this 
+     list of conditions and the following disclaimer.
+   * Redistributions in binary form must reproduce the above copyright notice, 
+     this list of conditions and the following disclaimer in the documentation 
+     and/or other materials provided with the distribution.
+   * Neither the name of HL7 nor the names of its contributors may be used to 
+     endorse or promote products derived from this software without specific 
+     prior written permission.
+  
+  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND 
+  ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED 
+  WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. 
+  IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, 
+  INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT 
+  NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR 
+  PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, 
+  WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+  ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+  POSSIBILITY OF SUCH DAMAGE.
+  
+ */
+
+
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.hl7.fhir.exceptions.FHIRException;
+import org.hl7.fhir.exceptions.FHIRFormatError;
+import org.hl7.fhir.r5.model.Base;
+import org.hl7.fhir.r5.model.Element;
+import org.hl7.fhir.r5.model.Narrative;
+import org.hl7.fhir.r5.model.PrimitiveType;
+import org.hl7.fhir.r5.model.Property;
+import org.hl7.fhir.r5.model.Resource;
+import org.hl7.fhir.r5.model.ResourceFactory;
+
+import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+/**
+ * Parses a resource in one pass straight from the JSON tokens into the model classes, without 
+ * reading the whole thing into a JSON object tree first (see JsonParserBase.setStreaming).
+ * 
+ * Rather than a generated parse routine for each type, this is driven by the generated property 
+ * support in the model classes (getNamedProperty, makeProperty, addChild), so it works for all 
+ * the types. What it learns about each property is kept, so the per-property cost after the 
+ * first time is a map lookup and the makeProperty switch. 
+ * 
+ * Like the tree based parser, unknown properties are ignored, and a property that appears 
+ * twice in an object is an error unless unknown content is allowed. If resourceType isn't the 
+ * first property in a resource, that resource is read into a tree and handed to the tree 
+ * based parser  
+ */
+class JsonStreamParser {
+
+  private static class PropertyInfo {
+    private int hash;
+    private String type;
+    private boolean list;
+    private boolean choice;
+    private boolean primitive;
+    private boolean resource;
+  }
+
+  private static final PropertyInfo UNKNOWN = new PropertyInfo();
+  private static final Map<Class<?>, Map<String, PropertyInfo>> PROPERTIES = new ConcurrentHashMap<>();
+
+  private JsonParserBase parser;
+
+  JsonStreamParser(JsonParserBase parser) {
+    super();
+    this.parser = parser;
+  }
+
+  Resource parse(InputStream input) throws IOException, FHIRFormatError {
+    BufferedReader br = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+    br.mark(1);
+    if (br.read() != '\uFEFF') {
+      br.reset();
+    }
+    JsonReader reader = new JsonReader(br);
+    reader.setLenient(parser.allowComments);
+    try {
+      Resource res = parseResource(reader);
+      if (reader.peek() != JsonToken.END_DOCUMENT) {
+        throw new FHIRFormatError("Unexpected content after the resource at "+reader.getPath());
+      }
+      return res;
+    } catch (IllegalStateException | NumberFormatException e) {
+      // JsonReader reports content that isn't what it was asked for this way
+      throw new FHIRFormatError("Error parsing JSON: "+e.getMessage(), e);
+    }
+  }
+
+  private Resource parseResource(JsonReader reader) throws IOException, FHIRFormatError {
+    reader.beginObject();
+    if (!reader.hasNext()) {
+      throw new FHIRFormatError("Unable to find resource type - maybe not a FHIR resource?");
+    }
+    String name = reader.nextName();
+    if (!"resourceType".equals(name)) {
+      JsonObject json = new JsonObject();
+      com.google.gson.JsonParser tree = new com.google.gson.JsonParser();
+      json.add(name, tree.parse(reader));
+      while (reader.hasNext()) {
+        name = reader.nextName();
+        if (json.has(name)) {
+          checkDuplicate(reader, name);
+        }
+        json.add(name, tree.parse(reader));
+      }
+      reader.endObject();
+      return parser.parse(json);
+    }
+    String type = reader.nextString();
+    Resource res;
+    try {
+      res = ResourceFactory.createResource(type);
+    } catch (FHIRException e) {
+      throw new FHIRFormatError("Unknown.Unrecognised resource type '"+type+"' (in property 'resourceType')");
+    }
+    parseProperties(reader, res);
+    return res;
+  }
+
+  /**
+   * Read the properties of an object (after the '{' and up to and including the '}') into focus
+   */
+  private void parseProperties(JsonReader reader, Base focus) throws IOException, FHIRFormatError {
+    Map<String, List<Base>> primitives = null; // the primitives made so far, to line up the [name] and _[name] properties
+    Set<String> names = parser.allowUnknownContent ? null : new HashSet<>();
+    while (reader.hasNext()) {
+      String name = reader.nextName();
+      if (names != null && !names.add(name)) {
+        checkDuplicate(reader, name);
+      }
+      if ("fhir_comments".equals(name)) {
+        parseComments(reader, focus);
+        continue;
+      }
+      boolean extras = name.startsWith("_");
+      String pn = extras ? name.substring(1) : name;
+      PropertyInfo pi = getPropertyInfo(focus, pn);
+      if (pi == null || (extras && !pi.primitive)) {
+        reader.skipValue();
+      } else if (pi.primitive) {
+        if (primitives == null) {
+          primitives = new HashMap<>();
+        }
+        List<Base> made = primitives.get(pn);
+        if (made == null) {
+          made = new ArrayList<>();
+          primitives.put(pn, made);
+        }
+        if (pi.list) {
+          reader.beginArray();
+          int i = 0;
+          while (reader.hasNext()) {
+            parsePrimitive(reader, focus, pi, pn, made, i, extras);
+            i++;
+          }
+          reader.endArray();
+        } else {
+          parsePrimitive(reader, focus, pi, pn, made, 0, extras);
+        }
+      } else if (pi.list) {
+        reader.beginArray();
+        while (reader.hasNext()) {
+          parseComplex(reader, focus, pi, pn);
+        }
+        reader.endArray();
+      } else {
+        parseComplex(reader, focus, pi, pn);
+      }
+    }
+    reader.endObject();
+  }
+
+  /**
+   * The same error the tree based parser gives for a duplicated property (see JsonTrackingParser), 
+   * unless unknown content is allowed 
+   */
+  private void checkDuplicate(JsonReader reader, String name) throws IOException {
+    if (!parser.allowUnknownContent) {
+      throw new IOException("Error parsing JSON source: Duplicated property name: "+name+" at "+reader.getPath());
+    }
+  }
+
+  private void parsePrimitive(JsonReader reader, Base focus, PropertyInfo pi, String pn, List<Base> made, int index, boolean extras) throws IOException, FHIRFormatError {
+    if (reader.peek() == JsonToken.NULL) {
+      // a place holder in an array. Make the element anyway, in case the other array has something for it 
+      reader.nextNull();
+      if (pi.list && index >= made.size()) {
+        made.add(makeChild(focus, pi, pn));
+      }
+      return;
+    }
+    if ("xhtml".equals(pi.type)) {
+      if (extras || !(focus instanceof Narrative)) {
+        reader.skipValue();
+      } else {
+        ((Narrative) focus).setDiv(parser.parseXhtml(reader.nextString()));
+      }
+      return;
+    }
+    Base item;
+    if (index < made.size()) {
+      item = made.get(index);
+    } else {
+      item = makeChild(focus, pi, pn);
+      made.add(item);
+    }
+    if (extras) {
+      reader.beginObject();
+      parseProperties(reader, item);
+    } else {
+      String value;
+      switch (reader.peek()) {
+      case BOOLEAN: 
+        value = String.valueOf(reader.nextBoolean());
+        break;
+      case STRING:
+      case NUMBER: // as it appears, so decimal precision is kept
+        value = reader.nextString();
+        break;
+      default:
+        throw new FHIRFormatError("Expected a primitive value for "+pn+" at "+reader.getPath()+", but found "+reader.peek());
+      }
+      ((PrimitiveType<?>) item).setValueAsString(value);
+    }
+  }
+
+  private void parseComplex(JsonReader reader, Base focus, PropertyInfo pi, String pn) throws IOException, FHIRFormatError {
+    if (reader.peek() == JsonToken.NULL) {
+      reader.nextNull();
+    } else if (pi.resource) {
+      focus.setProperty(pi.hash, pn, parseResource(reader));
+    } else {
+      Base child = makeChild(focus, pi, pn);
+      reader.beginObject();
+      parseProperties(reader, child);
+    }
+  }
+
+  private Base makeChild(Base focus, PropertyInfo pi, String pn) throws FHIRException {
+    return pi.choice ? focus.addChild(pn) : focus.makeProperty(pi.hash, pn);
+  }
+
+  private void parseComments(JsonReader reader, Base focus) throws IOException {
+    if (!parser.handleComments || !(focus instanceof Element) || reader.peek() != JsonToken.BEGIN_ARRAY) {
+      reader.skipValue();
+      return;
+    }
+    reader.beginArray();
+    while (reader.hasNext()) {
+      ((Element) focus).getFormatCommentsPre().add(reader.nextString());
+    }
+    reader.endArray();
+  }
+
+  private PropertyInfo getPropertyInfo(Base focus, String name) {
+    Map<String, PropertyInfo> properties = PROPERTIES.get(focus.getClass());
+    if (properties == null) {
+      properties = new ConcurrentHashMap<>();
+      PROPERTIES.put(focus.getClass(), properties);
+    }
+    PropertyInfo pi = properties.get(name);
+    if (pi == null) {
+      pi = makePropertyInfo(focus, name);
+      properties.put(name, pi);
+    }
+    return pi == UNKNOWN ? null : pi;
+  }
+
+  private PropertyInfo makePropertyInfo(Base focus, String name) {
+    if (focus instanceof Narrative && "div".equals(name)) {
+      // Narrative doesn't report div as a named property
+      PropertyInfo pi = new PropertyInfo();
+      pi.hash = name.hashCode();
+      pi.type = "xhtml";
+      pi.primitive = true;
+      return pi;
+    }
+    Property p;
+    try {
+      p = focus.getNamedProperty(name.hashCode(), name, false);
+    } catch (FHIRException e) {
+      return UNKNOWN;
+    }
+    if (p == null || p.getTypeCode() == null) {
+      return UNKNOWN;
+    }
+    PropertyInfo pi = new PropertyInfo();
+    pi.hash = name.hashCode();
+    pi.type = p.getTypeCode().contains("(") ? p.getTypeCode().substring(0, p.getTypeCode().indexOf("(")) : p.getTypeCode();
+    pi.choice = p.getName().endsWith("[x]");
+    if (pi.type.contains("|") || (pi.choice && name.equals(p.getName().substring(0, p.getName().length()-3)))) {
+      return UNKNOWN; // the name of a choice without a type isn't valid in json 
+    }
+    pi.list = p.getMaxCardinality() > 1;
+    pi.primitive = pi.type.length() > 0 && Character.isLowerCase(pi.type.charAt(0));
+    pi.resource = "Resource".equals(pi.type) || "DomainResource".equals(pi.type);
+    return pi;
+  }
+}
@@ -13,6 +13,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.lang3.NotImplementedException;
 import org.fhir.ucum.Decimal;
@@ -23,6 +24,7 @@ import org.hl7.fhir.exceptions.FHIRException;
 import org.hl7.fhir.exceptions.FHIRFormatError;
 import org.hl7.fhir.exceptions.PathEngineException;
 import org.hl7.fhir.r5.conformance.ProfileUtilities;
+import org.hl7.fhir.r5.context.BoundedCache;
 import org.hl7.fhir.r5.context.IWorkerContext;
 import org.hl7.fhir.r5.model.Base;
 import org.hl7.fhir.r5.model.BaseDateTimeType;
@@ -109,6 +111,11 @@ public class FHIRPathEngine {
   
   private enum Equality { Null, True, False }
 
+  private static final int MAX_COMPILED_EXPRESSIONS = 5000;
+  public static final int DEFAULT_PARSE_CACHE_SIZE = 10000;
+
+  private static final BoundedCache<String, ExpressionNode> parseCache = new BoundedCache<>(DEFAULT_PARSE_CACHE_SIZE, BoundedCache.NO_TTL);
+
   private class FHIRConstant extends Base {
 
     private static final long serialVersionUID = -8933773658248269439L;
@@ -206,14 +213,19 @@ public class FHIRPathEngine {
 
   private IWorkerContext worker;
   private IEvaluationContext hostServices;
-  private StringBuilder log = new StringBuilder();
   private Set<String> primitiveTypes = new HashSet<String>();
   private Map<String, StructureDefinition> allTypes = new HashMap<String, StructureDefinition>();
   private boolean legacyMode; // some R2 and R3 constraints assume that != is valid for emptty sets, so when running for R2/R3, this is set ot true  
   private ValidationOptions terminologyServiceOptions = new ValidationOptions();
   private ProfileUtilities profileUtilities;
-  private String location; // for error messages
   private boolean allowPolymorphicNames;
+  private BoundedCache<ExpressionNode, CompiledExpression> compiledExpressions = new BoundedCache<>(MAX_COMPILED_EXPRESSIONS, BoundedCache.NO_TTL);
+  private final ThreadLocal<EvaluationState> state = new ThreadLocal<EvaluationState>() {
+    @Override
+    protected EvaluationState initialValue() {
+      return new EvaluationState();
+    }
+  };
 
   // if the fhir path expressions are allowed to use constants beyond those defined in the specification
   // the application can implement them by providing a constant resolver 
@@ -350,13 +362,26 @@ public class FHIRPathEngine {
     this.hostServices = constantResolver;
   }
 
+  /**
+   * @return the location reported in error messages, for evaluations on this thread
+   */
   public String getLocation() {
-    return location;
+    return state.get().getLocation();
   }
 
 
+  /**
+   * set the location reported in error messages, for evaluations on this thread
+   */
   public void setLocation(String location) {
-    this.location = location;
+    state.get().setLocation(location);
+  }
+
+  /**
+   * @return the state used for evaluations on this thread (unless one is passed to evaluate)
+   */
+  public EvaluationState getEvaluationState() {
+    return state.get();
   }
 
 
@@ -423,6 +448,64 @@ public class FHIRPathEngine {
     return parse(path, null);
   }
   
+  /**
+   * Parse a path, or get the result of parsing it before. The parsed expressions are shared between all 
+   * the engines, and all the threads using them (see setMaxParseCacheSize()), so the expression that is 
+   * returned must not be changed - including by check(), which records the types on the nodes. Use 
+   * parse(path) to get an expression that can be changed
+   */
+  public ExpressionNode parseCached(String path) throws FHIRLexerException {
+    // the version matters because the types differ, and the host services because they provide custom functions
+    String key = worker.getVersion()+"|"+(hostServices == null ? "" : hostServices.getClass().getName())+"|"+path;
+    synchronized (parseCache) {
+      ExpressionNode res = parseCache.get(key);
+      if (res != null) {
+        return res;
+      }
+    }
+    ExpressionNode res = parse(path);
+    synchronized (parseCache) {
+      parseCache.put(key, res, false);
+    }
+    return res;
+  }
+
+  /**
+   * @return the number of expressions in the cache used by parseCached()
+   */
+  public static int getParseCacheSize() {
+    synchronized (parseCache) {
+      return parseCache.size();
+    }
+  }
+
+  /**
+   * Forget all the expressions parsed by parseCached() (the statistics are kept)
+   */
+  public static void clearParseCache() {
+    synchronized (parseCache) {
+      parseCache.clear();
+    }
+  }
+
+  public static long getParseCacheHits() {
+    synchronized (parseCache) {
+      return parseCache.getHits();
+    }
+  }
+
+  public static long getParseCacheMisses() {
+    synchronized (parseCache) {
+      return parseCache.getMisses();
+    }
+  }
+
+  public static void setMaxParseCacheSize(int maxSize) {
+    synchronized (parseCache) {
+      parseCache.setMaxSize(maxSize);
+    }
+  }
+
   public ExpressionNode parse(String path, String name) throws FHIRLexerException {
     FHIRLexer lexer = new FHIRLexer(path, name);
     if (lexer.done()) {
@@ -533,6 +616,7 @@ public class FHIRPathEngine {
 
   private FHIRException makeException(ExpressionNode holder, String constName, Object... args) {
     String fmt = worker.formatMessage(constName, args);
+    String location = state.get().getLocation();
     if (location != null) {
       fmt = fmt + " "+worker.formatMessage(I18nConstants.FHIRPATH_LOCATION, location);
     }
@@ -575,6 +659,7 @@ public class FHIRPathEngine {
   }
 
   public TypeDetails check(Object appContext, String resourceType, String context, String expr) throws FHIRLexerException, PathEngineException, DefinitionException {
+    // checking records the types on the nodes, so it can't use the shared parse
     return check(appContext, resourceType, context, parse(expr));
   }
 
@@ -645,7 +730,7 @@ public class FHIRPathEngine {
     if (base != null) {
       list.add(base);
     }
-    log = new StringBuilder();
+    state.get().clearLog();
     return execute(new ExecutionContext(null, base != null && base.isResource() ? base : null, base != null && base.isResource() ? base : null, base, null, base), list, ExpressionNode, true);
   }
 
@@ -659,12 +744,12 @@ public class FHIRPathEngine {
    * @
    */
 	public List<Base> evaluate(Base base, String path) throws FHIRException {
-    ExpressionNode exp = parse(path);
+    ExpressionNode exp = parseCached(path);
     List<Base> list = new ArrayList<Base>();
     if (base != null) {
       list.add(base);
     }
-    log = new StringBuilder();
+    state.get().clearLog();
     return execute(new ExecutionContext(null, base.isResource() ? base : null, base.isResource() ? base : null, base, null, base), list, exp, true);
   }
 
@@ -682,7 +767,7 @@ public class FHIRPathEngine {
     if (base != null) {
       list.add(base);
     }
-    log = new StringBuilder();
+    state.get().clearLog();
     return execute(new ExecutionContext(appContext, focusResource, rootResource, base, null, base), list, ExpressionNode, true);
   }
 
@@ -700,7 +785,7 @@ public class FHIRPathEngine {
     if (base != null) {
       list.add(base);
     }
-    log = new StringBuilder();
+    state.get().clearLog();
     return execute(new ExecutionContext(appContext, focusResource, rootResource, base, null, base), list, expressionNode, true);
   }
 
@@ -714,12 +799,12 @@ public class FHIRPathEngine {
    * @
    */
 	public List<Base> evaluate(Object appContext, Resource focusResource, Resource rootResource, Base base, String path) throws FHIRException {
-    ExpressionNode exp = parse(path);
+    ExpressionNode exp = parseCached(path);
     List<Base> list = new ArrayList<Base>();
     if (base != null) {
       list.add(base);
     }
-    log = new StringBuilder();
+    state.get().clearLog();
     return execute(new ExecutionContext(appContext, focusResource, rootResource, base, null, base), list, exp, true);
   }
 
@@ -851,6 +936,7 @@ public class FHIRPathEngine {
 
   private void log(String name, List<Base> contents) {
     if (hostServices == null || !hostServices.log(name, contents)) {
+      StringBuilder log = state.get().log;
       if (log.length() > 0) {
         log.append("; ");
       }
@@ -868,14 +954,491 @@ public class FHIRPathEngine {
     }
   }
 
+  /**
+   * @return the log of the last evaluation on this thread, formatted to add to a message
+   */
   public String forLog() {
-    if (log.length() > 0) {
-      return " ("+log.toString()+")";
+    return state.get().forLog();
+  }
+
+  // --- evaluation state -------------------------------------------------------
+
+  /**
+   * What changes while an expression is evaluated: the log (from trace(), unless the host 
+   * services take it), and the location that is reported in error messages. 
+   * 
+   * The engine itself only holds configuration and caches, so a configured engine can be 
+   * shared between threads. Each thread has its own state, which is what forLog(), 
+   * setLocation() etc work on, or callers can pass their own state to evaluate(). The log 
+   * is cleared when an evaluation starts
+   */
+  public static class EvaluationState {
+    private StringBuilder log = new StringBuilder();
+    private String location;
+
+    public EvaluationState() {
+      super();
+    }
+
+    public EvaluationState(String location) {
+      super();
+      this.location = location;
+    }
+
+    public String getLocation() {
+      return location;
+    }
+
+    public void setLocation(String location) {
+      this.location = location;
+    }
+
+    public boolean hasLog() {
+      return log.length() > 0;
+    }
+
+    public String getLog() {
+      return log.toString();
+    }
+
+    /**
+     * @return the log, which is then cleared
+     */
+    public String takeLog() {
+      String s = log.toString();
+      log.setLength(0);
+      return s;
+    }
+
+    public String forLog() {
+      if (log.length() > 0) {
+        return " ("+log.toString()+")";
+      } else {
+        return "";
+      }
+    }
+
+    private void clearLog() {
+      log.setLength(0);
+    }
+  }
+
+  /**
+   * evaluate an expression using the given state instead of the thread's own: 
+   * the log and location are those of the state
+   * 
+   * @param evaluationState - the log and location for this evaluation
+   */
+  public List<Base> evaluate(EvaluationState evaluationState, Object appContext, Base focusResource, Base rootResource, Base base, ExpressionNode expressionNode) throws FHIRException {
+    EvaluationState previous = state.get();
+    state.set(evaluationState);
+    try {
+      return evaluate(appContext, focusResource, rootResource, base, expressionNode);
+    } finally {
+      state.set(previous);
+    }
+  }
+
+  /**
+   * evaluate an expression using the given state instead of the thread's own: 
+   * the log and location are those of the state
+   * 
+   * @param evaluationState - the log and location for this evaluation
+   */
+  public List<Base> evaluate(EvaluationState evaluationState, Object appContext, Base focusResource, Base rootResource, Base base, String path) throws FHIRException {
+    return evaluate(evaluationState, appContext, focusResource, rootResource, base, parseCached(path));
+  }
+
+  // --- compiled expressions ---------------------------------------------------
+  
+  /**
+   * An expression that has been turned into a tree of evaluation steps, for expressions that 
+   * are evaluated over and over (e.g. invariants). The work that doesn't depend on the focus is 
+   * done once: operations on literals are folded, the $this/$total and type name checks are 
+   * decided up front, and checking that an item is of the type named at the start of a path is 
+   * remembered per type. The functions that are used most in invariants (where, exists, all and 
+   * select) run their parameters as compiled steps too; other functions are run by the interpreter.
+   * 
+   * Compiled expressions are cached by the engine (see compile(ExpressionNode)), and give 
+   * the same results as evaluating the expression node. They use the engine's current settings
+   * (host services, legacy mode etc) when they are evaluated, and the log is available from
+   * the engine afterwards (forLog()), or from the state passed in, as for the other evaluate methods
+   */
+  public class CompiledExpression {
+    private final ExpressionNode expression;
+    private final CompiledStep step;
+
+    private CompiledExpression(ExpressionNode expression) {
+      super();
+      this.expression = expression;
+      this.step = compileNode(expression, true);
+    }
+
+    public ExpressionNode getExpression() {
+      return expression;
+    }
+
+    /**
+     * @return the engine that compiled the expression, and whose settings it uses
+     */
+    public FHIRPathEngine getEngine() {
+      return FHIRPathEngine.this;
+    }
+
+    /**
+     * evaluate the expression and return the matching elements
+     * 
+     * @param base - the object against which the expression is being evaluated
+     */
+    public List<Base> evaluate(Base base) throws FHIRException {
+      Base resource = base != null && base.isResource() ? base : null;
+      return evaluate(null, resource, resource, base);
+    }
+
+    /**
+     * evaluate the expression and return the matching elements
+     * 
+     * @param appContext - application context, passed to the host services
+     * @param focusResource - %resource
+     * @param rootResource - %rootResource
+     * @param base - the object against which the expression is being evaluated
+     */
+    public List<Base> evaluate(Object appContext, Base focusResource, Base rootResource, Base base) throws FHIRException {
+      List<Base> list = new ArrayList<Base>();
+      if (base != null) {
+        list.add(base);
+      }
+      state.get().clearLog();
+      return step.execute(new ExecutionContext(appContext, focusResource, rootResource, base, null, base), list);
+    }
+
+    /**
+     * evaluate the expression using the given state instead of the thread's own
+     * 
+     * @param evaluationState - the log and location for this evaluation
+     */
+    public List<Base> evaluate(EvaluationState evaluationState, Object appContext, Base focusResource, Base rootResource, Base base) throws FHIRException {
+      EvaluationState previous = state.get();
+      state.set(evaluationState);
+      try {
+        return evaluate(appContext, focusResource, rootResource, base);
+      } finally {
+        state.set(previous);
+      }
+    }
+
+    /**
+     * evaluate the expression and return true or false (e.g. for an invariant)
+     */
+    public boolean evaluateToBoolean(Object appContext, Base focusResource, Base rootResource, Base base) throws FHIRException {
+      return convertToBoolean(evaluate(appContext, focusResource, rootResource, base));
+    }
+
+    /**
+     * evaluate the expression and return a string containing the outcome (for display)
+     */
+    public String evaluateToString(Object appContext, Base focusResource, Base rootResource, Base base) throws FHIRException {
+      return convertToString(evaluate(appContext, focusResource, rootResource, base));
+    }
+
+    @Override
+    public String toString() {
+      return expression.toString();
+    }
+  }
+
+  /**
+   * Compile an expression for repeated evaluation. The compiled form is cached against the expression node, 
+   * so compiling the same node again is cheap
+   */
+  public CompiledExpression compile(ExpressionNode expression) {
+    synchronized (compiledExpressions) {
+      CompiledExpression res = compiledExpressions.get(expression);
+      if (res == null) {
+        res = new CompiledExpression(expression);
+        compiledExpressions.put(expression, res, false);
+      }
+      return res;
+    }
+  }
+
+  /**
+   * Parse and compile an expression for repeated evaluation 
+   */
+  public CompiledExpression compile(String path) throws FHIRLexerException {
+    return compile(parseCached(path));
+  }
+
+  /**
+   * @return the number of compiled expressions the engine is holding on to
+   */
+  public int getCompiledExpressionCount() {
+    synchronized (compiledExpressions) {
+      return compiledExpressions.size();
+    }
+  }
+
+  /**
+   * @return the size, evictions and hit rate of the compiled expression cache, for logging
+   */
+  public String getCompiledExpressionsSummary() {
+    synchronized (compiledExpressions) {
+      return compiledExpressions.summary();
+    }
+  }
+
+  /**
+   * one step in a compiled expression. What execute() does for an expression node, with the parts that don't depend on the focus already worked out 
+   */
+  private interface CompiledStep {
+    List<Base> execute(ExecutionContext context, List<Base> focus) throws FHIRException;
+  }
+
+  /**
+   * a step whose outcome doesn't depend on the focus: a literal, or an operation on literals
+   */
+  private static class ConstantStep implements CompiledStep {
+    private final List<Base> values;
+
+    private ConstantStep(List<Base> values) {
+      this.values = values;
+    }
+
+    @Override
+    public List<Base> execute(ExecutionContext context, List<Base> focus) {
+      return new ArrayList<Base>(values); // the caller may change the list
+    }
+  }
+
+  private ConstantStep constantStep(Base value) {
+    List<Base> values = new ArrayList<Base>(1);
+    if (value != null) {
+      values.add(value);
+    }
+    return new ConstantStep(values);
+  }
+
+  private CompiledStep compileNode(ExpressionNode exp, boolean atEntry) {
+    CompiledStep step;
+    switch (exp.getKind()) {
+    case Unary:
+      step = constantStep(new IntegerType(0));
+      break;
+    case Name:
+      step = compileName(exp, atEntry);
+      break;
+    case Function:
+      step = compileFunction(exp);
+      break;
+    case Constant:
+      if (exp.getConstant() instanceof FHIRConstant) {
+        step = (context, focus) -> {
+          List<Base> work = new ArrayList<Base>();
+          Base b = resolveConstant(context, exp.getConstant(), false, exp);
+          if (b != null) {
+            work.add(b);
+          }
+          return work;
+        };
+      } else {
+        step = constantStep(exp.getConstant());
+      }
+      break;
+    case Group:
+      step = compileNode(exp.getGroup(), atEntry);
+      break;
+    default:
+      throw new Error("Unknown kind "+exp.getKind());
+    }
+
+    if (exp.getInner() != null) {
+      CompiledStep first = step;
+      CompiledStep inner = compileNode(exp.getInner(), false);
+      step = (context, focus) -> inner.execute(context, first.execute(context, focus));
+    }
+
+    if (exp.isProximal() && exp.getOperation() != null) {
+      step = compileOperations(exp, step);
+    }
+    return step;
+  }
+
+  private CompiledStep compileName(ExpressionNode exp, boolean atEntry) {
+    String name = exp.getName();
+    if (atEntry && name.equals("$this")) {
+      return (context, focus) -> {
+        List<Base> work = new ArrayList<Base>();
+        work.add(context.getThisItem());
+        return work;
+      };
+    } else if (atEntry && name.equals("$total")) {
+      return (context, focus) -> new ArrayList<Base>(context.getTotal());
+    } else if (!atEntry) {
+      // the common case: navigating to the children of each item
+      return (context, focus) -> {
+        List<Base> work = new ArrayList<Base>();
+        for (Base item : focus) {
+          getChildrenByName(item, name, work);
+        }
+        return work;
+      };
     } else {
-      return "";
+      // see execute(ExecutionContext, Base, ExpressionNode, boolean)
+      boolean isTypeName = Character.isUpperCase(name.charAt(0));
+      Map<String, Boolean> typeMatches = new ConcurrentHashMap<>();
+      return (context, focus) -> {
+        List<Base> work = new ArrayList<Base>();
+        boolean useHost = context.appInfo != null && hostServices != null;
+        for (Base item : focus) {
+          if (useHost) {
+            Base temp = hostServices.resolveConstant(context.appInfo, name, true);
+            if (temp != null) {
+              work.add(temp);
+              continue;
+            }
+          }
+          int count = work.size();
+          if (isTypeName) {
+            Boolean matches = typeMatches.get(item.fhirType());
+            if (matches == null) {
+              matches = isTypeOrAncestor(item.fhirType(), name);
+              typeMatches.put(item.fhirType(), matches);
+            }
+            if (matches) {
+              work.add(item);
+            }
+          } else {
+            getChildrenByName(item, name, work);
+          }
+          if (useHost && work.size() == count) {
+            Base temp = hostServices.resolveConstant(context.appInfo, name, false);
+            if (temp != null) {
+              work.add(temp);
+            }
+          }
+        }
+        return work;
+      };
     }
   }
 
+  private boolean isTypeOrAncestor(String type, String name) {
+    StructureDefinition sd = worker.fetchTypeDefinition(type);
+    if (sd == null) {
+      // logical model
+      return name.equals(type);
+    }
+    while (sd != null) {
+      if (sd.getType().equals(name)) {
+        return true;
+      }
+      sd = worker.fetchResource(StructureDefinition.class, sd.getBaseDefinition());
+    }
+    return false;
+  }
+
+  private CompiledStep compileFunction(ExpressionNode exp) {
+    if (exp.getParameters().size() == 1) {
+      CompiledStep param = compileNode(exp.getParameters().get(0), true);
+      switch (exp.getFunction()) {
+      case Where: return (context, focus) -> {
+        List<Base> result = new ArrayList<Base>();
+        List<Base> pc = new ArrayList<Base>();
+        for (Base item : focus) {
+          pc.clear();
+          pc.add(item);
+          if (asBool(param.execute(changeThis(context, item), pc), exp) == Equality.True) {
+            result.add(item);
+          }
+        }
+        return result;
+      };
+      case Select: return (context, focus) -> {
+        List<Base> result = new ArrayList<Base>();
+        List<Base> pc = new ArrayList<Base>();
+        for (Base item : focus) {
+          pc.clear();
+          pc.add(item);
+          result.addAll(param.execute(changeThis(context, item), pc));
+        }
+        return result;
+      };
+      case Exists: return (context, focus) -> {
+        boolean empty = true;
+        List<Base> pc = new ArrayList<Base>();
+        for (Base item : focus) {
+          pc.clear();
+          pc.add(item);
+          if (asBool(param.execute(changeThis(context, item), pc), exp) == Equality.True) {
+            empty = false;
+          }
+        }
+        return makeBoolean(!empty);
+      };
+      case All: return (context, focus) -> {
+        boolean all = true;
+        List<Base> pc = new ArrayList<Base>();
+        for (Base item : focus) {
+          pc.clear();
+          pc.add(item);
+          if (asBool(param.execute(changeThis(context, item), pc), exp) != Equality.True) {
+            all = false;
+            break;
+          }
+        }
+        return makeBoolean(all);
+      };
+      default:
+        break;
+      }
+    }
+    return (context, focus) -> evaluateFunction(context, focus, exp);
+  }
+
+  private CompiledStep compileOperations(ExpressionNode exp, CompiledStep first) {
+    List<Operation> operations = new ArrayList<>();
+    List<ExpressionNode> holders = new ArrayList<>();
+    List<CompiledStep> operands = new ArrayList<>();
+    boolean constant = first instanceof ConstantStep;
+    ExpressionNode next = exp.getOpNext();
+    ExpressionNode last = exp;
+    while (next != null) {
+      operations.add(last.getOperation());
+      holders.add(last);
+      CompiledStep operand;
+      if (last.getOperation() == Operation.Is || last.getOperation() == Operation.As) {
+        operand = constantStep(new StringType(next.getInner() != null ? next.getName()+"."+next.getInner().getName() : next.getName()));
+      } else {
+        operand = compileNode(next, true);
+      }
+      operands.add(operand);
+      constant = constant && operand instanceof ConstantStep && last.getOperation() != Operation.MemberOf;
+      last = next;
+      next = next.getOpNext();
+    }
+    CompiledStep step = (context, focus) -> {
+      List<Base> work = first.execute(context, focus);
+      for (int i = 0; i < operations.size(); i++) {
+        List<Base> work2 = preOperate(work, operations.get(i), exp);
+        if (work2 != null) {
+          work = work2;
+        } else {
+          work = operate(context, work, operations.get(i), operands.get(i).execute(context, focus), holders.get(i));
+        }
+      }
+      return work;
+    };
+    if (constant) {
+      // all literals, so the outcome is always the same. If the operation fails, it's left to fail when it's evaluated
+      try {
+        return new ConstantStep(step.execute(null, null));
+      } catch (Exception e) {
+        return step;
+      }
+    }
+    return step;
+  }
+
   private class ExecutionContext {
     private Object appInfo;
     private Base focusResource;
@@ -5403,17 +5966,12 @@ public class FHIRPathEngine {
 
 
   public boolean hasLog() {
-    return log != null && log.length() > 0;
+    return state.get().hasLog();
   }
 
 
   public String takeLog() {
-    if (!hasLog()) {
-      return "";
-    }
-    String s = log.toString();
-    log = new StringBuilder();
-    return s;
+    return state.get().takeLog();
   }
 
 
@@ -2,8 +2,8 @@ package org.hl7.fhir.r5.utils;
 
 import java.io.IOException;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.hl7.fhir.exceptions.FHIRException;
 import org.hl7.fhir.r5.context.IWorkerContext;
@@ -32,7 +32,7 @@ public class XVerExtensionManager {
 
   public static final String XVER_EXT_MARKER = "XVER_EXT_MARKER";
 
-  private Map<String, JsonObject> lists = new HashMap<>();
+  private Map<String, JsonObject> lists = new ConcurrentHashMap<>();
   private IWorkerContext context;
 
   public XVerExtensionManager(IWorkerContext context) {
@@ -0,0 +1,73 @@
+package org.hl7.fhir.r5.test;
+
+import java.util.Map;
+
+import org.hl7.fhir.r5.context.BoundedCache;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class BoundedCacheTests {
+
+  @Test
+  public void testLeastRecentlyUsedAreEvicted() {
+    BoundedCache<String, String> cache = new BoundedCache<>(2, BoundedCache.NO_TTL);
+    cache.put("p", "pinned", true);
+    cache.put("a", "A", false);
+    cache.put("b", "B", false);
+    Assertions.assertEquals("A", cache.get("a")); // so b is the least recently used
+    cache.put("c", "C", false);
+    Assertions.assertNull(cache.get("b"));
+    Assertions.assertEquals("A", cache.get("a"));
+    Assertions.assertEquals("C", cache.get("c"));
+    Assertions.assertEquals("pinned", cache.get("p"));
+    Assertions.assertEquals(3, cache.size());
+    Assertions.assertEquals(1, cache.getEvictions());
+    Assertions.assertEquals(4, cache.getHits());
+    Assertions.assertEquals(1, cache.getMisses());
+    Assertions.assertEquals(0.8, cache.getHitRate(), 0.0001);
+  }
+
+  @Test
+  public void testPinnedEntriesAreKept() {
+    BoundedCache<String, String> cache = new BoundedCache<>(1, BoundedCache.NO_TTL);
+    for (int i = 0; i < 10; i++) {
+      cache.put("p"+i, "pinned", true);
+      cache.put("t"+i, "transient", false);
+    }
+    Assertions.assertEquals(11, cache.size());
+    Assertions.assertEquals(10, cache.pinnedSize());
+    Assertions.assertEquals(9, cache.getEvictions());
+    cache.put("p0", "now transient", false);
+    Assertions.assertEquals(9, cache.pinnedSize());
+    Assertions.assertNull(cache.get("t9"));
+  }
+
+  @Test
+  public void testTransientEntriesExpire() throws Exception {
+    BoundedCache<String, String> cache = new BoundedCache<>(10, 20);
+    cache.put("p", "pinned", true);
+    cache.put("t", "transient", false);
+    Assertions.assertEquals("transient", cache.get("t"));
+    Thread.sleep(50);
+    Assertions.assertNull(cache.get("t"));
+    Assertions.assertEquals("pinned", cache.get("p"));
+    Assertions.assertEquals(1, cache.getEvictions());
+  }
+
+  @Test
+  public void testMapView() {
+    BoundedCache<String, String> cache = new BoundedCache<>(2, BoundedCache.NO_TTL);
+    Map<String, String> map = cache.asMap();
+    cache.put("p", "pinned", true);
+    Assertions.assertNull(map.put("a", "A"));
+    Assertions.assertEquals("A", map.put("a", "A2"));
+    map.put("b", "B");
+    map.put("c", "C");
+    Assertions.assertEquals(3, map.size());
+    Assertions.assertFalse(map.containsKey("a"));
+    Assertions.assertEquals("pinned", map.get("p"));
+    Assertions.assertEquals(3, map.entrySet().size());
+    Assertions.assertEquals("B", map.remove("b"));
+    Assertions.assertEquals(2, cache.size());
+  }
+}
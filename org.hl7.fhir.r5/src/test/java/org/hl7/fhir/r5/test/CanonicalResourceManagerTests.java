@@ -1,5 +1,9 @@
 package org.hl7.fhir.r5.test;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
 import org.hl7.fhir.r5.context.CanonicalResourceManager;
 import org.hl7.fhir.r5.context.CanonicalResourceManager.CanonicalResourceProxy;
 import org.hl7.fhir.r5.context.IWorkerContext.PackageVersion;
@@ -809,4 +813,42 @@ public class CanonicalResourceManagerTests {
   }
 
 
+  @Test
+  public void testConcurrentReadsDuringRegistration() throws InterruptedException {
+    CanonicalResourceManager<ValueSet> mrm = new CanonicalResourceManager<>(true);
+    ValueSet vs = new ValueSet();
+    vs.setId("0");
+    vs.setUrl("http://url/ValueSet/0");
+    mrm.register(new DeferredLoadTestResource(vs), null);
+
+    List<Throwable> problems = new CopyOnWriteArrayList<>();
+    List<Thread> readers = new ArrayList<>();
+    for (int t = 0; t < 4; t++) {
+      Thread reader = new Thread(() -> {
+        try {
+          for (int i = 0; i < 2000; i++) {
+            Assertions.assertNotNull(mrm.get("http://url/ValueSet/0"));
+            mrm.has("http://url/ValueSet/"+i);
+            mrm.getList();
+          }
+        } catch (Throwable e) {
+          problems.add(e);
+        }
+      });
+      readers.add(reader);
+      reader.start();
+    }
+    for (int i = 1; i < 500; i++) {
+      ValueSet v = new ValueSet();
+      v.setId(Integer.toString(i));
+      v.setUrl("http://url/ValueSet/"+i);
+      mrm.register(new DeferredLoadTestResource(v), null);
+    }
+    for (Thread reader : readers) {
+      reader.join();
+    }
+    Assertions.assertTrue(problems.isEmpty(), problems.toString());
+    Assertions.assertEquals(500, mrm.size());
+  }
+
 }
\ No newline at end of file
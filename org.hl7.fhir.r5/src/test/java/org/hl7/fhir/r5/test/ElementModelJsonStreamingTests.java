@@ -0,0 +1,106 @@
+package org.hl7.fhir.r5.test;
+
+import static org.hl7.fhir.r5.test.ElementModelTestDefinitions.addElement;
+import static org.hl7.fhir.r5.test.ElementModelTestDefinitions.dump;
+import static org.hl7.fhir.r5.test.ElementModelTestDefinitions.makeType;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hl7.fhir.r5.context.SimpleWorkerContext;
+import org.hl7.fhir.r5.elementmodel.Element;
+import org.hl7.fhir.r5.elementmodel.JsonParser;
+import org.hl7.fhir.r5.elementmodel.ParserBase.ValidationPolicy;
+import org.hl7.fhir.r5.model.StructureDefinition;
+import org.hl7.fhir.r5.model.StructureDefinition.StructureDefinitionKind;
+import org.hl7.fhir.utilities.validation.ValidationMessage;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+public class ElementModelJsonStreamingTests {
+
+  private static SimpleWorkerContext context;
+
+  @BeforeAll
+  public static void setUp() throws Exception {
+    context = new SimpleWorkerContext();
+    for (String t : new String[] {"string", "boolean", "integer"}) {
+      StructureDefinition sd = makeType(t, StructureDefinitionKind.PRIMITIVETYPE);
+      addElement(sd, t+".id", "0", "1", "string");
+      context.cacheResource(sd);
+    }
+    StructureDefinition sd = makeType("Test", StructureDefinitionKind.RESOURCE);
+    addElement(sd, "Test.id", "0", "1", "string");
+    addElement(sd, "Test.active", "0", "1", "boolean");
+    addElement(sd, "Test.given", "0", "*", "string");
+    addElement(sd, "Test.value[x]", "0", "1", "string", "integer");
+    addElement(sd, "Test.part", "0", "*", "BackboneElement");
+    addElement(sd, "Test.part.name", "1", "1", "string");
+    addElement(sd, "Test.count", "0", "1", "integer");
+    context.cacheResource(sd);
+  }
+
+  private String parse(String json, boolean streaming) throws Exception {
+    JsonParser parser = new JsonParser(context);
+    parser.setStreaming(streaming);
+    List<ValidationMessage> errors = new ArrayList<>();
+    parser.setupValidation(ValidationPolicy.EVERYTHING, errors);
+    Element e = parser.parse(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+    StringBuilder b = new StringBuilder();
+    if (e != null) {
+      dump(b, e, "");
+    }
+    for (ValidationMessage vm : errors) {
+      b.append(vm.getLevel()+": "+vm.getLocation()+": "+vm.getMessage()+"\n");
+    }
+    return b.toString();
+  }
+
+  private void check(String json) throws Exception {
+    Assertions.assertEquals(parse(json, false), parse(json, true));
+  }
+
+  @Test
+  public void testSameAsTreeParser() throws Exception {
+    check("{\"resourceType\" : \"Test\", \"id\" : \"t1\", \"active\" : true, \"given\" : [\"a\", \"b\"], \"valueInteger\" : 1, \"part\" : [{\"name\" : \"p1\"}, {\"name\" : \"p2\"}], \"count\" : 10}");
+    // properties out of order
+    check("{\"resourceType\" : \"Test\", \"count\" : 10, \"part\" : [{\"name\" : \"p1\"}], \"given\" : [\"a\"], \"id\" : \"t1\"}");
+    // primitive extras, either side, with nulls
+    check("{\"resourceType\" : \"Test\", \"given\" : [\"a\", null, \"c\"], \"_given\" : [null, {\"id\" : \"g2\"}]}");
+    check("{\"resourceType\" : \"Test\", \"_given\" : [null, {\"id\" : \"g2\"}, null, {\"id\" : \"g4\"}], \"given\" : [\"a\", null, \"c\"]}");
+    check("{\"resourceType\" : \"Test\", \"_active\" : {\"id\" : \"a1\"}}");
+    // resourceType not first
+    check("{\"id\" : \"t1\", \"resourceType\" : \"Test\", \"active\" : true}");
+  }
+
+  @Test
+  public void testSameErrors() throws Exception {
+    check("{\"resourceType\" : \"Test\", \"unknown\" : 1, \"part\" : [], \"_part\" : {}}");
+    check("{\"resourceType\" : \"Test\", \"active\" : \"true\", \"count\" : \"10\", \"given\" : \"a\"}");
+    check("{\"resourceType\" : \"Test\", \"part\" : {\"name\" : \"p1\"}, \"active\" : [true]}");
+    check("{\"resourceType\" : \"Test\", \"part\" : [{}, \"x\"]}");
+    check("{\"resourceType\" : \"Test\", \"_active\" : \"a\"}");
+    check("{\"resourceType\" : \"Unknown\"}");
+    check("{\"active\" : true}");
+    // syntax errors: the same error, but the location is reported differently
+    String s = parse("{\"resourceType\" : \"Test\", \"active\" : true, \"active\" : false}", true);
+    Assertions.assertTrue(s.startsWith("FATAL: (document): Error parsing JSON: Error parsing JSON source: Duplicated property name: active at Line 1"), s);
+    s = parse("{\"resourceType\" : \"Test\", \"active\" : true", true);
+    Assertions.assertTrue(s.startsWith("FATAL: (document): Error parsing JSON: "), s);
+  }
+
+  @Test
+  public void testLocations() throws Exception {
+    JsonParser parser = new JsonParser(context);
+    parser.setStreaming(true);
+    Element e = parser.parse(new ByteArrayInputStream("{\n  \"resourceType\" : \"Test\",\n  \"active\" : true,\n  \"part\" : [{\n    \"name\" : \"p1\"\n  }]\n}".getBytes(StandardCharsets.UTF_8)));
+    Assertions.assertEquals(1, e.line());
+    Assertions.assertEquals(3, e.getNamedChild("active").line());
+    Assertions.assertEquals(14, e.getNamedChild("active").col());
+    Assertions.assertEquals(4, e.getNamedChild("part").line());
+    Assertions.assertEquals(5, e.getNamedChild("part").getNamedChild("name").line());
+  }
+}
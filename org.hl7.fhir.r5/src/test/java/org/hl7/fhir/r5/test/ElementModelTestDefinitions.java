@@ -0,0 +1,42 @@
+package org.hl7.fhir.r5.test;
+
+import org.hl7.fhir.r5.elementmodel.Element;
+import org.hl7.fhir.r5.model.ElementDefinition;
+import org.hl7.fhir.r5.model.StructureDefinition;
+import org.hl7.fhir.r5.model.StructureDefinition.StructureDefinitionKind;
+import org.hl7.fhir.r5.model.StructureDefinition.TypeDerivationRule;
+
+/**
+ * Small hand made definitions for the element model parser tests, so they don't need the core package, 
+ * and a dump of the parsed elements to compare the parsers with
+ */
+public class ElementModelTestDefinitions {
+
+  public static StructureDefinition makeType(String name, StructureDefinitionKind kind) {
+    StructureDefinition sd = new StructureDefinition();
+    sd.setUrl("http://hl7.org/fhir/StructureDefinition/"+name);
+    sd.setName(name);
+    sd.setType(name);
+    sd.setKind(kind);
+    sd.setDerivation(TypeDerivationRule.SPECIALIZATION);
+    sd.getSnapshot().addElement().setPath(name).setMin(0).setMax("*");
+    return sd;
+  }
+
+  public static ElementDefinition addElement(StructureDefinition sd, String path, String min, String max, String... types) {
+    ElementDefinition ed = sd.getSnapshot().addElement().setPath(path).setMin(Integer.parseInt(min)).setMax(max);
+    for (String t : types) {
+      ed.addType().setCode(t);
+    }
+    return ed;
+  }
+
+  public static void dump(StringBuilder b, Element e, String indent) {
+    b.append(indent+e.getName()+":"+e.getType()+(e.hasValue() ? " = "+e.getValue() : "")+" ("+e.getIndex()+")"+(e.hasComments() ? " "+e.getComments() : "")+"\n");
+    if (e.hasChildren()) {
+      for (Element c : e.getChildren()) {
+        dump(b, c, indent+"  ");
+      }
+    }
+  }
+}
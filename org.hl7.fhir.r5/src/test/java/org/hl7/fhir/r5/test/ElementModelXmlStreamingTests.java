@@ -0,0 +1,113 @@
+package org.hl7.fhir.r5.test;
+
+import static org.hl7.fhir.r5.test.ElementModelTestDefinitions.addElement;
+import static org.hl7.fhir.r5.test.ElementModelTestDefinitions.dump;
+import static org.hl7.fhir.r5.test.ElementModelTestDefinitions.makeType;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hl7.fhir.r5.context.SimpleWorkerContext;
+import org.hl7.fhir.r5.elementmodel.Element;
+import org.hl7.fhir.r5.elementmodel.ParserBase.ValidationPolicy;
+import org.hl7.fhir.r5.elementmodel.XmlParser;
+import org.hl7.fhir.r5.model.ElementDefinition.PropertyRepresentation;
+import org.hl7.fhir.r5.model.StructureDefinition;
+import org.hl7.fhir.r5.model.StructureDefinition.StructureDefinitionKind;
+import org.hl7.fhir.utilities.validation.ValidationMessage;
+import org.hl7.fhir.utilities.xml.XMLUtil;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+public class ElementModelXmlStreamingTests {
+
+  private static final String NS = "xmlns=\"http://hl7.org/fhir\"";
+
+  private static SimpleWorkerContext context;
+
+  @BeforeAll
+  public static void setUp() throws Exception {
+    context = new SimpleWorkerContext();
+    for (String t : new String[] {"string", "boolean", "integer"}) {
+      StructureDefinition sd = makeType(t, StructureDefinitionKind.PRIMITIVETYPE);
+      addElement(sd, t+".id", "0", "1", "string").addRepresentation(PropertyRepresentation.XMLATTR);
+      addElement(sd, t+".value", "0", "1", "http://hl7.org/fhirpath/System.String").addRepresentation(PropertyRepresentation.XMLATTR);
+      context.cacheResource(sd);
+    }
+    StructureDefinition sd = makeType("Test", StructureDefinitionKind.RESOURCE);
+    addElement(sd, "Test.id", "0", "1", "string");
+    addElement(sd, "Test.div", "0", "1", "xhtml");
+    addElement(sd, "Test.contained", "0", "*", "Resource");
+    addElement(sd, "Test.active", "0", "1", "boolean");
+    addElement(sd, "Test.given", "0", "*", "string");
+    addElement(sd, "Test.value[x]", "0", "1", "string", "integer");
+    addElement(sd, "Test.part", "0", "*", "BackboneElement");
+    addElement(sd, "Test.part.code", "0", "1", "string").addRepresentation(PropertyRepresentation.XMLATTR);
+    addElement(sd, "Test.part.alpha", "0", "1", "string").addRepresentation(PropertyRepresentation.XMLATTR);
+    addElement(sd, "Test.part.name", "0", "1", "string");
+    addElement(sd, "Test.count", "0", "1", "integer");
+    context.cacheResource(sd);
+  }
+
+  /**
+   * the DOM parser doesn't have locations unless it builds the DOM itself, so they're left out
+   */
+  private String parse(String xml, boolean dom) throws Exception {
+    XmlParser parser = new XmlParser(context);
+    List<ValidationMessage> errors = new ArrayList<>();
+    parser.setupValidation(ValidationPolicy.EVERYTHING, errors);
+    byte[] source = xml.getBytes(StandardCharsets.UTF_8);
+    Element e = dom ? parser.parse(XMLUtil.parseToDom(source, true)) : parser.parse(new ByteArrayInputStream(source));
+    StringBuilder b = new StringBuilder();
+    if (e != null) {
+      dump(b, e, "");
+    }
+    for (ValidationMessage vm : errors) {
+      b.append(vm.getLevel()+": "+vm.getLocation()+": "+vm.getMessage()+"\n");
+    }
+    return b.toString();
+  }
+
+  private void check(String xml) throws Exception {
+    Assertions.assertEquals(parse(xml, true), parse(xml, false));
+  }
+
+  @Test
+  public void testSameAsDomParser() throws Exception {
+    check("<Test "+NS+"><id value=\"t1\"/><active value=\"true\"/><given value=\"a\"/><given value=\"b\"/><valueInteger value=\"1\"/>"+
+        "<part code=\"c\" alpha=\"a\"><name value=\"p1\"/></part><count value=\"10\"/></Test>");
+    // comments: in front of the resource and elements, and after the last element
+    check("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<!-- r1 --><Test "+NS+">\n  <!-- a1 -->\n  <!-- a2 -->\n  <active value=\"true\"/>\n  <part>\n    <name value=\"p1\"/>\n    <!-- p1 -->\n  </part>\n  <!-- end -->\n</Test>");
+    // narrative and contained resources
+    check("<Test "+NS+"><div xmlns=\"http://www.w3.org/1999/xhtml\"><p>Some <b>bold</b> &amp; <!-- c --> text</p></div>"+
+        "<contained><!-- c1 --><Test><id value=\"c1\"/><active value=\"false\"/></Test></contained><active value=\"true\"/></Test>");
+  }
+
+  @Test
+  public void testSameErrors() throws Exception {
+    check("<Test "+NS+"><unknown value=\"1\"/><active/><given value=\"a\" other=\"x\"/></Test>");
+    check("<Test "+NS+">text<active value=\"true\"/></Test>");
+    check("<Test "+NS+"><part><name value=\"p1\" xmlns=\"http://example.org\"/></part><count value=\"1\"><![CDATA[1]]></count></Test>");
+    check("<?xml version=\"1.0\" encoding=\"UTF-8\"?><?pi data?><Test "+NS+"><active value=\"true\"/></Test>");
+    check("<Unknown "+NS+"><active value=\"true\"/></Unknown>");
+    // syntax errors are reported on their own
+    String s = parse("<Test "+NS+"><active value=\"true\"></Test>", false);
+    Assertions.assertTrue(s.startsWith("FATAL: (syntax): "), s);
+    Assertions.assertEquals(1, s.split("\n").length, s);
+    s = parse("<!DOCTYPE Test [<!ENTITY x \"y\">]><Test "+NS+"><active value=\"&x;\"/></Test>", false);
+    Assertions.assertTrue(s.startsWith("FATAL: (syntax): "), s);
+  }
+
+  @Test
+  public void testLocations() throws Exception {
+    XmlParser parser = new XmlParser(context);
+    Element e = parser.parse(new ByteArrayInputStream(("<Test "+NS+">\n  <active value=\"true\"/>\n  <part>\n    <name value=\"p1\"/>\n  </part>\n</Test>").getBytes(StandardCharsets.UTF_8)));
+    Assertions.assertEquals(1, e.line());
+    Assertions.assertEquals(2, e.getNamedChild("active").line());
+    Assertions.assertEquals(3, e.getNamedChild("part").line());
+    Assertions.assertEquals(4, e.getNamedChild("part").getNamedChild("name").line());
+  }
+}
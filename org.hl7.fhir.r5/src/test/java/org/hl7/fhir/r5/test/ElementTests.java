@@ -0,0 +1,104 @@
+package org.hl7.fhir.r5.test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hl7.fhir.r5.elementmodel.Element;
+import org.hl7.fhir.r5.elementmodel.Property;
+import org.hl7.fhir.r5.model.ElementDefinition;
+import org.hl7.fhir.r5.model.StructureDefinition;
+import org.hl7.fhir.r5.model.StructureDefinition.StructureDefinitionSnapshotComponent;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class ElementTests {
+
+  private StructureDefinition sd = new StructureDefinition();
+
+  private Property property(String path, String max, String... types) {
+    ElementDefinition ed = new ElementDefinition().setPath(path).setMax(max);
+    for (String t : types) {
+      ed.addType().setCode(t);
+    }
+    return new Property(null, ed, sd);
+  }
+
+  private Element makeElement(int givenCount) {
+    Element e = new Element("Test", property("Test", "1"));
+    Property given = property("Test.given", "*", "string");
+    for (int i = 0; i < givenCount; i++) {
+      e.getChildren().add(new Element("given", given, "string", "g"+i));
+    }
+    e.getChildren().add(new Element("valueString", property("Test.value[x]", "1", "string", "integer"), "string", "v"));
+    e.getChildren().add(new Element("family", property("Test.family", "1", "string"), "string", "f"));
+    return e;
+  }
+
+  @Test
+  public void testNamedChildLookups() {
+    // the small element is scanned, the large one is indexed: the answers must be the same
+    for (int count : new int[] {1, 20}) {
+      Element e = makeElement(count);
+      Assertions.assertEquals(count, e.getChildrenByName("given").size());
+      Assertions.assertEquals(count, e.getChildren("given").size());
+      Assertions.assertEquals("g0", e.getChildValue("given"));
+      Assertions.assertEquals("g"+(count-1), e.getChildrenByName("given").get(count-1).getValue());
+      List<Element> list = new ArrayList<>();
+      e.getNamedChildren("given", list);
+      Assertions.assertEquals(count, list.size());
+      Assertions.assertTrue(e.hasChildren("family"));
+      Assertions.assertFalse(e.hasChildren("value"));
+      Assertions.assertEquals("f", e.getNamedChildValue("family"));
+      Assertions.assertEquals("v", e.getNamedChildValue("value"));
+      Assertions.assertEquals("v", e.getNamedChildValue("valueString"));
+      Assertions.assertNull(e.getNamedChild("other"));
+      Assertions.assertEquals(1, e.getProperty("value".hashCode(), "value", false).length);
+      Assertions.assertEquals(count, e.getProperty("given".hashCode(), "given", false).length);
+      if (count > 1) {
+        Assertions.assertThrows(Error.class, () -> e.getNamedChild("given"));
+      }
+    }
+  }
+
+  @Test
+  public void testPropertiesAreShared() {
+    StructureDefinition sd = new StructureDefinition();
+    ElementDefinition root = sd.getSnapshot().addElement().setPath("Shared");
+    ElementDefinition a = sd.getSnapshot().addElement().setPath("Shared.a");
+    a.addType().setCode("string");
+    Property p = Property.forDefinition(null, root, sd);
+    Assertions.assertSame(p, Property.forDefinition(null, root, sd));
+    Property pa = p.getChild("Shared", "a");
+    Assertions.assertNotNull(pa);
+    Assertions.assertSame(pa, p.getChild("Shared", "a"));
+    Assertions.assertSame(pa, Property.forDefinition(null, a, sd));
+
+    // a new child in the snapshot is picked up
+    ElementDefinition b = sd.getSnapshot().addElement().setPath("Shared.b");
+    b.addType().setCode("string");
+    Assertions.assertSame(pa, p.getChild("Shared", "a"));
+    Assertions.assertNotNull(p.getChild("Shared", "b"));
+
+    // a new snapshot gets new properties
+    sd.setSnapshot(new StructureDefinitionSnapshotComponent());
+    ElementDefinition root2 = sd.getSnapshot().addElement().setPath("Shared");
+    Property p2 = Property.forDefinition(null, root2, sd);
+    Assertions.assertNotSame(p, p2);
+    Assertions.assertSame(p2, Property.forDefinition(null, root2, sd));
+  }
+
+  @Test
+  public void testLookupsFollowChanges() {
+    Element e = makeElement(20);
+    Assertions.assertNull(e.getNamedChild("other"));
+    e.getChildren().add(new Element("other", property("Test.other", "1", "string"), "string", "o"));
+    Assertions.assertEquals("o", e.getNamedChildValue("other"));
+    e.getChildren().set(e.getChildren().size()-1, new Element("other", property("Test.other", "1", "string"), "string", "p"));
+    Assertions.assertEquals("p", e.getNamedChildValue("other"));
+    e.getChildren().remove(e.getChildren().size()-1);
+    Assertions.assertNull(e.getNamedChild("other"));
+    e.getChildren().removeIf(c -> c.getName().equals("given"));
+    e.getChildren().add(new Element("given", property("Test.given", "*", "string"), "string", "x"));
+    Assertions.assertEquals("x", e.getNamedChildValue("given"));
+  }
+}
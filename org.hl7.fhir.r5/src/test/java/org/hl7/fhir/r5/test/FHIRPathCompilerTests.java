@@ -0,0 +1,158 @@
+package org.hl7.fhir.r5.test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.hl7.fhir.r5.context.SimpleWorkerContext;
+import org.hl7.fhir.r5.model.Base;
+import org.hl7.fhir.r5.model.BooleanType;
+import org.hl7.fhir.r5.model.Enumerations.AdministrativeGender;
+import org.hl7.fhir.r5.model.ExpressionNode;
+import org.hl7.fhir.r5.model.HumanName.NameUse;
+import org.hl7.fhir.r5.model.Patient;
+import org.hl7.fhir.r5.utils.FHIRPathEngine;
+import org.hl7.fhir.r5.utils.FHIRPathEngine.CompiledExpression;
+import org.hl7.fhir.r5.utils.FHIRPathEngine.EvaluationState;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+public class FHIRPathCompilerTests {
+
+  private static FHIRPathEngine fp;
+  private static Patient patient;
+
+  @BeforeAll
+  public static void setUp() throws Exception {
+    fp = new FHIRPathEngine(new SimpleWorkerContext());
+    patient = new Patient();
+    patient.setId("p1");
+    patient.setActive(true);
+    patient.setGender(AdministrativeGender.FEMALE);
+    patient.addName().setUse(NameUse.OFFICIAL).setFamily("Smith").addGiven("Jane").addGiven("Ann");
+    patient.addName().setUse(NameUse.NICKNAME).addGiven("Janey");
+    patient.addIdentifier().setSystem("http://example.org/ids").setValue("123");
+  }
+
+  private String interpret(String expr) {
+    try {
+      return fp.convertToString(fp.evaluate(patient, fp.parse(expr)));
+    } catch (Exception e) {
+      return "error: "+e.getMessage();
+    }
+  }
+
+  private String compiled(String expr) {
+    try {
+      return fp.convertToString(fp.compile(expr).evaluate(patient));
+    } catch (Exception e) {
+      return "error: "+e.getMessage();
+    }
+  }
+
+  @Test
+  public void testSameAsInterpreter() {
+    String[] expressions = {
+        "Patient.name.given", "name.where(use = 'official').family", "name.where(use = 'usual').family", 
+        "name.exists(given.count() > 1)", "name.exists()", "telecom.exists()", "name.all(given.exists())", "name.all(family.exists())", 
+        "name.select(given)", "name.given.first()", "name.given[1]", "telecom.empty()", "name.family.not()", "active.not()", 
+        "gender = 'female' and active", "active implies gender.exists()", "gender = 'male' or name.count() = 2",
+        "identifier.where(system = 'http://example.org/ids').value", "%resource.id", "id", "$this.id", "Observation.id",
+        "1 + 2 * 3", "(1 + 2) * 3", "-5", "'a' & 'b'", "(1 | 2 | 3).count()", "1 / 0", "1 'mg' + 2 'mg'", "2 < 3", "{}.empty()",
+        "name.given.count() > 2", "name.given is string", "name.given.where($this.startsWith('J')).count()", "iif(active, 'yes', 'no')",
+        "name.given.first() as string", "%unknown.exists()", "'abc'.substring(1) = 'bc'", "1 div 0 + 1"
+    };
+    for (String expr : expressions) {
+      Assertions.assertEquals(interpret(expr), compiled(expr), expr);
+    }
+    Assertions.assertEquals("Jane,Ann,Janey", compiled("Patient.name.given"));
+    Assertions.assertEquals("", compiled("Observation.id"));
+    Assertions.assertEquals("7", compiled("1 + 2 * 3"));
+    Assertions.assertEquals("-5", compiled("-5"));
+    Assertions.assertEquals("true", compiled("name.exists(given.count() > 1)"));
+    Assertions.assertEquals("2", compiled("name.given.where($this.startsWith('J')).count()"));
+  }
+
+  @Test
+  public void testCompiledIsCached() throws Exception {
+    ExpressionNode node = fp.parse("name.where(use = 'official').family");
+    CompiledExpression ce = fp.compile(node);
+    int count = fp.getCompiledExpressionCount();
+    Assertions.assertSame(ce, fp.compile(node));
+    Assertions.assertEquals(count, fp.getCompiledExpressionCount());
+    Assertions.assertSame(node, ce.getExpression());
+    Assertions.assertTrue(ce.evaluateToBoolean(null, patient, patient, patient));
+    Assertions.assertEquals("Smith", ce.evaluateToString(null, patient, patient, patient));
+    Assertions.assertFalse(fp.compile("name.where(use = 'usual').exists()").evaluateToBoolean(null, patient, patient, patient));
+  }
+
+  @Test
+  public void testParseCache() throws Exception {
+    long hits = FHIRPathEngine.getParseCacheHits();
+    long misses = FHIRPathEngine.getParseCacheMisses();
+    ExpressionNode node = fp.parseCached("name.family.count() = 1");
+    Assertions.assertSame(node, fp.parseCached("name.family.count() = 1"));
+    Assertions.assertNotSame(node, fp.parse("name.family.count() = 1"));
+    Assertions.assertEquals(hits + 1, FHIRPathEngine.getParseCacheHits());
+    Assertions.assertEquals(misses + 1, FHIRPathEngine.getParseCacheMisses());
+
+    // the string based entry points use the cache too
+    Assertions.assertTrue(fp.evaluateToBoolean(patient, patient, patient, "name.family.count() = 1"));
+    Assertions.assertEquals(hits + 2, FHIRPathEngine.getParseCacheHits());
+    Assertions.assertSame(node, fp.compile("name.family.count() = 1").getExpression());
+
+    // other engines share the cache
+    FHIRPathEngine other = new FHIRPathEngine(new SimpleWorkerContext());
+    Assertions.assertSame(node, other.parseCached("name.family.count() = 1"));
+  }
+
+  @Test
+  public void testConstantsAreNotShared() throws Exception {
+    CompiledExpression ce = fp.compile("1 + 2");
+    List<Base> first = ce.evaluate(patient);
+    first.clear();
+    first.add(new BooleanType(false));
+    Assertions.assertEquals("3", fp.convertToString(ce.evaluate(patient)));
+  }
+
+  @Test
+  public void testEvaluationState() throws Exception {
+    fp.evaluate(patient, "name.given.trace('g')");
+    Assertions.assertEquals(" (g: Jane,Ann,Janey)", fp.forLog());
+
+    // a state passed in gets the log, and the thread's own is left alone
+    EvaluationState state = new EvaluationState("Patient.test");
+    fp.evaluate(state, null, patient, patient, patient, "id.trace('i')");
+    Assertions.assertEquals("i: p1", state.getLog());
+    fp.compile("active.trace('a')").evaluate(state, null, patient, patient, patient);
+    Assertions.assertEquals("a: true", state.takeLog());
+    Assertions.assertFalse(state.hasLog());
+    Assertions.assertEquals(" (g: Jane,Ann,Janey)", fp.forLog());
+
+    // and its location is used in error messages
+    String plain = Assertions.assertThrows(Exception.class, () -> fp.evaluate(patient, "name.given.single()")).getMessage();
+    String located = Assertions.assertThrows(Exception.class, () -> fp.evaluate(state, null, patient, patient, patient, "name.given.single()")).getMessage();
+    Assertions.assertFalse(plain.contains("Patient.test"), plain);
+    Assertions.assertTrue(located.contains("Patient.test"), located);
+  }
+
+  @Test
+  public void testSharedBetweenThreads() throws Exception {
+    ExecutorService pool = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<String>> results = new ArrayList<>();
+      for (int i = 0; i < 200; i++) {
+        final String expr = "name.where(use = 'official').given.trace('t"+i+"').count() = 2";
+        results.add(pool.submit(() -> fp.evaluateToBoolean(patient, patient, patient, expr)+fp.forLog()));
+      }
+      for (int i = 0; i < results.size(); i++) {
+        Assertions.assertEquals("true (t"+i+": Jane,Ann)", results.get(i).get());
+      }
+    } finally {
+      pool.shutdown();
+    }
+  }
+}
@@ -0,0 +1,117 @@
+package org.hl7.fhir.r5.test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.hl7.fhir.exceptions.FHIRFormatError;
+import org.hl7.fhir.r5.formats.IParser.OutputStyle;
+import org.hl7.fhir.r5.formats.JsonParser;
+import org.hl7.fhir.r5.model.Bundle;
+import org.hl7.fhir.r5.model.Bundle.BundleType;
+import org.hl7.fhir.r5.model.DecimalType;
+import org.hl7.fhir.r5.model.Enumerations.AdministrativeGender;
+import org.hl7.fhir.r5.model.Extension;
+import org.hl7.fhir.r5.model.HumanName;
+import org.hl7.fhir.r5.model.Narrative.NarrativeStatus;
+import org.hl7.fhir.r5.model.Observation;
+import org.hl7.fhir.r5.model.Patient;
+import org.hl7.fhir.r5.model.Quantity;
+import org.hl7.fhir.r5.model.Resource;
+import org.hl7.fhir.r5.model.StringType;
+import org.hl7.fhir.utilities.xhtml.XhtmlParser;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class JsonStreamParserTests {
+
+  private Resource parse(String json, boolean streaming) throws Exception {
+    JsonParser parser = new JsonParser();
+    parser.setStreaming(streaming);
+    return parser.parse(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+  }
+
+  private String compose(Resource resource) throws Exception {
+    return new JsonParser().setOutputStyle(OutputStyle.PRETTY).composeString(resource);
+  }
+
+  private Bundle makeBundle() throws Exception {
+    Patient pat = new Patient();
+    pat.setId("p1");
+    pat.getMeta().addProfile("http://example.org/StructureDefinition/patient");
+    pat.getText().setStatus(NarrativeStatus.GENERATED).setDiv(new XhtmlParser().parse("<div xmlns=\"http://www.w3.org/1999/xhtml\"><p>Peter <b>Chalmers</b></p></div>", "div"));
+    pat.addIdentifier().setSystem("urn:oid:1.2.36.146.595.217.0.1").setValue("12345");
+    pat.setActive(true);
+    pat.setGender(AdministrativeGender.MALE);
+    pat.getBirthDateElement().setValueAsString("1974-12-25");
+    pat.getBirthDateElement().addExtension("http://hl7.org/fhir/StructureDefinition/patient-birthTime", new StringType("14:35"));
+    HumanName name = pat.addName().setFamily("Chalmers");
+    name.addGiven("Peter");
+    name.getGiven().add(new StringType());
+    name.getGiven().get(1).setId("g2").addExtension("http://example.org/ext", new StringType("no name"));
+    name.addGiven("James");
+    pat.setDeceased(new org.hl7.fhir.r5.model.BooleanType(false));
+    pat.addExtension(new Extension("http://example.org/ext/q", new Quantity().setValueElement(new DecimalType("1.50")).setUnit("mg")));
+    Observation obs = new Observation();
+    obs.setId("o1");
+    obs.setValue(new Quantity().setValueElement(new DecimalType("10.0")).setUnit("kg"));
+    pat.addContained(obs);
+
+    Bundle bnd = new Bundle();
+    bnd.setType(BundleType.COLLECTION);
+    bnd.addEntry().setFullUrl("http://example.org/Patient/p1").setResource(pat);
+    bnd.addEntry().setFullUrl("http://example.org/Observation/o2").setResource(new Observation().setStatus(org.hl7.fhir.r5.model.Enumerations.ObservationStatus.FINAL));
+    return bnd;
+  }
+
+  @Test
+  public void testSameAsTreeParser() throws Exception {
+    String json = compose(makeBundle());
+    Resource tree = parse(json, false);
+    Resource stream = parse(json, true);
+    Assertions.assertEquals(compose(tree), compose(stream));
+    Assertions.assertEquals(json, compose(stream));
+    Bundle bnd = (Bundle) stream;
+    Patient pat = (Patient) bnd.getEntryFirstRep().getResource();
+    Assertions.assertEquals("1.50", ((Quantity) pat.getExtension().get(0).getValue()).getValueElement().asStringValue());
+    Assertions.assertEquals(3, pat.getNameFirstRep().getGiven().size());
+    Assertions.assertEquals("g2", pat.getNameFirstRep().getGiven().get(1).getId());
+    Assertions.assertTrue(pat.getContained().get(0) instanceof Observation);
+  }
+
+  @Test
+  public void testPropertyOrder() throws Exception {
+    // _given before given, and resourceType not first
+    String json = "{\"name\" : [{\"_given\" : [null, {\"id\" : \"g2\"}], \"given\" : [\"Peter\", \"James\"]}], \"resourceType\" : \"Patient\", \"unknown\" : {\"a\" : 1}}";
+    Patient pat = (Patient) parse(json, true);
+    Assertions.assertEquals("James", pat.getNameFirstRep().getGiven().get(1).getValue());
+    Assertions.assertEquals("g2", pat.getNameFirstRep().getGiven().get(1).getId());
+    json = "{\"resourceType\" : \"Patient\", \"name\" : [{\"_given\" : [null, {\"id\" : \"g2\"}], \"given\" : [\"Peter\", \"James\"]}], \"unknown\" : {\"a\" : 1}}";
+    pat = (Patient) parse(json, true);
+    Assertions.assertEquals(2, pat.getNameFirstRep().getGiven().size());
+    Assertions.assertEquals("James", pat.getNameFirstRep().getGiven().get(1).getValue());
+    Assertions.assertEquals("g2", pat.getNameFirstRep().getGiven().get(1).getId());
+  }
+
+  @Test
+  public void testErrors() throws Exception {
+    Assertions.assertThrows(FHIRFormatError.class, () -> parse("{\"resourceType\" : \"NotAResource\"}", true));
+    Assertions.assertThrows(FHIRFormatError.class, () -> parse("{\"resourceType\" : \"Patient\", \"name\" : {\"family\" : \"x\"}}", true));
+    Assertions.assertThrows(FHIRFormatError.class, () -> parse("{\"resourceType\" : \"Patient\", \"active\" : {}}", true));
+  }
+
+  @Test
+  public void testDuplicateProperties() throws Exception {
+    // the same error as the tree based parser
+    for (String json : new String[] {
+        "{\"resourceType\" : \"Patient\", \"gender\" : \"male\", \"gender\" : \"female\"}",
+        "{\"resourceType\" : \"Patient\", \"name\" : [{\"family\" : \"a\", \"family\" : \"b\"}]}",
+        "{\"gender\" : \"male\", \"resourceType\" : \"Patient\", \"gender\" : \"female\"}"}) {
+      IOException tree = Assertions.assertThrows(IOException.class, () -> parse(json, false));
+      IOException stream = Assertions.assertThrows(IOException.class, () -> parse(json, true));
+      Assertions.assertTrue(tree.getMessage().startsWith("Error parsing JSON source: Duplicated property name: "));
+      String prefix = tree.getMessage().substring(0, tree.getMessage().indexOf(" at "));
+      Assertions.assertTrue(stream.getMessage().startsWith(prefix), stream.getMessage());
+    }
+  }
+}
@@ -14,12 +14,14 @@ import org.hl7.fhir.r5.formats.XmlParser;
 import org.hl7.fhir.r5.model.Base;
 import org.hl7.fhir.r5.model.ElementDefinition;
 import org.hl7.fhir.r5.model.StructureDefinition;
+import org.hl7.fhir.r5.model.StructureDefinition.StructureDefinitionSnapshotComponent;
 import org.hl7.fhir.r5.model.StructureDefinition.TypeDerivationRule;
 import org.hl7.fhir.r5.test.utils.TestingUtilities;
 import org.hl7.fhir.r5.utils.EOperationOutcome;
 import org.hl7.fhir.utilities.CSFile;
 import org.hl7.fhir.utilities.Utilities;
 import org.hl7.fhir.utilities.validation.ValidationMessage;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
 public class ProfileUtilitiesTests {
@@ -794,6 +796,57 @@ public class ProfileUtilitiesTests {
 //  }
 //
 
+  @Test
+  public void testChildMap() {
+    StructureDefinition sd = new StructureDefinition();
+    ElementDefinition root = sd.getSnapshot().addElement().setPath("Test");
+    ElementDefinition a = sd.getSnapshot().addElement().setPath("Test.a");
+    a.setId("Test.a");
+    ElementDefinition ax = sd.getSnapshot().addElement().setPath("Test.a.x");
+    ElementDefinition ay = sd.getSnapshot().addElement().setPath("Test.a.y");
+    ElementDefinition b = sd.getSnapshot().addElement().setPath("Test.b");
+    ElementDefinition bs = sd.getSnapshot().addElement().setPath("Test.b").setSliceName("s");
+    ElementDefinition bsz = sd.getSnapshot().addElement().setPath("Test.b.z");
+    ElementDefinition c = sd.getSnapshot().addElement().setPath("Test.c").setContentReference("#Test.a");
+    ProfileUtilities pu = new ProfileUtilities(null, null, null);
+
+    List<ElementDefinition> children = pu.getChildMap(sd, root);
+    Assertions.assertEquals(4, children.size());
+    Assertions.assertSame(a, children.get(0));
+    Assertions.assertSame(bs, children.get(2));
+    Assertions.assertSame(c, children.get(3));
+    Assertions.assertEquals(children, pu.getChildMap(sd, root));
+    Assertions.assertEquals(2, pu.getChildMap(sd, a).size());
+    Assertions.assertSame(ay, pu.getChildMap(sd, a).get(1));
+    Assertions.assertTrue(pu.getChildMap(sd, b).isEmpty());
+    Assertions.assertSame(bsz, pu.getChildMap(sd, bs).get(0));
+    Assertions.assertTrue(pu.getChildMap(sd, ax).isEmpty());
+    Assertions.assertEquals(pu.getChildMap(sd, a), pu.getChildMap(sd, c));
+
+    // each caller gets its own list
+    children.add(ax);
+    Assertions.assertEquals(4, pu.getChildMap(sd, root).size());
+
+    // changes to the snapshot are picked up 
+    ElementDefinition d = sd.getSnapshot().addElement().setPath("Test.d");
+    Assertions.assertSame(d, pu.getChildMap(sd, root).get(4));
+    sd.getSnapshot().getElement().remove(d);
+    Assertions.assertEquals(4, pu.getChildMap(sd, root).size());
+
+    // changes in place have to be signalled
+    ElementDefinition b2 = new ElementDefinition().setPath("Test.b");
+    sd.getSnapshot().getElement().set(sd.getSnapshot().getElement().indexOf(b), b2);
+    ProfileUtilities.dropChildMapIndex(sd);
+    Assertions.assertSame(b2, pu.getChildMap(sd, root).get(1));
+
+    // a new snapshot gets a new index
+    sd.setSnapshot(new StructureDefinitionSnapshotComponent());
+    ElementDefinition root2 = sd.getSnapshot().addElement().setPath("Test");
+    ElementDefinition e = sd.getSnapshot().addElement().setPath("Test.e");
+    Assertions.assertEquals(1, pu.getChildMap(sd, root2).size());
+    Assertions.assertSame(e, pu.getChildMap(sd, root2).get(0));
+  }
+
   private void compareXml(StructureDefinition base, StructureDefinition focus) throws FileNotFoundException, IOException {
     base.setText(null);
     focus.setText(null);
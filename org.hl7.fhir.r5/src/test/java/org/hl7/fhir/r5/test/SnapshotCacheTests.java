@@ -0,0 +1,217 @@
+package org.hl7.fhir.r5.test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.hl7.fhir.r5.context.SimpleWorkerContext;
+import org.hl7.fhir.r5.context.SnapshotCache;
+import org.hl7.fhir.r5.conformance.ProfileUtilities;
+import org.hl7.fhir.r5.model.ElementDefinition.ConstraintSeverity;
+import org.hl7.fhir.r5.model.StructureDefinition;
+import org.hl7.fhir.r5.model.UriType;
+import org.hl7.fhir.r5.model.StructureDefinition.StructureDefinitionKind;
+import org.hl7.fhir.r5.model.StructureDefinition.TypeDerivationRule;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class SnapshotCacheTests {
+
+  private static final Function<String, StructureDefinition> NONE = url -> null;
+
+  private StructureDefinition makeBase(String definition) {
+    StructureDefinition sd = new StructureDefinition();
+    sd.setUrl("http://example.org/StructureDefinition/Base").setVersion("1.0.0").setName("Base").setType("Base").setKind(StructureDefinitionKind.RESOURCE);
+    sd.setDerivation(TypeDerivationRule.SPECIALIZATION);
+    sd.getSnapshot().addElement().setPath("Base").setDefinition(definition);
+    return sd;
+  }
+
+  private StructureDefinition makeProfile(String url, String base, String shortDesc) {
+    StructureDefinition sd = new StructureDefinition();
+    sd.setUrl(url).setVersion("1.0.0").setName("Profile").setType("Base").setKind(StructureDefinitionKind.RESOURCE);
+    sd.setDerivation(TypeDerivationRule.CONSTRAINT).setBaseDefinition(base);
+    sd.getDifferential().addElement().setPath("Base").setShort(shortDesc);
+    return sd;
+  }
+
+  private SnapshotCache makeCache() throws IOException {
+    return new SnapshotCache(Files.createTempDirectory("snapshot-cache").toFile().getAbsolutePath());
+  }
+
+  @Test
+  public void testKeys() throws IOException {
+    SnapshotCache cache = makeCache();
+    String key = cache.makeKey(makeProfile("http://example.org/p", "http://example.org/StructureDefinition/Base", "a"), makeBase("base"), NONE);
+    Assertions.assertEquals(key, cache.makeKey(makeProfile("http://example.org/p", "http://example.org/StructureDefinition/Base", "a"), makeBase("base"), NONE));
+    Assertions.assertNotEquals(key, cache.makeKey(makeProfile("http://example.org/p", "http://example.org/StructureDefinition/Base", "b"), makeBase("base"), NONE));
+    Assertions.assertNotEquals(key, cache.makeKey(makeProfile("http://example.org/p2", "http://example.org/StructureDefinition/Base", "a"), makeBase("base"), NONE));
+    Assertions.assertNotEquals(key, cache.makeKey(makeProfile("http://example.org/p", "http://example.org/StructureDefinition/Base", "a"), makeBase("changed"), NONE));
+
+    // a change anywhere in the base chain changes the key
+    StructureDefinition parent = makeProfile("http://example.org/p", "http://example.org/StructureDefinition/Base", "a");
+    cache.makeKey(parent, makeBase("base"), NONE);
+    String childKey = cache.makeKey(makeProfile("http://example.org/c", "http://example.org/p", "c"), parent, NONE);
+    StructureDefinition parent2 = makeProfile("http://example.org/p", "http://example.org/StructureDefinition/Base", "a");
+    cache.makeKey(parent2, makeBase("changed"), NONE);
+    Assertions.assertNotEquals(childKey, cache.makeKey(makeProfile("http://example.org/c", "http://example.org/p", "c"), parent2, NONE));
+  }
+
+  @Test
+  public void testReferencedProfilesAreInTheKey() throws IOException {
+    SnapshotCache cache = makeCache();
+    Map<String, StructureDefinition> profiles = new HashMap<>();
+    StructureDefinition ext = makeProfile("http://example.org/ext", "http://hl7.org/fhir/StructureDefinition/Extension", "ext");
+    profiles.put(ext.getUrl(), ext);
+
+    StructureDefinition p = makeProfile("http://example.org/p", "http://example.org/StructureDefinition/Base", "a");
+    p.getDifferential().addElement().setPath("Base.extension").addType().setCode("Extension").addProfile("http://example.org/ext");
+    String key = cache.makeKey(p, makeBase("base"), profiles::get);
+    Assertions.assertEquals(key, cache.makeKey(p.copy(), makeBase("base"), profiles::get));
+    Assertions.assertNotEquals(key, cache.makeKey(p.copy(), makeBase("base"), NONE)); // missing
+
+    // a change to the extension changes the key, even if the version doesn't change
+    StructureDefinition changed = ext.copy();
+    changed.getDifferential().getElementFirstRep().setShort("changed");
+    profiles.put(changed.getUrl(), changed);
+    Assertions.assertNotEquals(key, cache.makeKey(p.copy(), makeBase("base"), profiles::get));
+    profiles.put(ext.getUrl(), ext);
+    Assertions.assertEquals(key, cache.makeKey(p.copy(), makeBase("base"), profiles::get));
+
+    // but not the order of its differential
+    StructureDefinition longer = ext.copy();
+    longer.getDifferential().addElement().setPath("Extension.url").setFixed(new UriType("http://example.org/ext"));
+    profiles.put(longer.getUrl(), longer);
+    String sorted = cache.makeKey(p.copy(), makeBase("base"), profiles::get);
+    StructureDefinition reversed = longer.copy();
+    Collections.reverse(reversed.getDifferential().getElement());
+    profiles.put(reversed.getUrl(), reversed);
+    Assertions.assertEquals(sorted, cache.makeKey(p.copy(), makeBase("base"), profiles::get));
+
+    // and the definitions of the types
+    StructureDefinition extensionType = makeBase("extension");
+    extensionType.setUrl("http://hl7.org/fhir/StructureDefinition/Extension");
+    profiles.put(extensionType.getUrl(), extensionType);
+    Assertions.assertNotEquals(sorted, cache.makeKey(p.copy(), makeBase("base"), profiles::get));
+  }
+
+  @Test
+  public void testReferencedProfileBasesAreInTheKey() throws IOException {
+    SnapshotCache cache = makeCache();
+    Map<String, StructureDefinition> profiles = new HashMap<>();
+    StructureDefinition extBase = makeProfile("http://example.org/ext-base", "http://hl7.org/fhir/StructureDefinition/Extension", "base");
+    profiles.put(extBase.getUrl(), extBase);
+    StructureDefinition ext = makeProfile("http://example.org/ext", "http://example.org/ext-base", "ext");
+    profiles.put(ext.getUrl(), ext);
+    StructureDefinition extensionType = makeBase("extension");
+    extensionType.setUrl("http://hl7.org/fhir/StructureDefinition/Extension");
+    profiles.put(extensionType.getUrl(), extensionType);
+
+    StructureDefinition p = makeProfile("http://example.org/p", "http://example.org/StructureDefinition/Base", "a");
+    p.getDifferential().addElement().setPath("Base.extension").addType().setCode("Extension").addProfile("http://example.org/ext");
+    String key = cache.makeKey(p.copy(), makeBase("base"), profiles::get);
+    Assertions.assertEquals(key, cache.makeKey(p.copy(), makeBase("base"), profiles::get));
+
+    // the extension is the same, but the profile it's based on has changed
+    StructureDefinition extBase2 = extBase.copy();
+    extBase2.getDifferential().getElementFirstRep().setShort("changed");
+    profiles.put(extBase2.getUrl(), extBase2);
+    Assertions.assertNotEquals(key, cache.makeKey(p.copy(), makeBase("base"), profiles::get));
+
+    // as has the type under that
+    profiles.put(extBase.getUrl(), extBase);
+    Assertions.assertEquals(key, cache.makeKey(p.copy(), makeBase("base"), profiles::get));
+    StructureDefinition extensionType2 = makeBase("changed");
+    extensionType2.setUrl("http://hl7.org/fhir/StructureDefinition/Extension");
+    profiles.put(extensionType2.getUrl(), extensionType2);
+    Assertions.assertNotEquals(key, cache.makeKey(p.copy(), makeBase("base"), profiles::get));
+
+    // and the base going missing
+    profiles.put(extensionType.getUrl(), extensionType);
+    profiles.remove(extBase.getUrl());
+    Assertions.assertNotEquals(key, cache.makeKey(p.copy(), makeBase("base"), profiles::get));
+  }
+
+  @Test
+  public void testSaveAndLoad() throws IOException {
+    SnapshotCache cache = makeCache();
+    StructureDefinition p = makeProfile("http://example.org/p", "http://example.org/StructureDefinition/Base", "a");
+    String key = cache.makeKey(p, makeBase("base"), NONE);
+    Assertions.assertFalse(cache.load(key, p));
+    p.getSnapshot().addElement().setPath("Base").setShort("a").setDefinition("base");
+    cache.save(key, p);
+
+    StructureDefinition p2 = makeProfile("http://example.org/p", "http://example.org/StructureDefinition/Base", "a");
+    Assertions.assertTrue(cache.load(key, p2));
+    Assertions.assertEquals("base", p2.getSnapshot().getElementFirstRep().getDefinition());
+    Assertions.assertEquals(1, cache.getHits());
+    Assertions.assertEquals(1, cache.getMisses());
+  }
+
+  @Test
+  public void testContextUsesCache() throws Exception {
+    SnapshotCache cache = makeCache();
+    SimpleWorkerContext context = new SimpleWorkerContext();
+    context.setSnapshotCache(cache);
+    StructureDefinition base = makeBase("base");
+    context.cacheResource(base);
+
+    // as if it had been generated in an earlier run
+    StructureDefinition p = makeProfile("http://example.org/p", "http://example.org/StructureDefinition/Base", "a");
+    String key = cache.makeKey(p, context.fetchResource(StructureDefinition.class, "http://example.org/StructureDefinition/Base"), url -> context.fetchResource(StructureDefinition.class, url));
+    p.getSnapshot().addElement().setPath("Base").setShort("a").setDefinition("from the cache");
+    cache.save(key, p);
+
+    StructureDefinition p2 = makeProfile("http://example.org/p", "http://example.org/StructureDefinition/Base", "a");
+    context.generateSnapshot(p2);
+    Assertions.assertEquals("from the cache", p2.getSnapshot().getElementFirstRep().getDefinition());
+    Assertions.assertEquals(1, cache.getHits());
+
+    // a snapshot that's generated is there for the next context
+    StructureDefinition p3 = makeProfile("http://example.org/p3", "http://example.org/StructureDefinition/Base", "z");
+    context.generateSnapshot(p3);
+    Assertions.assertEquals("z", p3.getSnapshot().getElementFirstRep().getShort());
+    Assertions.assertEquals(1, cache.getMisses());
+
+    SimpleWorkerContext next = new SimpleWorkerContext();
+    SnapshotCache nextCache = new SnapshotCache(cache.getFolder());
+    next.setSnapshotCache(nextCache);
+    next.cacheResource(makeBase("base"));
+    StructureDefinition p4 = makeProfile("http://example.org/p3", "http://example.org/StructureDefinition/Base", "z");
+    next.generateSnapshot(p4);
+    Assertions.assertEquals(1, nextCache.getHits());
+    Assertions.assertEquals(p3.getSnapshot().getElementFirstRep().getDefinition(), p4.getSnapshot().getElementFirstRep().getDefinition());
+  }
+
+  @Test
+  public void testNotesAreKept() throws Exception {
+    SnapshotCache cache = makeCache();
+    SimpleWorkerContext context = new SimpleWorkerContext();
+    context.setSnapshotCache(cache);
+    StructureDefinition base = makeBase("base");
+    base.getSnapshot().getElementFirstRep().addConstraint().setKey("inv-1").setHuman("a rule").setSeverity(ConstraintSeverity.ERROR);
+    context.cacheResource(base);
+    StructureDefinition p = makeProfile("http://example.org/p", "http://example.org/StructureDefinition/Base", "a");
+    context.generateSnapshot(p);
+    Assertions.assertEquals(1, cache.getMisses());
+
+    SimpleWorkerContext next = new SimpleWorkerContext();
+    SnapshotCache nextCache = new SnapshotCache(cache.getFolder());
+    next.setSnapshotCache(nextCache);
+    StructureDefinition base2 = makeBase("base");
+    base2.getSnapshot().getElementFirstRep().addConstraint().setKey("inv-1").setHuman("a rule").setSeverity(ConstraintSeverity.ERROR);
+    next.cacheResource(base2);
+    StructureDefinition p2 = makeProfile("http://example.org/p", "http://example.org/StructureDefinition/Base", "a");
+    next.generateSnapshot(p2);
+    Assertions.assertEquals(1, nextCache.getHits());
+
+    // the differential element still points at the snapshot element it became, and the inherited rule is still marked
+    Assertions.assertSame(p2.getSnapshot().getElementFirstRep(), p2.getDifferential().getElementFirstRep().getUserData(ProfileUtilities.DERIVATION_POINTER));
+    Assertions.assertTrue(p.getSnapshot().getElementFirstRep().getConstraintFirstRep().hasUserData(ProfileUtilities.IS_DERIVED));
+    Assertions.assertTrue(p2.getSnapshot().getElementFirstRep().getConstraintFirstRep().hasUserData(ProfileUtilities.IS_DERIVED));
+    Assertions.assertFalse(p2.hasExtension());
+  }
+}
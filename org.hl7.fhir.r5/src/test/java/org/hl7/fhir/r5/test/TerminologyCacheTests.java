@@ -0,0 +1,223 @@
+package org.hl7.fhir.r5.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import org.hl7.fhir.r5.context.BoundedCache;
+import org.hl7.fhir.r5.context.IWorkerContext.ValidationResult;
+import org.hl7.fhir.r5.context.TerminologyCache;
+import org.hl7.fhir.r5.context.TerminologyCache.CacheToken;
+import org.hl7.fhir.r5.model.CodeSystem.ConceptDefinitionComponent;
+import org.hl7.fhir.r5.model.Coding;
+import org.hl7.fhir.utilities.Utilities;
+import org.hl7.fhir.utilities.validation.ValidationMessage.IssueSeverity;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class TerminologyCacheTests {
+
+  private static final String LOINC = "http://loinc.org";
+
+  @AfterEach
+  public void reset() {
+    TerminologyCache.setBinaryFormat(false);
+    TerminologyCache.setMaxTransientEntries(BoundedCache.DEFAULT_MAX_SIZE);
+  }
+
+  private String makeFolder() throws IOException {
+    return Files.createTempDirectory("tx-cache").toFile().getAbsolutePath();
+  }
+
+  private void cache(TerminologyCache cache, String code, String display) {
+    CacheToken token = cache.generateValidationToken(null, new Coding(LOINC, code, null), null);
+    cache.cacheValidation(token, new ValidationResult(null, null, new ConceptDefinitionComponent().setDisplay(display)), TerminologyCache.PERMANENT);
+  }
+
+  private String lookup(TerminologyCache cache, String code) {
+    ValidationResult vr = cache.getValidation(cache.generateValidationToken(null, new Coding(LOINC, code, null), null));
+    return vr == null ? null : vr.getDisplay();
+  }
+
+  @Test
+  public void testTextFormat() throws Exception {
+    String folder = makeFolder();
+    TerminologyCache cache = new TerminologyCache(new Object(), folder);
+    cache(cache, "1234-5", "One");
+    cache(cache, "2345-6", "Two");
+    Assertions.assertTrue(new File(Utilities.path(folder, "loinc.cache")).exists());
+
+    cache = new TerminologyCache(new Object(), folder);
+    Assertions.assertEquals("One", lookup(cache, "1234-5"));
+    Assertions.assertEquals("Two", lookup(cache, "2345-6"));
+    Assertions.assertNull(lookup(cache, "3456-7"));
+  }
+
+  @Test
+  public void testCounters() throws Exception {
+    TerminologyCache cache = new TerminologyCache(new Object(), makeFolder());
+    Assertions.assertNull(lookup(cache, "1234-5"));
+    cache(cache, "1234-5", "One");
+    Assertions.assertEquals("One", lookup(cache, "1234-5"));
+    Assertions.assertEquals("One", lookup(cache, "1234-5"));
+    Assertions.assertNull(lookup(cache, "2345-6"));
+    Assertions.assertEquals(2, cache.getHits());
+    Assertions.assertEquals(2, cache.getMisses());
+    Assertions.assertEquals(0, cache.getCollisions());
+  }
+
+  @Test
+  public void testWhitespaceInStrings() throws Exception {
+    String folder = makeFolder();
+    TerminologyCache cache = new TerminologyCache(new Object(), folder);
+    cache(cache, "1234-5", "One");
+    // the only difference is whitespace in the code, so the requests aren't the same
+    Assertions.assertNull(lookup(cache, "12 34-5"));
+    Assertions.assertNull(lookup(cache, "1234-5 "));
+    cache(cache, "12 34-5", "Two");
+    Assertions.assertEquals("One", lookup(cache, "1234-5"));
+    Assertions.assertEquals("Two", lookup(cache, "12 34-5"));
+    Assertions.assertEquals(0, cache.getCollisions());
+
+    cache = new TerminologyCache(new Object(), folder);
+    Assertions.assertEquals("One", lookup(cache, "1234-5"));
+    Assertions.assertEquals("Two", lookup(cache, "12 34-5"));
+  }
+
+  @Test
+  public void testTransientEntriesAreBounded() throws Exception {
+    TerminologyCache.setMaxTransientEntries(2);
+    TerminologyCache cache = new TerminologyCache(new Object(), makeFolder());
+    for (int i = 0; i < 5; i++) {
+      CacheToken token = cache.generateValidationToken(null, new Coding(LOINC, "t"+i, null), null);
+      cache.cacheValidation(token, new ValidationResult(null, null, new ConceptDefinitionComponent().setDisplay("T"+i)), TerminologyCache.TRANSIENT);
+    }
+    cache(cache, "1234-5", "One");
+    Assertions.assertEquals(3, cache.getSize());
+    Assertions.assertEquals(3, cache.getEvictions());
+    Assertions.assertNull(lookup(cache, "t0"));
+    Assertions.assertEquals("T4", lookup(cache, "t4"));
+    Assertions.assertEquals("One", lookup(cache, "1234-5"));
+    Assertions.assertEquals(2.0 / 3.0, cache.getHitRate(), 0.0001);
+  }
+
+  @Test
+  public void testBinaryFormatAndMigration() throws Exception {
+    String folder = makeFolder();
+    TerminologyCache cache = new TerminologyCache(new Object(), folder);
+    cache(cache, "1234-5", "One");
+    cache(cache, "2345-6", "Two");
+
+    // migrate the text cache
+    TerminologyCache.setBinaryFormat(true);
+    cache = new TerminologyCache(new Object(), folder);
+    Assertions.assertTrue(new File(Utilities.path(folder, "loinc.tcb")).exists());
+    Assertions.assertEquals("One", lookup(cache, "1234-5"));
+    cache(cache, "3456-7", "Three");
+    cache(cache, "2345-6", "Two (again)");
+
+    // binary files are used once they exist, whatever the setting
+    TerminologyCache.setBinaryFormat(false);
+    cache = new TerminologyCache(new Object(), folder);
+    Assertions.assertEquals("One", lookup(cache, "1234-5"));
+    Assertions.assertEquals("Two (again)", lookup(cache, "2345-6"));
+    Assertions.assertEquals("Three", lookup(cache, "3456-7"));
+  }
+
+  @Test
+  public void testTextChangedAfterMigration() throws Exception {
+    String folder = makeFolder();
+    TerminologyCache cache = new TerminologyCache(new Object(), folder);
+    cache(cache, "1234-5", "One");
+    TerminologyCache.setBinaryFormat(true);
+    cache = new TerminologyCache(new Object(), folder);
+    cache(cache, "2345-6", "Two");
+
+    // an older version keeps using the text file
+    TerminologyCache.setBinaryFormat(false);
+    String other = makeFolder();
+    cache = new TerminologyCache(new Object(), other);
+    cache(cache, "1234-5", "One (text)");
+    cache(cache, "3456-7", "Three");
+    File text = new File(Utilities.path(folder, "loinc.cache"));
+    long modified = text.lastModified();
+    Files.copy(new File(Utilities.path(other, "loinc.cache")).toPath(), text.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    text.setLastModified(modified + 2000);
+
+    // the entries the binary cache doesn't have are migrated
+    cache = new TerminologyCache(new Object(), folder);
+    Assertions.assertEquals("One", lookup(cache, "1234-5"));
+    Assertions.assertEquals("Two", lookup(cache, "2345-6"));
+    Assertions.assertEquals("Three", lookup(cache, "3456-7"));
+  }
+
+  @Test
+  public void testBinaryDamage() throws Exception {
+    String folder = makeFolder();
+    TerminologyCache.setBinaryFormat(true);
+    TerminologyCache cache = new TerminologyCache(new Object(), folder);
+    cache(cache, "1234-5", "One");
+    cache(cache, "2345-6", "Two");
+
+    // an index entry that points past the end of the entries: the index is rebuilt
+    File index = new File(Utilities.path(folder, "loinc.tci"));
+    try (RandomAccessFile raf = new RandomAccessFile(index, "rw")) {
+      raf.seek(raf.length() - 12);
+      raf.writeLong(1000000);
+    }
+    cache = new TerminologyCache(new Object(), folder);
+    Assertions.assertEquals("One", lookup(cache, "1234-5"));
+    Assertions.assertEquals("Two", lookup(cache, "2345-6"));
+
+    // a string length that's longer than the index: the index is rebuilt
+    try (RandomAccessFile raf = new RandomAccessFile(index, "rw")) {
+      raf.seek(8);
+      raf.writeInt(Integer.MAX_VALUE);
+    }
+    cache = new TerminologyCache(new Object(), folder);
+    Assertions.assertEquals("Two", lookup(cache, "2345-6"));
+
+    // entries that aren't a cache: the cache is dropped
+    File data = new File(Utilities.path(folder, "loinc.tcb"));
+    try (RandomAccessFile raf = new RandomAccessFile(data, "rw")) {
+      raf.writeInt(0);
+    }
+    cache = new TerminologyCache(new Object(), folder);
+    Assertions.assertNull(lookup(cache, "1234-5"));
+    cache(cache, "1234-5", "One");
+    cache = new TerminologyCache(new Object(), folder);
+    Assertions.assertEquals("One", lookup(cache, "1234-5"));
+  }
+
+  @Test
+  public void testBinaryIndexRecovery() throws Exception {
+    String folder = makeFolder();
+    TerminologyCache.setBinaryFormat(true);
+    TerminologyCache cache = new TerminologyCache(new Object(), folder);
+    cache(cache, "1234-5", "One");
+    cache(cache, "2345-6", "Two");
+
+    // lose the index: it's rebuilt from the entries
+    new File(Utilities.path(folder, "loinc.tci")).delete();
+    cache = new TerminologyCache(new Object(), folder);
+    Assertions.assertEquals("One", lookup(cache, "1234-5"));
+    Assertions.assertEquals("Two", lookup(cache, "2345-6"));
+
+    // a partly written entry at the end of the file is dropped
+    cache(cache, "3456-7", "Three");
+    File data = new File(Utilities.path(folder, "loinc.tcb"));
+    try (RandomAccessFile raf = new RandomAccessFile(data, "rw")) {
+      raf.setLength(raf.length() - 5);
+    }
+    new File(Utilities.path(folder, "loinc.tci")).delete();
+    cache = new TerminologyCache(new Object(), folder);
+    Assertions.assertEquals("Two", lookup(cache, "2345-6"));
+    Assertions.assertNull(lookup(cache, "3456-7"));
+    cache(cache, "3456-7", "Three");
+    cache = new TerminologyCache(new Object(), folder);
+    Assertions.assertEquals("Three", lookup(cache, "3456-7"));
+  }
+}
@@ -1,18 +1,26 @@
 package org.hl7.fhir.r5.test;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.hl7.fhir.r5.context.SimpleWorkerContext;
 import org.hl7.fhir.r5.elementmodel.Element;
 import org.hl7.fhir.r5.elementmodel.Manager;
 import org.hl7.fhir.r5.elementmodel.Manager.FhirFormat;
+import org.hl7.fhir.r5.elementmodel.ParserBase.ValidationPolicy;
+import org.hl7.fhir.r5.elementmodel.XmlParser;
 import org.hl7.fhir.r5.formats.IParser.OutputStyle;
 import org.hl7.fhir.r5.model.StructureDefinition;
 import org.hl7.fhir.r5.test.utils.TestingUtilities;
 import org.hl7.fhir.r5.utils.FHIRPathEngine;
+import org.hl7.fhir.utilities.TextFile;
 import org.hl7.fhir.utilities.npm.FilesystemPackageCacheManager;
 import org.hl7.fhir.utilities.npm.ToolsVersion;
+import org.hl7.fhir.utilities.validation.ValidationMessage;
+import org.hl7.fhir.utilities.xml.XMLUtil;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
@@ -61,4 +69,31 @@ public class XmlParserTests {
     Assertions.assertTrue(cdaSerialised.indexOf("xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\"")>0);
     Assertions.assertTrue(cdaSerialised.indexOf("xsi:type=\"CD\"")>0);
   }
+
+  /**
+   * The default (StAX) parser gives the same elements and messages as the DOM parser for real 
+   * content: the CDA logical model definitions, which are FHIR resources, and the CDA example
+   */
+  @Test
+  public void testStreamingSameAsDom() throws Exception {
+    for (String name : new String[] {"any.xml", "ii.xml", "cd.xml", "ce.xml", "ed.xml", "st.xml", "cda.xml", "example-xsi.xml"}) {
+      byte[] source = TextFile.streamToBytes(TestingUtilities.loadTestResourceStream("validator", "cda", name));
+      Assertions.assertEquals(parse(source, true), parse(source, false), name);
+    }
+  }
+
+  private String parse(byte[] source, boolean dom) throws Exception {
+    XmlParser parser = new XmlParser(context);
+    List<ValidationMessage> errors = new ArrayList<>();
+    parser.setupValidation(ValidationPolicy.EVERYTHING, errors);
+    Element e = dom ? parser.parse(XMLUtil.parseToDom(source, true)) : parser.parse(new ByteArrayInputStream(source));
+    StringBuilder b = new StringBuilder();
+    if (e != null) {
+      ElementModelTestDefinitions.dump(b, e, "");
+    }
+    for (ValidationMessage vm : errors) {
+      b.append(vm.getLevel()+": "+vm.getLocation()+": "+vm.getMessage()+"\n");
+    }
+    return b.toString();
+  }
 } 
\ No newline at end of file
@@ -68,6 +68,27 @@ public class TimeTracker {
     c.length = c.length + System.nanoTime() - session.start;
   }
   
+  /**
+   * Add the counts and times recorded by another tracker (e.g. one used by a worker thread)
+   * to this one. Sessions that are still running in the other tracker are not included
+   */
+  public void merge(TimeTracker other) {
+    for (Counter o : other.records) {
+      Counter c = null;
+      for (Counter t : records) {
+        if (t.name.equals(o.name)) {
+          c = t;
+        }
+      }
+      if (c == null) {
+        c = new Counter(o.name);
+        records.add(c);
+      }
+      c.count = c.count + o.count;
+      c.length = c.length + o.length;
+    }
+  }
+
   public String report() {
     CommaSeparatedStringBuilder b = new CommaSeparatedStringBuilder();
     for (Counter c : records) {
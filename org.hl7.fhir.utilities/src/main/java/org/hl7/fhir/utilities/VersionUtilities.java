@@ -255,6 +255,43 @@ public class VersionUtilities {
     return true;
   }
 
+  /**
+   * compare two versions, for sorting: part by part (split on .), numerically where both parts
+   * are numbers, so that 1.10.0 is later than 1.9.0. A pre-release (1.0.0-ballot) comes before
+   * the release (1.0.0), and pre-release labels are compared the same way. No version comes 
+   * before any version
+   */
+  public static int compareVersions(String v0, String v1) {
+    if (v0 == null || v1 == null) {
+      return v0 == null ? (v1 == null ? 0 : -1) : 1;
+    }
+    String[] s0 = v0.split("\\-", 2);
+    String[] s1 = v1.split("\\-", 2);
+    int c = compareVersionParts(s0[0].split("\\."), s1[0].split("\\."));
+    if (c == 0 && s0.length != s1.length) {
+      c = s0.length == 1 ? 1 : -1;
+    }
+    if (c == 0 && s0.length == 2) {
+      c = compareVersionParts(s0[1].split("[.\\-]"), s1[1].split("[.\\-]"));
+    }
+    return c != 0 ? c : v0.compareTo(v1);
+  }
+
+  private static int compareVersionParts(String[] p0, String[] p1) {
+    for (int i = 0; i < Math.min(p0.length, p1.length); i++) {
+      int c;
+      if (Utilities.isInteger(p0[i]) && Utilities.isInteger(p1[i])) {
+        c = Long.compare(Long.parseLong(p0[i]), Long.parseLong(p1[i]));
+      } else {
+        c = p0[i].compareTo(p1[i]);
+      }
+      if (c != 0) {
+        return c;
+      }
+    }
+    return Integer.compare(p0.length, p1.length);
+  }
+
   private static boolean compareVersionPart(String theTestPart, String theCurrentPart) {
     if (StringUtils.isNumeric(theTestPart) && StringUtils.isNumeric(theCurrentPart)) {
       return Integer.parseInt(theCurrentPart) - Integer.parseInt(theTestPart) >= 0;
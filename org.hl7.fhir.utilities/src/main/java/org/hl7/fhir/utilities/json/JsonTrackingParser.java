@@ -35,6 +35,8 @@ import java.io.File;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.PushbackReader;
+import java.io.Reader;
 import java.math.BigDecimal;
 import java.net.HttpURLConnection;
 import java.net.URL;
@@ -84,7 +86,7 @@ public class JsonTrackingParser {
 		private int line;
 		private int col;
 		
-		protected LocationData(int line, int col) {
+		public LocationData(int line, int col) {
 			super();
 			this.line = line;
 			this.col = col;
@@ -124,9 +126,15 @@ public class JsonTrackingParser {
 		}
 	}
 	
-	private class Lexer {
+	/**
+	 * The JSON tokenizer. This is also used directly (with a Reader) by parsers that build their 
+	 * own model as the tokens are read, so they report the same syntax errors as this parser 
+	 */
+	public class Lexer {
 		private String source;
+		private Reader reader;
 		private int cursor;
+		private boolean done;
 		private String peek;
 		private String value;
 		private TokenType type;
@@ -143,8 +151,34 @@ public class JsonTrackingParser {
     	start();
     }
     
+    /**
+     * read the tokens from a reader, without reading it all into a string first. A leading BOM is skipped 
+     */
+    public Lexer(Reader reader) throws IOException {
+      PushbackReader pr = new PushbackReader(reader);
+      int ch = pr.read();
+      if (ch != -1 && ch != '\uFEFF')
+        pr.unread(ch);
+      this.reader = pr;
+      location = new LocationData(1, 1);
+      start();
+    }
+    
     private boolean more() {
-    	return peek != null || cursor < source.length(); 
+    	return peek != null || !done; 
+    }
+    
+    private int read() throws IOException {
+      int ch;
+      if (reader != null) 
+        ch = reader.read();
+      else {
+        cursor++;
+        ch = cursor < source.length() ? source.charAt(cursor) : -1;
+      }
+      if (ch == -1) 
+        done = true;
+      return ch;
     }
     
     private String getNext(int length) throws IOException {
@@ -159,11 +193,14 @@ public class JsonTrackingParser {
       	}
       }
       if (result.length() < length) {
-      	int len = length - result.length(); 
-      	if (cursor > source.length() - len) 
-      		throw error("Attempt to read past end of source");
-      	result = result + source.substring(cursor+1, cursor+len+1);
-      	cursor = cursor + len;
+        StringBuilder s = new StringBuilder(result);
+        while (s.length() < length) {
+          int ch = read();
+          if (ch == -1) 
+            throw error("Attempt to read past end of source");
+          s.append((char) ch);
+        }
+        result = s.toString();
       }
        for (char ch : result.toCharArray())
         if (ch == '\n')
@@ -179,10 +216,10 @@ public class JsonTrackingParser {
       	peek = peek.length() == 1 ? null : peek.substring(1);
       	return ch;
       } else {
-        cursor++;
-        if (cursor >= source.length())
+        int c = read();
+        if (c == -1)
           return (char) 0;
-        char ch = source.charAt(cursor);
+        char ch = (char) c;
         if (ch == '\n') {
           location.newLine();
         } else {
@@ -203,7 +240,7 @@ public class JsonTrackingParser {
       	throw error("Syntax error in json reading special word "+word);
     }
     
-    private IOException error(String msg) {
+    public IOException error(String msg) {
       return new IOException("Error parsing JSON source: "+msg+" at Line "+Integer.toString(location.line)+" (path=["+path()+"])");
     }
     
@@ -69,6 +69,8 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 /**
  * This is a package cache manager implementation that uses a local disk cache
@@ -96,6 +98,7 @@ public class FilesystemPackageCacheManager extends BasePackageCacheManager imple
   private static final String CACHE_VERSION = "3"; // second version - see wiki page
   private String cacheFolder;
   private boolean progress = true;
+  private boolean mappedContent;
   private List<NpmPackage> temporaryPackages = new ArrayList<>();
   private boolean buildLoaded = false;
   private Map<String, String> ciList = new HashMap<String, String>();
@@ -124,7 +127,7 @@ public class FilesystemPackageCacheManager extends BasePackageCacheManager imple
     if (files != null) {
       for (File f : files) {
         if (f.getName().endsWith(".tgz")) {
-          temporaryPackages.add(NpmPackage.fromPackage(new FileInputStream(f)));
+          temporaryPackages.add(NpmPackage.fromPackage(new FileInputStream(f), null, false, mappedContent));
         }
       }
     }
@@ -134,6 +137,21 @@ public class FilesystemPackageCacheManager extends BasePackageCacheManager imple
     return cacheFolder;
   }
 
+  public boolean isMappedContent() {
+    return mappedContent;
+  }
+
+  /**
+   * When this is set, the packages this cache loads don't hold a byte[] for every file in them: 
+   * larger files are memory mapped when they're read (see NpmPackage.fromPackage(InputStream, String, boolean, boolean)).
+   * 
+   * This is off by default: on windows, files that are mapped can't be deleted until the mapping is
+   * garbage collected.
+   */
+  public void setMappedContent(boolean mappedContent) {
+    this.mappedContent = mappedContent;
+  }
+
   private List<String> sorted(String[] keys) {
     List<String> names = new ArrayList<String>();
     for (String s : keys)
@@ -143,7 +161,7 @@ public class FilesystemPackageCacheManager extends BasePackageCacheManager imple
   }
 
   private NpmPackage loadPackageInfo(String path) throws IOException {
-    NpmPackage pi = NpmPackage.fromFolder(path);
+    NpmPackage pi = NpmPackage.fromFolder(path, mappedContent);
     return pi;
   }
 
@@ -247,7 +265,7 @@ public class FilesystemPackageCacheManager extends BasePackageCacheManager imple
     if (!fp.exists()) {
       throw new FHIRException("Package '" + id + "  found in folder " + folder + ", but does not contain a package.json file in /package");
     }
-    return NpmPackage.fromFolder(f.getAbsolutePath());
+    return NpmPackage.fromFolder(f.getAbsolutePath(), mappedContent);
   }
 
   /**
@@ -274,9 +292,11 @@ public class FilesystemPackageCacheManager extends BasePackageCacheManager imple
       File ff = new File(f);
       if (ff.exists()) {
         Utilities.clearDirectory(f);
-        IniFile ini = new IniFile(Utilities.path(cacheFolder, "packages.ini"));
-        ini.removeProperty("packages", id + "#" + ver);
-        ini.save();
+        synchronized (this) {
+          IniFile ini = new IniFile(Utilities.path(cacheFolder, "packages.ini"));
+          ini.removeProperty("packages", id + "#" + ver);
+          ini.save();
+        }
         ff.delete();
       }
       return null;
@@ -345,13 +365,13 @@ public class FilesystemPackageCacheManager extends BasePackageCacheManager imple
       System.out.print("  Fetching:");
     }
 
-    NpmPackage npm = NpmPackage.fromPackage(packageTgzInputStream, sourceDesc, true);
+    NpmPackage npm = NpmPackage.fromPackage(packageTgzInputStream, sourceDesc, progress, mappedContent);
 
     if (progress) {
       System.out.println();
       System.out.print("  Installing: ");
     }
-    
+
     if (npm.name() == null || id == null || !id.equals(npm.name())) {
       if (!id.equals("hl7.fhir.r5.core")) {// temporary work around
         throw new IOException("Attempt to import a mis-identified package. Expected " + id + ", got " + npm.name());
@@ -377,15 +397,22 @@ public class FilesystemPackageCacheManager extends BasePackageCacheManager imple
           int i = 0;
           int c = 0;
           int size = 0;
-          for (Entry<String, NpmPackageFolder> e : npm.getFolders().entrySet()) {
-            String dir = e.getKey().equals("package") ? Utilities.path(packRoot, "package") : Utilities.path(packRoot, "package", e.getKey());
-            if (!(new File(dir).exists()))
-              Utilities.createDirectory(dir);
-            for (Entry<String, byte[]> fe : e.getValue().getContent().entrySet()) {
-              String fn = Utilities.path(dir, fe.getKey());
-              byte[] cnt = fe.getValue();
-              TextFile.bytesToFile(cnt, fn);
-              size = size + cnt.length;
+          // the files are written on the package threads; the sizes are collected here, in order, for the progress
+          ExecutorService pool = NpmPackage.getPool();
+          List<Future<Integer>> writes = new ArrayList<>();
+          try {
+            for (Entry<String, NpmPackageFolder> e : npm.getFolders().entrySet()) {
+              String dir = e.getKey().equals("package") ? Utilities.path(packRoot, "package") : Utilities.path(packRoot, "package", e.getKey());
+              if (!(new File(dir).exists()))
+                Utilities.createDirectory(dir);
+              NpmPackageFolder folder = e.getValue();
+              for (String s : folder.getFileNames()) {
+                File dest = new File(Utilities.path(dir, s));
+                writes.add(pool.submit(() -> folder.saveFile(s, dest)));
+              }
+            }
+            for (Future<Integer> w : writes) {
+              size = size + NpmPackage.getResult(w);
               i++;
               if (progress && i % 50 == 0) {
                 c++;
@@ -397,14 +424,19 @@ public class FilesystemPackageCacheManager extends BasePackageCacheManager imple
                 }
               }
             }
+          } finally {
+            NpmPackage.cancel(writes);
           }
 
 
-          IniFile ini = new IniFile(Utilities.path(cacheFolder, "packages.ini"));
-          ini.setTimeStampFormat("yyyyMMddhhmmss");
-          ini.setTimestampProperty("packages", id + "#" + v, Timestamp.from(Instant.now()), null);
-          ini.setIntegerProperty("package-sizes", id + "#" + v, size, null);
-          ini.save();
+          // packages can be added on several threads (e.g. the dependencies of a package)
+          synchronized (this) {
+            IniFile ini = new IniFile(Utilities.path(cacheFolder, "packages.ini"));
+            ini.setTimeStampFormat("yyyyMMddhhmmss");
+            ini.setTimestampProperty("packages", id + "#" + v, Timestamp.from(Instant.now()), null);
+            ini.setIntegerProperty("package-sizes", id + "#" + v, size, null);
+            ini.save();
+          }
           if (progress)
             System.out.println(" done.");
         }
@@ -599,7 +631,7 @@ public class FilesystemPackageCacheManager extends BasePackageCacheManager imple
     }
   }
 
-  private boolean checkBuildLoaded() {
+  private synchronized boolean checkBuildLoaded() {
     if (buildLoaded)
       return true;
     try {
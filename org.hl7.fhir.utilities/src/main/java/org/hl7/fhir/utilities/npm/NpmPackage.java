@@ -34,22 +34,38 @@ package org.hl7.fhir.utilities.npm;
 import java.io.BufferedOutputStream;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 
@@ -59,12 +75,15 @@ import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
 import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
 import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
 import org.hl7.fhir.exceptions.FHIRException;
+import org.hl7.fhir.utilities.ByteBufferInputStream;
 import org.hl7.fhir.utilities.CommaSeparatedStringBuilder;
 import org.hl7.fhir.utilities.TextFile;
 import org.hl7.fhir.utilities.Utilities;
+import org.hl7.fhir.utilities.VersionUtilities;
 import org.hl7.fhir.utilities.json.JSONUtil;
 import org.hl7.fhir.utilities.json.JsonTrackingParser;
 import org.hl7.fhir.utilities.npm.NpmPackage.PackageResourceInformationSorter;
+import org.hl7.fhir.utilities.npm.NpmPackageIndexBuilder.IndexEntry;
 import org.hl7.fhir.utilities.npm.PackageGenerator.PackageType;
 
 import com.google.gson.GsonBuilder;
@@ -134,7 +153,7 @@ public class NpmPackage {
     public int compare(JsonObject o0, JsonObject o1) {
       String v0 = JSONUtil.str(o0, "version"); 
       String v1 = JSONUtil.str(o1, "version"); 
-      return v0.compareTo(v1);
+      return VersionUtilities.compareVersions(v0, v1);
     }
   }
 
@@ -149,8 +168,12 @@ public class NpmPackage {
   public class NpmPackageFolder {
     private String name;
     private Map<String, List<String>> types = new HashMap<>();
-    private Map<String, byte[]> content = new HashMap<>();
+    // files are read from the mapped content, and packages are extracted, on several threads
+    private Map<String, byte[]> content = new ConcurrentHashMap<>();
+    private Map<String, ByteBuffer> mapped; // files that haven't been read yet, when the content is mapped
     private JsonObject index;
+    private Map<String, List<JsonObject>> byCanonical = new HashMap<>();
+    private Map<String, JsonObject> latestByCanonical = new HashMap<>();
     private File folder;
 
     public NpmPackageFolder(String name) {
@@ -178,10 +201,43 @@ public class NpmPackage {
         if (!types.containsKey(type))
           types.put(type, new ArrayList<>());
         types.get(type).add(name);
+        String url = JSONUtil.str(file, "url");
+        if (url != null) {
+          List<JsonObject> list = byCanonical.get(url);
+          if (list == null) {
+            list = new ArrayList<>(1);
+            byCanonical.put(url, list);
+          }
+          list.add(file);
+          // the latest version; of equal versions, the last in the index
+          JsonObject latest = latestByCanonical.get(url);
+          if (latest == null || VersionUtilities.compareVersions(JSONUtil.str(file, "version"), JSONUtil.str(latest, "version")) >= 0) {
+            latestByCanonical.put(url, file);
+          }
+        }
       }
       return true;
     }
 
+    /**
+     * @param version - the version, or null for the latest
+     * @return the index entry for the resource with this url and version, or null
+     */
+    public JsonObject findByCanonical(String canonical, String version) {
+      if (version == null) {
+        return latestByCanonical.get(canonical);
+      }
+      List<JsonObject> list = byCanonical.get(canonical);
+      if (list != null) {
+        for (JsonObject file : list) {
+          if (version.equals(JSONUtil.str(file, "version"))) {
+            return file;
+          }
+        }
+      }
+      return null;
+    }
+
     public List<String> listFiles() {
       List<String> res = new ArrayList<>();
       if (folder != null) {
@@ -191,7 +247,7 @@ public class NpmPackage {
           }
         }
       } else {
-        for (String s : content.keySet()) {
+        for (String s : getFileNames()) {
           if (!Utilities.existsInList(s, "package.json", ".index.json")) {
             res.add(s);
           }
@@ -201,10 +257,66 @@ public class NpmPackage {
       return res;
     }
 
+    /**
+     * the content of the files in the folder (for packages that aren't loaded from a folder).
+     * If the content is mapped, all the files are read so they are in the map
+     */
     public Map<String, byte[]> getContent() {
+      if (mapped != null) {
+        for (String s : new ArrayList<>(mapped.keySet())) {
+          readMapped(s);
+        }
+      }
       return content;
     }
 
+    /**
+     * the names of all the files in the content, including package.json and .index.json
+     */
+    public Set<String> getFileNames() {
+      if (mapped == null || mapped.isEmpty()) {
+        return content.keySet();
+      }
+      Set<String> res = new HashSet<>(content.keySet());
+      res.addAll(mapped.keySet());
+      return res;
+    }
+
+    /**
+     * read a file from the mapped content into the content. It's in the content before it's
+     * taken out of the mapped files, so other threads always find it in one or the other
+     */
+    private byte[] readMapped(String file) {
+      byte[] res = content.computeIfAbsent(file, f -> {
+        ByteBuffer buffer = mapped.get(f);
+        if (buffer == null) {
+          return null;
+        }
+        byte[] cnt = new byte[buffer.remaining()];
+        buffer.duplicate().get(cnt);
+        return cnt;
+      });
+      if (res != null) {
+        mapped.remove(file);
+      }
+      return res;
+    }
+
+    private void putFile(String file, byte[] cnt) {
+      content.put(file, cnt);
+      if (mapped != null) {
+        mapped.remove(file);
+      }
+    }
+
+    private void putMapped(String file, ByteBuffer buffer) {
+      if (mapped == null) {
+        mapped = new ConcurrentHashMap<>();
+      }
+      content.remove(file);
+      mapped.put(file, buffer);
+    }
+
     public byte[] fetchFile(String file) throws FileNotFoundException, IOException {
       if (folder != null) {
         File f = new File(Utilities.path(folder.getAbsolutePath(), file));
@@ -214,15 +326,74 @@ public class NpmPackage {
           return null;
         }
       } else {
-        return content.get(file);
+        byte[] res = content.get(file);
+        if (res == null && mapped != null) {
+          res = readMapped(file);
+        }
+        return res;
       }
     }
 
+    /**
+     * get a stream for the file, or null if there's no file. If the content is mapped, the stream
+     * reads the mapped content directly, and the file isn't read into the content
+     */
+    public InputStream openFile(String file) throws IOException {
+      if (folder != null) {
+        File f = new File(Utilities.path(folder.getAbsolutePath(), file));
+        if (!f.exists()) {
+          return null;
+        } else if (!mappedContent || f.length() < MAPPING_THRESHOLD) {
+          return new ByteArrayInputStream(TextFile.fileToBytes(f));
+        } else {
+          try (FileChannel channel = FileChannel.open(f.toPath(), StandardOpenOption.READ)) {
+            return new ByteBufferInputStream(channel.map(MapMode.READ_ONLY, 0, channel.size()));
+          }
+        }
+      } else {
+        byte[] cnt = content.get(file);
+        if (cnt != null) {
+          return new ByteArrayInputStream(cnt);
+        }
+        ByteBuffer buffer = mapped == null ? null : mapped.get(file);
+        return buffer == null ? null : new ByteBufferInputStream(buffer);
+      }
+    }
+
+    /**
+     * write the file to dest, without reading it into the content
+     * 
+     * @return the size of the file
+     */
+    public int saveFile(String file, File dest) throws IOException {
+      byte[] cnt = content.get(file);
+      if (cnt != null || mapped == null || !mapped.containsKey(file)) {
+        cnt = fetchFile(file);
+        TextFile.bytesToFile(cnt, dest);
+        return cnt.length;
+      }
+      ByteBuffer buffer = mapped.get(file);
+      if (buffer == null) {
+        // read in by another thread since
+        cnt = fetchFile(file);
+        TextFile.bytesToFile(cnt, dest);
+        return cnt.length;
+      }
+      buffer = buffer.duplicate();
+      int res = buffer.remaining();
+      try (FileChannel channel = FileChannel.open(dest.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+        while (buffer.hasRemaining()) {
+          channel.write(buffer);
+        }
+      }
+      return res;
+    }
+
     public boolean hasFile(String file) throws IOException {
       if (folder != null) {
         return new File(Utilities.path(folder.getAbsolutePath(), file)).exists();
       } else {
-        return content.containsKey(file);
+        return content.containsKey(file) || (mapped != null && mapped.containsKey(file));
       }
 
     }
@@ -236,6 +407,9 @@ public class NpmPackage {
         new File(Utilities.path(folder.getAbsolutePath(), n)).delete();
       } else {
         content.remove(n);
+        if (mapped != null) {
+          mapped.remove(n);
+        }
       }
       changedByLoader = true;      
     }
@@ -248,6 +422,137 @@ public class NpmPackage {
   private boolean changedByLoader; // internal qa only!
   private Map<String, Object> userData = new HashMap<>();
 
+  private static final int MAPPING_THRESHOLD = 64 * 1024; // smaller files are cheaper to read than to map
+  private static final int PARALLEL_THRESHOLD = 50; // fewer files than this aren't worth starting threads for
+  private boolean mappedContent;
+  private static int threads = Runtime.getRuntime().availableProcessors();
+  private static ThreadPoolExecutor pool; // see getPool()
+
+  /**
+   * How many threads to use to read the files in a package when it is indexed, and to write them
+   * when it is extracted into the package cache. The default is the number of processors. 
+   * 
+   * This is the most for all the packages together: packages that are loaded at the same time 
+   * (e.g. the dependencies of a package) share the threads
+   */
+  public static synchronized void setThreads(int value) {
+    threads = Math.max(1, value);
+    if (pool != null && threads > pool.getMaximumPoolSize()) {
+      pool.setMaximumPoolSize(threads);
+      pool.setCorePoolSize(threads);
+    } else if (pool != null) {
+      pool.setCorePoolSize(threads);
+      pool.setMaximumPoolSize(threads);
+    }
+  }
+
+  public static synchronized int getThreads() {
+    return threads;
+  }
+
+  /**
+   * The threads that package files are read and written on, shared by all the packages. The 
+   * threads stop when they've had nothing to do for a while. Work on these threads must not 
+   * wait for other work on them
+   */
+  static synchronized ExecutorService getPool() {
+    if (pool == null) {
+      pool = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+        Thread t = new Thread(r, "npm-package-io");
+        t.setDaemon(true);
+        return t;
+      });
+      pool.allowCoreThreadTimeOut(true);
+    }
+    return pool;
+  }
+
+  /**
+   * Whether the package was loaded with its content mapped (see fromPackage(InputStream, String, boolean, boolean)) 
+   */
+  public boolean isMappedContent() {
+    return mappedContent;
+  }
+
+  /**
+   * Where the uncompressed content of a package is written when the content is mapped. 
+   * 
+   * The files go in their own folder in the temp directory. They are deleted as soon as they are 
+   * mapped, but on windows a mapped file can't be deleted until the mapping is garbage collected, 
+   * so the files left behind by earlier runs are deleted the first time a spool is made 
+   */
+  private static class ContentSpool implements Closeable {
+    private static final String SPOOL_FOLDER = "fhir-package-content";
+    private static boolean swept;
+
+    private final File file;
+    private final FileChannel channel;
+    private final OutputStream stream;
+    private final Map<String, long[]> entries = new HashMap<>(); // name -> offset, length
+    private long offset;
+
+    private ContentSpool() throws IOException {
+      file = File.createTempFile("fhir-package-", ".content", spoolFolder());
+      channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+      stream = new BufferedOutputStream(Channels.newOutputStream(channel), 64 * 1024);
+    }
+
+    private void add(String name, InputStream src) throws IOException {
+      long start = offset;
+      byte data[] = new byte[BUFFER_SIZE * 8];
+      int count;
+      while ((count = src.read(data)) != -1) {
+        stream.write(data, 0, count);
+        offset = offset + count;
+      }
+      entries.put(name, new long[] {start, offset - start});
+    }
+
+    private Map<String, ByteBuffer> map() throws IOException {
+      stream.flush();
+      Map<String, ByteBuffer> res = new HashMap<>();
+      if (offset <= Integer.MAX_VALUE) {
+        MappedByteBuffer all = channel.map(MapMode.READ_ONLY, 0, offset);
+        for (Entry<String, long[]> e : entries.entrySet()) {
+          ByteBuffer b = all.duplicate();
+          ((Buffer) b).position((int) e.getValue()[0]);
+          ((Buffer) b).limit((int) (e.getValue()[0] + e.getValue()[1]));
+          res.put(e.getKey(), b.slice());
+        }
+      } else {
+        for (Entry<String, long[]> e : entries.entrySet()) {
+          res.put(e.getKey(), channel.map(MapMode.READ_ONLY, e.getValue()[0], e.getValue()[1]));
+        }
+      }
+      return res;
+    }
+
+    private static synchronized File spoolFolder() throws IOException {
+      File dir = new File(System.getProperty("java.io.tmpdir"), SPOOL_FOLDER);
+      if (!dir.exists() && !dir.mkdirs()) {
+        throw new IOException("Unable to create "+dir.getAbsolutePath());
+      }
+      if (!swept) {
+        swept = true;
+        File[] files = dir.listFiles();
+        if (files != null) {
+          for (File f : files) {
+            // fails on windows for files still mapped by another process, which clears them up itself next time 
+            f.delete();
+          }
+        }
+      }
+      return dir;
+    }
+
+    @Override
+    public void close() throws IOException {
+      channel.close();
+      // the mapping stays valid. This doesn't work on windows, where the file is left for the next sweep
+      file.delete();
+    }
+  }
+
   /**
    * Constructor
    */
@@ -259,7 +564,17 @@ public class NpmPackage {
    * Factory method that parses a package from an extracted folder
    */
   public static NpmPackage fromFolder(String path) throws IOException {
+    return fromFolder(path, false);
+  }
+
+  /**
+   * Factory method that parses a package from an extracted folder
+   * 
+   * @param mappedContent - map the larger files rather than reading them when a stream is asked for
+   */
+  public static NpmPackage fromFolder(String path, boolean mappedContent) throws IOException {
     NpmPackage res = new NpmPackage();
+    res.mappedContent = mappedContent;
     res.loadFiles(path, new File(path));
     res.checkIndexed(path);
     return res;
@@ -366,7 +681,18 @@ public class NpmPackage {
   }
 
   public static NpmPackage fromPackage(InputStream tgz, String desc, boolean progress) throws IOException {
+    return fromPackage(tgz, desc, progress, false);
+  }
+
+  /**
+   * @param mappedContent - don't hold a byte[] for every file in the package. The uncompressed content is 
+   *   written to a temporary file, which is memory mapped, and a file is only read from it when it's used. 
+   *   On windows, the temporary file can't be deleted until the mapping is garbage collected; it's deleted 
+   *   the next time a package is read this way  
+   */
+  public static NpmPackage fromPackage(InputStream tgz, String desc, boolean progress, boolean mappedContent) throws IOException {
     NpmPackage res = new NpmPackage();
+    res.mappedContent = mappedContent;
     res.readStream(tgz, desc, progress);
     return res;
   }
@@ -378,7 +704,7 @@ public class NpmPackage {
     } catch (Exception e) {
       throw new IOException("Error reading "+(desc == null ? "package" : desc)+": "+e.getMessage(), e);      
     }
-    try (TarArchiveInputStream tarIn = new TarArchiveInputStream(gzipIn)) {
+    try (TarArchiveInputStream tarIn = new TarArchiveInputStream(gzipIn); ContentSpool spool = mappedContent ? new ContentSpool() : null) {
       TarArchiveEntry entry;
 
       int i = 0;
@@ -392,6 +718,8 @@ public class NpmPackage {
             dir = dir.substring(8);
           }
           folders.put(dir, new NpmPackageFolder(dir));
+        } else if (spool != null) {
+          spool.add(n, tarIn);
         } else {
           int count;
           byte data[] = new byte[BUFFER_SIZE];
@@ -414,6 +742,12 @@ public class NpmPackage {
           }
         }
       }
+      if (spool != null) {
+        for (Entry<String, ByteBuffer> e : spool.map().entrySet()) {
+          String n = e.getKey();
+          folderForFile(n).putMapped(n.substring(n.lastIndexOf("/")+1), e.getValue());
+        }
+      }
     } 
     try {
       npm = JsonTrackingParser.parseJson(folders.get("package").fetchFile("package.json"));
@@ -424,17 +758,20 @@ public class NpmPackage {
   }
 
   public void loadFile(String n, byte[] data) throws IOException {
+    folderForFile(n).putFile(n.substring(n.lastIndexOf("/")+1), data);
+  }
+
+  private NpmPackageFolder folderForFile(String n) {
     String dir = n.contains("/") ? n.substring(0, n.lastIndexOf("/")) : "$root";
     if (dir.startsWith("package/")) {
       dir = dir.substring(8);
     }
-    n = n.substring(n.lastIndexOf("/")+1);
     NpmPackageFolder index = folders.get(dir);
     if (index == null) {
       index = new NpmPackageFolder(dir);
       folders.put(dir, index);
     }
-    index.content.put(n, data);
+    return index;
   }
 
   private void checkIndexed(String desc) throws IOException {
@@ -449,9 +786,9 @@ public class NpmPackage {
     List<String> remove = new ArrayList<>();
     NpmPackageIndexBuilder indexer = new NpmPackageIndexBuilder();
     indexer.start();
-    for (String n : folder.listFiles()) {
-      if (!indexer.seeFile(n, folder.fetchFile(n))) {
-        remove.add(n);
+    for (IndexEntry entry : readIndexEntries(folder, folder.listFiles())) {
+      if (!indexer.seeEntry(entry)) {
+        remove.add(entry.getName());
       }
     } 
     for (String n : remove) {
@@ -470,6 +807,57 @@ public class NpmPackage {
   }
 
 
+  /**
+   * Read the files for the index. The files are read on the package threads (see getPool()), if 
+   * there's enough of them, but the entries are returned in the order of the files, so the index 
+   * is the same
+   */
+  private List<IndexEntry> readIndexEntries(NpmPackageFolder folder, List<String> files) throws IOException {
+    List<IndexEntry> res = new ArrayList<>();
+    if (getThreads() == 1 || files.size() < PARALLEL_THRESHOLD) {
+      for (String n : files) {
+        res.add(NpmPackageIndexBuilder.readEntry(n, folder.openFile(n)));
+      }
+      return res;
+    }
+    ExecutorService pool = getPool();
+    List<Future<IndexEntry>> futures = new ArrayList<>();
+    try {
+      for (String n : files) {
+        futures.add(pool.submit(() -> NpmPackageIndexBuilder.readEntry(n, folder.openFile(n))));
+      }
+      for (Future<IndexEntry> f : futures) {
+        res.add(getResult(f));
+      }
+    } finally {
+      cancel(futures);
+    }
+    return res;
+  }
+
+  /**
+   * cancel the work that's still to do, when a result has failed (the threads are shared, so they can't just be shut down)
+   */
+  static <T> void cancel(List<Future<T>> futures) {
+    for (Future<T> f : futures) {
+      f.cancel(true);
+    }
+  }
+
+  static <T> T getResult(Future<T> future) throws IOException {
+    try {
+      return future.get();
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw new IOException(e.getCause().getMessage(), e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException(e);
+    }
+  }
+
   public static NpmPackage fromZip(InputStream stream, boolean dropRootFolder, String desc) throws IOException {
     NpmPackage res = new NpmPackage();
     ZipInputStream zip = new ZipInputStream(stream);
@@ -559,7 +947,7 @@ public class NpmPackage {
    */
   public InputStream loadResource(String file) throws IOException {
     NpmPackageFolder folder = folders.get("package");
-    return new ByteArrayInputStream(folder.fetchFile(file));
+    return folder.openFile(file);
   }
 
   /**
@@ -609,27 +997,35 @@ public class NpmPackage {
    * @throws IOException
    */
   public InputStream loadByCanonicalVersion(String folder, String canonical, String version) throws IOException {
+    String filename = findByCanonical(folder, canonical, version);
+    return filename == null ? null : load(folder, filename);
+  }
+
+  /**
+   * find a resource in the base folder by it's canonical URL, using the package index
+   * 
+   * @param url - the canonical URL of the resource (exact match only)
+   * @param version - the specified version (or null if the most recent)
+   * 
+   * @return the name of the file, or null if it is not found
+   */
+  public String findByCanonical(String canonical, String version) {
+    return findByCanonical("package", canonical, version);
+  }
+
+  /**
+   * find a resource in the nominated folder by it's canonical URL, using the package index
+   * 
+   * @param folder - one of the folders in the package (main folder is "package")
+   * @param url - the canonical URL of the resource (exact match only)
+   * @param version - the specified version (or null if the most recent)
+   * 
+   * @return the name of the file, or null if it is not found
+   */
+  public String findByCanonical(String folder, String canonical, String version) {
     NpmPackageFolder f = folders.get(folder);
-    List<JsonObject> matches = new ArrayList<>();
-    for (JsonElement e : f.index.getAsJsonArray("files")) {
-      JsonObject file = (JsonObject) e;
-      if (canonical.equals(JSONUtil.str(file, "url"))) {
-        if (version != null && version.equals(JSONUtil.str(file, "version"))) {
-          return load("package", JSONUtil.str(file, "filename"));
-        } else if (version == null) {
-          matches.add(file);
-        }
-      }
-      if (matches.size() > 0) {
-        if (matches.size() == 1) {
-          return load("package", JSONUtil.str(matches.get(0), "filename"));          
-        } else {
-          Collections.sort(matches, new IndexVersionSorter());
-          return load("package", JSONUtil.str(matches.get(matches.size()-1), "filename"));          
-        }
-      }
-    }
-    return null;        
+    JsonObject file = f == null || f.index == null ? null : f.findByCanonical(canonical, version);
+    return file == null ? null : JSONUtil.str(file, "filename");
   }
     
   /**
@@ -656,7 +1052,7 @@ public class NpmPackage {
       f = folders.get(Utilities.path("package", folder));
     }
     if (f != null && f.hasFile(file)) {
-      return new ByteArrayInputStream(f.fetchFile(file));
+      return f.openFile(file);
     } else {
       throw new IOException("Unable to find the file "+folder+"/"+file+" in the package "+name());
     }
@@ -869,8 +1265,8 @@ public class NpmPackage {
       }
       NpmPackageIndexBuilder indexer = new NpmPackageIndexBuilder();
       indexer.start();
-      for (String s : folder.content.keySet()) {
-        byte[] b = folder.content.get(s);
+      for (String s : folder.getFileNames()) {
+        byte[] b = folder.fetchFile(s);
         indexer.seeFile(s, b);
         if (!s.equals(".index.json") && !s.equals("package.json")) {
           TextFile.bytesToFile(b, Utilities.path(dir.getAbsolutePath(), n, s));
@@ -902,8 +1298,8 @@ public class NpmPackage {
       }
       NpmPackageIndexBuilder indexer = new NpmPackageIndexBuilder();
       indexer.start();
-      for (String s : folder.content.keySet()) {
-        byte[] b = folder.content.get(s);
+      for (String s : folder.getFileNames()) {
+        byte[] b = folder.fetchFile(s);
         String name = n+"/"+s;
         indexer.seeFile(s, b);
         if (!s.equals(".index.json") && !s.equals("package.json")) {
@@ -1023,6 +1419,7 @@ public class NpmPackage {
   public void clearFolder(String folderName) {
     NpmPackageFolder folder = folders.get(folderName);
     folder.content.clear();
+    folder.mapped = null;
     folder.types.clear();    
   }
 
@@ -1035,7 +1432,7 @@ public class NpmPackage {
       folders.put(folderName, new NpmPackageFolder(folderName));
     }
     NpmPackageFolder folder = folders.get(folderName);
-    folder.content.put(name, cnt);
+    folder.putFile(name, cnt);
     if (!folder.types.containsKey(type))
       folder.types.put(type, new ArrayList<>());
     folder.types.get(type).add(name);
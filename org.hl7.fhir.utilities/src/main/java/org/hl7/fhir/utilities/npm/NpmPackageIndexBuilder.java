@@ -1,10 +1,14 @@
 package org.hl7.fhir.utilities.npm;
 
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
-import java.util.ArrayList;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 
 import org.hl7.fhir.exceptions.FHIRException;
@@ -15,6 +19,8 @@ import org.hl7.fhir.utilities.json.JsonTrackingParser;
 import com.google.gson.GsonBuilder;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 
 /**
  * This class builds the .index.json for a package 
@@ -34,43 +40,117 @@ public class NpmPackageIndexBuilder {
     index.add("files", files);
   }
   
+  /**
+   * What the index has to say about a file. Reading it doesn't involve the builder, so the files
+   * can be read on different threads, and then given to the builder (with seeEntry) in order
+   */
+  public static class IndexEntry {
+    private String name;
+    private JsonObject entry;
+    private String error;
+
+    public String getName() {
+      return name;
+    }
+
+    /**
+     * @return the entry for the file in the index, or null if the file isn't a resource
+     */
+    public JsonObject getEntry() {
+      return entry;
+    }
+
+    /**
+     * @return the message if the file couldn't be read, or null
+     */
+    public String getError() {
+      return error;
+    }
+
+    /**
+     * @return false if the file should be dropped from the package
+     */
+    public boolean isKeep() {
+      return error == null || !name.contains("openapi");
+    }
+  }
+
+  // the properties of a resource that go in the index, in the order they are written
+  private static final String[] PROPERTIES = {"resourceType", "id", "url", "version", "kind", "type", "supplements"};
+
   public boolean seeFile(String name, byte[] content) {
+    return seeEntry(readEntry(name, new ByteArrayInputStream(content)));
+  }
+
+  public boolean seeEntry(IndexEntry file) {
+    if (file.error != null) {
+      System.out.println("Error parsing "+file.name+": "+file.error);
+    } else if (file.entry != null) {
+      files.add(file.entry);
+    }
+    return file.isKeep();
+  }
+
+  /**
+   * Read what the index needs to know about a file. Only the properties that are in the index
+   * are read from the top level object; the rest of the json is checked and skipped, but no
+   * objects are built for it
+   */
+  public static IndexEntry readEntry(String name, InputStream content) {
+    IndexEntry res = new IndexEntry();
+    res.name = name;
     if (name.endsWith(".json")) {
-      try {
-        JsonObject json = JsonTrackingParser.parseJson(content);
-        if (json.has("resourceType")) {
+      try (Reader reader = new InputStreamReader(content, StandardCharsets.UTF_8)) {
+        Map<String, String> values = scanProperties(reader);
+        if (values.containsKey("resourceType")) {
           // ok we treat it as a resource
-          JsonObject fi = new JsonObject();
-          files.add(fi);
-          fi.addProperty("filename", name);
-          fi.addProperty("resourceType", json.get("resourceType").getAsString()); 
-          if (json.has("id") && json.get("id").isJsonPrimitive()) {
-            fi.addProperty("id", json.get("id").getAsString());
-          }
-          if (json.has("url") && json.get("url").isJsonPrimitive()) {
-            fi.addProperty("url", json.get("url").getAsString());
-          }
-          if (json.has("version") && json.get("version").isJsonPrimitive()) {
-            fi.addProperty("version", json.get("version").getAsString());
-          }
-          if (json.has("kind") && json.get("kind").isJsonPrimitive()) {
-            fi.addProperty("kind", json.get("kind").getAsString());
-          }
-          if (json.has("type") && json.get("type").isJsonPrimitive()) {
-            fi.addProperty("type", json.get("type").getAsString());
-          }
-          if (json.has("supplements") && json.get("supplements").isJsonPrimitive()) {
-            fi.addProperty("supplements", json.get("supplements").getAsString());
+          res.entry = new JsonObject();
+          res.entry.addProperty("filename", name);
+          for (String p : PROPERTIES) {
+            if (values.containsKey(p)) {
+              res.entry.addProperty(p, values.get(p));
+            }
           }
         }
       } catch (Exception e) {
-        System.out.println("Error parsing "+name+": "+e.getMessage());
-        if (name.contains("openapi")) {
-          return false;
+        res.error = e.getMessage();
+      }
+    }
+    return res;
+  }
+
+  private static Map<String, String> scanProperties(Reader reader) throws IOException {
+    reader = new BufferedReader(reader);
+    reader.mark(1);
+    if (reader.read() != '\uFEFF') {
+      reader.reset();
+    }
+    Map<String, String> res = new HashMap<>();
+    JsonReader json = new JsonReader(reader);
+    json.beginObject();
+    while (json.hasNext()) {
+      String n = json.nextName();
+      if (Utilities.existsInList(n, PROPERTIES)) {
+        JsonToken t = json.peek();
+        if (t == JsonToken.STRING || t == JsonToken.NUMBER) {
+          res.put(n, json.nextString());
+        } else if (t == JsonToken.BOOLEAN) {
+          res.put(n, Boolean.toString(json.nextBoolean()));
+        } else if ("resourceType".equals(n)) {
+          throw new IOException("resourceType is not a string");
+        } else {
+          res.remove(n);
+          json.skipValue();
         }
+      } else {
+        json.skipValue();
       }
     }
-    return true;
+    json.endObject();
+    if (json.peek() != JsonToken.END_DOCUMENT) {
+      throw new IOException("Unexpected content after the end of the object");
+    }
+    return res;
   }
   
   public String build() {
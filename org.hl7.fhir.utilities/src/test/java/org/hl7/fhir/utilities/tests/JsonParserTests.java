@@ -1,8 +1,12 @@
 package org.hl7.fhir.utilities.tests;
 
 import java.io.IOException;
+import java.io.StringReader;
 
 import org.hl7.fhir.utilities.json.JsonTrackingParser;
+import org.hl7.fhir.utilities.json.JsonTrackingParser.Lexer;
+import org.hl7.fhir.utilities.json.JsonTrackingParser.TokenType;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
 public class JsonParserTests {
@@ -11,5 +15,27 @@ public class JsonParserTests {
   public void test() throws IOException {
     JsonTrackingParser.parseJson("{\r\n  \"index-version\": 1,\r\n  \"files\": []\r\n}");
   }
+
+  @Test
+  public void testReaderLexer() throws IOException {
+    Lexer lexer = new JsonTrackingParser().new Lexer(new StringReader("\uFEFF{\n  \"a\" : [1.5, true, null, \"x\\u0041\"]\n}"));
+    TokenType[] types = {TokenType.Open, TokenType.String, TokenType.Colon, TokenType.OpenArray, TokenType.Number, TokenType.Comma, 
+        TokenType.Boolean, TokenType.Comma, TokenType.Null, TokenType.Comma, TokenType.String, TokenType.CloseArray, TokenType.Close, TokenType.Eof};
+    String[] values = {null, "a", null, null, "1.5", null, "true", null, "null", null, "xA", null, null, null};
+    for (int i = 0; i < types.length; i++) {
+      Assertions.assertEquals(types[i], lexer.getType());
+      if (values[i] != null) {
+        Assertions.assertEquals(values[i], lexer.getValue());
+      }
+      if (types[i] == TokenType.Open) {
+        // after the BOM is skipped, the '{' is the first character of line 1
+        Assertions.assertEquals(1, lexer.getLastLocationAWS().getLine());
+        Assertions.assertEquals(2, lexer.getLastLocationAWS().getCol());
+      }
+      if (types[i] != TokenType.Eof) {
+        lexer.next();
+      }
+    }
+  }
   
 }
\ No newline at end of file
@@ -0,0 +1,133 @@
+package org.hl7.fhir.utilities.tests;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
+import org.hl7.fhir.utilities.TextFile;
+import org.hl7.fhir.utilities.Utilities;
+import org.hl7.fhir.utilities.npm.NpmPackage;
+import org.hl7.fhir.utilities.npm.NpmPackage.NpmPackageFolder;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class NpmPackageContentTests {
+
+  private void addEntry(TarArchiveOutputStream tar, String name, String content) throws IOException {
+    byte[] b = content.getBytes(StandardCharsets.UTF_8);
+    TarArchiveEntry entry = new TarArchiveEntry(name);
+    entry.setSize(b.length);
+    tar.putArchiveEntry(entry);
+    tar.write(b);
+    tar.closeArchiveEntry();
+  }
+
+  private byte[] makePackage() throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (TarArchiveOutputStream tar = new TarArchiveOutputStream(new GzipCompressorOutputStream(bytes))) {
+      addEntry(tar, "package/package.json", "{\"name\" : \"example.fhir.test\", \"version\" : \"1.0.0\", \"fhirVersions\" : [\"4.0.1\"]}");
+      addEntry(tar, "package/ValueSet-a.json", "{\"resourceType\" : \"ValueSet\", \"id\" : \"a\", \"url\" : \"http://example.org/ValueSet/a\"}");
+      addEntry(tar, "package/ValueSet-b.json", "{\"resourceType\" : \"ValueSet\", \"id\" : \"b\", \"url\" : \"http://example.org/ValueSet/b\"}");
+      addEntry(tar, "package/other/CodeSystem-c.json", "{\"resourceType\" : \"CodeSystem\", \"id\" : \"c\", \"url\" : \"http://example.org/CodeSystem/c\"}");
+      // the index, so the files aren't read to build one
+      addEntry(tar, "package/.index.json", "{\"index-version\" : 1, \"files\" : ["+
+          "{\"filename\" : \"ValueSet-a.json\", \"resourceType\" : \"ValueSet\", \"id\" : \"a\", \"url\" : \"http://example.org/ValueSet/a\"}, "+
+          "{\"filename\" : \"ValueSet-b.json\", \"resourceType\" : \"ValueSet\", \"id\" : \"b\", \"url\" : \"http://example.org/ValueSet/b\"}]}");
+    }
+    return bytes.toByteArray();
+  }
+
+  @Test
+  public void testMappedContent() throws IOException {
+    NpmPackage npm = NpmPackage.fromPackage(new ByteArrayInputStream(makePackage()), null, false, true);
+    Assertions.assertTrue(npm.isMappedContent());
+    NpmPackageFolder folder = npm.getFolders().get("package");
+    Assertions.assertEquals("example.fhir.test", npm.name());
+    Assertions.assertEquals(2, folder.listFiles().size());
+    Assertions.assertTrue(folder.hasFile("ValueSet-b.json"));
+
+    Assertions.assertTrue(TextFile.streamToString(npm.loadByCanonical("http://example.org/ValueSet/a")).contains("\"a\""));
+    Assertions.assertTrue(new String(folder.fetchFile("ValueSet-b.json"), StandardCharsets.UTF_8).contains("\"b\""));
+    // the other folder has no index, so it was read to build one
+    Assertions.assertTrue(TextFile.streamToString(npm.load("other", "CodeSystem-c.json")).contains("\"c\""));
+
+    File dir = Files.createTempDirectory("npm-content").toFile();
+    File dest = new File(dir, "ValueSet-a.json");
+    Assertions.assertEquals(dest.length(), 0);
+    int size = folder.saveFile("ValueSet-a.json", dest);
+    Assertions.assertEquals(size, dest.length());
+    Assertions.assertTrue(TextFile.fileToString(dest).contains("\"a\""));
+
+    folder.removeFile("ValueSet-a.json");
+    Assertions.assertFalse(folder.hasFile("ValueSet-a.json"));
+    Assertions.assertEquals(1, folder.listFiles().size());
+
+    // asking for the content reads all of it
+    Assertions.assertEquals(folder.getFileNames(), folder.getContent().keySet());
+    Assertions.assertEquals(3, folder.getContent().size());
+  }
+
+  @Test
+  public void testSameContent() throws IOException {
+    NpmPackage inMemory = NpmPackage.fromPackage(new ByteArrayInputStream(makePackage()));
+    NpmPackage mapped = NpmPackage.fromPackage(new ByteArrayInputStream(makePackage()), null, false, true);
+    Assertions.assertFalse(inMemory.isMappedContent());
+    for (String folder : inMemory.getFolders().keySet()) {
+      NpmPackageFolder f = mapped.getFolders().get(folder);
+      Assertions.assertEquals(inMemory.getFolders().get(folder).getContent().keySet(), f.getFileNames());
+      for (String s : f.getFileNames()) {
+        Assertions.assertArrayEquals(inMemory.getFolders().get(folder).fetchFile(s), TextFile.streamToBytes(f.openFile(s)));
+      }
+      Assertions.assertEquals(inMemory.getFolders().get(folder).getContent().keySet(), f.getContent().keySet());
+    }
+  }
+
+  @Test
+  public void testMappedFolder() throws IOException {
+    File root = Files.createTempDirectory("npm-content").toFile();
+    File pck = new File(root, "package");
+    pck.mkdirs();
+    TextFile.stringToFile("{\"name\" : \"example.fhir.test\", \"version\" : \"1.0.0\", \"fhirVersions\" : [\"4.0.1\"]}", Utilities.path(pck.getAbsolutePath(), "package.json"));
+    StringBuilder b = new StringBuilder();
+    b.append("{\"resourceType\" : \"Binary\", \"id\" : \"big\", \"data\" : \"");
+    for (int i = 0; i < 100000; i++) {
+      b.append("AAAA");
+    }
+    b.append("\"}");
+    TextFile.stringToFile(b.toString(), Utilities.path(pck.getAbsolutePath(), "Binary-big.json"));
+    NpmPackage npm = NpmPackage.fromFolder(root.getAbsolutePath(), true);
+    Assertions.assertEquals(b.toString(), TextFile.streamToString(npm.load("package", "Binary-big.json")));
+  }
+
+  @Test
+  public void testMappedReadsOnThreads() throws Exception {
+    NpmPackage npm = NpmPackage.fromPackage(new ByteArrayInputStream(makePackage()), null, false, true);
+    NpmPackageFolder folder = npm.getFolders().get("package");
+    ExecutorService pool = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<byte[]>> reads = new ArrayList<>();
+      for (int i = 0; i < 200; i++) {
+        String name = i % 2 == 0 ? "ValueSet-a.json" : "ValueSet-b.json";
+        reads.add(pool.submit(() -> folder.fetchFile(name)));
+      }
+      // every thread gets the file, whether another thread has read it in or not
+      for (Future<byte[]> f : reads) {
+        Assertions.assertNotNull(f.get());
+      }
+    } finally {
+      pool.shutdownNow();
+    }
+    Assertions.assertSame(folder.fetchFile("ValueSet-a.json"), folder.fetchFile("ValueSet-a.json"));
+  }
+}
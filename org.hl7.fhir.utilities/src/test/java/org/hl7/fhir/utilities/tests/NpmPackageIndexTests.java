@@ -0,0 +1,135 @@
+package org.hl7.fhir.utilities.tests;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.hl7.fhir.utilities.TextFile;
+import org.hl7.fhir.utilities.Utilities;
+import org.hl7.fhir.utilities.VersionUtilities;
+import org.hl7.fhir.utilities.json.JsonTrackingParser;
+import org.hl7.fhir.utilities.npm.NpmPackage;
+import org.hl7.fhir.utilities.npm.NpmPackageIndexBuilder;
+import org.hl7.fhir.utilities.npm.NpmPackageIndexBuilder.IndexEntry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+public class NpmPackageIndexTests {
+
+  private static final String VS = "http://example.org/ValueSet/vs";
+
+  private void addResource(File folder, String name, String type, String url, String version) throws IOException {
+    TextFile.stringToFile("{\"resourceType\" : \""+type+"\", \"id\" : \""+name+"\""+(url == null ? "" : ", \"url\" : \""+url+"\"")+
+        (version == null ? "" : ", \"version\" : \""+version+"\"")+"}", Utilities.path(folder.getAbsolutePath(), type+"-"+name+".json"));
+  }
+
+  private NpmPackage makePackage() throws IOException {
+    File root = Files.createTempDirectory("npm-index").toFile();
+    File pck = new File(root, "package");
+    pck.mkdirs();
+    TextFile.stringToFile("{\"name\" : \"example.fhir.test\", \"version\" : \"1.0.0\", \"fhirVersions\" : [\"4.0.1\"]}", Utilities.path(pck.getAbsolutePath(), "package.json"));
+    addResource(pck, "a", "CodeSystem", "http://example.org/CodeSystem/cs", null);
+    addResource(pck, "vs1", "ValueSet", VS, "1.9.0");
+    addResource(pck, "vs2", "ValueSet", VS, "1.10.0");
+    addResource(pck, "vs3", "ValueSet", VS, "1.2.0");
+    addResource(pck, "p", "Patient", null, null);
+    File other = new File(pck, "other");
+    other.mkdirs();
+    addResource(other, "o", "ValueSet", VS, "2.0.0");
+    return NpmPackage.fromFolder(root.getAbsolutePath());
+  }
+
+  @Test
+  public void testFindByCanonical() throws IOException {
+    NpmPackage npm = makePackage();
+    // the latest version is found, whichever file comes first
+    Assertions.assertEquals("ValueSet-vs2.json", npm.findByCanonical(VS, null));
+    Assertions.assertEquals("ValueSet-vs1.json", npm.findByCanonical(VS, "1.9.0"));
+    Assertions.assertEquals("ValueSet-vs3.json", npm.findByCanonical(VS, "1.2.0"));
+    Assertions.assertNull(npm.findByCanonical(VS, "3.0.0"));
+    Assertions.assertEquals("CodeSystem-a.json", npm.findByCanonical("http://example.org/CodeSystem/cs", null));
+    Assertions.assertNull(npm.findByCanonical("http://example.org/CodeSystem/cs", "1.0.0"));
+    Assertions.assertNull(npm.findByCanonical("http://example.org/other", null));
+
+    // other folders
+    Assertions.assertEquals("ValueSet-o.json", npm.findByCanonical(Utilities.path("package", "other"), VS, null));
+    Assertions.assertNull(npm.findByCanonical("missing", VS, null));
+  }
+
+  @Test
+  public void testLoadByCanonical() throws IOException {
+    NpmPackage npm = makePackage();
+    Assertions.assertTrue(TextFile.streamToString(npm.loadByCanonical(VS)).contains("\"1.10.0\""));
+    Assertions.assertTrue(TextFile.streamToString(npm.loadByCanonicalVersion(VS, "1.2.0")).contains("\"vs3\""));
+    Assertions.assertTrue(TextFile.streamToString(npm.loadByCanonical(Utilities.path("package", "other"), VS)).contains("\"2.0.0\""));
+    Assertions.assertNull(npm.loadByCanonical("http://example.org/other"));
+  }
+
+  private IndexEntry readEntry(String name, String json) {
+    return NpmPackageIndexBuilder.readEntry(name, new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+  }
+
+  @Test
+  public void testReadEntry() {
+    IndexEntry entry = readEntry("ValueSet-a.json", "\uFEFF{\"text\" : {\"url\" : \"nested\"}, \"version\" : 2, \"id\" : [\"a\"], "+
+        "\"url\" : \"http://example.org/vs\", \"experimental\" : true, \"resourceType\" : \"ValueSet\"}");
+    Assertions.assertNull(entry.getError());
+    Assertions.assertTrue(entry.isKeep());
+    Assertions.assertEquals("{\"filename\":\"ValueSet-a.json\",\"resourceType\":\"ValueSet\",\"url\":\"http://example.org/vs\",\"version\":\"2\"}", entry.getEntry().toString());
+
+    Assertions.assertNull(readEntry("other.json", "{\"name\" : \"not a resource\"}").getEntry());
+    Assertions.assertNull(readEntry("other.xml", "<ValueSet/>").getEntry());
+
+    entry = readEntry("bad.json", "{\"resourceType\" : \"ValueSet\", ");
+    Assertions.assertNotNull(entry.getError());
+    Assertions.assertNull(entry.getEntry());
+    Assertions.assertTrue(entry.isKeep());
+    Assertions.assertFalse(readEntry("openapi.json", "[]").isKeep());
+  }
+
+  @Test
+  public void testIndexInParallel() throws IOException {
+    File root = Files.createTempDirectory("npm-index").toFile();
+    File pck = new File(root, "package");
+    pck.mkdirs();
+    TextFile.stringToFile("{\"name\" : \"example.fhir.test\", \"version\" : \"1.0.0\", \"fhirVersions\" : [\"4.0.1\"]}", Utilities.path(pck.getAbsolutePath(), "package.json"));
+    List<String> names = new ArrayList<>();
+    for (int i = 0; i < 200; i++) {
+      addResource(pck, "vs"+i, "ValueSet", VS, "1."+i+".0");
+      names.add("ValueSet-vs"+i+".json");
+    }
+    Collections.sort(names);
+    NpmPackage npm = NpmPackage.fromFolder(root.getAbsolutePath());
+    Assertions.assertEquals("ValueSet-vs199.json", npm.findByCanonical(VS, null));
+
+    // the index is in the order of the files, whichever thread read them
+    JsonObject index = JsonTrackingParser.parseJson(new File(pck, ".index.json"));
+    List<String> indexed = new ArrayList<>();
+    for (JsonElement e : index.getAsJsonArray("files")) {
+      indexed.add(((JsonObject) e).get("filename").getAsString());
+    }
+    Assertions.assertEquals(names, indexed);
+  }
+
+  @Test
+  public void testCompareVersions() {
+    Assertions.assertTrue(VersionUtilities.compareVersions("1.10.0", "1.9.0") > 0);
+    Assertions.assertTrue(VersionUtilities.compareVersions("2.0", "10") < 0);
+    Assertions.assertTrue(VersionUtilities.compareVersions(null, "1.0") < 0);
+    Assertions.assertTrue(VersionUtilities.compareVersions("draft", "final") < 0);
+    Assertions.assertEquals(0, VersionUtilities.compareVersions("1.0.0", "1.0.0"));
+    // pre-releases come before the release
+    Assertions.assertTrue(VersionUtilities.compareVersions("1.0.0-ballot", "1.0.0") < 0);
+    Assertions.assertTrue(VersionUtilities.compareVersions("1.0.0", "1.0.0-ballot") > 0);
+    Assertions.assertTrue(VersionUtilities.compareVersions("1.0.0-ballot", "0.9.0") > 0);
+    Assertions.assertTrue(VersionUtilities.compareVersions("1.0.0-ballot.2", "1.0.0-ballot.10") < 0);
+  }
+}
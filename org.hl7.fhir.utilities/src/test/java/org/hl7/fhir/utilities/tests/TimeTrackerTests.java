@@ -0,0 +1,27 @@
+package org.hl7.fhir.utilities.tests;
+
+import org.hl7.fhir.utilities.TimeTracker;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class TimeTrackerTests {
+
+  @Test
+  public void testMerge() {
+    TimeTracker main = new TimeTracker();
+    main.start("validation").end();
+
+    TimeTracker worker = new TimeTracker();
+    worker.start("validation").end();
+    worker.start("validation").end();
+    worker.start("loading").end();
+    worker.start("unfinished");
+
+    main.merge(worker);
+    String report = main.report();
+    Assertions.assertTrue(report.contains("validation: "), report);
+    Assertions.assertTrue(report.contains("(#3)"), report);
+    Assertions.assertTrue(report.contains("loading: "), report);
+    Assertions.assertFalse(report.contains("(#2)"), report);
+  }
+}
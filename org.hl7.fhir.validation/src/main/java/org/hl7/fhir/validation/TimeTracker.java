@@ -1,53 +1,59 @@
 package org.hl7.fhir.validation;
 
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Accumulates validation times. A validator may be shared between threads, so the
+ * counters are atomic
+ */
 public class TimeTracker {
-  private long overall = 0;
-  private long txTime = 0;
-  private long sdTime = 0;
-  private long loadTime = 0;
-  private long fpeTime = 0;
+  private final AtomicLong overall = new AtomicLong();
+  private final AtomicLong txTime = new AtomicLong();
+  private final AtomicLong sdTime = new AtomicLong();
+  private final AtomicLong loadTime = new AtomicLong();
+  private final AtomicLong fpeTime = new AtomicLong();
 
   public long getOverall() {
-    return overall;
+    return overall.get();
   }
   public long getTxTime() {
-    return txTime;
+    return txTime.get();
   }
   public long getSdTime() {
-    return sdTime;
+    return sdTime.get();
   }
   public long getLoadTime() {
-    return loadTime;
+    return loadTime.get();
   }
   public long getFpeTime() {
-    return fpeTime;
+    return fpeTime.get();
   }
   
   public void load(long start) {
-    loadTime = loadTime + (System.nanoTime() - start);
+    loadTime.addAndGet(System.nanoTime() - start);
   }
   
   public void overall(long start) {  
-    overall = overall + (System.nanoTime() - start);
+    overall.addAndGet(System.nanoTime() - start);
   }
   
   public void tx(long start) {
-    txTime = txTime + (System.nanoTime() - start);
+    txTime.addAndGet(System.nanoTime() - start);
   }
   
   public void sd(long start) {
-    sdTime = sdTime + (System.nanoTime() - start);
+    sdTime.addAndGet(System.nanoTime() - start);
   }
   
   public void fpe(long start) {
-    fpeTime = fpeTime + (System.nanoTime() - start);
+    fpeTime.addAndGet(System.nanoTime() - start);
   }
   
   public void reset() {
-    overall = 0;
-    txTime = 0;
-    sdTime = 0;
-    loadTime = 0;
-    fpeTime = 0;
+    overall.set(0);
+    txTime.set(0);
+    sdTime.set(0);
+    loadTime.set(0);
+    fpeTime.set(0);
   }
-}
\ No newline at end of file
+}
@@ -26,6 +26,11 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 
@@ -57,6 +62,7 @@ import org.hl7.fhir.r5.conformance.ProfileUtilities;
 import org.hl7.fhir.r5.context.IWorkerContext.IContextResourceLoader;
 import org.hl7.fhir.r5.context.IWorkerContext.PackageVersion;
 import org.hl7.fhir.r5.context.SimpleWorkerContext;
+import org.hl7.fhir.r5.context.SnapshotCache;
 import org.hl7.fhir.r5.elementmodel.Element;
 import org.hl7.fhir.r5.elementmodel.Manager;
 import org.hl7.fhir.r5.elementmodel.Manager.FhirFormat;
@@ -119,6 +125,8 @@ import org.hl7.fhir.validation.cli.model.ScanOutputItem;
 import org.hl7.fhir.validation.cli.services.StandAloneValidatorFetcher.IPackageInstaller;
 import org.hl7.fhir.validation.cli.utils.*;
 import org.hl7.fhir.validation.instance.InstanceValidator;
+import org.hl7.fhir.validation.packages.PackageGraphLoader;
+import org.hl7.fhir.validation.packages.PackageGraphLoader.PackageFetch;
 import org.w3c.dom.Document;
 import org.xml.sax.SAXException;
 
@@ -302,9 +310,14 @@ public class ValidationEngine implements IValidatorResourceFetcher, IPackageInst
   private boolean noExtensibleBindingMessages;
   private boolean securityChecks;
   private boolean crumbTrails;
+  private boolean parallelBundleEntries;
+  private boolean continueOnError;
+  private ForkJoinPool bundleEntryPool;
   private Locale locale;
   private List<ImplementationGuide> igs = new ArrayList<>();
   private boolean showTimes;
+  private int threads = 1;
+  private int packageFetchThreads = 4; // fetching is mostly waiting on the network and the disk
   private List<BundleValidationRule> bundleValidationRules = new ArrayList<>();
   private Map<String, ValidationControl> validationControl = new HashMap<>();
   private QuestionnaireMode questionnaireMode;
@@ -343,6 +356,38 @@ public class ValidationEngine implements IValidatorResourceFetcher, IPackageInst
     this.showTimes = showTimes;
   }
 
+  public int getThreads() {
+    return threads;
+  }
+
+  /**
+   * The number of threads used when validating a list of sources. The results are the 
+   * same (and in the same order) whatever the number of threads
+   */
+  public void setThreads(int threads) {
+    this.threads = threads;
+  }
+
+  public int getPackageFetchThreads() {
+    return packageFetchThreads;
+  }
+
+  /**
+   * The most dependencies of an IG that are fetched (downloaded and installed) at the same time. 
+   * Use 1 to fetch them one at a time
+   */
+  public void setPackageFetchThreads(int packageFetchThreads) {
+    this.packageFetchThreads = packageFetchThreads;
+  }
+
+  /**
+   * Keep the snapshots generated for profiles in the folder, and use them instead of generating 
+   * them again (see SnapshotCache). Set this before the IGs are loaded
+   */
+  public void setSnapshotCache(String folder) throws IOException {
+    context.setSnapshotCache(new SnapshotCache(folder));
+  }
+
   public ValidationEngine(String src, String txsrvr, String txLog, FhirPublication version, boolean canRunWithoutTerminologyServer, String vString) throws FHIRException, IOException, URISyntaxException {
     pcm = new FilesystemPackageCacheManager(true, ToolsVersion.TOOLS_VERSION);
     loadCoreDefinitions(src, false, null);
@@ -1000,6 +1045,16 @@ public class ValidationEngine implements IValidatorResourceFetcher, IPackageInst
     context.cacheResource(r);
   }
 
+  private void loadPackageIntoContext(String src, NpmPackage npm, long fetchTime) throws IOException, FHIRException {
+    System.out.print("  Load " + src);
+    if (!src.contains("#")) {
+      System.out.print("#"+npm.version());
+    }
+    long start = System.nanoTime();
+    int count = context.loadFromPackage(npm, loaderForVersion(npm.fhirVersion()));
+    System.out.println(" - "+count+" resources (fetch "+Utilities.presentDuration(fetchTime)+", load "+Utilities.presentDuration(System.nanoTime() - start)+", "+context.clock().milestone()+")");
+  }
+
   public void scanForIgVersion(String src, boolean recursive, VersionSourceInformation versions) throws IOException, FHIRException, Exception {
     Map<String, byte[]> source = loadIgSourceForVersion(src, recursive, true, versions);
     if (source != null && source.containsKey("version.info"))
@@ -1007,21 +1062,18 @@ public class ValidationEngine implements IValidatorResourceFetcher, IPackageInst
   }
 
   public void loadIg(String src, boolean recursive) throws IOException, FHIRException {
+    long start = System.nanoTime();
     NpmPackage npm = src.matches(FilesystemPackageCacheManager.PACKAGE_VERSION_REGEX_OPT) ? pcm.loadPackage(src, null) : null;
     if (npm != null) {
-      for (String s : npm.dependencies()) {
-        if (!context.getLoadedPackages().contains(s)) {
-          if (!VersionUtilities.isCorePackage(s)) {
-            loadIg(s, false);
-          }
-        }
-      }
-      System.out.print("  Load " + src);
-      if (!src.contains("#")) {
-        System.out.print("#"+npm.version());
-      }
-      int count = context.loadFromPackage(npm, loaderForVersion(npm.fhirVersion()));
-      System.out.println(" - "+count+" resources ("+context.clock().milestone()+")");
+      long fetchTime = System.nanoTime() - start;
+      // the dependencies are fetched at the same time, and then loaded in the order they'd be found in depth first
+      List<PackageFetch> dependencies = new PackageGraphLoader(pcm, packageFetchThreads).resolve(npm, 
+          s -> context.getLoadedPackages().contains(s) || VersionUtilities.isCorePackage(s));
+      for (PackageFetch pf : dependencies) {
+        context.clock().merge(pf.getClock());
+        loadPackageIntoContext(pf.getId(), pf.getNpm(), pf.getTime());
+      }
+      loadPackageIntoContext(src, npm, fetchTime);
     } else {
       System.out.print("  Load " + src);
       String canonical = null;
@@ -1320,11 +1372,34 @@ public class ValidationEngine implements IValidatorResourceFetcher, IPackageInst
     boolean asBundle = parseSources(sources, refs);
     Bundle results = new Bundle();
     results.setType(Bundle.BundleType.COLLECTION);
+    if (threads > 1 && refs.size() > 1) {
+      validateInParallel(refs, profiles, record, results);
+    } else {
+      validateInSequence(refs, profiles, record, results);
+    }
+    if (asBundle)
+      return results;
+    else
+      return results.getEntryFirstRep().getResource();
+  }
+
+  private void validateInSequence(List<String> refs, List<String> profiles, List<ValidationRecord> record, Bundle results) throws FHIRException, IOException {
     for (String ref : refs) {
       TimeTracker.Session tts = context.clock().start("validation");
       context.clock().milestone();
       System.out.print("  Validate " + ref);
-      Content cnt = loadContent(ref, "validate", false);
+      Content cnt;
+      try {
+        cnt = loadContent(ref, "validate", false);
+      } catch (Exception e) {
+        if (!continueOnError) {
+          throw e;
+        }
+        System.out.println("Validation Infrastructure fail validating "+ref+": "+e.getMessage());
+        tts.end();
+        results.addEntry().setResource(failureToOutcome(ref, e, record));
+        continue;
+      }
       try {
         OperationOutcome outcome = validate(ref, cnt.focus, cnt.cntType, profiles, record);
         ToolingExtensions.addStringExtension(outcome, ToolingExtensions.EXT_OO_FILE, ref);
@@ -1334,13 +1409,108 @@ public class ValidationEngine implements IValidatorResourceFetcher, IPackageInst
       } catch (Exception e) {
         System.out.println("Validation Infrastructure fail validating "+ref+": "+e.getMessage());
         tts.end();
-        throw new FHIRException(e);
+        if (!continueOnError) {
+          throw new FHIRException(e);
+        }
+        results.addEntry().setResource(failureToOutcome(ref, e, record));
       }
     }
-    if (asBundle)
-      return results;
-    else
-      return results.getEntryFirstRep().getResource();
+  }
+
+  /**
+   * With continueOnError, a source that can't be loaded or validated is reported as a fatal issue 
+   * for that source, and the other sources are still validated (as validateScan does)
+   */
+  private OperationOutcome failureToOutcome(String ref, Exception e, List<ValidationRecord> record) throws FHIRException, IOException {
+    List<ValidationMessage> messages = new ArrayList<>();
+    messages.add(new ValidationMessage(Source.InstanceValidator, IssueType.EXCEPTION, ref, "Validation Infrastructure fail validating "+ref+": "+e.getMessage(), IssueSeverity.FATAL));
+    if (record != null) {
+      record.add(new ValidationRecord(ref, messages));
+    }
+    try {
+      OperationOutcome outcome = messagesToOutcome(messages);
+      ToolingExtensions.addStringExtension(outcome, ToolingExtensions.EXT_OO_FILE, ref);
+      return outcome;
+    } catch (EOperationOutcome eo) {
+      throw new FHIRException(eo);
+    }
+  }
+
+  private class ParallelValidation {
+    private TimeTracker clock = new TimeTracker();
+    private List<ValidationRecord> record = new ArrayList<>();
+    private String time;
+    private OperationOutcome outcome;
+    private Exception failure;
+    private boolean loading;
+  }
+
+  /**
+   * Each source is validated on a pool thread with its own timer and record list. The results 
+   * are collected in the order of the sources, so the output (and the first failure, if 
+   * continueOnError isn't set) is the same as validateInSequence
+   */
+  private void validateInParallel(List<String> refs, List<String> profiles, List<ValidationRecord> record, Bundle results) throws FHIRException, IOException {
+    ExecutorService pool = Executors.newFixedThreadPool(Math.min(threads, refs.size()));
+    try {
+      List<Future<ParallelValidation>> futures = new ArrayList<>();
+      for (String ref : refs) {
+        futures.add(pool.submit(() -> {
+          ParallelValidation pv = new ParallelValidation();
+          TimeTracker.Session tts = pv.clock.start("validation");
+          try {
+            pv.loading = true;
+            Content cnt = loadContent(ref, "validate", false);
+            pv.loading = false;
+            pv.outcome = validate(ref, cnt.focus, cnt.cntType, profiles, record == null ? null : pv.record);
+            ToolingExtensions.addStringExtension(pv.outcome, ToolingExtensions.EXT_OO_FILE, ref);
+          } catch (Exception e) {
+            pv.failure = e;
+            if (continueOnError) {
+              pv.outcome = failureToOutcome(ref, e, record == null ? null : pv.record);
+            }
+          }
+          tts.end();
+          pv.time = pv.clock.milestone();
+          return pv;
+        }));
+      }
+      for (int i = 0; i < refs.size(); i++) {
+        String ref = refs.get(i);
+        System.out.print("  Validate " + ref);
+        ParallelValidation pv;
+        try {
+          pv = futures.get(i).get();
+        } catch (ExecutionException e) {
+          throw new FHIRException(e.getCause());
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new FHIRException(e);
+        }
+        if (pv.failure != null && !continueOnError && pv.loading) {
+          if (pv.failure instanceof IOException) {
+            throw (IOException) pv.failure;
+          } else if (pv.failure instanceof RuntimeException) {
+            throw (RuntimeException) pv.failure;
+          }
+          throw new FHIRException(pv.failure);
+        } else if (pv.failure != null) {
+          System.out.println("Validation Infrastructure fail validating "+ref+": "+pv.failure.getMessage());
+          if (!continueOnError) {
+            throw new FHIRException(pv.failure);
+          }
+        } else {
+          System.out.println(" " + pv.time);
+        }
+        results.addEntry().setResource(pv.outcome);
+        if (record != null) {
+          record.addAll(pv.record);
+        }
+        context.clock().merge(pv.clock);
+      }
+    } finally {
+      pool.shutdownNow();
+    }
   }
 
   /**
@@ -1562,6 +1732,10 @@ public class ValidationEngine implements IValidatorResourceFetcher, IPackageInst
     this.version = version;
   }
 
+  /**
+   * Build a validator configured from this engine's settings. The validator keeps its per-validation 
+   * state per thread, so a single instance can be shared by any number of worker threads
+   */
   public InstanceValidator getValidator() {
     InstanceValidator validator = new InstanceValidator(context, null);
     validator.setHintAboutNonMustSupport(hintAboutNonMustSupport);
@@ -1572,6 +1746,8 @@ public class ValidationEngine implements IValidatorResourceFetcher, IPackageInst
     validator.setNoExtensibleWarnings(noExtensibleBindingMessages);
     validator.setSecurityChecks(securityChecks);
     validator.setCrumbTrails(crumbTrails);
+    validator.setParallelBundleEntries(parallelBundleEntries);
+    validator.setBundleEntryPool(parallelBundleEntries ? getBundleEntryPool() : null);
     validator.getContext().setLocale(locale);
     validator.setFetcher(this);
     validator.getImplementationGuides().addAll(igs);
@@ -2034,6 +2210,36 @@ public class ValidationEngine implements IValidatorResourceFetcher, IPackageInst
     this.crumbTrails = crumbTrails;
   }
 
+  public boolean isParallelBundleEntries() {
+    return parallelBundleEntries;
+  }
+
+  public void setParallelBundleEntries(boolean parallelBundleEntries) {
+    this.parallelBundleEntries = parallelBundleEntries;
+  }
+
+  public boolean isContinueOnError() {
+    return continueOnError;
+  }
+
+  public void setContinueOnError(boolean continueOnError) {
+    this.continueOnError = continueOnError;
+  }
+
+  /**
+   * The pool that bundle entries are validated on. It has as many threads as -threads asks for 
+   * (or one per processor, if -threads isn't more than 1), and is replaced if that changes. 
+   * The old pool isn't shut down, because validators made before the change may still be 
+   * using it - its threads end by themselves once it's idle
+   */
+  private synchronized ForkJoinPool getBundleEntryPool() {
+    int size = threads > 1 ? threads : Runtime.getRuntime().availableProcessors();
+    if (bundleEntryPool == null || bundleEntryPool.getParallelism() != size) {
+      bundleEntryPool = new ForkJoinPool(size);
+    }
+    return bundleEntryPool;
+  }
+
   public byte[] transformVersion(String source, String targetVer, FhirFormat format, Boolean canDoNative) throws FHIRException, IOException, Exception {
     Content cnt = loadContent(source, "validate", false);
     org.hl7.fhir.r5.elementmodel.Element src = Manager.parse(context, new ByteArrayInputStream(cnt.focus), cnt.cntType);
@@ -81,6 +81,18 @@ public class CliContext {
   
   @JsonProperty("showTimes")
   private boolean showTimes = false;
+
+  @JsonProperty("threads")
+  private int threads = 1;
+
+  @JsonProperty("parallelEntries")
+  private boolean parallelEntries = false;
+
+  @JsonProperty("snapshotCache")
+  private String snapshotCache = null;
+
+  @JsonProperty("continueOnError")
+  private boolean continueOnError = false;
   
   @JsonProperty("locale")
   private String locale = Locale.ENGLISH.getDisplayLanguage();
@@ -469,6 +481,39 @@ public class CliContext {
     this.showTimes = showTimes;
   }
 
+  public int getThreads() {
+    return threads;
+  }
+
+  public void setThreads(int threads) {
+    this.threads = threads;
+  }
+
+  public boolean isParallelEntries() {
+    return parallelEntries;
+  }
+
+  public void setParallelEntries(boolean parallelEntries) {
+    this.parallelEntries = parallelEntries;
+  }
+
+  public boolean isContinueOnError() {
+    return continueOnError;
+  }
+
+  public CliContext setContinueOnError(boolean continueOnError) {
+    this.continueOnError = continueOnError;
+    return this;
+  }
+
+  public String getSnapshotCache() {
+    return snapshotCache;
+  }
+
+  public void setSnapshotCache(String snapshotCache) {
+    this.snapshotCache = snapshotCache;
+  }
+
   @Override
   public boolean equals(Object o) {
     if (this == o) return true;
@@ -500,6 +545,10 @@ public class CliContext {
       Objects.equals(sources, that.sources) &&
       Objects.equals(crumbTrails, that.crumbTrails) &&
       Objects.equals(showTimes, that.showTimes) &&
+      threads == that.threads &&
+      parallelEntries == that.parallelEntries &&
+      Objects.equals(snapshotCache, that.snapshotCache) &&
+      continueOnError == that.continueOnError &&
       mode == that.mode &&
       Objects.equals(locale, that.locale) &&
       Objects.equals(locations, that.locations);
@@ -507,7 +556,7 @@ public class CliContext {
 
   @Override
   public int hashCode() {
-    return Objects.hash(doNative, anyExtensionsAllowed, hintAboutNonMustSupport, recursive, doDebug, assumeValidRestReferences, canDoNative, noInternalCaching, noExtensibleBindingMessages, map, output, htmlOutput, txServer, sv, txLog, mapLog, lang, fhirpath, snomedCT, targetVer, igs, questionnaireMode, profiles, sources, mode, locale, locations, crumbTrails, showTimes);
+    return Objects.hash(doNative, anyExtensionsAllowed, hintAboutNonMustSupport, recursive, doDebug, assumeValidRestReferences, canDoNative, noInternalCaching, noExtensibleBindingMessages, map, output, htmlOutput, txServer, sv, txLog, mapLog, lang, fhirpath, snomedCT, targetVer, igs, questionnaireMode, profiles, sources, mode, locale, locations, crumbTrails, showTimes, threads, parallelEntries, snapshotCache, continueOnError);
   }
 
   @Override
@@ -541,6 +590,10 @@ public class CliContext {
       ", securityChecks=" + securityChecks +
       ", crumbTrails=" + crumbTrails +
       ", showTimes=" + showTimes +
+      ", threads=" + threads +
+      ", parallelEntries=" + parallelEntries +
+      ", snapshotCache='" + snapshotCache + '\'' +
+      ", continueOnError=" + continueOnError +
       ", locale='" + locale + '\'' +
       ", locations=" + locations +
       ", bundleValidationRules=" + bundleValidationRules +
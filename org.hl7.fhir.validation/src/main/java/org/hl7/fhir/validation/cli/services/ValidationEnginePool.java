@@ -0,0 +1,154 @@
+package org.hl7.fhir.validation.cli.services;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.hl7.fhir.r5.utils.IResourceValidator.BundleValidationRule;
+import org.hl7.fhir.utilities.TimeTracker;
+import org.hl7.fhir.validation.ValidationEngine;
+import org.hl7.fhir.validation.cli.model.CliContext;
+
+/**
+ * Keeps loaded validation engines around so that a long running service doesn't have to
+ * load the core package, the IGs and connect to the terminology server for every request.
+ *
+ * Engines are keyed by everything in the CliContext that goes into building them (FHIR
+ * version, IGs, terminology server, and the validator settings). Unused engines are
+ * dropped once the pool is full (least recently used first), or when they have been idle
+ * for too long.
+ *
+ * An engine can be handed to more than one request at a time: the validators it builds
+ * share its worker context, which is safe for concurrent use
+ */
+public class ValidationEnginePool {
+
+  public static final int DEFAULT_MAX_ENGINES = 4;
+  public static final long DEFAULT_MAX_IDLE_MILLIS = 60 * 60 * 1000; // 1 hour
+
+  private class PooledEngine {
+    private ValidationEngine engine;
+    private long lastUsed;
+  }
+
+  private final int maxEngines;
+  private final long maxIdleMillis;
+  private final Map<List<Object>, PooledEngine> engines = new LinkedHashMap<>(16, 0.75f, true); // access order, so the first entry is the least recently used
+
+  public ValidationEnginePool() {
+    this(DEFAULT_MAX_ENGINES, DEFAULT_MAX_IDLE_MILLIS);
+  }
+
+  public ValidationEnginePool(int maxEngines, long maxIdleMillis) {
+    super();
+    this.maxEngines = maxEngines;
+    this.maxIdleMillis = maxIdleMillis;
+  }
+
+  /**
+   * Get a ready to use engine for the context, building it if there isn't one already
+   *
+   * @param cliContext - the settings for the engine. Sources, profiles and output settings are not part of the engine, and may vary
+   * @param definitions - the core package (id#version) to load
+   * @param tt - time tracker for engine construction, if it happens
+   */
+  public ValidationEngine getEngine(CliContext cliContext, String definitions, TimeTracker tt) throws Exception {
+    List<Object> key = makeKey(cliContext, definitions);
+    PooledEngine pe;
+    synchronized (engines) {
+      evictIdle();
+      pe = engines.get(key);
+      if (pe == null) {
+        pe = new PooledEngine();
+        engines.put(key, pe);
+        evictOverflow();
+      }
+    }
+    // building takes a while, so only block requests that want the same engine
+    synchronized (pe) {
+      if (pe.engine == null) {
+        try {
+          pe.engine = buildEngine(cliContext, definitions, tt);
+        } catch (Exception e) {
+          synchronized (engines) {
+            engines.remove(key);
+          }
+          throw e;
+        }
+      }
+      pe.lastUsed = System.currentTimeMillis();
+      return pe.engine;
+    }
+  }
+
+  /**
+   * Load a new engine for the context. Tests override this to avoid loading packages
+   */
+  protected ValidationEngine buildEngine(CliContext cliContext, String definitions, TimeTracker tt) throws Exception {
+    return ValidationService.getValidator(cliContext, definitions, tt);
+  }
+
+  public int size() {
+    synchronized (engines) {
+      return engines.size();
+    }
+  }
+
+  public void clear() {
+    synchronized (engines) {
+      engines.clear();
+    }
+  }
+
+  private void evictIdle() {
+    long now = System.currentTimeMillis();
+    for (Iterator<PooledEngine> i = engines.values().iterator(); i.hasNext(); ) {
+      PooledEngine pe = i.next();
+      if (pe.engine != null && now - pe.lastUsed > maxIdleMillis) {
+        i.remove();
+      }
+    }
+  }
+
+  private void evictOverflow() {
+    Iterator<PooledEngine> i = engines.values().iterator();
+    while (engines.size() > maxEngines && i.hasNext()) {
+      i.next();
+      i.remove();
+    }
+  }
+
+  private List<Object> makeKey(CliContext cliContext, String definitions) {
+    List<Object> key = new ArrayList<>();
+    key.add(definitions);
+    key.add(cliContext.getSv());
+    key.add(cliContext.getTxServer());
+    key.add(cliContext.getTxLog());
+    key.add(new ArrayList<>(cliContext.getIgs()));
+    key.add(cliContext.isRecursive());
+    key.add(cliContext.isDoDebug());
+    key.add(cliContext.getQuestionnaireMode());
+    key.add(cliContext.isDoNative());
+    key.add(cliContext.isHintAboutNonMustSupport());
+    key.add(cliContext.isAnyExtensionsAllowed());
+    key.add(cliContext.getLang());
+    key.add(cliContext.getLocale());
+    key.add(cliContext.getSnomedCTCode());
+    key.add(cliContext.isAssumeValidRestReferences());
+    key.add(cliContext.isNoExtensibleBindingMessages());
+    key.add(cliContext.isSecurityChecks());
+    key.add(cliContext.isCrumbTrails());
+    key.add(cliContext.isShowTimes());
+    key.add(cliContext.getThreads());
+    key.add(cliContext.isParallelEntries());
+    key.add(cliContext.isContinueOnError());
+    key.add(cliContext.getSnapshotCache());
+    key.add(cliContext.isNoInternalCaching());
+    for (BundleValidationRule bvr : cliContext.getBundleValidationRules()) {
+      key.add(bvr.getRule()+"|"+bvr.getProfile());
+    }
+    return key;
+  }
+}
@@ -7,7 +7,6 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
-import org.hl7.fhir.r5.context.TerminologyCache;
 import org.hl7.fhir.r5.elementmodel.Manager;
 import org.hl7.fhir.r5.formats.IParser;
 import org.hl7.fhir.r5.formats.JsonParser;
@@ -34,12 +33,14 @@ import org.hl7.fhir.validation.cli.utils.VersionSourceInformation;
 
 public class ValidationService {
 
+  private static final ValidationEnginePool enginePool = new ValidationEnginePool();
+
   public static ValidationResponse validateSources(ValidationRequest request) throws Exception {
     if (request.getCliContext().getSv() == null) {
       request.getCliContext().setSv(ValidationService.determineVersion(request.getCliContext()));
     }
     String definitions = VersionUtilities.packageForVersion(request.getCliContext().getSv()) + "#" + VersionUtilities.getCurrentVersion(request.getCliContext().getSv());
-    ValidationEngine validator = ValidationService.getValidator(request.getCliContext(), definitions, new TimeTracker());
+    ValidationEngine validator = enginePool.getEngine(request.getCliContext(), definitions, new TimeTracker());
 
     if (request.getCliContext().getProfiles().size() > 0) {
       System.out.println("  .. validate " + request.listSourceFiles() + " against " + request.getCliContext().getProfiles().toString());
@@ -59,6 +60,13 @@ public class ValidationService {
     return response;
   }
 
+  /**
+   * The engines kept loaded between calls to validateSources(ValidationRequest)
+   */
+  public static ValidationEnginePool getEnginePool() {
+    return enginePool;
+  }
+
   public static VersionSourceInformation scanForVersions(CliContext cliContext) throws Exception {
     VersionSourceInformation versions = new VersionSourceInformation();
     ValidationEngine ve = new ValidationEngine();
@@ -213,6 +221,9 @@ public class ValidationService {
     String txver = validator.setTerminologyServer(cliContext.getTxServer(), cliContext.getTxLog(), ver); 
     System.out.println(" - Version "+txver+" ("+tt.milestone()+")");
     validator.setDebug(cliContext.isDoDebug());
+    if (cliContext.getSnapshotCache() != null) {
+      validator.setSnapshotCache(cliContext.getSnapshotCache());
+    }
     for (String src : cliContext.getIgs()) {
       validator.loadIg(src, cliContext.isRecursive());
     }
@@ -229,9 +240,12 @@ public class ValidationService {
     validator.setSecurityChecks(cliContext.isSecurityChecks());
     validator.setCrumbTrails(cliContext.isCrumbTrails());
     validator.setShowTimes(cliContext.isShowTimes());
+    validator.setThreads(cliContext.getThreads());
+    validator.setParallelBundleEntries(cliContext.isParallelEntries());
+    validator.setContinueOnError(cliContext.isContinueOnError());
     validator.setFetcher(new StandAloneValidatorFetcher(validator.getPcm(), validator.getContext(), validator));
     validator.getBundleValidationRules().addAll(cliContext.getBundleValidationRules());
-    TerminologyCache.setNoCaching(cliContext.isNoInternalCaching());
+    validator.getContext().getTerminologyCache().setCaching(!cliContext.isNoInternalCaching()); // per engine: pooled engines can differ
     validator.prepare(); // generate any missing snapshots
     System.out.println(" go ("+tt.milestone()+")");
 
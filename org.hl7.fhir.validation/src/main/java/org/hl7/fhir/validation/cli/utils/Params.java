@@ -53,6 +53,10 @@ public class Params {
   public static final String SECURITY_CHECKS = "-security-checks";
   public static final String CRUMB_TRAIL = "-crumb-trails";
   public static final String SHOW_TIMES = "-show-times";
+  public static final String THREADS = "-threads";
+  public static final String PARALLEL_ENTRIES = "-parallel-entries";
+  public static final String SNAPSHOT_CACHE = "-snapshot-cache";
+  public static final String CONTINUE_ON_ERROR = "-continue-on-error";
 
   /**
    * Checks the list of passed in params to see if it contains the passed in param.
@@ -174,6 +178,20 @@ public class Params {
         cliContext.setCrumbTrails(true);
       } else if (args[i].equals(SHOW_TIMES)) {
         cliContext.setShowTimes(true);
+      } else if (args[i].equals(THREADS)) {
+        if (i + 1 == args.length)
+          throw new Error("Specified -threads without indicating the number of threads");
+        else
+          cliContext.setThreads(Integer.parseInt(args[++i]));
+      } else if (args[i].equals(PARALLEL_ENTRIES)) {
+        cliContext.setParallelEntries(true);
+      } else if (args[i].equals(CONTINUE_ON_ERROR)) {
+        cliContext.setContinueOnError(true);
+      } else if (args[i].equals(SNAPSHOT_CACHE)) {
+        if (i + 1 == args.length)
+          throw new Error("Specified -snapshot-cache without indicating folder");
+        else
+          cliContext.setSnapshotCache(args[++i]);
       } else if (args[i].equals(SCAN)) {
         cliContext.setMode(EngineMode.SCAN);
       } else if (args[i].equals(TERMINOLOGY)) {
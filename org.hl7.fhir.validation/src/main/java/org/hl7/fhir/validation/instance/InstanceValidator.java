@@ -43,10 +43,13 @@ import java.util.Calendar;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 import org.apache.commons.codec.binary.Base64InputStream;
 import org.apache.commons.lang3.NotImplementedException;
@@ -129,6 +132,7 @@ import org.hl7.fhir.r5.model.ValueSet.ValueSetExpansionContainsComponent;
 import org.hl7.fhir.r5.terminologies.ValueSetExpander.TerminologyServiceErrorClass;
 import org.hl7.fhir.r5.utils.FHIRLexer.FHIRLexerException;
 import org.hl7.fhir.r5.utils.FHIRPathEngine;
+import org.hl7.fhir.r5.utils.FHIRPathEngine.CompiledExpression;
 import org.hl7.fhir.r5.utils.FHIRPathEngine.IEvaluationContext;
 import org.hl7.fhir.r5.utils.IResourceValidator;
 import org.hl7.fhir.r5.utils.ToolingExtensions;
@@ -155,9 +159,12 @@ import org.hl7.fhir.validation.instance.type.QuestionnaireValidator;
 import org.hl7.fhir.validation.instance.type.SearchParameterValidator;
 import org.hl7.fhir.validation.instance.type.StructureDefinitionValidator;
 import org.hl7.fhir.validation.instance.type.ValueSetValidator;
+import org.hl7.fhir.validation.instance.utils.BundleIndex;
 import org.hl7.fhir.validation.instance.utils.ChildIterator;
 import org.hl7.fhir.validation.instance.utils.ElementInfo;
 import org.hl7.fhir.validation.instance.utils.IndexedElement;
+import org.hl7.fhir.validation.instance.utils.InvariantPlan;
+import org.hl7.fhir.validation.instance.utils.InvariantPlan.PlannedInvariant;
 import org.hl7.fhir.validation.instance.utils.NodeStack;
 import org.hl7.fhir.validation.instance.utils.ResolvedReference;
 import org.hl7.fhir.validation.instance.utils.ResourceValidationTracker;
@@ -184,8 +191,7 @@ import com.google.gson.JsonObject;
  */
 
 public class InstanceValidator extends BaseValidator implements IResourceValidator {
-  private static final String EXECUTED_CONSTRAINT_LIST = "validator.executed.invariant.list";
-  private static final String EXECUTION_ID = "validator.execution.id";
+  private static final int MIN_PARALLEL_ENTRIES = 16; // smaller bundles aren't worth splitting up
   private static final String HTML_FRAGMENT_REGEX = "[a-zA-Z]\\w*(((\\s+)(\\S)*)*)";
   
   private class ValidatorHostServices implements IEvaluationContext {
@@ -330,7 +336,65 @@ public class InstanceValidator extends BaseValidator implements IResourceValidat
     }
 
   }
-  private FHIRPathEngine fpe;
+
+  /**
+   * Everything that changes while a validation is running. The validator itself only 
+   * holds configuration, so a configured instance can be shared between threads; each 
+   * thread gets its own copy of this state. (The FHIRPath engine is shared: it keeps the 
+   * log of an evaluation per thread). The state is only held by the thread while validate() 
+   * is running, so nothing is left behind on pooled threads
+   */
+  private static class ValidationRunState {
+    private Map<String, Element> fetchCache = new HashMap<>();
+    private Map<Element, ResourceValidationTracker> resourceTracker = new HashMap<>();
+    private Map<Element, Set<String>> executedInvariants = new IdentityHashMap<>(); // so each invariant is only checked once per element
+    private boolean baseOnly;
+
+    private ValidationRunState() {
+      super();
+    }
+
+    /**
+     * state for validating a bundle entry by itself: as it was for the bundle, except that the entry 
+     * has its own record of the invariants checked, since other entries (and the references from 
+     * them) may be checking the same elements at the same time
+     */
+    private ValidationRunState(ValidationRunState bundleState) {
+      fetchCache.putAll(bundleState.fetchCache);
+      baseOnly = bundleState.baseOnly;
+    }
+
+    private void start(Element element, List<StructureDefinition> profiles) {
+      fetchCache.clear();
+      fetchCache.put(element.fhirType() + "/" + element.getIdBase(), element);
+      resourceTracker.clear();
+      executedInvariants.clear();
+      baseOnly = profiles.isEmpty();
+    }
+  }
+
+  private final ThreadLocal<ValidationRunState> runState = new ThreadLocal<>();
+
+  /**
+   * @return the state of the validation running on this thread. Outside validate() (when 
+   * one of the checks is called directly), there's a new state for each call
+   */
+  private ValidationRunState runState() {
+    ValidationRunState res = runState.get();
+    return res != null ? res : new ValidationRunState();
+  }
+
+  /**
+   * put the state that was in place before a validation (or an entry) started back, or 
+   * clear it when there wasn't one
+   */
+  private void restoreRunState(ValidationRunState previous) {
+    if (previous == null) {
+      runState.remove();
+    } else {
+      runState.set(previous);
+    }
+  }
 
   // configuration items
   private CheckDisplayOption checkDisplay;
@@ -342,7 +406,6 @@ public class InstanceValidator extends BaseValidator implements IResourceValidat
   private boolean showMessagesFromReferences;
   private BestPracticeWarningLevel bpWarnings;
   private String validationLanguage;
-  private boolean baseOnly;
   private boolean noCheckAggregation;
   private boolean wantCheckSnapshotUnchanged;
  
@@ -351,6 +414,9 @@ public class InstanceValidator extends BaseValidator implements IResourceValidat
 
   private IdStatus resourceIdRule;
   private boolean allowXsiLocation;
+  private boolean streamingParse;
+  private boolean parallelBundleEntries;
+  private ForkJoinPool bundleEntryPool;
 
   // used during the build process to keep the overall volume of messages down
   private boolean suppressLoincSnomedMessages;
@@ -358,8 +424,6 @@ public class InstanceValidator extends BaseValidator implements IResourceValidat
   // time tracking
   private boolean noBindingMsgSuppressed;
   private boolean debug;
-  private Map<String, Element> fetchCache = new HashMap<>();
-  private HashMap<Element, ResourceValidationTracker> resourceTracker = new HashMap<>();
   private IValidatorResourceFetcher fetcher;
   long time = 0;
   private IEvaluationContext externalHostServices;
@@ -367,10 +431,10 @@ public class InstanceValidator extends BaseValidator implements IResourceValidat
   private String serverBase;
 
   private EnableWhenEvaluator myEnableWhenEvaluator = new EnableWhenEvaluator();
-  private String executionId;
-  private XVerExtensionManager xverManager;
+  private final XVerExtensionManager xverManager;
   private IValidationProfileUsageTracker tracker;
   private ValidatorHostServices validatorServices;
+  private volatile FHIRPathEngine fpe;
   private boolean assumeValidRestReferences;
   private boolean allowExamples;
   private boolean securityChecks;
@@ -384,11 +448,8 @@ public class InstanceValidator extends BaseValidator implements IResourceValidat
     super(theContext);
     this.externalHostServices = hostServices;
     this.profileUtilities = new ProfileUtilities(theContext, null, null);
-    fpe = new FHIRPathEngine(context);
+    this.xverManager = new XVerExtensionManager(theContext);
     validatorServices = new ValidatorHostServices();
-    fpe.setHostServices(validatorServices);
-    if (theContext.getVersion().startsWith("3.0") || theContext.getVersion().startsWith("1.0"))
-      fpe.setLegacyMode(true);
     source = Source.InstanceValidator;
   }
 
@@ -540,6 +601,8 @@ public class InstanceValidator extends BaseValidator implements IResourceValidat
     ParserBase parser = Manager.makeParser(context, format);
     if (parser instanceof XmlParser)
       ((XmlParser) parser).setAllowXsiLocation(allowXsiLocation);
+    if (parser instanceof JsonParser)
+      ((JsonParser) parser).setStreaming(streamingParse);
     parser.setupValidation(ValidationPolicy.EVERYTHING, errors);
     long t = System.nanoTime();
     Element e;
@@ -688,26 +751,29 @@ public class InstanceValidator extends BaseValidator implements IResourceValidat
   @Override
   public void validate(Object appContext, List<ValidationMessage> errors, Element element, List<StructureDefinition> profiles) throws FHIRException {
     // this is the main entry point; all the other public entry points end up here coming here...
-    // so the first thing to do is to clear the internal state
-    fetchCache.clear();
-    fetchCache.put(element.fhirType() + "/" + element.getIdBase(), element);
-    resourceTracker.clear();
-    executionId = UUID.randomUUID().toString();
-    baseOnly = profiles.isEmpty();
-    setParents(element);
+    // so the first thing to do is to set up fresh internal state (and put back whatever was there when done)
+    ValidationRunState previous = runState.get();
+    ValidationRunState state = new ValidationRunState();
+    state.start(element, profiles);
+    runState.set(state);
+    try {
+      setParents(element);
 
-    long t = System.nanoTime();
-    if (profiles == null || profiles.isEmpty()) {
-      validateResource(new ValidatorHostContext(appContext, element), errors, element, element, null, resourceIdRule, new NodeStack(context, element, validationLanguage).resetIds());
-    } else {
-      for (StructureDefinition defn : profiles) {
-        validateResource(new ValidatorHostContext(appContext, element), errors, element, element, defn, resourceIdRule, new NodeStack(context, element, validationLanguage).resetIds());
+      long t = System.nanoTime();
+      if (profiles == null || profiles.isEmpty()) {
+        validateResource(new ValidatorHostContext(appContext, element), errors, element, element, null, resourceIdRule, new NodeStack(context, element, validationLanguage).resetIds());
+      } else {
+        for (StructureDefinition defn : profiles) {
+          validateResource(new ValidatorHostContext(appContext, element), errors, element, element, defn, resourceIdRule, new NodeStack(context, element, validationLanguage).resetIds());
+        }
       }
+      if (hintAboutNonMustSupport) {
+        checkElementUsage(errors, element, new NodeStack(context, element, validationLanguage));
+      }
+      timeTracker.overall(t);
+    } finally {
+      restoreRunState(previous);
     }
-    if (hintAboutNonMustSupport) {
-      checkElementUsage(errors, element, new NodeStack(context, element, validationLanguage));
-    }
-    timeTracker.overall(t);
   }
 
 
@@ -1021,7 +1087,7 @@ public class InstanceValidator extends BaseValidator implements IResourceValidat
                           else if (!noExtensibleWarnings)
                             txWarning(errors, vr.getTxLink(), IssueType.CODEINVALID, element.line(), element.col(), path, false, I18nConstants.TERMINOLOGY_TX_CONFIRM_2, describeReference(binding.getValueSet()), vr.getErrorClass().toString());
                         } else if (binding.getStrength() == BindingStrength.PREFERRED) {
-                          if (baseOnly) {
+                          if (runState().baseOnly) {
                             txHint(errors, vr.getTxLink(), IssueType.CODEINVALID, element.line(), element.col(), path, false, I18nConstants.TERMINOLOGY_TX_CONFIRM_3, describeReference(binding.getValueSet()), vr.getErrorClass().toString());
                           }
                         }
@@ -1034,7 +1100,7 @@ public class InstanceValidator extends BaseValidator implements IResourceValidat
                           if (!noExtensibleWarnings)
                             txWarning(errors, vr.getTxLink(), IssueType.CODEINVALID, element.line(), element.col(), path, false, I18nConstants.TERMINOLOGY_TX_NOVALID_2, describeReference(binding.getValueSet()), valueset.getUrl(), ccSummary(cc));
                         } else if (binding.getStrength() == BindingStrength.PREFERRED) {
-                          if (baseOnly) {
+                          if (runState().baseOnly) {
                             txHint(errors, vr.getTxLink(), IssueType.CODEINVALID, element.line(), element.col(), path, false, I18nConstants.TERMINOLOGY_TX_NOVALID_3, describeReference(binding.getValueSet()), valueset.getUrl(), ccSummary(cc));
                           }
                         }
@@ -1130,7 +1196,7 @@ public class InstanceValidator extends BaseValidator implements IResourceValidat
                           else if (!noExtensibleWarnings)
                             txWarning(errors, vr.getTxLink(), IssueType.CODEINVALID, element.line(), element.col(), path, false, I18nConstants.TERMINOLOGY_TX_CONFIRM_2, describeReference(binding.getValueSet()), vr.getErrorClass().toString());
                         } else if (binding.getStrength() == BindingStrength.PREFERRED) {
-                          if (baseOnly) {
+                          if (runState().baseOnly) {
                             txHint(errors, vr.getTxLink(), IssueType.CODEINVALID, element.line(), element.col(), path, false, I18nConstants.TERMINOLOGY_TX_CONFIRM_3, describeReference(binding.getValueSet()), vr.getErrorClass().toString());
                           }
                         }
@@ -1143,7 +1209,7 @@ public class InstanceValidator extends BaseValidator implements IResourceValidat
                           if (!noExtensibleWarnings)
                             txWarning(errors, vr.getTxLink(), IssueType.CODEINVALID, element.line(), element.col(), path, false, I18nConstants.TERMINOLOGY_TX_NOVALID_2, describeReference(binding.getValueSet()), valueset.getUrl(), ccSummary(cc));
                         } else if (binding.getStrength() == BindingStrength.PREFERRED) {
-                          if (baseOnly) {
+                          if (runState().baseOnly) {
                             txHint(errors, vr.getTxLink(), IssueType.CODEINVALID, element.line(), element.col(), path, false, I18nConstants.TERMINOLOGY_TX_NOVALID_3, describeReference(binding.getValueSet()), valueset.getUrl(), ccSummary(cc));
                           }
                         }
@@ -1226,7 +1292,7 @@ public class InstanceValidator extends BaseValidator implements IResourceValidat
                           else if (!noExtensibleWarnings)
                             txWarning(errors, vr.getTxLink(), IssueType.CODEINVALID, element.line(), element.col(), path, false, I18nConstants.TERMINOLOGY_TX_CONFIRM_5, describeReference(binding.getValueSet(), valueset));
                         } else if (binding.getStrength() == BindingStrength.PREFERRED) {
-                          if (baseOnly) {
+                          if (runState().baseOnly) {
                             txHint(errors, vr.getTxLink(), IssueType.CODEINVALID, element.line(), element.col(), path, false, I18nConstants.TERMINOLOGY_TX_CONFIRM_6, describeReference(binding.getValueSet(), valueset));
                           }
                         }
@@ -1238,7 +1304,7 @@ public class InstanceValidator extends BaseValidator implements IResourceValidat
                         else
                           txWarning(errors, vr.getTxLink(), IssueType.CODEINVALID, element.line(), element.col(), path, false, I18nConstants.TERMINOLOGY_TX_NOVALID_5, describeReference(binding.getValueSet(), valueset), (vr.getMessage() != null ? " (error message = " + vr.getMessage() + ")" : ""), system+"#"+code);
                       } else if (binding.getStrength() == BindingStrength.PREFERRED) {
-                        if (baseOnly) {
+                        if (runState().baseOnly) {
                           txHint(errors, vr.getTxLink(), IssueType.CODEINVALID, element.line(), element.col(), path, false, I18nConstants.TERMINOLOGY_TX_NOVALID_6, describeReference(binding.getValueSet(), valueset), (vr.getMessage() != null ? " (error message = " + vr.getMessage() + ")" : ""), system+"#"+code);
                         }
                       }
@@ -1445,7 +1511,7 @@ public class InstanceValidator extends BaseValidator implements IResourceValidat
                           else if (!noExtensibleWarnings)
                             txWarning(errors, vr.getTxLink(), IssueType.CODEINVALID, element.line(), element.col(), path, false, I18nConstants.TERMINOLOGY_TX_CONFIRM_5, describeReference(binding.getValueSet(), valueset));
                         } else if (binding.getStrength() == BindingStrength.PREFERRED) {
-                          if (baseOnly) {
+                          if (runState().baseOnly) {
                             txHint(errors, vr.getTxLink(), IssueType.CODEINVALID, element.line(), element.col(), path, false, I18nConstants.TERMINOLOGY_TX_CONFIRM_6, describeReference(binding.getValueSet(), valueset));
                           }
                         }
@@ -1457,7 +1523,7 @@ public class InstanceValidator extends BaseValidator implements IResourceValidat
                         else
                           txWarning(errors, vr.getTxLink(), IssueType.CODEINVALID, element.line(), element.col(), path, false, I18nConstants.TERMINOLOGY_TX_NOVALID_13, describeReference(binding.getValueSet(), valueset), getErrorMessage(vr.getMessage()), c.getSystem()+"#"+c.getCode());
                       } else if (binding.getStrength() == BindingStrength.PREFERRED) {
-                        if (baseOnly) {
+                        if (runState().baseOnly) {
                           txHint(errors, vr.getTxLink(), IssueType.CODEINVALID, element.line(), element.col(), path, false, I18nConstants.TERMINOLOGY_TX_NOVALID_14, describeReference(binding.getValueSet(), valueset), getErrorMessage(vr.getMessage()), theSystem+"#"+theCode);
                         }
                       }
@@ -1504,9 +1570,6 @@ public class InstanceValidator extends BaseValidator implements IResourceValidat
     StructureDefinition ex = Utilities.isAbsoluteUrl(url) ? context.fetchResource(StructureDefinition.class, url) : null;
     timeTracker.sd(t);
     if (ex == null) {
-      if (xverManager == null) {
-        xverManager = new XVerExtensionManager(context);
-      }
       if (xverManager.matchingUrl(url)) {
         switch (xverManager.status(url)) {
           case BadVersion:
@@ -1676,7 +1739,7 @@ public class InstanceValidator extends BaseValidator implements IResourceValidat
       } else if (ctxt.getType() == ExtensionContextType.FHIRPATH) {
         contexts.append("p:" + ctxt.getExpression());
         // The context is all elements that match the FHIRPath query found in the expression.
-        List<Base> res = fpe.evaluate(hostContext, resource, hostContext.getRootResource(), resource, fpe.parse(ctxt.getExpression()));
+        List<Base> res = fpe().evaluate(hostContext, resource, hostContext.getRootResource(), resource, fpe().parseCached(ctxt.getExpression()));
         if (res.contains(container)) {
           ok = true;
         }
@@ -1694,7 +1757,7 @@ public class InstanceValidator extends BaseValidator implements IResourceValidat
     } else {
       if (definition.hasContextInvariant()) {
         for (StringType s : definition.getContextInvariant()) {
-          if (!fpe.evaluateToBoolean(hostContext, resource, hostContext.getRootResource(), container, fpe.parse(s.getValue()))) {
+          if (!fpe().evaluateToBoolean(hostContext, resource, hostContext.getRootResource(), container, fpe().parseCached(s.getValue()))) {
             if (definition.hasUserData(XVerExtensionManager.XVER_EXT_MARKER)) {
               warning(errors, IssueType.STRUCTURE, container.line(), container.col(), stack.getLiteralPath(), false, I18nConstants.PROFILE_EXT_NOT_HERE, extUrl, s.getValue());              
               return true;
@@ -2305,7 +2368,7 @@ public class InstanceValidator extends BaseValidator implements IResourceValidat
             else if (!noExtensibleWarnings)
               txWarning(errors, vr.getTxLink(), IssueType.CODEINVALID, element.line(), element.col(), path, false, I18nConstants.TERMINOLOGY_TX_NOVALID_17, value, describeReference(binding.getValueSet()), vs.getUrl(), getErrorMessage(vr.getMessage()));
           } else if (binding.getStrength() == BindingStrength.PREFERRED) {
-            if (baseOnly) {
+            if (runState().baseOnly) {
               txHint(errors, vr.getTxLink(), IssueType.CODEINVALID, element.line(), element.col(), path, false, I18nConstants.TERMINOLOGY_TX_NOVALID_18, value, describeReference(binding.getValueSet()), vs.getUrl(), getErrorMessage(vr.getMessage()));
             }
           }
@@ -2449,8 +2512,8 @@ public class InstanceValidator extends BaseValidator implements IResourceValidat
             throw new FHIRException(context.formatMessage(I18nConstants.RESOURCE_RESOLUTION_SERVICES_NOT_PROVIDED));
         } else {
           Element ext = null;
-          if (fetchCache.containsKey(ref)) {
-            ext = fetchCache.get(ref);
+          if (runState().fetchCache.containsKey(ref)) {
+            ext = runState().fetchCache.get(ref);
           } else {
             try {
               ext = fetcher.fetch(hostContext.getAppContext(), ref);
@@ -2459,7 +2522,7 @@ public class InstanceValidator extends BaseValidator implements IResourceValidat
             }
             if (ext != null) {
               setParents(ext);
-              fetchCache.put(ref, ext);
+              runState().fetchCache.put(ref, ext);
             }
           }
           we = ext == null ? null : makeExternalRef(ext, path);
@@ -2851,9 +2914,9 @@ public class InstanceValidator extends BaseValidator implements IResourceValidat
     }
 
     ElementDefinition ed = null;
-    ExpressionNode expr = fpe.parse(fixExpr(discriminator, null));
+    ExpressionNode expr = fpe().parseCached(fixExpr(discriminator, null));
     long t2 = System.nanoTime();
-    ed = fpe.evaluateDefinition(expr, profile, element);
+    ed = fpe().evaluateDefinition(expr, profile, element);
     timeTracker.sd(t2);
     if (ed != null)
       elements.add(ed);
@@ -2876,9 +2939,9 @@ public class InstanceValidator extends BaseValidator implements IResourceValidat
           if (element == null)
             throw new DefinitionException(context.formatMessage(I18nConstants.UNABLE_TO_RESOLVE_ELEMENT__IN_PROFILE_, id, p));
         }
-        expr = fpe.parse(fixExpr(discriminator, null));
+        expr = fpe().parseCached(fixExpr(discriminator, null));
         t2 = System.nanoTime();
-        ed = fpe.evaluateDefinition(expr, profile, element);
+        ed = fpe().evaluateDefinition(expr, profile, element);
         timeTracker.sd(t2);
         if (ed != null)
           elements.add(ed);
@@ -3221,12 +3284,12 @@ public class InstanceValidator extends BaseValidator implements IResourceValidat
       return local;
     if (fetcher == null)
       return null;
-    if (fetchCache.containsKey(ref)) {
-      return fetchCache.get(ref);
+    if (runState().fetchCache.containsKey(ref)) {
+      return runState().fetchCache.get(ref);
     } else {
       Element res = fetcher.fetch(appContext, ref);
       setParents(res);
-      fetchCache.put(ref, res);
+      runState().fetchCache.put(ref, res);
       return res;
     }
   }
@@ -3303,6 +3366,42 @@ public class InstanceValidator extends BaseValidator implements IResourceValidat
     this.allowXsiLocation = allowXsiLocation;
   }
 
+  public boolean isStreamingParse() {
+    return streamingParse;
+  }
+
+  /**
+   * Parse content (from a stream) in a single pass, without loading the source into memory first
+   */
+  public void setStreamingParse(boolean streamingParse) {
+    this.streamingParse = streamingParse;
+  }
+
+  public boolean isParallelBundleEntries() {
+    return parallelBundleEntries;
+  }
+
+  /**
+   * Validate the entries of large bundles on the bundle entry pool. The checks across the entries
+   * (references, document and message rules) still run once all the entries are done, and the 
+   * messages are in the same order as if the entries were validated one after another
+   */
+  public void setParallelBundleEntries(boolean parallelBundleEntries) {
+    this.parallelBundleEntries = parallelBundleEntries;
+  }
+
+  public ForkJoinPool getBundleEntryPool() {
+    return bundleEntryPool;
+  }
+
+  /**
+   * The pool that the entries are validated on when parallelBundleEntries is set. If there 
+   * isn't one, the entries are validated one after another
+   */
+  public void setBundleEntryPool(ForkJoinPool bundleEntryPool) {
+    this.bundleEntryPool = bundleEntryPool;
+  }
+
   /**
    * @param element - the candidate that might be in the slice
    * @param path    - for reporting any errors. the XPath for the element
@@ -3320,8 +3419,9 @@ public class InstanceValidator extends BaseValidator implements IResourceValidat
     if (!slicer.getSlicing().hasDiscriminator())
       return false; // cannot validate in this case
 
-    ExpressionNode n = (ExpressionNode) ed.getUserData("slice.expression.cache");
-    if (n == null) {
+    // building the expression is the expensive part, so it's kept on the definition. The parsed expressions are cached by the FHIRPath engine
+    String sliceExpression = (String) getDefinitionCache(ed, "slice.expression.text");
+    if (sliceExpression == null) {
       long t = System.nanoTime();
       // GG: this approach is flawed because it treats discriminators individually rather than collectively
       StringBuilder expression = new StringBuilder("true");
@@ -3408,13 +3508,15 @@ public class InstanceValidator extends BaseValidator implements IResourceValidat
           throw new DefinitionException(context.formatMessage(I18nConstants.COULD_NOT_MATCH_DISCRIMINATOR__FOR_SLICE__IN_PROFILE___THE_DISCRIMINATOR__DOES_NOT_HAVE_FIXED_VALUE_BINDING_OR_EXISTENCE_ASSERTIONS, discriminators, ed.getId(), profile.getUrl(), discriminators));
       }
 
-      try {
-        n = fpe.parse(fixExpr(expression.toString(), null));
-      } catch (FHIRLexerException e) {
-        throw new FHIRException(context.formatMessage(I18nConstants.PROBLEM_PROCESSING_EXPRESSION__IN_PROFILE__PATH__, expression, profile.getUrl(), path, e.getMessage()));
-      }
+      sliceExpression = fixExpr(expression.toString(), null);
       timeTracker.fpe(t);
-      ed.setUserData("slice.expression.cache", n);
+      setDefinitionCache(ed, "slice.expression.text", sliceExpression);
+    }
+    ExpressionNode n;
+    try {
+      n = fpe().parseCached(sliceExpression);
+    } catch (FHIRLexerException e) {
+      throw new FHIRException(context.formatMessage(I18nConstants.PROBLEM_PROCESSING_EXPRESSION__IN_PROFILE__PATH__, sliceExpression, profile.getUrl(), path, e.getMessage()));
     }
 
     ValidatorHostContext shc = hostContext.forSlicing();
@@ -3437,9 +3539,9 @@ public class InstanceValidator extends BaseValidator implements IResourceValidat
     boolean ok;
     try {
       long t = System.nanoTime();
-      ok = fpe.evaluateToBoolean(hostContext.forProfile(profile), hostContext.getResource(), hostContext.getRootResource(), element, n);
+      ok = fpe().evaluateToBoolean(hostContext.forProfile(profile), hostContext.getResource(), hostContext.getRootResource(), element, n);
       timeTracker.fpe(t);
-      msg = fpe.forLog();
+      msg = fpe().forLog();
     } catch (Exception ex) {
       ex.printStackTrace();
       throw new FHIRException(context.formatMessage(I18nConstants.PROBLEM_EVALUATING_SLICING_EXPRESSION_FOR_ELEMENT_IN_PROFILE__PATH__FHIRPATH___, profile.getUrl(), path, n, ex.getMessage()));
@@ -3815,8 +3917,7 @@ public class InstanceValidator extends BaseValidator implements IResourceValidat
       String ref = element.getChildValue("reference");
       if (!Utilities.noString(ref)) {
         for (Element bundle : bundles) {
-          List<Element> entries = bundle.getChildren(ENTRY);
-          Element tgt = resolveInBundle(entries, ref, fu, resource.fhirType(), resource.getIdBase());
+          Element tgt = resolveInBundle(BundleIndex.forBundle(bundle), ref, fu, resource.fhirType(), resource.getIdBase());
           if (tgt != null) {
             element.setUserData("validator.bundle.resolution", tgt.getNamedChild(RESOURCE));
             return;
@@ -3871,9 +3972,9 @@ public class InstanceValidator extends BaseValidator implements IResourceValidat
     } else if (element.getType().equals("Observation")) {
       validateObservation(errors, element, stack);
     } else if (element.getType().equals("Questionnaire")) {
-      new QuestionnaireValidator(context, myEnableWhenEvaluator, fpe, timeTracker, questionnaireMode).validateQuestionannaire(errors, element, element, stack);
+      new QuestionnaireValidator(context, myEnableWhenEvaluator, fpe(), timeTracker, questionnaireMode).validateQuestionannaire(errors, element, element, stack);
     } else if (element.getType().equals("QuestionnaireResponse")) {
-      new QuestionnaireValidator(context, myEnableWhenEvaluator, fpe, timeTracker, questionnaireMode).validateQuestionannaireResponse(hostContext, errors, element, stack);
+      new QuestionnaireValidator(context, myEnableWhenEvaluator, fpe(), timeTracker, questionnaireMode).validateQuestionannaireResponse(hostContext, errors, element, stack);
     } else if (element.getType().equals("Measure")) {
       new MeasureValidator(context, timeTracker).validateMeasure(hostContext, errors, element, stack);      
     } else if (element.getType().equals("MeasureReport")) {
@@ -3883,19 +3984,52 @@ public class InstanceValidator extends BaseValidator implements IResourceValidat
     } else if (element.getType().equals("CodeSystem")) {
       new CodeSystemValidator(context, timeTracker).validateCodeSystem(errors, element, stack);
     } else if (element.getType().equals("SearchParameter")) {
-      new SearchParameterValidator(context, timeTracker, fpe).validateSearchParameter(errors, element, stack);
+      new SearchParameterValidator(context, timeTracker, fpe()).validateSearchParameter(errors, element, stack);
     } else if (element.getType().equals("StructureDefinition")) {
-      new StructureDefinitionValidator(context, timeTracker, fpe, wantCheckSnapshotUnchanged).validateStructureDefinition(errors, element, stack);
+      new StructureDefinitionValidator(context, timeTracker, fpe(), wantCheckSnapshotUnchanged).validateStructureDefinition(errors, element, stack);
     } else if (element.getType().equals("ValueSet")) {
       new ValueSetValidator(context, timeTracker, this).validateValueSet(errors, element, stack);
     }
   }
 
+  // definitions are shared by all the threads using this validator, so anything cached on them must be accessed under their lock
+  private Object getDefinitionCache(Base definition, String name) {
+    synchronized (definition) {
+      return definition.getUserData(name);
+    }
+  }
+
+  private void setDefinitionCache(Base definition, String name, Object value) {
+    synchronized (definition) {
+      definition.setUserData(name, value);
+    }
+  }
+
+  /**
+   * the engine is made when it's first used, since the context version decides legacy mode
+   */
+  private FHIRPathEngine fpe() {
+    FHIRPathEngine res = fpe;
+    if (res == null) {
+      synchronized (this) {
+        res = fpe;
+        if (res == null) {
+          res = new FHIRPathEngine(context, profileUtilities);
+          res.setHostServices(validatorServices);
+          if (context.getVersion().startsWith("3.0") || context.getVersion().startsWith("1.0"))
+            res.setLegacyMode(true);
+          fpe = res;
+        }
+      }
+    }
+    return res;
+  }
+
   private ResourceValidationTracker getResourceTracker(Element element) {
-    ResourceValidationTracker res = resourceTracker.get(element);
+    ResourceValidationTracker res = runState().resourceTracker.get(element);
     if (res == null) {
       res = new ResourceValidationTracker();
-      resourceTracker.put(element, res);
+      runState().resourceTracker.put(element, res);
     }
     return res;
   }
@@ -4115,8 +4249,93 @@ public class InstanceValidator extends BaseValidator implements IResourceValidat
     // 4. check order if any slices are ordered. (todo)
 
     // 5. inspect each child for validity
-    for (ElementInfo ei : children) {
-      checkChild(hostContext, errors, profile, definition, resource, element, actualType, stack, inCodeableConcept, checkDisplayInContext, ei, extensionUrl);
+    if (parallelBundleEntries && BUNDLE.equals(element.fhirType())) {
+      checkChildrenWithParallelEntries(hostContext, errors, profile, definition, resource, element, actualType, stack, inCodeableConcept, checkDisplayInContext, children, extensionUrl);
+    } else {
+      for (ElementInfo ei : children) {
+        checkChild(hostContext, errors, profile, definition, resource, element, actualType, stack, inCodeableConcept, checkDisplayInContext, ei, extensionUrl);
+      }
+    }
+  }
+
+  /**
+   * The entries are validated as separate tasks, each with its own list of messages, its own 
+   * record of the invariants checked, and its own copy of the ids seen so far. The other children 
+   * are checked on this thread, in order, and the messages and ids from each entry are merged in 
+   * entry order as the tasks are joined. Large bundles run the tasks on the bundle entry pool, and 
+   * small ones run them here, one after another, so the results don't depend on the size of the bundle. 
+   * 
+   * The ids an entry starts with include the ids of the entries before it, which are collected 
+   * before the entries are started (resources have their own ids, so only the ids on the entries 
+   * themselves are shared), so duplicate ids are reported where and when they would be if the 
+   * entries were validated one after another. 
+   * 
+   * Since each entry has its own record of the invariants checked, an entry's invariants are 
+   * reported on that entry even when a reference from an earlier entry has already checked them 
+   * (validating without parallel entries, they are only reported for the earlier entry's reference)
+   */
+  private void checkChildrenWithParallelEntries(ValidatorHostContext hostContext, List<ValidationMessage> errors, StructureDefinition profile, ElementDefinition definition,
+      Element resource, Element element, String actualType, NodeStack stack, boolean inCodeableConcept, boolean checkDisplayInContext, List<ElementInfo> children, String extensionUrl) {
+    boolean fork = bundleEntryPool != null && element.getChildrenByName(ENTRY).size() >= MIN_PARALLEL_ENTRIES;
+    int i = 0;
+    while (i < children.size()) {
+      ElementInfo ei = children.get(i);
+      if (!ENTRY.equals(ei.getName())) {
+        checkChild(hostContext, errors, profile, definition, resource, element, actualType, stack, inCodeableConcept, checkDisplayInContext, ei, extensionUrl);
+        i++;
+      } else {
+        ValidationRunState bundleState = runState();
+        List<ForkJoinTask<List<ValidationMessage>>> tasks = new ArrayList<>();
+        List<NodeStack> stacks = new ArrayList<>();
+        Map<String, Element> earlierIds = new HashMap<>();
+        while (i < children.size() && ENTRY.equals(children.get(i).getName())) {
+          ElementInfo entry = children.get(i);
+          NodeStack entryStack = stack.forkIds();
+          entryStack.getIds().putAll(earlierIds);
+          collectEntryIds(entry.getElement(), earlierIds);
+          stacks.add(entryStack);
+          ForkJoinTask<List<ValidationMessage>> task = ForkJoinTask.adapt(() -> {
+            // a worker may run another entry while it waits for a nested task, so the state is put back afterwards
+            ValidationRunState previous = runState.get();
+            runState.set(new ValidationRunState(bundleState));
+            try {
+              List<ValidationMessage> entryErrors = new ArrayList<>();
+              checkChild(hostContext, entryErrors, profile, definition, resource, element, actualType, entryStack, inCodeableConcept, checkDisplayInContext, entry, extensionUrl);
+              return entryErrors;
+            } finally {
+              restoreRunState(previous);
+            }
+          });
+          if (fork) {
+            bundleEntryPool.submit(task);
+          } else {
+            task.invoke();
+          }
+          tasks.add(task);
+          i++;
+        }
+        for (int t = 0; t < tasks.size(); t++) {
+          errors.addAll(tasks.get(t).join());
+          stack.getIds().putAll(stacks.get(t).getIds());
+        }
+      }
+    }
+  }
+
+  /**
+   * the ids validateElement will see in an entry - everything but the resources, which have their own ids
+   */
+  private void collectEntryIds(Element element, Map<String, Element> ids) {
+    String id = element.getChildValue("id");
+    if (!Utilities.noString(id)) {
+      ids.put(id, element);
+    }
+    if (element.hasChildren()) {
+      for (Element child : element.getChildren()) {
+        if (child.getSpecial() == null && !child.isResource()) {
+          collectEntryIds(child, ids);
+        }
+      }
     }
   }
 
@@ -4478,7 +4697,7 @@ public class InstanceValidator extends BaseValidator implements IResourceValidat
   }
 
   public void checkMustSupport(StructureDefinition profile, ElementInfo ei) {
-    String usesMustSupport = profile.getUserString("usesMustSupport");
+    String usesMustSupport = (String) getDefinitionCache(profile, "usesMustSupport");
     if (usesMustSupport == null) {
       usesMustSupport = "N";
       for (ElementDefinition pe : profile.getSnapshot().getElement()) {
@@ -4487,14 +4706,16 @@ public class InstanceValidator extends BaseValidator implements IResourceValidat
           break;
         }
       }
-      profile.setUserData("usesMustSupport", usesMustSupport);
+      setDefinitionCache(profile, "usesMustSupport", usesMustSupport);
     }
     if (usesMustSupport.equals("Y")) {
-      String elementSupported = ei.getElement().getUserString("elementSupported");
-      if (elementSupported == null || ei.definition.getMustSupport())
-        if (ei.definition.getMustSupport()) {
-          ei.getElement().setUserData("elementSupported", "Y");
-        }
+      synchronized (ei.getElement()) { // with parallel entries, a referenced entry may be checked by several threads
+        String elementSupported = ei.getElement().getUserString("elementSupported");
+        if (elementSupported == null || ei.definition.getMustSupport())
+          if (ei.definition.getMustSupport()) {
+            ei.getElement().setUserData("elementSupported", "Y");
+          }
+      }
     }
   }
 
@@ -4740,18 +4961,11 @@ public class InstanceValidator extends BaseValidator implements IResourceValidat
     if (noInvariantChecks)
       return;
 
-    for (ElementDefinitionConstraintComponent inv : ed.getConstraint()) {
-      if (inv.hasExpression() && (!onlyNonInherited || !inv.hasSource() || (!isInheritedProfile(profile, inv.getSource()) && !isInheritedProfile(ed.getType(), inv.getSource())) )) {
-        @SuppressWarnings("unchecked")
-        Set<String> invList = executionId.equals(element.getUserString(EXECUTION_ID)) ? (Set<String>) element.getUserData(EXECUTED_CONSTRAINT_LIST) : null;
-        if (invList == null) {
-          invList = new HashSet<>();
-          element.setUserData(EXECUTED_CONSTRAINT_LIST, invList);
-          element.setUserData(EXECUTION_ID, executionId);
-        }
-        if (!invList.contains(inv.getKey())) {
-          invList.add(inv.getKey());
-          checkInvariant(hostContext, errors, path, profile, resource, element, inv);
+    for (PlannedInvariant inv : getInvariantPlan(profile, ed)) {
+      if (!(onlyNonInherited && inv.isInherited()) && (!inv.isBestPractice() || reportsBestPractice())) {
+        Set<String> invList = runState().executedInvariants.computeIfAbsent(element, e -> new HashSet<>());
+        if (invList.add(inv.getKey())) {
+          checkInvariant(hostContext, errors, path, resource, element, inv);
         } else {
           //System.out.println("Skip "+inv.getKey()+" on "+path);
         }
@@ -4759,6 +4973,50 @@ public class InstanceValidator extends BaseValidator implements IResourceValidat
     }
   }
 
+  /**
+   * the invariants to check for an element, from the plan worked out for all the elements of the profile the first time it's used
+   */
+  private List<PlannedInvariant> getInvariantPlan(StructureDefinition profile, ElementDefinition ed) {
+    List<PlannedInvariant> list = InvariantPlan.forProfile(profile, e -> planElement(profile, e)).getInvariants(ed);
+    return list != null ? list : planElement(profile, ed); // the element isn't in the profile's snapshot
+  }
+
+  private List<PlannedInvariant> planElement(StructureDefinition profile, ElementDefinition ed) {
+    List<PlannedInvariant> list = new ArrayList<>();
+    for (ElementDefinitionConstraintComponent inv : ed.getConstraint()) {
+      if (inv.hasExpression()) {
+        PlannedInvariant pi = planInvariant(profile, inv, inv.hasSource() && (isInheritedProfile(profile, inv.getSource()) || isInheritedProfile(ed.getType(), inv.getSource())), ed.getPath());
+        if (pi.isBestPractice() || pi.getSeverity() != null) {
+          list.add(pi);
+        }
+      }
+    }
+    return list;
+  }
+
+  private PlannedInvariant planInvariant(StructureDefinition profile, ElementDefinitionConstraintComponent inv, boolean inherited, String path) {
+    ExpressionNode n = null;
+    String error = null;
+    try {
+      n = fpe().parseCached(fixExpr(inv.getExpression(), inv.getKey()));
+    } catch (FHIRLexerException e) {
+      error = context.formatMessage(I18nConstants.PROBLEM_PROCESSING_EXPRESSION__IN_PROFILE__PATH__, inv.getExpression(), profile.getUrl(), path, e.getMessage());
+    }
+    boolean bestPractice = inv.hasExtension("http://hl7.org/fhir/StructureDefinition/elementdefinition-bestpractice") &&
+        ToolingExtensions.readBooleanExtension(inv, "http://hl7.org/fhir/StructureDefinition/elementdefinition-bestpractice");
+    IssueSeverity severity = null;
+    if (inv.getSeverity() == ConstraintSeverity.ERROR) {
+      severity = IssueSeverity.ERROR;
+    } else if (inv.getSeverity() == ConstraintSeverity.WARNING) {
+      severity = IssueSeverity.WARNING;
+    }
+    return new PlannedInvariant(inv, n, error, bestPractice, severity, inherited);
+  }
+
+  private boolean reportsBestPractice() {
+    return bpWarnings == BestPracticeWarningLevel.Hint || bpWarnings == BestPracticeWarningLevel.Warning || bpWarnings == BestPracticeWarningLevel.Error;
+  }
+
   private boolean isInheritedProfile(List<TypeRefComponent> types, String source) {
     for (TypeRefComponent type : types) {
       for (CanonicalType c : type.getProfile()) {
@@ -4792,28 +5050,22 @@ public class InstanceValidator extends BaseValidator implements IResourceValidat
   }
 
   public void checkInvariant(ValidatorHostContext hostContext, List<ValidationMessage> errors, String path, StructureDefinition profile, Element resource, Element element, ElementDefinitionConstraintComponent inv) throws FHIRException {
+    checkInvariant(hostContext, errors, path, resource, element, planInvariant(profile, inv, false, path));
+  }
+
+  private void checkInvariant(ValidatorHostContext hostContext, List<ValidationMessage> errors, String path, Element resource, Element element, PlannedInvariant inv) throws FHIRException {
 //    if (debug) {
-//      System.out.println("inv "+inv.getKey()+" on "+path+" in "+resource.fhirType()+" {{ "+inv.getExpression()+" }}");
+//      System.out.println("inv "+inv.getKey()+" on "+path+" in "+resource.fhirType()+" {{ "+inv.getConstraint().getExpression()+" }}");
 //    }
-    ExpressionNode n = (ExpressionNode) inv.getUserData("validator.expression.cache");
-    if (n == null) {
-      long t = System.nanoTime();
-      try {
-        n = fpe.parse(fixExpr(inv.getExpression(), inv.getKey()));
-      } catch (FHIRLexerException e) {
-        throw new FHIRException(context.formatMessage(I18nConstants.PROBLEM_PROCESSING_EXPRESSION__IN_PROFILE__PATH__, inv.getExpression(), profile.getUrl(), path, e.getMessage()));
-      }
-      timeTracker.fpe(t);
-      inv.setUserData("validator.expression.cache", n);
-    }
+    CompiledExpression ce = inv.compile(fpe());
 
     String msg;
     boolean ok;
     try {
       long t = System.nanoTime();
-      ok = fpe.evaluateToBoolean(hostContext, resource, hostContext.getRootResource(), element, n);
+      ok = ce.evaluateToBoolean(hostContext, resource, hostContext.getRootResource(), element);
       timeTracker.fpe(t);
-      msg = fpe.forLog();
+      msg = fpe().forLog();
     } catch (Exception ex) {
       ok = false;
       msg = ex.getMessage();
@@ -4822,18 +5074,18 @@ public class InstanceValidator extends BaseValidator implements IResourceValidat
       if (!Utilities.noString(msg)) {
         msg = " (" + msg + ")";
       }
-      if (inv.hasExtension("http://hl7.org/fhir/StructureDefinition/elementdefinition-bestpractice") &&
-        ToolingExtensions.readBooleanExtension(inv, "http://hl7.org/fhir/StructureDefinition/elementdefinition-bestpractice")) {
+      String text = inv.getMessage() + msg + " [" + inv.getExpression().toString() + "]";
+      if (inv.isBestPractice()) {
         if (bpWarnings == BestPracticeWarningLevel.Hint)
-          hint(errors, IssueType.INVARIANT, element.line(), element.col(), path, ok, inv.getKey() + ": " + inv.getHuman() + msg + " [" + n.toString() + "]");
+          hint(errors, IssueType.INVARIANT, element.line(), element.col(), path, ok, text);
         else if (bpWarnings == BestPracticeWarningLevel.Warning)
-          warning(errors, IssueType.INVARIANT, element.line(), element.col(), path, ok, inv.getKey() + ": " + inv.getHuman() + msg + " [" + n.toString() + "]");
+          warning(errors, IssueType.INVARIANT, element.line(), element.col(), path, ok, text);
         else if (bpWarnings == BestPracticeWarningLevel.Error)
-          rule(errors, IssueType.INVARIANT, element.line(), element.col(), path, ok, inv.getKey() + ": " + inv.getHuman() + msg + " [" + n.toString() + "]");
-      } else if (inv.getSeverity() == ConstraintSeverity.ERROR) {
-        rule(errors, IssueType.INVARIANT, element.line(), element.col(), path, ok, inv.getKey() + ": " + inv.getHuman() + msg + " [" + n.toString() + "]");
-      } else if (inv.getSeverity() == ConstraintSeverity.WARNING) {
-        warning(errors, IssueType.INVARIANT, element.line(), element.line(), path, ok, inv.getKey() + ": " + inv.getHuman() + msg + " [" + n.toString() + "]");
+          rule(errors, IssueType.INVARIANT, element.line(), element.col(), path, ok, text);
+      } else if (inv.getSeverity() == IssueSeverity.ERROR) {
+        rule(errors, IssueType.INVARIANT, element.line(), element.col(), path, ok, text);
+      } else if (inv.getSeverity() == IssueSeverity.WARNING) {
+        warning(errors, IssueType.INVARIANT, element.line(), element.line(), path, ok, text);
       }
     }
   }
@@ -4963,12 +5215,8 @@ public class InstanceValidator extends BaseValidator implements IResourceValidat
           for (ElementDefinitionConstraintComponent inv : ed.getConstraint()) {
             if (inv.hasExpression()) {
               try {
-                ExpressionNode n = (ExpressionNode) inv.getUserData("validator.expression.cache");
-                if (n == null) {
-                  n = fpe.parse(fixExpr(inv.getExpression(), inv.getKey()));
-                  inv.setUserData("validator.expression.cache", n);
-                }
-                fpe.check(null, sd.getKind() == StructureDefinitionKind.RESOURCE ? sd.getType() : "DomainResource", ed.getPath(), n);
+                ExpressionNode n = fpe().parse(fixExpr(inv.getExpression(), inv.getKey()));
+                fpe().check(null, sd.getKind() == StructureDefinitionKind.RESOURCE ? sd.getType() : "DomainResource", ed.getPath(), n);
               } catch (Exception e) {
                 System.out.println("Error processing structure [" + sd.getId() + "] path " + ed.getPath() + ":" + inv.getKey() + " ('" + inv.getExpression() + "'): " + e.getMessage());
               }
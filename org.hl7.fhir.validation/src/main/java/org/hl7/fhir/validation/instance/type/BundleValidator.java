@@ -3,6 +3,8 @@ package org.hl7.fhir.validation.instance.type;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -21,6 +23,7 @@ import org.hl7.fhir.utilities.validation.ValidationMessage;
 import org.hl7.fhir.utilities.validation.ValidationMessage.IssueType;
 import org.hl7.fhir.validation.BaseValidator;
 import org.hl7.fhir.validation.instance.InstanceValidator;
+import org.hl7.fhir.validation.instance.utils.BundleIndex;
 import org.hl7.fhir.validation.instance.utils.EntrySummary;
 import org.hl7.fhir.validation.instance.utils.IndexedElement;
 import org.hl7.fhir.validation.instance.utils.NodeStack;
@@ -38,8 +41,8 @@ public class BundleValidator extends BaseValidator{
   }
 
   public void validateBundle(List<ValidationMessage> errors, Element bundle, NodeStack stack, boolean checkSpecials, ValidatorHostContext hostContext) {
-    List<Element> entries = new ArrayList<Element>();
-    bundle.getNamedChildren(ENTRY, entries);
+    BundleIndex index = BundleIndex.forBundle(bundle);
+    List<Element> entries = index.getEntries();
     String type = bundle.getNamedChildValue(TYPE);
     type = StringUtils.defaultString(type);
 
@@ -57,20 +60,20 @@ public class BundleValidator extends BaseValidator{
         Element resource = firstEntry.getNamedChild(RESOURCE);
         if (rule(errors, IssueType.INVALID, firstEntry.line(), firstEntry.col(), stack.addToLiteralPath(ENTRY, PATH_ARG), resource != null, I18nConstants.BUNDLE_BUNDLE_ENTRY_NOFIRSTRESOURCE)) {
           String id = resource.getNamedChildValue(ID);
-          validateDocument(errors, entries, resource, firstStack.push(resource, -1, null, null), fullUrl, id);
+          validateDocument(errors, index, resource, firstStack.push(resource, -1, null, null), fullUrl, id);
         }
         if (!VersionUtilities.isThisOrLater(FHIRVersion._4_0_1.getDisplay(), bundle.getProperty().getStructure().getFhirVersion().getDisplay())) {
           handleSpecialCaseForLastUpdated(bundle, errors, stack);
         }
-        checkAllInterlinked(errors, entries, stack, bundle, true);
+        checkAllInterlinked(errors, index, stack, bundle, true);
       }
       if (type.equals(MESSAGE)) {
         Element resource = firstEntry.getNamedChild(RESOURCE);
         String id = resource.getNamedChildValue(ID);
         if (rule(errors, IssueType.INVALID, firstEntry.line(), firstEntry.col(), stack.addToLiteralPath(ENTRY, PATH_ARG), resource != null, I18nConstants.BUNDLE_BUNDLE_ENTRY_NOFIRSTRESOURCE)) {
-          validateMessage(errors, entries, resource, firstStack.push(resource, -1, null, null), fullUrl, id);
+          validateMessage(errors, index, resource, firstStack.push(resource, -1, null, null), fullUrl, id);
         }
-        checkAllInterlinked(errors, entries, stack, bundle, VersionUtilities.isR5Ver(context.getVersion()));
+        checkAllInterlinked(errors, index, stack, bundle, VersionUtilities.isR5Ver(context.getVersion()));
       }
       // We do not yet have rules requiring that the id and fullUrl match when dealing with messaging Bundles
       //      validateResourceIds(errors, entries, stack);
@@ -116,7 +119,7 @@ public class BundleValidator extends BaseValidator{
     }
   }
 
-  private void validateDocument(List<ValidationMessage> errors, List<Element> entries, Element composition, NodeStack stack, String fullUrl, String id) {
+  private void validateDocument(List<ValidationMessage> errors, BundleIndex entries, Element composition, NodeStack stack, String fullUrl, String id) {
     // first entry must be a composition
     if (rule(errors, IssueType.INVALID, composition.line(), composition.col(), stack.getLiteralPath(), composition.getType().equals("Composition"), I18nConstants.BUNDLE_BUNDLE_ENTRY_DOCUMENT)) {
 
@@ -132,7 +135,7 @@ public class BundleValidator extends BaseValidator{
     }
   }
 
-  private void validateSections(List<ValidationMessage> errors, List<Element> entries, Element focus, NodeStack stack, String fullUrl, String id) {
+  private void validateSections(List<ValidationMessage> errors, BundleIndex entries, Element focus, NodeStack stack, String fullUrl, String id) {
     List<Element> sections = new ArrayList<Element>();
     focus.getNamedChildren("section", sections);
     int i = 1;
@@ -157,7 +160,7 @@ public class BundleValidator extends BaseValidator{
   }
 
 
-  public void validateDocumentSubReference(List<ValidationMessage> errors, List<Element> entries, Element composition, NodeStack stack, String fullUrl, String id, String title, String parent, boolean repeats, String propName) {
+  public void validateDocumentSubReference(List<ValidationMessage> errors, BundleIndex entries, Element composition, NodeStack stack, String fullUrl, String id, String title, String parent, boolean repeats, String propName) {
     List<Element> list = new ArrayList<>();
     composition.getNamedChildren(parent, list);
     int i = 1;
@@ -167,7 +170,7 @@ public class BundleValidator extends BaseValidator{
     }
   }
 
-  public void validateDocumentReference(List<ValidationMessage> errors, List<Element> entries, Element composition, NodeStack stack, String fullUrl, String id, boolean repeats, String propName, String title) {
+  public void validateDocumentReference(List<ValidationMessage> errors, BundleIndex entries, Element composition, NodeStack stack, String fullUrl, String id, boolean repeats, String propName, String title) {
     if (repeats) {
       List<Element> list = new ArrayList<>();
       composition.getNamedChildren(propName, list);
@@ -186,7 +189,7 @@ public class BundleValidator extends BaseValidator{
     }
   }
 
-  private void validateMessage(List<ValidationMessage> errors, List<Element> entries, Element messageHeader, NodeStack stack, String fullUrl, String id) {
+  private void validateMessage(List<ValidationMessage> errors, BundleIndex entries, Element messageHeader, NodeStack stack, String fullUrl, String id) {
     // first entry must be a messageheader
     if (rule(errors, IssueType.INVALID, messageHeader.line(), messageHeader.col(), stack.getLiteralPath(), messageHeader.getType().equals("MessageHeader"), I18nConstants.VALIDATION_BUNDLE_MESSAGE)) {
       List<Element> elements = messageHeader.getChildren("focus");
@@ -195,7 +198,7 @@ public class BundleValidator extends BaseValidator{
     }
   }
 
-  private void validateBundleReference(List<ValidationMessage> errors, List<Element> entries, Element ref, String name, NodeStack stack, String fullUrl, String type, String id) {
+  private void validateBundleReference(List<ValidationMessage> errors, BundleIndex entries, Element ref, String name, NodeStack stack, String fullUrl, String type, String id) {
     String reference = null;
     try {
       reference = ref.getNamedChildValue("reference");
@@ -230,47 +233,58 @@ public class BundleValidator extends BaseValidator{
     ruleHtml(errors, IssueType.REQUIRED, stack.getLiteralPath(), ok, I18nConstants.DOCUMENT_DATE_REQUIRED, I18nConstants.DOCUMENT_DATE_REQUIRED_HTML);
   }
 
-  private void checkAllInterlinked(List<ValidationMessage> errors, List<Element> entries, NodeStack stack, Element bundle, boolean isError) {
+  private void checkAllInterlinked(List<ValidationMessage> errors, BundleIndex entries, NodeStack stack, Element bundle, boolean isError) {
     List<EntrySummary> entryList = new ArrayList<>();
-    for (Element entry : entries) {
+    Map<Element, EntrySummary> summaries = new IdentityHashMap<>();
+    for (Element entry : entries.getEntries()) {
       Element r = entry.getNamedChild(RESOURCE);
       if (r != null) {
-        entryList.add(new EntrySummary(entry, r));
+        EntrySummary e = new EntrySummary(entry, r);
+        entryList.add(e);
+        summaries.put(entry, e);
       }
     }
+    Map<EntrySummary, List<EntrySummary>> sources = new IdentityHashMap<>();
     for (EntrySummary e : entryList) {
       Set<String> references = findReferences(e.getEntry());
       for (String ref : references) {
         Element tgt = resolveInBundle(entries, ref, e.getEntry().getChildValue(FULL_URL), e.getResource().fhirType(), e.getResource().getIdBase());
         if (tgt != null) {
-          EntrySummary t = entryForTarget(entryList, tgt);
+          EntrySummary t = summaries.get(tgt);
           if (t != null) {
             e.getTargets().add(t);
+            if (!sources.containsKey(t)) {
+              sources.put(t, new ArrayList<>());
+            }
+            sources.get(t).add(e);
           }
         }
       }
     }
 
+    // an entry is linked if it can be reached from the first entry by following references
+    // in either direction (entries that refer to a linked entry are linked too)
     Set<EntrySummary> visited = new HashSet<>();
-    visitLinked(visited, entryList.get(0));
-    boolean foundRevLinks;
-    do {
-      foundRevLinks = false;
-      for (EntrySummary e : entryList) {
-        if (!visited.contains(e)) {
-          boolean add = false;
-          for (EntrySummary t : e.getTargets()) {
-            if (visited.contains(t)) {
-              add = true;
-            }
+    if (!entryList.isEmpty()) {
+      LinkedList<EntrySummary> queue = new LinkedList<>();
+      visited.add(entryList.get(0));
+      queue.add(entryList.get(0));
+      while (!queue.isEmpty()) {
+        EntrySummary e = queue.removeFirst();
+        for (EntrySummary t : e.getTargets()) {
+          if (visited.add(t)) {
+            queue.add(t);
           }
-          if (add) {
-            foundRevLinks = true;
-            visitLinked(visited, e);
+        }
+        if (sources.containsKey(e)) {
+          for (EntrySummary s : sources.get(e)) {
+            if (visited.add(s)) {
+              queue.add(s);
+            }
           }
         }
       }
-    } while (foundRevLinks);
+    }
 
     int i = 0;
     for (EntrySummary e : entryList) {
@@ -336,24 +350,6 @@ public class BundleValidator extends BaseValidator{
     }
   }
 
-  private EntrySummary entryForTarget(List<EntrySummary> entryList, Element tgt) {
-    for (EntrySummary e : entryList) {
-      if (e.getEntry() == tgt) {
-        return e;
-      }
-    }
-    return null;
-  }
-
-  private void visitLinked(Set<EntrySummary> visited, EntrySummary t) {
-    if (!visited.contains(t)) {
-      visited.add(t);
-      for (EntrySummary e : t.getTargets()) {
-        visitLinked(visited, e);
-      }
-    }
-  }
-
   private void followResourceLinks(Element entry, Map<String, Element> visitedResources, Map<Element, Element> candidateEntries, List<Element> candidateResources, List<ValidationMessage> errors, NodeStack stack) {
     followResourceLinks(entry, visitedResources, candidateEntries, candidateResources, errors, stack, 0);
   }
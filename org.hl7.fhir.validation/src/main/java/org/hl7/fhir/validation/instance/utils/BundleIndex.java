@@ -0,0 +1,160 @@
+package org.hl7.fhir.validation.instance.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.hl7.fhir.r5.elementmodel.Element;
+import org.hl7.fhir.utilities.Utilities;
+
+/**
+ * Lookups for the entries in a Bundle: by fullUrl (including urn:uuid: and urn:oid: urls),
+ * and by the type/id of the resource. Resolving references used to scan all the entries
+ * for each reference, which is quadratic for large transactions.
+ *
+ * The index is built once per bundle and kept on the bundle (see forBundle). Where there's
+ * more than one match, the lookups return the first in entry order, as the scans did
+ */
+public class BundleIndex {
+
+  private static final String USER_DATA_KEY = "validator.bundle.index";
+  private static final Object LOCK = new Object(); // for the user data on the bundle
+
+  private List<Element> entries;
+  private Map<Element, Integer> positions = new IdentityHashMap<>();
+  private Map<String, List<Integer>> byFullUrl = new HashMap<>();
+  private Map<String, List<Integer>> byFullUrlAndVersion = new HashMap<>(); // fullUrl|meta.versionId
+  private Map<String, List<Integer>> byFullUrlWithoutMeta = new HashMap<>();
+  private Map<String, Integer> byTypeAndId = new HashMap<>();
+
+  public BundleIndex(List<Element> entries) {
+    super();
+    this.entries = entries;
+    for (int i = 0; i < entries.size(); i++) {
+      Element entry = entries.get(i);
+      positions.put(entry, i);
+      String fullUrl = entry.getChildValue("fullUrl");
+      Element resource = entry.getNamedChild("resource");
+      if (fullUrl != null) {
+        add(byFullUrl, fullUrl, i);
+        List<Element> meta = resource == null ? null : resource.getChildren("meta");
+        if (meta == null || meta.isEmpty()) {
+          add(byFullUrlWithoutMeta, fullUrl, i);
+        } else if (meta.get(0).getChildValue("versionId") != null) {
+          add(byFullUrlAndVersion, fullUrl+"|"+meta.get(0).getChildValue("versionId"), i);
+        }
+      }
+      if (resource != null && !Utilities.noString(resource.getIdBase())) {
+        String key = resource.fhirType()+"/"+resource.getIdBase();
+        if (!byTypeAndId.containsKey(key)) {
+          byTypeAndId.put(key, i);
+        }
+      }
+    }
+  }
+
+  private static void add(Map<String, List<Integer>> map, String key, int i) {
+    List<Integer> list = map.get(key);
+    if (list == null) {
+      list = new ArrayList<>(1);
+      map.put(key, list);
+    }
+    list.add(i);
+  }
+
+  /**
+   * get the index for a bundle, building it the first time it's asked for
+   */
+  public static BundleIndex forBundle(Element bundle) {
+    synchronized (LOCK) {
+      BundleIndex index = (BundleIndex) bundle.getUserData(USER_DATA_KEY);
+      if (index != null) {
+        return index;
+      }
+    }
+    // built outside the lock, so big bundles don't hold up other bundles. If another thread gets there first, its index is used
+    BundleIndex index = new BundleIndex(bundle.getChildrenByName("entry"));
+    synchronized (LOCK) {
+      BundleIndex existing = (BundleIndex) bundle.getUserData(USER_DATA_KEY);
+      if (existing != null) {
+        return existing;
+      }
+      bundle.setUserData(USER_DATA_KEY, index);
+      return index;
+    }
+  }
+
+  public List<Element> getEntries() {
+    return entries;
+  }
+
+  public int size() {
+    return entries.size();
+  }
+
+  /**
+   * @return the position of the entry in the bundle, or -1
+   */
+  public int indexOf(Element entry) {
+    Integer i = positions.get(entry);
+    return i == null ? -1 : i;
+  }
+
+  /**
+   * @return the positions of all the entries with this fullUrl, in order
+   */
+  public List<Integer> getPositionsByFullUrl(String fullUrl) {
+    List<Integer> list = fullUrl == null ? null : byFullUrl.get(fullUrl);
+    return list == null ? Collections.<Integer>emptyList() : list;
+  }
+
+  /**
+   * @return the positions, in order, of the entries with this fullUrl whose resource has this meta.versionId, 
+   *   along with the entries with this fullUrl that have no resource or no meta, which can't be checked
+   */
+  public List<Integer> getPositionsByFullUrl(String fullUrl, String version) {
+    List<Integer> versioned = byFullUrlAndVersion.get(fullUrl+"|"+version);
+    List<Integer> noMeta = byFullUrlWithoutMeta.get(fullUrl);
+    if (noMeta == null) {
+      return versioned == null ? Collections.<Integer>emptyList() : versioned;
+    }
+    if (versioned == null) {
+      return noMeta;
+    }
+    List<Integer> res = new ArrayList<>(versioned);
+    res.addAll(noMeta);
+    Collections.sort(res);
+    return res;
+  }
+
+  public Element getEntryByFullUrl(String fullUrl) {
+    List<Integer> list = getPositionsByFullUrl(fullUrl);
+    return list.isEmpty() ? null : entries.get(list.get(0));
+  }
+
+  public Element getEntryByTypeAndId(String type, String id) {
+    Integer i = byTypeAndId.get(type+"/"+id);
+    return i == null ? null : entries.get(i);
+  }
+
+  /**
+   * @return the resource in the first entry that has a resource and either has this fullUrl, or whose resource has this type/id
+   */
+  public Element getResourceByUrl(String url) {
+    int first = -1;
+    for (int i : getPositionsByFullUrl(url)) {
+      if (entries.get(i).getNamedChild("resource") != null) {
+        first = i;
+        break;
+      }
+    }
+    Integer i = byTypeAndId.get(url);
+    if (i != null && (first == -1 || i < first)) {
+      first = i;
+    }
+    return first == -1 ? null : entries.get(first).getNamedChild("resource");
+  }
+}
@@ -0,0 +1,162 @@
+package org.hl7.fhir.validation.instance.utils;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.hl7.fhir.exceptions.FHIRException;
+import org.hl7.fhir.r5.conformance.PerSnapshotCache;
+import org.hl7.fhir.r5.model.ElementDefinition;
+import org.hl7.fhir.r5.model.ElementDefinition.ElementDefinitionConstraintComponent;
+import org.hl7.fhir.r5.model.ExpressionNode;
+import org.hl7.fhir.r5.model.StructureDefinition;
+import org.hl7.fhir.r5.utils.FHIRPathEngine;
+import org.hl7.fhir.r5.utils.FHIRPathEngine.CompiledExpression;
+import org.hl7.fhir.utilities.validation.ValidationMessage.IssueSeverity;
+
+/**
+ * The invariants to check for the elements of a profile, worked out once per profile:
+ * which constraints apply, their parsed expressions, how they are reported, and whether
+ * they come from a profile the element inherits from. Validating an element then just
+ * runs through its list.
+ *
+ * A plan is made for all the elements of a profile's snapshot at once (see forProfile), and 
+ * is shared by all the threads and validators that use the profile. It doesn't change once 
+ * it's made, so it's read without a lock. A plan is for one snapshot: when the snapshot is 
+ * regenerated, a new plan is made, and the old one (and the elements it refers to) can go
+ */
+public class InvariantPlan {
+
+  private static final PerSnapshotCache<InvariantPlan> PLANS = new PerSnapshotCache<>("validator.invariant.plan");
+
+  public static class PlannedInvariant {
+    private final ElementDefinitionConstraintComponent constraint;
+    private final ExpressionNode expression;
+    private final String error;
+    private final boolean bestPractice;
+    private final IssueSeverity severity;
+    private final boolean inherited;
+    private final String message;
+    private volatile List<WeakReference<CompiledExpression>> compiled = Collections.emptyList();
+
+    /**
+     * @param expression - the parsed expression, or null if it couldn't be parsed
+     * @param error - why the expression couldn't be parsed
+     * @param severity - how failures are reported, when it's not a best practice constraint
+     */
+    public PlannedInvariant(ElementDefinitionConstraintComponent constraint, ExpressionNode expression, String error, boolean bestPractice, IssueSeverity severity, boolean inherited) {
+      super();
+      this.constraint = constraint;
+      this.expression = expression;
+      this.error = error;
+      this.bestPractice = bestPractice;
+      this.severity = severity;
+      this.inherited = inherited;
+      this.message = constraint.getKey() + ": " + constraint.getHuman();
+    }
+
+    public ElementDefinitionConstraintComponent getConstraint() {
+      return constraint;
+    }
+
+    public String getKey() {
+      return constraint.getKey();
+    }
+
+    public ExpressionNode getExpression() {
+      return expression;
+    }
+
+    public boolean isBestPractice() {
+      return bestPractice;
+    }
+
+    public IssueSeverity getSeverity() {
+      return severity;
+    }
+
+    public boolean isInherited() {
+      return inherited;
+    }
+
+    /**
+     * @return key: human, for the message when the invariant fails
+     */
+    public String getMessage() {
+      return message;
+    }
+
+    /**
+     * @return the expression compiled for this engine. The compiled form is kept for each engine 
+     *   that uses the invariant, but only weakly: the engine caches it, and it goes with the engine
+     */
+    public CompiledExpression compile(FHIRPathEngine fpe) throws FHIRException {
+      if (expression == null) {
+        throw new FHIRException(error);
+      }
+      for (WeakReference<CompiledExpression> ref : compiled) {
+        CompiledExpression res = ref.get();
+        if (res != null && res.getEngine() == fpe) {
+          return res;
+        }
+      }
+      CompiledExpression res = fpe.compile(expression);
+      synchronized (this) {
+        List<WeakReference<CompiledExpression>> list = new ArrayList<>(compiled.size()+1);
+        for (WeakReference<CompiledExpression> ref : compiled) {
+          CompiledExpression ce = ref.get();
+          if (ce != null && ce.getEngine() != fpe) {
+            list.add(ref);
+          }
+        }
+        list.add(new WeakReference<>(res));
+        compiled = list;
+      }
+      return res;
+    }
+  }
+
+  private final Map<ElementDefinition, List<PlannedInvariant>> elements;
+
+  private InvariantPlan(List<ElementDefinition> snapshot, Function<ElementDefinition, List<PlannedInvariant>> planner) {
+    super();
+    Map<ElementDefinition, List<PlannedInvariant>> map = new IdentityHashMap<>();
+    for (ElementDefinition ed : snapshot) {
+      map.put(ed, Collections.unmodifiableList(planner.apply(ed)));
+    }
+    elements = Collections.unmodifiableMap(map);
+  }
+
+  /**
+   * get the plan for a profile, making it the first time the profile is used
+   * 
+   * @param planner - works out the invariants for an element of the snapshot
+   */
+  public static InvariantPlan forProfile(StructureDefinition profile, Function<ElementDefinition, List<PlannedInvariant>> planner) {
+    return PLANS.computeIfAbsent(profile.getSnapshot(), s -> new InvariantPlan(s.getElement(), planner));
+  }
+
+  /**
+   * throw away the plan for a profile, when its snapshot has been edited in place
+   */
+  public static void dropPlan(StructureDefinition profile) {
+    if (profile.hasSnapshot()) {
+      PLANS.remove(profile.getSnapshot());
+    }
+  }
+
+  /**
+   * @return the invariants for the element, or null if the element isn't in the snapshot the plan was made for
+   */
+  public List<PlannedInvariant> getInvariants(ElementDefinition ed) {
+    return elements.get(ed);
+  }
+
+  public int size() {
+    return elements.size();
+  }
+}
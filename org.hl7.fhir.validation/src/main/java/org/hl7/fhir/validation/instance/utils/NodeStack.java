@@ -2,6 +2,7 @@ package org.hl7.fhir.validation.instance.utils;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -152,6 +153,24 @@ public class NodeStack {
   public Map<String, Element> getIds() {
     return ids;
   }
+
+  /**
+   * a copy of this stack that has its own copy of the ids, so that children can be validated on another thread
+   */
+  public NodeStack forkIds() {
+    NodeStack res = new NodeStack(context);
+    res.definition = definition;
+    res.element = element;
+    res.extension = extension;
+    res.literalPath = literalPath;
+    res.logicalPaths = logicalPaths;
+    res.parent = parent;
+    res.type = type;
+    res.workingLang = workingLang;
+    res.ids = new LinkedHashMap<>(ids);
+    res.resetPoint = resetPoint;
+    return res;
+  }
   private String tail(String path) {
     return path.substring(path.lastIndexOf(".") + 1);
   }
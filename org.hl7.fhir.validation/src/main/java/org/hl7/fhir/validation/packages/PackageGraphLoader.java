@@ -0,0 +1,167 @@
+package org.hl7.fhir.validation.packages;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Predicate;
+
+import org.hl7.fhir.exceptions.FHIRException;
+import org.hl7.fhir.utilities.TimeTracker;
+import org.hl7.fhir.utilities.npm.IPackageCacheManager;
+import org.hl7.fhir.utilities.npm.NpmPackage;
+
+/**
+ * Finds all the packages that a package depends on, directly or indirectly, and gets them from
+ * the package cache.
+ *
+ * Packages used to be fetched one at a time, as the dependencies were walked. Now the whole graph
+ * is worked out first: as each package arrives, its dependencies are asked for, so packages that
+ * don't depend on each other are fetched (downloaded and unpacked) at the same time on a pool thread
+ * each. The packages are returned in the order the depth first walk would have loaded them, so
+ * they can be loaded into a context in the same order as before.
+ *
+ * The graph is worked out on the calling thread; only the fetches run on the pool
+ */
+public class PackageGraphLoader {
+
+  public static class PackageFetch {
+    private final String id;
+    private NpmPackage npm;
+    private TimeTracker clock = new TimeTracker();
+    private long time;
+
+    private PackageFetch(String id) {
+      this.id = id;
+    }
+
+    /**
+     * @return the package, as the depending package asked for it (id#version)
+     */
+    public String getId() {
+      return id;
+    }
+
+    public NpmPackage getNpm() {
+      return npm;
+    }
+
+    /**
+     * @return how long the package took to fetch, in nanoseconds. Packages are fetched at the same
+     * time, so these add up to more than the time it took to fetch them all
+     */
+    public long getTime() {
+      return time;
+    }
+
+    /**
+     * @return the "package fetch" time of this package, to merge into another clock
+     */
+    public TimeTracker getClock() {
+      return clock;
+    }
+  }
+
+  private final IPackageCacheManager pcm;
+  private final int threads;
+
+  /**
+   * @param threads - the most packages to fetch at the same time. Unpacking and indexing the packages
+   *   share the package threads (see NpmPackage.setThreads), however many are fetched at once
+   */
+  public PackageGraphLoader(IPackageCacheManager pcm, int threads) {
+    super();
+    this.pcm = pcm;
+    this.threads = Math.max(1, threads);
+  }
+
+  /**
+   * Fetch all the packages that the package depends on, directly or indirectly
+   *
+   * @param skip - dependencies that aren't fetched (e.g. because they're already loaded), along with
+   *   the packages only they depend on. This is only called on the calling thread
+   * @return the packages, each after all the packages it depends on, in the order of the
+   *   dependencies. The package itself is not included
+   */
+  public List<PackageFetch> resolve(NpmPackage npm, Predicate<String> skip) throws IOException, FHIRException {
+    Map<String, PackageFetch> fetched = new HashMap<>();
+    Set<String> requested = new HashSet<>();
+    requested.add(npm.name()+"#"+npm.version());
+    ExecutorService pool = Executors.newFixedThreadPool(threads);
+    try {
+      CompletionService<PackageFetch> fetches = new ExecutorCompletionService<>(pool);
+      int pending = request(npm, skip, requested, fetches);
+      while (pending > 0) {
+        PackageFetch pf = take(fetches);
+        pending--;
+        fetched.put(pf.id, pf);
+        pending = pending + request(pf.npm, skip, requested, fetches);
+      }
+    } finally {
+      pool.shutdownNow();
+    }
+
+    List<PackageFetch> res = new ArrayList<>();
+    order(npm, fetched, new HashSet<>(), res);
+    return res;
+  }
+
+  private int request(NpmPackage npm, Predicate<String> skip, Set<String> requested, CompletionService<PackageFetch> fetches) {
+    int count = 0;
+    for (String dep : npm.dependencies()) {
+      if (!skip.test(dep) && requested.add(dep)) {
+        fetches.submit(() -> fetch(dep));
+        count++;
+      }
+    }
+    return count;
+  }
+
+  private PackageFetch fetch(String id) throws FHIRException, IOException {
+    PackageFetch res = new PackageFetch(id);
+    TimeTracker.Session tts = res.clock.start("package fetch");
+    long start = System.nanoTime();
+    res.npm = pcm.loadPackage(id, null);
+    res.time = System.nanoTime() - start;
+    tts.end();
+    return res;
+  }
+
+  private PackageFetch take(CompletionService<PackageFetch> fetches) throws IOException, FHIRException {
+    try {
+      Future<PackageFetch> f = fetches.take();
+      return f.get();
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      if (e.getCause() instanceof FHIRException) {
+        throw (FHIRException) e.getCause();
+      }
+      throw new FHIRException(e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new FHIRException(e);
+    }
+  }
+
+  private void order(NpmPackage npm, Map<String, PackageFetch> fetched, Set<String> done, List<PackageFetch> res) {
+    for (String dep : npm.dependencies()) {
+      PackageFetch pf = fetched.get(dep);
+      if (pf != null && done.add(dep)) {
+        order(pf.npm, fetched, done, res);
+        res.add(pf);
+      }
+    }
+  }
+
+}
@@ -0,0 +1,109 @@
+package org.hl7.fhir.validation.tests;
+
+import org.hl7.fhir.r5.elementmodel.Element;
+import org.hl7.fhir.r5.elementmodel.Property;
+import org.hl7.fhir.r5.model.ElementDefinition;
+import org.hl7.fhir.r5.model.StructureDefinition;
+import org.hl7.fhir.validation.instance.utils.BundleIndex;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class BundleIndexTests {
+
+  private StructureDefinition sd = new StructureDefinition();
+
+  private Property property(String path, String... types) {
+    ElementDefinition ed = new ElementDefinition().setPath(path).setMax("1");
+    for (String t : types) {
+      ed.addType().setCode(t);
+    }
+    return new Property(null, ed, sd);
+  }
+
+  private void addEntry(Element bundle, String fullUrl, String type, String id) {
+    Element entry = new Element("entry", property("Bundle.entry", "BackboneElement"));
+    if (fullUrl != null) {
+      entry.getChildren().add(new Element("fullUrl", property("Bundle.entry.fullUrl", "uri"), "uri", fullUrl));
+    }
+    if (type != null) {
+      Element resource = new Element("resource", property("Bundle.entry.resource", "Resource"));
+      resource.setType(type);
+      resource.getChildren().add(new Element("id", property(type+".id", "id"), "id", id));
+      entry.getChildren().add(resource);
+    }
+    bundle.getChildren().add(entry);
+  }
+
+  private void setVersion(Element bundle, int entry, String versionId) {
+    Element resource = bundle.getChildren().get(entry).getNamedChild("resource");
+    Element meta = new Element("meta", property(resource.fhirType()+".meta", "Meta"));
+    meta.getChildren().add(new Element("versionId", property("Meta.versionId", "id"), "id", versionId));
+    resource.getChildren().add(meta);
+  }
+
+  private Element makeBundle() {
+    Element bundle = new Element("Bundle", property("Bundle"));
+    bundle.setType("Bundle");
+    addEntry(bundle, "http://example.org/fhir/Patient/1", "Patient", "1");
+    addEntry(bundle, "urn:uuid:0f3a6d4e-1c1c-4c1e-9d5e-1f0e3c3b2a10", "Observation", "o1");
+    addEntry(bundle, "http://example.org/fhir/Patient/1", "Patient", "1"); // duplicate
+    addEntry(bundle, null, "Patient", "2");
+    addEntry(bundle, "http://example.org/fhir/Patient/3", null, null); // no resource
+    addEntry(bundle, "Patient/2", "Practitioner", "p1"); // fullUrl that looks like a type/id, after the entry with that type/id
+    return bundle;
+  }
+
+  @Test
+  public void testLookups() {
+    Element bundle = makeBundle();
+    BundleIndex index = BundleIndex.forBundle(bundle);
+    Assertions.assertSame(index, BundleIndex.forBundle(bundle));
+    Assertions.assertEquals(6, index.size());
+
+    Assertions.assertEquals(0, index.indexOf(index.getEntryByFullUrl("http://example.org/fhir/Patient/1")));
+    Assertions.assertEquals(2, index.getPositionsByFullUrl("http://example.org/fhir/Patient/1").size());
+    Assertions.assertEquals(1, index.indexOf(index.getEntryByFullUrl("urn:uuid:0f3a6d4e-1c1c-4c1e-9d5e-1f0e3c3b2a10")));
+    Assertions.assertNull(index.getEntryByFullUrl("http://example.org/fhir/Patient/2"));
+    Assertions.assertTrue(index.getPositionsByFullUrl(null).isEmpty());
+
+    Assertions.assertEquals(3, index.indexOf(index.getEntryByTypeAndId("Patient", "2")));
+    Assertions.assertEquals(0, index.indexOf(index.getEntryByTypeAndId("Patient", "1")));
+    Assertions.assertNull(index.getEntryByTypeAndId("Patient", "3"));
+    Assertions.assertEquals(-1, index.indexOf(bundle));
+
+    // resource lookup: fullUrl or type/id, whichever entry comes first, skipping entries without resources
+    Assertions.assertEquals("Patient", index.getResourceByUrl("Patient/2").fhirType());
+    Assertions.assertEquals("Observation", index.getResourceByUrl("urn:uuid:0f3a6d4e-1c1c-4c1e-9d5e-1f0e3c3b2a10").fhirType());
+    Assertions.assertNull(index.getResourceByUrl("http://example.org/fhir/Patient/3"));
+    Assertions.assertEquals("p1", index.getResourceByUrl("Practitioner/p1").getIdBase());
+  }
+
+  @Test
+  public void testResourcesWithoutIds() {
+    Element bundle = new Element("Bundle", property("Bundle"));
+    bundle.setType("Bundle");
+    Element entry = new Element("entry", property("Bundle.entry", "BackboneElement"));
+    Element resource = new Element("resource", property("Bundle.entry.resource", "Resource"));
+    resource.setType("Patient");
+    entry.getChildren().add(resource);
+    bundle.getChildren().add(entry);
+    BundleIndex index = BundleIndex.forBundle(bundle);
+    Assertions.assertNull(index.getEntryByTypeAndId("Patient", null));
+    Assertions.assertNull(index.getEntryByTypeAndId("Patient", "null"));
+    Assertions.assertNull(index.getResourceByUrl("Patient/null"));
+  }
+
+  @Test
+  public void testVersions() {
+    Element bundle = makeBundle();
+    setVersion(bundle, 0, "1");
+    setVersion(bundle, 2, "2");
+    BundleIndex index = BundleIndex.forBundle(bundle);
+    Assertions.assertEquals("[0]", index.getPositionsByFullUrl("http://example.org/fhir/Patient/1", "1").toString());
+    Assertions.assertEquals("[2]", index.getPositionsByFullUrl("http://example.org/fhir/Patient/1", "2").toString());
+    Assertions.assertTrue(index.getPositionsByFullUrl("http://example.org/fhir/Patient/1", "3").isEmpty());
+    // entries without a resource or meta can't be checked, so they're always included
+    Assertions.assertEquals("[4]", index.getPositionsByFullUrl("http://example.org/fhir/Patient/3", "1").toString());
+    Assertions.assertEquals("[1]", index.getPositionsByFullUrl("urn:uuid:0f3a6d4e-1c1c-4c1e-9d5e-1f0e3c3b2a10", "1").toString());
+  }
+}
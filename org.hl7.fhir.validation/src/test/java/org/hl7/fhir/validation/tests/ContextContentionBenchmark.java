@@ -0,0 +1,85 @@
+package org.hl7.fhir.validation.tests;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.hl7.fhir.r5.elementmodel.Manager.FhirFormat;
+import org.hl7.fhir.r5.model.FhirPublication;
+import org.hl7.fhir.utilities.validation.ValidationMessage;
+import org.hl7.fhir.validation.ValidationEngine;
+import org.hl7.fhir.validation.instance.InstanceValidator;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Measures how validation throughput scales when a single validator (and so a single
+ * worker context) is shared between threads. With lock-free context lookups the
+ * throughput should go up with the thread count (up to the number of cores).
+ *
+ * This is a benchmark, not a test: it needs the core package and takes a while, so run it by hand
+ */
+@Disabled
+public class ContextContentionBenchmark {
+
+  private static final int RESOURCES_PER_RUN = 2000;
+
+  private static final String PATIENT = "{\"resourceType\" : \"Patient\", \"id\" : \"example\", "+
+      "\"identifier\" : [{\"use\" : \"usual\", \"system\" : \"urn:oid:1.2.36.146.595.217.0.1\", \"value\" : \"12345\"}], "+
+      "\"active\" : true, \"name\" : [{\"use\" : \"official\", \"family\" : \"Chalmers\", \"given\" : [\"Peter\", \"James\"]}], "+
+      "\"telecom\" : [{\"system\" : \"phone\", \"value\" : \"(03) 5555 6473\", \"use\" : \"work\", \"rank\" : 1}], "+
+      "\"gender\" : \"male\", \"birthDate\" : \"1974-12-25\", "+
+      "\"address\" : [{\"use\" : \"home\", \"type\" : \"both\", \"line\" : [\"534 Erewhon St\"], \"city\" : \"PleasantVille\", \"postalCode\" : \"3999\"}]}";
+
+  @Test
+  public void testThroughputByThreadCount() throws Exception {
+    ValidationEngine ve = new ValidationEngine("hl7.fhir.r4.core#4.0.1", FhirPublication.R4, "4.0.1", null);
+    InstanceValidator validator = ve.getValidator();
+    validator.setNoTerminologyChecks(true);
+    byte[] source = PATIENT.getBytes(StandardCharsets.UTF_8);
+
+    // warm up: snapshots, parsed invariants etc
+    run(validator, source, 1, RESOURCES_PER_RUN / 4);
+
+    double single = 0;
+    for (int threads : new int[] {1, 2, 4, 8}) {
+      long start = System.nanoTime();
+      run(validator, source, threads, RESOURCES_PER_RUN);
+      double rate = RESOURCES_PER_RUN / ((System.nanoTime() - start) / 1000000000.0);
+      if (threads == 1) {
+        single = rate;
+      }
+      System.out.println(String.format("%d thread(s): %.0f resources/sec (x%.2f)", threads, rate, rate / single));
+    }
+  }
+
+  private void run(InstanceValidator validator, byte[] source, int threads, int count) throws Exception {
+    ExecutorService pool = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<Integer>> results = new ArrayList<>();
+      for (int i = 0; i < count; i++) {
+        results.add(pool.submit(() -> {
+          List<ValidationMessage> messages = new ArrayList<>();
+          validator.validate(null, messages, new ByteArrayInputStream(source), FhirFormat.JSON);
+          int errors = 0;
+          for (ValidationMessage vm : messages) {
+            if (vm.getLevel().isError()) {
+              errors++;
+            }
+          }
+          return errors;
+        }));
+      }
+      for (Future<Integer> f : results) {
+        Assertions.assertEquals(0, f.get().intValue());
+      }
+    } finally {
+      pool.shutdown();
+    }
+  }
+}
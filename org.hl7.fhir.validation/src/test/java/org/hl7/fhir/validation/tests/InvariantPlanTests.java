@@ -0,0 +1,80 @@
+package org.hl7.fhir.validation.tests;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import org.hl7.fhir.r5.context.SimpleWorkerContext;
+import org.hl7.fhir.r5.model.ElementDefinition;
+import org.hl7.fhir.r5.model.ElementDefinition.ElementDefinitionConstraintComponent;
+import org.hl7.fhir.r5.model.StructureDefinition;
+import org.hl7.fhir.r5.model.StructureDefinition.StructureDefinitionSnapshotComponent;
+import org.hl7.fhir.r5.utils.FHIRPathEngine;
+import org.hl7.fhir.r5.utils.FHIRPathEngine.CompiledExpression;
+import org.hl7.fhir.utilities.validation.ValidationMessage.IssueSeverity;
+import org.hl7.fhir.validation.instance.utils.InvariantPlan;
+import org.hl7.fhir.validation.instance.utils.InvariantPlan.PlannedInvariant;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class InvariantPlanTests {
+
+  @Test
+  public void testPlanIsKeptOnProfile() {
+    StructureDefinition sd = new StructureDefinition();
+    ElementDefinition ed = sd.getSnapshot().addElement().setPath("Test");
+    ElementDefinition edA = sd.getSnapshot().addElement().setPath("Test.a");
+    List<ElementDefinition> planned = new ArrayList<>();
+    Function<ElementDefinition, List<PlannedInvariant>> planner = e -> {
+      planned.add(e);
+      return new ArrayList<>();
+    };
+    InvariantPlan plan = InvariantPlan.forProfile(sd, planner);
+    Assertions.assertSame(plan, InvariantPlan.forProfile(sd, planner));
+    Assertions.assertNotSame(plan, InvariantPlan.forProfile(new StructureDefinition(), planner));
+
+    // the whole snapshot is planned at once, and the lists can't be changed
+    Assertions.assertEquals(2, plan.size());
+    Assertions.assertEquals(2, planned.size());
+    List<PlannedInvariant> first = plan.getInvariants(ed);
+    Assertions.assertNotNull(first);
+    Assertions.assertNotNull(plan.getInvariants(edA));
+    Assertions.assertSame(first, plan.getInvariants(ed));
+    Assertions.assertThrows(UnsupportedOperationException.class, () -> first.add(null));
+    Assertions.assertNull(plan.getInvariants(new ElementDefinition().setPath("Test")));
+    Assertions.assertEquals(2, planned.size());
+
+    // a new snapshot gets a new plan, as does dropping it
+    sd.setSnapshot(new StructureDefinitionSnapshotComponent());
+    ElementDefinition ed2 = sd.getSnapshot().addElement().setPath("Test");
+    InvariantPlan plan2 = InvariantPlan.forProfile(sd, planner);
+    Assertions.assertNotSame(plan, plan2);
+    Assertions.assertNull(plan2.getInvariants(ed));
+    Assertions.assertNotNull(plan2.getInvariants(ed2));
+    Assertions.assertSame(plan2, InvariantPlan.forProfile(sd, planner));
+    InvariantPlan.dropPlan(sd);
+    Assertions.assertNotSame(plan2, InvariantPlan.forProfile(sd, planner));
+  }
+
+  @Test
+  public void testCompile() throws Exception {
+    FHIRPathEngine fpe = new FHIRPathEngine(new SimpleWorkerContext());
+    ElementDefinitionConstraintComponent inv = new ElementDefinitionConstraintComponent().setKey("tst-1").setHuman("Must have a value").setExpression("value.exists()");
+    PlannedInvariant pi = new PlannedInvariant(inv, fpe.parseCached(inv.getExpression()), null, false, IssueSeverity.ERROR, false);
+    Assertions.assertEquals("tst-1: Must have a value", pi.getMessage());
+    CompiledExpression ce = pi.compile(fpe);
+    Assertions.assertSame(ce, pi.compile(fpe));
+    Assertions.assertSame(fpe, ce.getEngine());
+
+    // another engine gets its own, and both are kept
+    FHIRPathEngine other = new FHIRPathEngine(new SimpleWorkerContext());
+    CompiledExpression ceOther = pi.compile(other);
+    Assertions.assertSame(other, ceOther.getEngine());
+    Assertions.assertSame(ce, pi.compile(fpe));
+    Assertions.assertSame(ceOther, pi.compile(other));
+
+    // an expression that couldn't be parsed fails when it's used
+    PlannedInvariant bad = new PlannedInvariant(inv, null, "Unable to parse", false, IssueSeverity.ERROR, false);
+    Assertions.assertEquals("Unable to parse", Assertions.assertThrows(Exception.class, () -> bad.compile(fpe)).getMessage());
+  }
+}
@@ -0,0 +1,124 @@
+package org.hl7.fhir.validation.tests;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.hl7.fhir.exceptions.FHIRException;
+import org.hl7.fhir.utilities.TextFile;
+import org.hl7.fhir.utilities.Utilities;
+import org.hl7.fhir.utilities.npm.IPackageCacheManager;
+import org.hl7.fhir.utilities.npm.NpmPackage;
+import org.hl7.fhir.validation.packages.PackageGraphLoader;
+import org.hl7.fhir.validation.packages.PackageGraphLoader.PackageFetch;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class PackageGraphLoaderTests {
+
+  /**
+   * a package cache with made up packages. b and c wait for each other, so they can only be
+   * fetched if they are fetched at the same time
+   */
+  private class TestPackageCache implements IPackageCacheManager {
+    private Map<String, NpmPackage> packages = new HashMap<>();
+    private List<String> fetched = new ArrayList<>();
+    private CountDownLatch together = new CountDownLatch(2);
+
+    private void add(String id, String... dependencies) throws IOException {
+      File root = Files.createTempDirectory("npm-graph").toFile();
+      File pck = new File(root, "package");
+      pck.mkdirs();
+      StringBuilder b = new StringBuilder();
+      for (String d : dependencies) {
+        b.append(b.length() == 0 ? "" : ", ");
+        b.append("\""+d+"\" : \"1.0.0\"");
+      }
+      TextFile.stringToFile("{\"name\" : \""+id+"\", \"version\" : \"1.0.0\", \"fhirVersions\" : [\"4.0.1\"], \"dependencies\" : {"+b.toString()+"}}", 
+          Utilities.path(pck.getAbsolutePath(), "package.json"));
+      packages.put(id+"#1.0.0", NpmPackage.fromFolder(root.getAbsolutePath()));
+    }
+
+    @Override
+    public NpmPackage loadPackage(String id, String version) throws FHIRException, IOException {
+      synchronized (fetched) {
+        fetched.add(id);
+      }
+      if (id.startsWith("example.b#") || id.startsWith("example.c#")) {
+        together.countDown();
+        try {
+          if (!together.await(10, TimeUnit.SECONDS)) {
+            throw new IOException("b and c were not fetched at the same time");
+          }
+        } catch (InterruptedException e) {
+          throw new IOException(e);
+        }
+      }
+      if (!packages.containsKey(id)) {
+        throw new IOException("Unable to find package "+id);
+      }
+      return packages.get(id);
+    }
+
+    @Override
+    public NpmPackage loadPackage(String idAndVer) throws FHIRException, IOException {
+      return loadPackage(idAndVer, null);
+    }
+
+    @Override
+    public String getPackageId(String canonicalUrl) {
+      return null;
+    }
+
+    @Override
+    public NpmPackage addPackageToCache(String id, String version, InputStream packageTgzInputStream, String sourceDesc) {
+      return null;
+    }
+
+    @Override
+    public String getPackageUrl(String packageId) {
+      return null;
+    }
+  }
+
+  private List<String> ids(List<PackageFetch> list) {
+    List<String> res = new ArrayList<>();
+    for (PackageFetch pf : list) {
+      res.add(pf.getId());
+    }
+    return res;
+  }
+
+  @Test
+  public void testOrder() throws Exception {
+    TestPackageCache pcm = new TestPackageCache();
+    pcm.add("example.root", "example.b", "example.c", "example.loaded");
+    pcm.add("example.b", "example.d");
+    pcm.add("example.c", "example.d", "example.e");
+    pcm.add("example.d", "example.root");
+    pcm.add("example.e");
+    pcm.add("example.loaded", "example.f");
+
+    List<PackageFetch> res = new PackageGraphLoader(pcm, 4).resolve(pcm.packages.get("example.root#1.0.0"), s -> s.startsWith("example.loaded#"));
+    // the order of a depth first walk: each package comes after what it depends on
+    Assertions.assertEquals("[example.d#1.0.0, example.b#1.0.0, example.e#1.0.0, example.c#1.0.0]", ids(res).toString());
+    // each package is only fetched once, and the root and what's skipped aren't fetched at all
+    Assertions.assertEquals(4, pcm.fetched.size());
+    Assertions.assertSame(pcm.packages.get("example.e#1.0.0"), res.get(2).getNpm());
+  }
+
+  @Test
+  public void testMissing() throws Exception {
+    TestPackageCache pcm = new TestPackageCache();
+    pcm.add("example.root", "example.missing");
+    Assertions.assertEquals("Unable to find package example.missing#1.0.0", 
+        Assertions.assertThrows(IOException.class, () -> new PackageGraphLoader(pcm, 2).resolve(pcm.packages.get("example.root#1.0.0"), s -> false)).getMessage());
+  }
+}
@@ -0,0 +1,91 @@
+package org.hl7.fhir.validation.tests;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.hl7.fhir.r5.elementmodel.Manager.FhirFormat;
+import org.hl7.fhir.r5.model.FhirPublication;
+import org.hl7.fhir.utilities.validation.ValidationMessage;
+import org.hl7.fhir.validation.ValidationEngine;
+import org.hl7.fhir.validation.instance.InstanceValidator;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * One InstanceValidator used by several threads at once must give each thread the messages
+ * it would get if the resources were validated one at a time
+ */
+public class SharedValidatorTests {
+
+  private static final int THREADS = 8;
+  private static final int REPEATS = 10;
+
+  private static final String[] RESOURCES = {
+    // valid
+    "{\"resourceType\" : \"Patient\", \"id\" : \"p1\", \"active\" : true, \"gender\" : \"male\", \"birthDate\" : \"1974-12-25\"}",
+    // bad code, bad date
+    "{\"resourceType\" : \"Patient\", \"id\" : \"p2\", \"gender\" : \"other-gender\", \"birthDate\" : \"1974-13-45\"}",
+    // unknown element
+    "{\"resourceType\" : \"Patient\", \"id\" : \"p3\", \"colour\" : \"blue\"}",
+    // a comparator that is not in the value set
+    "{\"resourceType\" : \"Observation\", \"id\" : \"o1\", \"status\" : \"final\", \"code\" : {\"text\" : \"weight\"}, "+
+      "\"valueQuantity\" : {\"value\" : 70, \"comparator\" : \"~\"}}",
+    // missing required elements
+    "{\"resourceType\" : \"Observation\", \"id\" : \"o2\"}",
+    // a reference to a contained resource that isn't there
+    "{\"resourceType\" : \"Observation\", \"id\" : \"o3\", \"contained\" : [{\"resourceType\" : \"Patient\", \"id\" : \"c1\"}], "+
+      "\"status\" : \"final\", \"code\" : {\"text\" : \"weight\"}, \"subject\" : {\"reference\" : \"#c2\"}, \"valueString\" : \"heavy\"}"
+  };
+
+  @Test
+  public void testConcurrentValidationMatchesSerial() throws Exception {
+    ValidationEngine ve = new ValidationEngine("hl7.fhir.r4.core#4.0.1", FhirPublication.R4, "4.0.1", null);
+    InstanceValidator validator = ve.getValidator();
+    validator.setNoTerminologyChecks(true);
+
+    List<List<String>> serial = new ArrayList<>();
+    for (String src : RESOURCES) {
+      serial.add(validate(validator, src));
+    }
+    // the first resource is valid and the others aren't, so cross talk between threads would show
+    for (int i = 1; i < serial.size(); i++) {
+      Assertions.assertNotEquals(serial.get(0), serial.get(i));
+    }
+
+    List<Integer> order = new ArrayList<>();
+    for (int r = 0; r < REPEATS; r++) {
+      for (int i = 0; i < RESOURCES.length; i++) {
+        order.add(i);
+      }
+    }
+    Collections.shuffle(order);
+    ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+    try {
+      List<Future<List<String>>> results = new ArrayList<>();
+      for (int i : order) {
+        results.add(pool.submit(() -> validate(validator, RESOURCES[i])));
+      }
+      for (int i = 0; i < order.size(); i++) {
+        Assertions.assertEquals(serial.get(order.get(i)), results.get(i).get(), "Messages for resource "+order.get(i));
+      }
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  private List<String> validate(InstanceValidator validator, String src) throws Exception {
+    List<ValidationMessage> messages = new ArrayList<>();
+    validator.validate(null, messages, new ByteArrayInputStream(src.getBytes(StandardCharsets.UTF_8)), FhirFormat.JSON);
+    List<String> res = new ArrayList<>();
+    for (ValidationMessage vm : messages) {
+      res.add(vm.getLevel()+"|"+vm.getLocation()+"|"+vm.getMessage());
+    }
+    return res;
+  }
+}
@@ -0,0 +1,108 @@
+package org.hl7.fhir.validation.tests;
+
+import java.io.IOException;
+
+import org.hl7.fhir.utilities.TimeTracker;
+import org.hl7.fhir.validation.ValidationEngine;
+import org.hl7.fhir.validation.cli.model.CliContext;
+import org.hl7.fhir.validation.cli.services.ValidationEnginePool;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class ValidationEnginePoolTests {
+
+  private static final String DEFINITIONS = "hl7.fhir.r4.core#4.0.1";
+
+  /**
+   * a pool that builds empty engines instead of loading packages, and counts the builds
+   */
+  private static class TestPool extends ValidationEnginePool {
+    private int builds;
+    private boolean fail;
+
+    public TestPool(int maxEngines, long maxIdleMillis) {
+      super(maxEngines, maxIdleMillis);
+    }
+
+    @Override
+    protected ValidationEngine buildEngine(CliContext cliContext, String definitions, TimeTracker tt) throws Exception {
+      builds++;
+      if (fail) {
+        throw new IOException("Unable to load "+definitions);
+      }
+      return new ValidationEngine();
+    }
+  }
+
+  private CliContext context(String txServer) {
+    return new CliContext().setSv("4.0.1").setTxServer(txServer);
+  }
+
+  @Test
+  public void testSameSettingsShareAnEngine() throws Exception {
+    TestPool pool = new TestPool(4, ValidationEnginePool.DEFAULT_MAX_IDLE_MILLIS);
+    ValidationEngine e1 = pool.getEngine(context("http://tx.fhir.org"), DEFINITIONS, new TimeTracker());
+    ValidationEngine e2 = pool.getEngine(context("http://tx.fhir.org"), DEFINITIONS, new TimeTracker());
+    Assertions.assertSame(e1, e2);
+    Assertions.assertEquals(1, pool.builds);
+    Assertions.assertEquals(1, pool.size());
+  }
+
+  @Test
+  public void testDifferentSettingsGetDifferentEngines() throws Exception {
+    TestPool pool = new TestPool(8, ValidationEnginePool.DEFAULT_MAX_IDLE_MILLIS);
+    ValidationEngine base = pool.getEngine(context("http://tx.fhir.org"), DEFINITIONS, new TimeTracker());
+    Assertions.assertNotSame(base, pool.getEngine(context("http://other.tx.org"), DEFINITIONS, new TimeTracker()));
+    Assertions.assertNotSame(base, pool.getEngine(context("http://tx.fhir.org").setNoInternalCaching(true), DEFINITIONS, new TimeTracker()));
+    Assertions.assertNotSame(base, pool.getEngine(context("http://tx.fhir.org").addIg("hl7.fhir.us.core"), DEFINITIONS, new TimeTracker()));
+    Assertions.assertNotSame(base, pool.getEngine(context("http://tx.fhir.org"), "hl7.fhir.r3.core#3.0.2", new TimeTracker()));
+    Assertions.assertEquals(5, pool.builds);
+    Assertions.assertEquals(5, pool.size());
+    // and the first is still there
+    Assertions.assertSame(base, pool.getEngine(context("http://tx.fhir.org"), DEFINITIONS, new TimeTracker()));
+    Assertions.assertEquals(5, pool.builds);
+  }
+
+  @Test
+  public void testLeastRecentlyUsedIsEvicted() throws Exception {
+    TestPool pool = new TestPool(2, ValidationEnginePool.DEFAULT_MAX_IDLE_MILLIS);
+    ValidationEngine a = pool.getEngine(context("http://a.org"), DEFINITIONS, new TimeTracker());
+    ValidationEngine b = pool.getEngine(context("http://b.org"), DEFINITIONS, new TimeTracker());
+    Assertions.assertSame(a, pool.getEngine(context("http://a.org"), DEFINITIONS, new TimeTracker())); // b is now the least recently used
+    pool.getEngine(context("http://c.org"), DEFINITIONS, new TimeTracker());
+    Assertions.assertEquals(2, pool.size());
+    Assertions.assertEquals(3, pool.builds);
+
+    Assertions.assertSame(a, pool.getEngine(context("http://a.org"), DEFINITIONS, new TimeTracker()));
+    Assertions.assertEquals(3, pool.builds);
+    Assertions.assertNotSame(b, pool.getEngine(context("http://b.org"), DEFINITIONS, new TimeTracker()));
+    Assertions.assertEquals(4, pool.builds);
+    Assertions.assertEquals(2, pool.size());
+  }
+
+  @Test
+  public void testIdleEnginesAreEvicted() throws Exception {
+    TestPool pool = new TestPool(4, 50);
+    ValidationEngine a = pool.getEngine(context("http://a.org"), DEFINITIONS, new TimeTracker());
+    Thread.sleep(200);
+    ValidationEngine b = pool.getEngine(context("http://b.org"), DEFINITIONS, new TimeTracker());
+    Assertions.assertEquals(1, pool.size()); // a was idle for too long
+    Assertions.assertNotSame(a, pool.getEngine(context("http://a.org"), DEFINITIONS, new TimeTracker()));
+    Assertions.assertEquals(3, pool.builds);
+    Assertions.assertNotNull(b);
+  }
+
+  @Test
+  public void testFailedBuildIsNotKept() throws Exception {
+    TestPool pool = new TestPool(4, ValidationEnginePool.DEFAULT_MAX_IDLE_MILLIS);
+    pool.fail = true;
+    Assertions.assertThrows(IOException.class, () -> pool.getEngine(context("http://a.org"), DEFINITIONS, new TimeTracker()));
+    Assertions.assertEquals(0, pool.size());
+
+    // the next request tries again
+    pool.fail = false;
+    Assertions.assertNotNull(pool.getEngine(context("http://a.org"), DEFINITIONS, new TimeTracker()));
+    Assertions.assertEquals(2, pool.builds);
+    Assertions.assertEquals(1, pool.size());
+  }
+}
@@ -1,15 +1,25 @@
 package org.hl7.fhir.validation.tests;
 
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.List;
 
 import org.hl7.fhir.r5.elementmodel.Manager.FhirFormat;
+import org.hl7.fhir.r5.model.Bundle;
 import org.hl7.fhir.r5.model.FhirPublication;
 import org.hl7.fhir.r5.model.OperationOutcome;
 import org.hl7.fhir.r5.model.OperationOutcome.IssueSeverity;
 import org.hl7.fhir.r5.model.OperationOutcome.OperationOutcomeIssueComponent;
 import org.hl7.fhir.r5.test.utils.TestingUtilities;
+import org.hl7.fhir.r5.utils.ToolingExtensions;
+import org.hl7.fhir.utilities.TextFile;
+import org.hl7.fhir.utilities.validation.ValidationMessage;
 import org.hl7.fhir.validation.ValidationEngine;
+import org.hl7.fhir.validation.ValidationEngine.ValidationRecord;
+import org.hl7.fhir.validation.instance.InstanceValidator;
 import org.hl7.fhir.validation.tests.utilities.TestUtilities;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
@@ -176,6 +186,204 @@ public class ValidationEngineTests {
       System.out.println("  .. done: " + Integer.toString(e) + " errors, " + Integer.toString(w) + " warnings, " + Integer.toString(h) + " information messages");
   }
 
+  @Test
+  public void testParallelBundleEntries() throws Exception {
+    if (!TestUtilities.silent)
+      System.out.println("TestParallelBundleEntries: Validate a large collection bundle with and without parallel entries");
+    StringBuilder b = new StringBuilder();
+    b.append("{\"resourceType\": \"Bundle\", \"type\": \"collection\", \"entry\": [");
+    for (int i = 0; i < 50; i++) {
+      if (i > 0)
+        b.append(",");
+      // some of the entries have errors, and one of the fullUrls is duplicated
+      String gender = i % 7 == 0 ? "other-gender" : "female";
+      String fullUrl = i == 30 ? "http://example.org/fhir/Patient/p10" : "http://example.org/fhir/Patient/p"+i;
+      b.append("{\"fullUrl\": \""+fullUrl+"\", \"resource\": {\"resourceType\": \"Patient\", \"id\": \"p"+i+"\", \"gender\": \""+gender+"\", "+
+        "\"link\": [{\"other\": {\"reference\": \"Patient/p"+((i + 1) % 50)+"\"}, \"type\": \"seealso\"}]}}");
+    }
+    b.append("]}");
+    OperationOutcome serial = compareParallelBundleEntries(b.toString());
+    Assertions.assertTrue(errors(serial) > 0);
+  }
+
+  @Test
+  public void testParallelBundleEntriesDuplicateIds() throws Exception {
+    if (!TestUtilities.silent)
+      System.out.println("TestParallelBundleEntriesDuplicateIds: Validate a large bundle with duplicate entry ids with and without parallel entries");
+    StringBuilder b = new StringBuilder();
+    b.append("{\"resourceType\": \"Bundle\", \"type\": \"collection\", \"entry\": [");
+    for (int i = 0; i < 40; i++) {
+      if (i > 0)
+        b.append(",");
+      // entries 25, 35 and 39 repeat the ids of earlier entries
+      String id = i == 25 ? "e3" : i == 35 ? "e30" : i == 39 ? "e38" : "e"+i;
+      b.append("{\"id\": \""+id+"\", \"fullUrl\": \"http://example.org/fhir/Patient/p"+i+"\", \"resource\": {\"resourceType\": \"Patient\", \"id\": \"p"+i+"\"}}");
+    }
+    b.append("]}");
+    OperationOutcome serial = compareParallelBundleEntries(b.toString());
+    int duplicates = 0;
+    for (OperationOutcomeIssueComponent issue : serial.getIssue()) {
+      if (issue.getDetails().getText().startsWith("Duplicate id value")) {
+        duplicates++;
+      }
+    }
+    Assertions.assertEquals(3, duplicates);
+  }
+
+  @Test
+  public void testParallelBundleEntriesReferencedInvariants() throws Exception {
+    if (!TestUtilities.silent)
+      System.out.println("TestParallelBundleEntriesReferencedInvariants: Validate a large bundle whose entries reference entries that fail an invariant");
+    StringBuilder b = new StringBuilder();
+    b.append("{\"resourceType\": \"Bundle\", \"type\": \"collection\", \"entry\": [");
+    for (int i = 0; i < 40; i++) {
+      if (i > 0)
+        b.append(",");
+      // every third patient has a contact with no details (pat-1), and each one links to the next, so checking 
+      // a link checks the invariants of the linked entry while that entry is being validated itself
+      String contact = i % 3 == 0 ? "\"contact\": [{\"gender\": \"male\"}], " : "";
+      b.append("{\"fullUrl\": \"http://example.org/fhir/Patient/p"+i+"\", \"resource\": {\"resourceType\": \"Patient\", \"id\": \"p"+i+"\", "+contact+
+        "\"link\": [{\"other\": {\"reference\": \"Patient/p"+((i + 1) % 40)+"\"}, \"type\": \"seealso\"}]}}");
+    }
+    b.append("]}");
+    byte[] source = b.toString().getBytes(StandardCharsets.UTF_8);
+    ValidationEngine ve = new ValidationEngine("hl7.fhir.r4.core#4.0.1", DEF_TX, null, FhirPublication.R4, "4.0.1");
+    ve.setParallelBundleEntries(true);
+    ve.setThreads(4);
+    List<String> first = null;
+    for (int run = 0; run < 5; run++) {
+      OperationOutcome op = ve.validate(FhirFormat.JSON, new ByteArrayInputStream(source), null);
+      List<String> messages = new ArrayList<>();
+      for (OperationOutcomeIssueComponent issue : op.getIssue()) {
+        messages.add(issue.getSeverity()+"|"+issue.getExpression()+"|"+issue.getDetails().getText());
+      }
+      if (first == null) {
+        first = messages;
+      } else {
+        Assertions.assertEquals(first, messages, "Run "+run);
+      }
+      // each entry's failure is reported on that entry, whichever thread checked the link to it first
+      for (int i = 0; i < 40; i += 3) {
+        boolean found = false;
+        for (OperationOutcomeIssueComponent issue : op.getIssue()) {
+          if (issue.getSeverity() == IssueSeverity.ERROR && issue.getDetails().getText().contains("pat-1") && issue.getExpression().toString().contains("Bundle.entry["+i+"]")) {
+            found = true;
+          }
+        }
+        Assertions.assertTrue(found, "pat-1 on entry "+i);
+      }
+    }
+  }
+
+  @Test
+  public void testBundleEntryPoolOutlivesThreadChange() throws Exception {
+    if (!TestUtilities.silent)
+      System.out.println("TestBundleEntryPoolOutlivesThreadChange: Use a validator made before the number of threads changed");
+    StringBuilder b = new StringBuilder();
+    b.append("{\"resourceType\": \"Bundle\", \"type\": \"collection\", \"entry\": [");
+    for (int i = 0; i < 40; i++) {
+      if (i > 0)
+        b.append(",");
+      b.append("{\"fullUrl\": \"http://example.org/fhir/Patient/p"+i+"\", \"resource\": {\"resourceType\": \"Patient\", \"id\": \"p"+i+"\"}}");
+    }
+    b.append("]}");
+    byte[] source = b.toString().getBytes(StandardCharsets.UTF_8);
+    ValidationEngine ve = new ValidationEngine("hl7.fhir.r4.core#4.0.1", DEF_TX, null, FhirPublication.R4, "4.0.1");
+    ve.setParallelBundleEntries(true);
+    ve.setThreads(2);
+    InstanceValidator before = ve.getValidator();
+    ve.setThreads(4);
+    InstanceValidator after = ve.getValidator();
+    Assertions.assertNotSame(before.getBundleEntryPool(), after.getBundleEntryPool());
+
+    // the first validator's pool is still usable
+    List<ValidationMessage> messages = new ArrayList<>();
+    before.validate(null, messages, new ByteArrayInputStream(source), FhirFormat.JSON);
+    List<ValidationMessage> expected = new ArrayList<>();
+    after.validate(null, expected, new ByteArrayInputStream(source), FhirFormat.JSON);
+    Assertions.assertEquals(expected.size(), messages.size());
+  }
+
+  /**
+   * validate the source with and without parallel entries, and check that the messages are the same
+   */
+  private OperationOutcome compareParallelBundleEntries(String src) throws Exception {
+    byte[] source = src.getBytes(StandardCharsets.UTF_8);
+    ValidationEngine ve = new ValidationEngine("hl7.fhir.r4.core#4.0.1", DEF_TX, null, FhirPublication.R4, "4.0.1");
+    OperationOutcome serial = ve.validate(FhirFormat.JSON, new ByteArrayInputStream(source), null);
+    ve.setParallelBundleEntries(true);
+    ve.setThreads(4);
+    OperationOutcome parallel = ve.validate(FhirFormat.JSON, new ByteArrayInputStream(source), null);
+    Assertions.assertEquals(serial.getIssue().size(), parallel.getIssue().size());
+    for (int i = 0; i < serial.getIssue().size(); i++) {
+      OperationOutcomeIssueComponent s = serial.getIssue().get(i);
+      OperationOutcomeIssueComponent p = parallel.getIssue().get(i);
+      Assertions.assertEquals(s.getSeverity(), p.getSeverity());
+      Assertions.assertEquals(s.getExpression().toString(), p.getExpression().toString());
+      Assertions.assertEquals(s.getDetails().getText(), p.getDetails().getText());
+    }
+    return serial;
+  }
+
+  @Test
+  public void testParallelSources() throws Exception {
+    if (!TestUtilities.silent)
+      System.out.println("TestParallelSources: Validate several files with one thread and with four");
+    File dir = Files.createTempDirectory("parallel-sources").toFile();
+    List<String> sources = new ArrayList<>();
+    for (int i = 0; i < 8; i++) {
+      // some have errors, and one of them can't be read
+      File f = new File(dir, "source"+i+(i == 3 ? ".dat" : ".json"));
+      String content = i == 3 ? "this is not a resource" : 
+        "{\"resourceType\": \"Patient\", \"id\": \"p"+i+"\", \"gender\": \""+(i % 2 == 0 ? "female" : "other-gender")+"\"}";
+      TextFile.stringToFile(content, f.getAbsolutePath());
+      sources.add(f.getAbsolutePath());
+    }
+    ValidationEngine ve = new ValidationEngine("hl7.fhir.r4.core#4.0.1", DEF_TX, null, FhirPublication.R4, "4.0.1");
+
+    // by default, the source that can't be read stops the validation, with or without threads
+    Exception serialFailure = Assertions.assertThrows(Exception.class, () -> ve.validate(sources, new ArrayList<>(), new ArrayList<>()));
+    ve.setThreads(4);
+    Exception parallelFailure = Assertions.assertThrows(Exception.class, () -> ve.validate(sources, new ArrayList<>(), new ArrayList<>()));
+    Assertions.assertEquals(serialFailure.getClass(), parallelFailure.getClass());
+
+    ve.setContinueOnError(true);
+    ve.setThreads(1);
+    List<ValidationRecord> serialRecords = new ArrayList<>();
+    Bundle serial = (Bundle) ve.validate(sources, new ArrayList<>(), serialRecords);
+    ve.setThreads(4);
+    List<ValidationRecord> parallelRecords = new ArrayList<>();
+    Bundle parallel = (Bundle) ve.validate(sources, new ArrayList<>(), parallelRecords);
+
+    // every source is reported, in the order of the sources
+    Assertions.assertEquals(sources.size(), serial.getEntry().size());
+    Assertions.assertEquals(sources.size(), parallel.getEntry().size());
+    for (int i = 0; i < sources.size(); i++) {
+      OperationOutcome s = (OperationOutcome) serial.getEntry().get(i).getResource();
+      OperationOutcome p = (OperationOutcome) parallel.getEntry().get(i).getResource();
+      Assertions.assertEquals(sources.get(i), ToolingExtensions.readStringExtension(s, ToolingExtensions.EXT_OO_FILE));
+      Assertions.assertEquals(sources.get(i), ToolingExtensions.readStringExtension(p, ToolingExtensions.EXT_OO_FILE));
+      Assertions.assertEquals(s.getIssue().size(), p.getIssue().size());
+      for (int j = 0; j < s.getIssue().size(); j++) {
+        Assertions.assertEquals(s.getIssue().get(j).getSeverity(), p.getIssue().get(j).getSeverity());
+        Assertions.assertEquals(s.getIssue().get(j).getDetails().getText(), p.getIssue().get(j).getDetails().getText());
+      }
+    }
+    Assertions.assertEquals(serialRecords.size(), parallelRecords.size());
+    for (int i = 0; i < serialRecords.size(); i++) {
+      Assertions.assertEquals(serialRecords.get(i).getLocation(), parallelRecords.get(i).getLocation());
+      Assertions.assertEquals(serialRecords.get(i).getErr(), parallelRecords.get(i).getErr());
+      Assertions.assertEquals(serialRecords.get(i).getWarn(), parallelRecords.get(i).getWarn());
+    }
+
+    // with continueOnError, the source that can't be read is a fatal issue for that source, and the others are still validated
+    OperationOutcome broken = (OperationOutcome) parallel.getEntry().get(3).getResource();
+    Assertions.assertEquals(IssueSeverity.FATAL, broken.getIssueFirstRep().getSeverity());
+    Assertions.assertTrue(broken.getIssueFirstRep().getDetails().getText().contains(sources.get(3)));
+    Assertions.assertEquals(0, errors((OperationOutcome) parallel.getEntry().get(4).getResource()));
+    Assertions.assertTrue(errors((OperationOutcome) parallel.getEntry().get(5).getResource()) > 0);
+  }
+
   private int errors(OperationOutcome op) {
     int i = 0;
     for (OperationOutcomeIssueComponent vm : op.getIssue()) {